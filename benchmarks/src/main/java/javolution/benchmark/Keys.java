@@ -0,0 +1,61 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution.benchmark;
+import java.util.Random;
+/**
+ * <p> This class holds the keys and index sequences shared by the
+ *     benchmarks (preallocated, so that key boxing is not measured).</p>
+ *
+ * @since 5.7.5
+ */
+final class Keys {
+	/**
+	 * Holds the length of the random index sequences (power of two).
+	 */
+	static final int LENGTH = 4096;
+	/**
+	 * Holds the mask to wrap around the random index sequences.
+	 */
+	static final int MASK = LENGTH - 1;
+	/**
+	 * Holds the seed of the random sequences (reproducible runs).
+	 */
+	static final long SEED = 0x5DEECE66DL;
+	private static final Integer[] VALUES = new Integer[1 << 20];
+	static {
+		for(int i = 0; i < VALUES.length; i++) {
+			VALUES[i] = Integer.valueOf(i);
+		}
+	}
+	private Keys() {}
+	/**
+	 * Returns the preallocated key for the specified value.
+	 *
+	 * @param i the key value in the range [0, 2^20[
+	 * @return the corresponding integer key.
+	 */
+	static Integer valueOf(int i) {
+		return VALUES[i];
+	}
+	/**
+	 * Returns a reproducible sequence of {@link #LENGTH} random indices in
+	 * the range [0, bound[
+	 *
+	 * @param bound the exclusive upper bound.
+	 * @return the random indices.
+	 */
+	static int[] randomIndices(int bound) {
+		final Random random = new Random(SEED);
+		final int[] indices = new int[LENGTH];
+		for(int i = 0; i < LENGTH; i++) {
+			indices[i] = random.nextInt(bound);
+		}
+		return indices;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution.benchmark;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javolution.util.FastList;
+import javolution.util.FastTable;
+import javolution.util.concurrent.CopyOnWriteArrayList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * <p> This class holds the {@link List} benchmarks: {@link FastTable},
+ *     {@link FastList} (plain and shared) against {@link ArrayList},
+ *     {@link LinkedList}, synchronized lists and
+ *     {@link CopyOnWriteArrayList}.</p>
+ *
+ * @since 5.7.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ListBenchmark {
+	@Param({"FastTable", "FastTable.shared", "FastList", "FastList.shared", "ArrayList", "LinkedList",
+			"synchronizedList", "CopyOnWriteArrayList"})
+	public String type;
+	@Param({"16", "1024", "65536"})
+	public int size;
+	private List<Integer> list;
+	private int[] indices;
+	private int cursor;
+	@Setup
+	public void setUp() {
+		list = newList(type);
+		for(int i = 0; i < size; i++) {
+			list.add(Keys.valueOf(i));
+		}
+		indices = Keys.randomIndices(size);
+	}
+	@Benchmark
+	public Integer get() {
+		return list.get(indices[cursor++ & Keys.MASK]);
+	}
+	@Benchmark
+	public int iterate() {
+		int sum = 0;
+		for(final Iterator<Integer> i = list.iterator(); i.hasNext();) {
+			sum += i.next().intValue();
+		}
+		return sum;
+	}
+	@Benchmark
+	public int indexedLoop() {
+		int sum = 0;
+		for(int i = 0, n = list.size(); i < n; i++) {
+			sum += list.get(i).intValue();
+		}
+		return sum;
+	}
+	@Benchmark
+	public Integer addRemoveLast() {
+		list.add(Keys.valueOf(0));
+		return list.remove(list.size() - 1);
+	}
+	@Benchmark
+	public Integer addRemoveFirst() {
+		list.add(0, Keys.valueOf(0));
+		return list.remove(0);
+	}
+	@Benchmark
+	public boolean contains() {
+		return list.contains(Keys.valueOf(indices[cursor++ & Keys.MASK]));
+	}
+	// Returns a new list of the specified type.
+	static List<Integer> newList(String type) {
+		if("FastTable".equals(type))
+			return new FastTable<Integer>();
+		if("FastTable.shared".equals(type))
+			return new FastTable<Integer>().shared();
+		if("FastList".equals(type))
+			return new FastList<Integer>();
+		if("FastList.shared".equals(type))
+			return new FastList<Integer>().shared();
+		if("ArrayList".equals(type))
+			return new ArrayList<Integer>();
+		if("LinkedList".equals(type))
+			return new LinkedList<Integer>();
+		if("synchronizedList".equals(type))
+			return Collections.synchronizedList(new ArrayList<Integer>());
+		if("CopyOnWriteArrayList".equals(type))
+			return new CopyOnWriteArrayList();
+		throw new IllegalArgumentException("Unknown list type: " + type);
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution.benchmark;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javolution.util.FastMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * <p> This class holds the single-threaded {@link Map} benchmarks:
+ *     {@link FastMap} (plain and shared) against {@link HashMap},
+ *     {@link LinkedHashMap}, synchronized maps and the concurrent maps
+ *     (see {@link MapContentionBenchmark} for multi-threaded access).</p>
+ *
+ * @since 5.7.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MapBenchmark {
+	@Param({"FastMap", "FastMap.shared", "HashMap", "LinkedHashMap", "synchronizedMap", "ConcurrentHashMap",
+			"javolution.ConcurrentHashMap"})
+	public String type;
+	@Param({"16", "1024", "65536"})
+	public int size;
+	private Map<Integer, Integer> map;
+	private int[] indices;
+	private int cursor;
+	@Setup
+	public void setUp() {
+		map = newMap(type);
+		for(int i = 0; i < size; i++) {
+			map.put(Keys.valueOf(i), Keys.valueOf(i));
+		}
+		indices = Keys.randomIndices(size);
+	}
+	@Benchmark
+	public Integer get() {
+		return map.get(Keys.valueOf(indices[cursor++ & Keys.MASK]));
+	}
+	@Benchmark
+	public Integer getMissing() {
+		return map.get(Keys.valueOf(size + indices[cursor++ & Keys.MASK]));
+	}
+	@Benchmark
+	public Integer putExisting() {
+		final Integer key = Keys.valueOf(indices[cursor++ & Keys.MASK]);
+		return map.put(key, key);
+	}
+	@Benchmark
+	public Integer putRemove() {
+		final Integer key = Keys.valueOf(size + indices[cursor++ & Keys.MASK]);
+		map.put(key, key);
+		return map.remove(key);
+	}
+	@Benchmark
+	public int iterate() {
+		int sum = 0;
+		for(final Iterator<Map.Entry<Integer, Integer>> i = map.entrySet().iterator(); i.hasNext();) {
+			sum += i.next().getValue().intValue();
+		}
+		return sum;
+	}
+	@Benchmark
+	public int iterateRecords() { // FastMap specific (no iterator allocation).
+		if(!(map instanceof FastMap))
+			return iterate();
+		final FastMap<Integer, Integer> fastMap = (FastMap<Integer, Integer>) map;
+		int sum = 0;
+		for(FastMap.Entry<Integer, Integer> e = fastMap.head(), end = fastMap.tail(); (e = e.getNext()) != end;) {
+			sum += e.getValue().intValue();
+		}
+		return sum;
+	}
+	// Returns a new map of the specified type.
+	static Map<Integer, Integer> newMap(String type) {
+		if("FastMap".equals(type))
+			return new FastMap<Integer, Integer>();
+		if("FastMap.shared".equals(type))
+			return new FastMap<Integer, Integer>().shared();
+		if("HashMap".equals(type))
+			return new HashMap<Integer, Integer>();
+		if("LinkedHashMap".equals(type))
+			return new LinkedHashMap<Integer, Integer>();
+		if("synchronizedMap".equals(type))
+			return Collections.synchronizedMap(new HashMap<Integer, Integer>());
+		if("ConcurrentHashMap".equals(type))
+			return new java.util.concurrent.ConcurrentHashMap<Integer, Integer>();
+		if("javolution.ConcurrentHashMap".equals(type))
+			return new javolution.util.concurrent.ConcurrentHashMap();
+		throw new IllegalArgumentException("Unknown map type: " + type);
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution.benchmark;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * <p> This class holds the multi-threaded benchmarks of the thread-safe
+ *     maps: readers and writers sharing the same map instance.</p>
+ *
+ * @since 5.7.5
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Group)
+public class MapContentionBenchmark {
+	@Param({"FastMap.shared", "synchronizedMap", "ConcurrentHashMap", "javolution.ConcurrentHashMap"})
+	public String type;
+	@Param({"1024", "65536"})
+	public int size;
+	private Map<Integer, Integer> map;
+	private int[] indices;
+	@Setup
+	public void setUp() {
+		map = MapBenchmark.newMap(type);
+		for(int i = 0; i < size; i++) {
+			map.put(Keys.valueOf(i), Keys.valueOf(i));
+		}
+		indices = Keys.randomIndices(size);
+	}
+	@State(Scope.Thread)
+	public static class Cursor {
+		int value;
+	}
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(3)
+	public Integer readMostlyGet(Cursor cursor) {
+		return map.get(Keys.valueOf(indices[cursor.value++ & Keys.MASK]));
+	}
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(1)
+	public Integer readMostlyPutRemove(Cursor cursor) {
+		final Integer key = Keys.valueOf(size + indices[cursor.value++ & Keys.MASK]);
+		map.put(key, key);
+		return map.remove(key);
+	}
+	@Benchmark
+	@Group("writeHeavy")
+	@GroupThreads(4)
+	public Integer writeHeavyPutRemove(Cursor cursor) {
+		final Integer key = Keys.valueOf(size + indices[cursor.value++ & Keys.MASK]);
+		map.put(key, key);
+		return map.remove(key);
+	}
+}
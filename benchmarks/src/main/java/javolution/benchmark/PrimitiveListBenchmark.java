@@ -0,0 +1,115 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution.benchmark;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import javolution.util.FastTable;
+import javolution.util.primitive.FastIntArrayList;
+import javolution.util.primitive.FastLongArrayList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * <p> This class holds the benchmarks of the primitive lists
+ *     ({@link FastIntArrayList}, {@link FastLongArrayList}) against the
+ *     boxed {@link ArrayList} and {@link FastTable}.</p>
+ *
+ * @since 5.7.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PrimitiveListBenchmark {
+	@Param({"16", "1024", "65536"})
+	public int size;
+	private FastIntArrayList intList;
+	private FastLongArrayList longList;
+	private ArrayList<Integer> arrayList;
+	private FastTable<Integer> fastTable;
+	@Setup
+	public void setUp() {
+		intList = new FastIntArrayList();
+		longList = new FastLongArrayList();
+		arrayList = new ArrayList<Integer>();
+		fastTable = new FastTable<Integer>();
+		for(int i = 0; i < size; i++) {
+			intList.add(i);
+			longList.add(i);
+			arrayList.add(Keys.valueOf(i));
+			fastTable.add(Keys.valueOf(i));
+		}
+	}
+	@Benchmark
+	public long sumFastIntArrayList() {
+		long sum = 0;
+		for(int i = 0, n = intList.size(); i < n; i++) {
+			sum += intList.get(i);
+		}
+		return sum;
+	}
+	@Benchmark
+	public long sumFastLongArrayList() {
+		long sum = 0;
+		for(int i = 0, n = longList.size(); i < n; i++) {
+			sum += longList.get(i);
+		}
+		return sum;
+	}
+	@Benchmark
+	public long sumArrayList() {
+		long sum = 0;
+		for(int i = 0, n = arrayList.size(); i < n; i++) {
+			sum += arrayList.get(i).intValue();
+		}
+		return sum;
+	}
+	@Benchmark
+	public long sumFastTable() {
+		long sum = 0;
+		for(int i = 0, n = fastTable.size(); i < n; i++) {
+			sum += fastTable.get(i).intValue();
+		}
+		return sum;
+	}
+	@Benchmark
+	public FastIntArrayList fillFastIntArrayList() {
+		final FastIntArrayList list = new FastIntArrayList();
+		for(int i = 0; i < size; i++) {
+			list.add(i);
+		}
+		return list;
+	}
+	@Benchmark
+	public ArrayList<Integer> fillArrayList() { // Includes boxing.
+		final ArrayList<Integer> list = new ArrayList<Integer>();
+		for(int i = 0; i < size; i++) {
+			list.add(Integer.valueOf(i));
+		}
+		return list;
+	}
+	@Benchmark
+	public boolean containsFastIntArrayList() {
+		return intList.contains(size - 1);
+	}
+	@Benchmark
+	public boolean containsArrayList() {
+		return arrayList.contains(Keys.valueOf(size - 1));
+	}
+}
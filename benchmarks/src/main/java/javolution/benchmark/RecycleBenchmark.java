@@ -0,0 +1,110 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution.benchmark;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import javolution.context.StackContext;
+import javolution.util.FastMap;
+import javolution.util.FastTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * <p> This class holds the benchmarks of temporary collections: new
+ *     instances against {@link FastTable#recycle recycled} instances and
+ *     instances allocated on the stack ({@link StackContext}).</p>
+ *
+ * @since 5.7.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Thread)
+public class RecycleBenchmark {
+	@Param({"16", "1024"})
+	public int size;
+	@Benchmark
+	public int newArrayList() {
+		final ArrayList<Integer> list = new ArrayList<Integer>();
+		fill(list);
+		return list.size();
+	}
+	@Benchmark
+	public int newFastTable() {
+		final FastTable<Integer> table = new FastTable<Integer>();
+		fill(table);
+		return table.size();
+	}
+	@Benchmark
+	public int recycledFastTable() {
+		final FastTable<Integer> table = FastTable.newInstance();
+		try {
+			fill(table);
+			return table.size();
+		}
+		finally {
+			FastTable.recycle(table);
+		}
+	}
+	@Benchmark
+	public int stackFastTable() {
+		StackContext.enter();
+		try {
+			final FastTable<Integer> table = FastTable.newInstance();
+			fill(table);
+			return table.size();
+		}
+		finally {
+			StackContext.exit();
+		}
+	}
+	@Benchmark
+	public int newHashMap() {
+		final HashMap<Integer, Integer> map = new HashMap<Integer, Integer>();
+		fill(map);
+		return map.size();
+	}
+	@Benchmark
+	public int newFastMap() {
+		final FastMap<Integer, Integer> map = new FastMap<Integer, Integer>();
+		fill(map);
+		return map.size();
+	}
+	@Benchmark
+	public int recycledFastMap() {
+		final FastMap<Integer, Integer> map = FastMap.newInstance();
+		try {
+			fill(map);
+			return map.size();
+		}
+		finally {
+			FastMap.recycle(map);
+		}
+	}
+	private void fill(java.util.List<Integer> list) {
+		for(int i = 0; i < size; i++) {
+			list.add(Keys.valueOf(i));
+		}
+	}
+	private void fill(java.util.Map<Integer, Integer> map) {
+		for(int i = 0; i < size; i++) {
+			map.put(Keys.valueOf(i), Keys.valueOf(i));
+		}
+	}
+}
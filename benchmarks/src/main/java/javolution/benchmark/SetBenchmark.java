@@ -0,0 +1,93 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution.benchmark;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+import javolution.util.FastSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * <p> This class holds the set benchmarks: {@link FastSet} (plain and
+ *     shared) against {@link HashSet}, {@link LinkedHashSet} and
+ *     synchronized sets.</p>
+ *
+ * @since 5.7.5
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SetBenchmark {
+	@Param({"FastSet", "FastSet.shared", "HashSet", "LinkedHashSet", "synchronizedSet"})
+	public String type;
+	@Param({"16", "1024", "65536"})
+	public int size;
+	private Collection<Integer> set;
+	private int[] indices;
+	private int cursor;
+	@Setup
+	public void setUp() {
+		set = newSet(type);
+		for(int i = 0; i < size; i++) {
+			set.add(Keys.valueOf(i));
+		}
+		indices = Keys.randomIndices(size);
+	}
+	@Benchmark
+	public boolean contains() {
+		return set.contains(Keys.valueOf(indices[cursor++ & Keys.MASK]));
+	}
+	@Benchmark
+	public boolean containsMissing() {
+		return set.contains(Keys.valueOf(size + indices[cursor++ & Keys.MASK]));
+	}
+	@Benchmark
+	public boolean addRemove() {
+		final Integer key = Keys.valueOf(size + indices[cursor++ & Keys.MASK]);
+		set.add(key);
+		return set.remove(key);
+	}
+	@Benchmark
+	public int iterate() {
+		int sum = 0;
+		for(final Iterator<Integer> i = set.iterator(); i.hasNext();) {
+			sum += i.next().intValue();
+		}
+		return sum;
+	}
+	// Returns a new set of the specified type.
+	static Collection<Integer> newSet(String type) {
+		if("FastSet".equals(type))
+			return new FastSet<Integer>();
+		if("FastSet.shared".equals(type))
+			return new FastSet<Integer>().shared();
+		if("HashSet".equals(type))
+			return new HashSet<Integer>();
+		if("LinkedHashSet".equals(type))
+			return new LinkedHashSet<Integer>();
+		if("synchronizedSet".equals(type))
+			return Collections.synchronizedSet(new HashSet<Integer>());
+		throw new IllegalArgumentException("Unknown set type: " + type);
+	}
+}
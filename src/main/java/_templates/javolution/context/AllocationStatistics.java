@@ -0,0 +1,289 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.context;
+import _templates.javolution.lang.Configurable;
+import _templates.javolution.text.Text;
+import _templates.javolution.text.TextBuilder;
+import _templates.javolution.util.FastTable;
+/**
+ * <p> This class collects allocation statistics for the
+ *     {@link ObjectFactory object factories}, per factory and per
+ *     {@link AllocatorContext allocator context} type (e.g. the same factory
+ *     used in a {@link PoolContext} and a {@link StackContext} has two
+ *     entries). For each entry are counted:<ul>
+ *     <li> the {@link ObjectFactory#object() objects} requested,</li>
+ *     <li> the objects created (allocator misses, the other objects
+ *          requested were recycled or pre-allocated: hits),</li>
+ *     <li> the objects recycled (explicitly, or implicitly when
+ *          exiting a {@link StackContext}),</li>
+ *     <li> the objects alive (requested and not recycled) and their
+ *          high-water mark.</li></ul></p>
+ *
+ * <p> Statistics are disabled by default; when {@link #ENABLED disabled}
+ *     the instrumentation cost is a volatile read per allocation or recycling.
+ *     When enabled, each event is recorded under the entry monitor
+ *     (profiling only). For example:[code]
+ *         Configurable.configure(AllocationStatistics.ENABLED, Boolean.TRUE);
+ *         ... // Runs the application.
+ *         System.out.println(AllocationStatistics.report());[/code]
+ *     Factories with a low hit ratio (most objects created) or with a
+ *     growing number of objects alive do not benefit from recycling.</p>
+ *
+ * <p> On Java 5+ the statistics are also exposed through JMX
+ *     ({@link #OBJECT_NAME}, see {@link MBean}); the management bean is
+ *     registered when the statistics are first enabled.</p>
+ *
+ * @version 5.7.5
+ * @since 5.7.5
+ */
+public final class AllocationStatistics {
+	/**
+	 * Holds the JMX object name of the allocation statistics bean.
+	 */
+	public static final String OBJECT_NAME = "javolution:type=AllocationStatistics";
+	/**
+	 * Indicates if allocation statistics are collected (default
+	 * <code>false</code>).
+	 */
+	public static final Configurable/*<Boolean>*/ ENABLED = new Configurable(Boolean.FALSE) {
+		protected void notifyChange(Object oldValue, Object newValue) {
+			_Enabled = ((Boolean) newValue).booleanValue();
+			if(_Enabled) {
+				registerMBean();
+			}
+		}
+	};
+	/**
+	 * Holds the enabled state (read on each allocation).
+	 */
+	static volatile boolean _Enabled;
+	/**
+	 * Holds all the entries (guarded by the class monitor).
+	 */
+	private static final FastTable ENTRIES = new FastTable();
+	/**
+	 * Indicates if the management bean has been registered.
+	 */
+	private static boolean _Registered;
+	/**
+	 * Default constructor (utility class).
+	 */
+	private AllocationStatistics() {}
+	/**
+	 * Indicates if allocation statistics are currently collected.
+	 *
+	 * @return <code>ENABLED.get()</code>
+	 */
+	public static boolean isEnabled() {
+		return _Enabled;
+	}
+	/**
+	 * Clears all the counters (high-water marks included).
+	 */
+	public static void reset() {
+		final Entry[] entries = entries();
+		for(int i = 0; i < entries.length; i++) {
+			entries[i].reset();
+		}
+	}
+	/**
+	 * Returns the textual report of the statistics collected, one line per
+	 * factory and allocator context type:[code]
+	 *     javolution.util.FastTable (PoolContext): objects 1000, created 16 (hits 98.4%), recycled 990, alive 10 (max 24)[/code]
+	 *
+	 * @return the allocation statistics report.
+	 */
+	public static Text report() {
+		final Entry[] entries = entries();
+		final TextBuilder tb = new TextBuilder();
+		tb.append("Allocation statistics");
+		if(!_Enabled) {
+			tb.append(" (disabled)");
+		}
+		for(int i = 0; i < entries.length; i++) {
+			tb.append('\n');
+			entries[i].appendTo(tb);
+		}
+		return tb.toText();
+	}
+	/**
+	 * Registers the statistics management bean ({@link #OBJECT_NAME}) to
+	 * the platform bean server. This method does nothing if the bean is
+	 * already registered or if JMX is not supported (Java 1.4, J2ME).
+	 */
+	public static synchronized void registerMBean() {
+		if(_Registered)
+			return;
+		_Registered = true;
+		/*@JVM-1.5+@
+		try {
+			java.lang.management.ManagementFactory.getPlatformMBeanServer().registerMBean(
+					new javax.management.StandardMBean(new Management(), MBean.class),
+					new javax.management.ObjectName(OBJECT_NAME));
+		}
+		catch(Exception e) {
+			LogContext.warning("Cannot register " + OBJECT_NAME + ": " + e);
+		}
+		/**/
+	}
+	// Records an object request (ObjectFactory.object()).
+	static void object(ObjectFactory factory) {
+		entry(factory).object();
+	}
+	// Records an object creation by an allocator.
+	static void create(ObjectFactory factory, Object created) {
+		entry(factory).create(created);
+	}
+	// Records objects recycled.
+	static void recycle(ObjectFactory factory, int count) {
+		entry(factory).recycle(count);
+	}
+	// Returns the entry of the specified factory for the current allocator context.
+	private static Entry entry(ObjectFactory factory) {
+		final Class contextType = AllocatorContext.getCurrentAllocatorContext().getClass();
+		for(Entry e = factory._statistics; e != null; e = e._next) {
+			if(e._contextType == contextType)
+				return e;
+		}
+		synchronized(AllocationStatistics.class) {
+			for(Entry e = factory._statistics; e != null; e = e._next) {
+				if(e._contextType == contextType)
+					return e;
+			}
+			final Entry entry = new Entry(factory, contextType);
+			entry._next = factory._statistics;
+			factory._statistics = entry;
+			ENTRIES.addLast(entry);
+			return entry;
+		}
+	}
+	private static synchronized Entry[] entries() {
+		final Entry[] entries = new Entry[ENTRIES.size()];
+		for(int i = 0; i < entries.length; i++) {
+			entries[i] = (Entry) ENTRIES.get(i);
+		}
+		return entries;
+	}
+	/**
+	 * This interface represents the allocation statistics management bean
+	 * (Java 5+).
+	 */
+	public interface MBean {
+		/**
+		 * Indicates if the statistics are collected.
+		 *
+		 * @return <code>AllocationStatistics.isEnabled()</code>
+		 */
+		boolean isEnabled();
+		/**
+		 * Enables or disables the statistics collection.
+		 *
+		 * @param enabled <code>true</code> to collect statistics;
+		 *        <code>false</code> otherwise.
+		 */
+		void setEnabled(boolean enabled);
+		/**
+		 * Returns the statistics report.
+		 *
+		 * @return <code>AllocationStatistics.report().toString()</code>
+		 */
+		String getReport();
+		/**
+		 * Clears all the counters.
+		 */
+		void reset();
+	}
+	// Holds the management bean implementation.
+	private static final class Management implements MBean {
+		public boolean isEnabled() {
+			return AllocationStatistics.isEnabled();
+		}
+		public void setEnabled(boolean enabled) {
+			Configurable.configure(ENABLED, enabled ? Boolean.TRUE : Boolean.FALSE);
+		}
+		public String getReport() {
+			return AllocationStatistics.report().toString();
+		}
+		public void reset() {
+			AllocationStatistics.reset();
+		}
+	}
+	// Holds the counters for a factory in a type of allocator context.
+	static final class Entry {
+		private final ObjectFactory _factory;
+		private final Class _contextType;
+		volatile Entry _next; // Next entry for the same factory.
+		private String _type; // Type of the objects produced.
+		private long _objects;
+		private long _created;
+		private long _recycled;
+		private long _maxAlive;
+		Entry(ObjectFactory factory, Class contextType) {
+			_factory = factory;
+			_contextType = contextType;
+		}
+		synchronized void object() {
+			final long alive = ++_objects - _recycled;
+			if(alive > _maxAlive) {
+				_maxAlive = alive;
+			}
+		}
+		synchronized void create(Object created) {
+			_created++;
+			if(_type == null && created != null) {
+				_type = typeOf(created);
+			}
+		}
+		synchronized void recycle(int count) {
+			_recycled += count;
+		}
+		synchronized void reset() {
+			_objects = 0;
+			_created = 0;
+			_recycled = 0;
+			_maxAlive = 0;
+		}
+		synchronized void appendTo(TextBuilder tb) {
+			tb.append(_type != null ? _type : _factory.getClass().getName());
+			final String context = _contextType.getName();
+			tb.append(" (").append(context.substring(context.lastIndexOf('.') + 1)).append("): ");
+			tb.append("objects ").append(_objects);
+			tb.append(", created ").append(_created);
+			if(_objects != 0) {
+				final long hits = _objects > _created ? _objects - _created : 0;
+				tb.append(" (hits ").append(hits * 1000 / _objects / 10.0).append("%)");
+			}
+			tb.append(", recycled ").append(_recycled);
+			tb.append(", alive ").append(_objects - _recycled);
+			tb.append(" (max ").append(_maxAlive).append(')');
+		}
+		// Returns the type name (arrays with their length).
+		private static String typeOf(Object obj) {
+			if(obj instanceof char[])
+				return "char[" + ((char[]) obj).length + "]";
+			if(obj instanceof byte[])
+				return "byte[" + ((byte[]) obj).length + "]";
+			if(obj instanceof int[])
+				return "int[" + ((int[]) obj).length + "]";
+			if(obj instanceof long[])
+				return "long[" + ((long[]) obj).length + "]";
+			if(obj instanceof double[])
+				return "double[" + ((double[]) obj).length + "]";
+			if(obj instanceof float[])
+				return "float[" + ((float[]) obj).length + "]";
+			if(obj instanceof short[])
+				return "short[" + ((short[]) obj).length + "]";
+			if(obj instanceof boolean[])
+				return "boolean[" + ((boolean[]) obj).length + "]";
+			if(obj instanceof Object[])
+				return "Object[" + ((Object[]) obj).length + "]";
+			return obj.getClass().getName();
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.context;
+import _templates.java.lang.ThreadLocal;
+import _templates.java.nio.ByteBuffer;
+import _templates.java.nio.ByteOrder;
+import _templates.javolution.io.Struct;
+import _templates.javolution.lang.Configurable;
+import _templates.javolution.lang.MathLib;
+import _templates.javolution.util.FastMap;
+import _templates.javolution.util.FastTable;
+/**
+ * <p> This class represents a {@link StackContext stack context} whose
+ *     {@link Struct} objects are mapped to a thread-local direct memory arena.
+ *     Like the default stack context, objects are reused by the thread
+ *     entering the context; in addition, each time a (top-level)
+ *     {@link Struct} is produced by an {@link ObjectFactory} its
+ *     {@link Struct#setByteBuffer byte buffer} is set to the next free
+ *     (zeroed) bytes of the arena (bump pointer allocation). Exiting the
+ *     context releases at once all the arena memory allocated within the
+ *     context. For example:[code]
+ *         static final ObjectFactory<Header> HEADER_FACTORY = ...;
+ *         ...
+ *         ArenaContext.enter();
+ *         try {
+ *             Header header = HEADER_FACTORY.object(); // Mapped to the arena.
+ *             header.read(in);
+ *             ...
+ *         } finally {
+ *             ArenaContext.exit(); // Releases the arena (and the header).
+ *         }[/code]
+ *     This context can also be set as the {@link StackContext#DEFAULT
+ *     default} stack context.</p>
+ *
+ * <p> Structs are remapped each time they are produced: a byte buffer set
+ *     by the factory (e.g. in its <code>create</code> method) or by the
+ *     user during a previous use is replaced by the arena memory. Structs
+ *     which must keep their own buffer (e.g. mapped to a file or wrapping
+ *     an I/O array) should not be produced by a factory within this
+ *     context (or should be inner structs of such a struct).</p>
+ *
+ * <p> The arena is made of direct buffers of {@link #CHUNK_SIZE} bytes
+ *     (larger for bigger structs) allocated on demand and kept by the thread
+ *     for reuse; there is one arena per byte order. As for any stack allocated
+ *     objects, structs produced within this context (and their memory) should
+ *     not be referenced once the context is exited. Objects produced by
+ *     concurrent threads executing within this context are allocated on the
+ *     heap.</p>
+ *
+ * @version 5.7.5
+ * @since 5.7.5
+ */
+public class ArenaContext extends StackContext {
+	/**
+	 * Holds the size in bytes of the arena chunks (default <code>64 KB</code>).
+	 */
+	public static final Configurable/*<Integer>*/ CHUNK_SIZE = new Configurable(new Integer(64 << 10)) {};
+	/**
+	 * Holds the arenas (per thread).
+	 */
+	private static final ThreadLocal ARENAS = new ThreadLocal() {
+		protected Object initialValue() {
+			return new Arena();
+		}
+	};
+	/**
+	 * Holds the factory to allocator mapping (per thread).
+	 */
+	private final ThreadLocal _factoryToAllocator = new ThreadLocal() {
+		protected Object initialValue() {
+			return new FastMap();
+		}
+	};
+	/**
+	 * Holds the allocators which have been activated (per thread).
+	 */
+	private final ThreadLocal _activeAllocators = new ThreadLocal() {
+		protected Object initialValue() {
+			return new FastTable();
+		}
+	};
+	/**
+	 * Holds the allocators used by the owner (no synchronization required).
+	 */
+	private final FastTable _ownerUsedAllocators = new FastTable();
+	/**
+	 * Holds the arena of the owner.
+	 */
+	private Arena _arena;
+	/**
+	 * Holds the arena positions when this context was entered.
+	 */
+	private int _bigIndex, _bigOffset, _littleIndex, _littleOffset;
+	/**
+	 * Default constructor.
+	 */
+	public ArenaContext() {}
+	/**
+	 * Enters an arena context.
+	 */
+	public static void enter() {
+		Context.enter(ArenaContext.class);
+	}
+	/**
+	 * Exits the current arena context.
+	 *
+	 * @throws ClassCastException if the context is not an arena context.
+	 */
+	public static void exit() {
+		Context.exit(ArenaContext.class);
+	}
+	// Overrides.
+	protected void deactivate() {
+		final FastTable allocators = (FastTable) _activeAllocators.get();
+		final int n = allocators.size();
+		for(int i = 0; i < n;) {
+			((Allocator) allocators.get(i++)).user = null;
+		}
+		allocators.clear();
+	}
+	// Overrides.
+	protected Allocator getAllocator(ObjectFactory factory) {
+		final FastMap factoryToAllocator = (FastMap) _factoryToAllocator.get();
+		ArenaAllocator allocator = (ArenaAllocator) factoryToAllocator.get(factory);
+		if(allocator == null) {
+			allocator = new ArenaAllocator(factory);
+			factoryToAllocator.put(factory, allocator);
+		}
+		if(allocator.user == null) { // Activate.
+			allocator.user = Thread.currentThread();
+			final FastTable activeAllocators = (FastTable) _activeAllocators.get();
+			activeAllocators.add(allocator);
+			if(Thread.currentThread() == getOwner()) {
+				allocator._arena = _arena;
+				if(!allocator._inUse) {
+					allocator._inUse = true;
+					_ownerUsedAllocators.add(allocator);
+				}
+			}
+			else { // Concurrent thread, allocates on the heap.
+				allocator._arena = null;
+			}
+		}
+		return allocator;
+	}
+	// Overrides.
+	protected void enterAction() {
+		getOuter().getAllocatorContext().deactivate();
+		_arena = (Arena) ARENAS.get();
+		_bigIndex = _arena._big._index;
+		_bigOffset = _arena._big._offset;
+		_littleIndex = _arena._little._index;
+		_littleOffset = _arena._little._offset;
+	}
+	// Overrides.
+	protected void exitAction() {
+		deactivate();
+		final int size = _ownerUsedAllocators.size();
+		for(int i = 0; i < size; ++i) {
+			((ArenaAllocator) _ownerUsedAllocators.get(i)).reset();
+		}
+		_ownerUsedAllocators.clear();
+		_arena._big.release(_bigIndex, _bigOffset); // Bulk free.
+		_arena._little.release(_littleIndex, _littleOffset);
+		_arena = null;
+	}
+	// Holds arena allocator implementation (the queue is not used, every
+	// request goes through allocate()).
+	private static final class ArenaAllocator extends Allocator {
+		private final ObjectFactory _factory;
+		private Object[] _objects = new Object[16]; // Produced by this allocator.
+		private int _count; // Number of objects produced.
+		private int _used; // Number of objects in use.
+		private Arena _arena; // Null for non-owner threads.
+		private boolean _inUse;
+		public ArenaAllocator(ObjectFactory factory) {
+			_factory = factory;
+		}
+		protected Object allocate() {
+			if(_arena == null)
+				return _factory.newObject();
+			final Object obj;
+			if(_used < _count) {
+				obj = _objects[_used++];
+			}
+			else {
+				obj = _factory.newObject();
+				if(_count >= _objects.length) {
+					final Object[] tmp = new Object[_count << 1];
+					System.arraycopy(_objects, 0, tmp, 0, _count);
+					_objects = tmp;
+				}
+				_objects[_count++] = obj;
+				_used = _count;
+			}
+			if((obj instanceof Struct) && ((Struct) obj).outer() == null) {
+				_arena.bind((Struct) obj); // Replaces any buffer already set (see class comment).
+			}
+			return obj;
+		}
+		protected void recycle(Object object) {
+			if(_arena == null)
+				return; // Heap object.
+			if(_factory.doCleanup()) {
+				_factory.cleanup(object);
+			}
+			for(int i = _used; --i >= 0;) {
+				if(_objects[i] == object) { // Found it (its arena memory is released on exit).
+					_objects[i] = _objects[--_used];
+					_objects[_used] = object;
+					return;
+				}
+			}
+			throw new _templates.java.lang.UnsupportedOperationException(
+					"Cannot recycle to the arena an object " + "which has not been allocated from the arena");
+		}
+		protected void reset() {
+			_inUse = false;
+			if(AllocationStatistics._Enabled && _used != 0) { // Released.
+				AllocationStatistics.recycle(_factory, _used);
+			}
+			while(_factory.doCleanup() && _used != 0) {
+				_factory.cleanup(_objects[--_used]);
+			}
+			_used = 0;
+		}
+		public String toString() {
+			return "Arena allocator for " + _factory.getClass();
+		}
+	}
+	// Holds the arenas of a thread (one per byte order).
+	private static final class Arena {
+		private final Chunks _big = new Chunks(ByteOrder.BIG_ENDIAN);
+		private final Chunks _little = new Chunks(ByteOrder.LITTLE_ENDIAN);
+		void bind(Struct struct) {
+			final Chunks chunks = struct.byteOrder() == ByteOrder.LITTLE_ENDIAN ? _little : _big;
+			final int size = struct.size();
+			final int offset = chunks.reserve(size);
+			struct.setByteBuffer(chunks._buffer, offset);
+		}
+	}
+	// Holds the direct buffers for a byte order (bump pointer).
+	private static final class Chunks {
+		private static final byte[] ZEROS = new byte[1024];
+		private final ByteOrder _order;
+		private final FastTable _buffers = new FastTable();
+		private ByteBuffer _buffer; // Current buffer.
+		private int _index = -1; // Current buffer index.
+		private int _offset; // Next free byte in the current buffer.
+		Chunks(ByteOrder order) {
+			_order = order;
+		}
+		// Returns the offset of the specified number of zeroed bytes in the current buffer.
+		int reserve(int size) {
+			int offset = (_offset + 7) & ~7; // 8 bytes aligned.
+			if(_buffer == null || offset + size > _buffer.capacity()) { // Next chunk.
+				final int index = _index + 1;
+				ByteBuffer buffer = index < _buffers.size() ? (ByteBuffer) _buffers.get(index) : null;
+				if(buffer == null || buffer.capacity() < size) {
+					buffer = ByteBuffer.allocateDirect(MathLib.max(size, ((Integer) CHUNK_SIZE.get()).intValue()));
+					buffer.order(_order);
+					_buffers.add(index, buffer);
+				}
+				_index = index;
+				_buffer = buffer;
+				offset = 0;
+			}
+			_buffer.position(offset);
+			for(int n = size; n > 0; n -= ZEROS.length) {
+				_buffer.put(ZEROS, 0, MathLib.min(n, ZEROS.length));
+			}
+			_offset = offset + size;
+			return offset;
+		}
+		// Releases the bytes allocated since the specified position.
+		void release(int index, int offset) {
+			_index = index;
+			_offset = offset;
+			_buffer = index >= 0 ? (ByteBuffer) _buffers.get(index) : null;
+		}
+	}
+}
@@ -7,6 +7,9 @@
  * freely granted, provided that this notice is preserved.
  */
 package _templates.javolution.context;
+import _templates.java.lang.ThreadLocal;
+import _templates.javolution.lang.Configurable;
+import _templates.javolution.lang.MathLib;
 /**
  * <p> This class holds factories to produces arrays of variable length.
  *     It allows for object recycling, pre-allocation and {@link StackContext
@@ -28,14 +31,33 @@ package _templates.javolution.context;
  *     Vertex[] vertices = VERTICES_FACTORY.array(256);
  *     [/code]</p>
  *
+ * <p> Arrays are pooled by power-of-two size classes (from <code>4</code>
+ *     to <code>1M</code> elements, larger arrays are not pooled). Within a
+ *     {@link HeapContext} (default), each thread caches a few recycled arrays
+ *     per size class (at most 64 KB per size class, larger arrays are not
+ *     cached per thread) and exchanges batches of arrays with the factory
+ *     shared pools (one lock per batch); the memory held by the shared pools of all
+ *     the factories is bounded by {@link #MAXIMUM_POOL_SIZE} (arrays beyond
+ *     are left to the garbage collector). Within other allocator contexts
+ *     (e.g. {@link StackContext}, {@link PoolContext}) arrays are allocated
+ *     and recycled through the context allocators.</p>
+ *
  * @author  <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
  * @version 5.0, May 5, 2007
  */
 public abstract class ArrayFactory/*<T>*/ {
+	/**
+	 * Holds the maximum number of bytes held by the shared array pools of
+	 * all the factories (default <code>16 MB</code>). The size of the arrays
+	 * is estimated from their size class.
+	 *
+	 * @since 5.7.5
+	 */
+	public static final Configurable/*<Integer>*/ MAXIMUM_POOL_SIZE = new Configurable(new Integer(16 << 20)) {};
 	/**
 	 * Holds factory for <code>boolean</code> arrays.
 	 */
-	public static final ArrayFactory/*<boolean[]>*/ BOOLEANS_FACTORY = new ArrayFactory() {
+	public static final ArrayFactory/*<boolean[]>*/ BOOLEANS_FACTORY = new ArrayFactory(1) {
 		protected Object create(int size) {
 			return new boolean[size];
 		}
@@ -46,7 +68,7 @@ public abstract class ArrayFactory/*<T>*/ {
 	/**
 	 * Holds factory for <code>byte</code> arrays.
 	 */
-	public static final ArrayFactory/*<byte[]>*/ BYTES_FACTORY = new ArrayFactory() {
+	public static final ArrayFactory/*<byte[]>*/ BYTES_FACTORY = new ArrayFactory(1) {
 		protected Object create(int size) {
 			return new byte[size];
 		}
@@ -57,7 +79,7 @@ public abstract class ArrayFactory/*<T>*/ {
 	/**
 	 * Holds factory for <code>char</code> arrays.
 	 */
-	public static final ArrayFactory/*<char[]>*/ CHARS_FACTORY = new ArrayFactory() {
+	public static final ArrayFactory/*<char[]>*/ CHARS_FACTORY = new ArrayFactory(2) {
 		protected Object create(int size) {
 			return new char[size];
 		}
@@ -68,7 +90,7 @@ public abstract class ArrayFactory/*<T>*/ {
 	/**
 	 * Holds factory for <code>short</code> arrays.
 	 */
-	public static final ArrayFactory/*<short[]>*/ SHORTS_FACTORY = new ArrayFactory() {
+	public static final ArrayFactory/*<short[]>*/ SHORTS_FACTORY = new ArrayFactory(2) {
 		protected Object create(int size) {
 			return new short[size];
 		}
@@ -79,7 +101,7 @@ public abstract class ArrayFactory/*<T>*/ {
 	/**
 	 * Holds factory for <code>int</code> arrays.
 	 */
-	public static final ArrayFactory/*<int[]>*/ INTS_FACTORY = new ArrayFactory() {
+	public static final ArrayFactory/*<int[]>*/ INTS_FACTORY = new ArrayFactory(4) {
 		protected Object create(int size) {
 			return new int[size];
 		}
@@ -90,7 +112,7 @@ public abstract class ArrayFactory/*<T>*/ {
 	/**
 	 * Holds factory for <code>long</code> arrays.
 	 */
-	public static final ArrayFactory/*<long[]>*/ LONGS_FACTORY = new ArrayFactory() {
+	public static final ArrayFactory/*<long[]>*/ LONGS_FACTORY = new ArrayFactory(8) {
 		protected Object create(int size) {
 			return new long[size];
 		}
@@ -101,7 +123,7 @@ public abstract class ArrayFactory/*<T>*/ {
 	/**
 	 * Holds factory for <code>float</code> arrays.
 	 */
-	public static final ArrayFactory /*<float[]>*/ FLOATS_FACTORY = new ArrayFactory() {
+	public static final ArrayFactory /*<float[]>*/ FLOATS_FACTORY = new ArrayFactory(4) {
 		protected Object create(int size) {
 			return new float[size];
 		}
@@ -112,7 +134,7 @@ public abstract class ArrayFactory/*<T>*/ {
 	/**
 	 * Holds factory for <code>double</code> arrays.
 	 */
-	public static final ArrayFactory /*<double[]>*/ DOUBLES_FACTORY = new ArrayFactory() {
+	public static final ArrayFactory /*<double[]>*/ DOUBLES_FACTORY = new ArrayFactory(8) {
 		protected Object create(int size) {
 			return new double[size];
 		}
@@ -123,7 +145,7 @@ public abstract class ArrayFactory/*<T>*/ {
 	/**
 	 * Holds factory for generic <code>Object</code> arrays.
 	 */
-	public static final ArrayFactory/*<Object[]>*/ OBJECTS_FACTORY = new ArrayFactory() {
+	public static final ArrayFactory/*<Object[]>*/ OBJECTS_FACTORY = new ArrayFactory(4) {
 		protected Object create(int size) {
 			return new Object[size];
 		}
@@ -132,130 +154,66 @@ public abstract class ArrayFactory/*<T>*/ {
 		}
 	};
 	/**
-	 * Holds factory for arrays up to size 4.
-	 */
-	private final ObjectFactory _factory4 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(4);
-		}
-	};
-	/**
-	 * Holds factory for arrays up to size 8.
-	 */
-	private final ObjectFactory _factory8 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(8);
-		}
-	};
-	/**
-	 * Holds factory for arrays up to size 16.
-	 */
-	private final ObjectFactory _factory16 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(16);
-		}
-	};
-	/**
-	 * Holds factory for arrays up to size 32.
-	 */
-	private final ObjectFactory _factory32 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(32);
-		}
-	};
-	/**
-	 * Holds factory for arrays up to size 64.
+	 * Holds the smallest size class (in bits).
 	 */
-	private final ObjectFactory _factory64 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(64);
-		}
-	};
+	private static final int MIN_BITS = 2;
 	/**
-	 * Holds factory for arrays up to size 128.
+	 * Holds the largest size class (in bits).
 	 */
-	private final ObjectFactory _factory128 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(128);
-		}
-	};
+	private static final int MAX_BITS = 20;
 	/**
-	 * Holds factory for arrays up to size 256.
+	 * Holds the number of size classes.
 	 */
-	private final ObjectFactory _factory256 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(256);
-		}
-	};
+	private static final int CLASSES = MAX_BITS - MIN_BITS + 1;
 	/**
-	 * Holds factory for arrays up to size 512.
+	 * Holds the maximum number of bytes cached per thread and size class
+	 * (arrays larger are exchanged directly with the shared pools).
 	 */
-	private final ObjectFactory _factory512 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(512);
-		}
-	};
+	private static final int LOCAL_BYTES = 64 << 10;
 	/**
-	 * Holds factory for arrays up to size 1024.
+	 * Holds the number of bytes currently held by the shared pools
+	 * (guarded by <code>ArrayFactory.class</code>).
 	 */
-	private final ObjectFactory _factory1024 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(1024);
-		}
-	};
+	private static long _PooledBytes;
 	/**
-	 * Holds factory for arrays up to size 2048.
+	 * Holds the number of arrays cached per thread (one per size class).
 	 */
-	private final ObjectFactory _factory2048 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(2048);
-		}
-	};
+	private final int[] _localCapacities = new int[CLASSES];
 	/**
-	 * Holds factory for arrays up to size 4096.
+	 * Holds the factories used within non-heap allocator contexts
+	 * (one per size class).
 	 */
-	private final ObjectFactory _factory4096 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(4096);
-		}
-	};
+	private final ObjectFactory[] _factories = new ObjectFactory[CLASSES];
 	/**
-	 * Holds factory for arrays up to size 8192.
+	 * Holds the shared pools (one per size class).
 	 */
-	private final ObjectFactory _factory8192 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(8192);
-		}
-	};
+	private final Depot[] _depots = new Depot[CLASSES];
 	/**
-	 * Holds factory for arrays up to size 16384.
+	 * Holds the thread caches.
 	 */
-	private final ObjectFactory _factory16384 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(16384);
+	private final ThreadLocal _caches = new ThreadLocal() {
+		protected Object initialValue() {
+			return new Cache();
 		}
 	};
 	/**
-	 * Holds factory for arrays up to size 32768.
+	 * Default constructor (array elements estimated to 4 bytes).
 	 */
-	private final ObjectFactory _factory32768 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(32768);
-		}
-	};
+	public ArrayFactory() {
+		this(4);
+	}
 	/**
-	 * Holds factory for arrays up to size 65536.
+	 * Creates a factory for arrays whose elements have the specified size.
+	 *
+	 * @param elementSize the estimated size of an element in bytes.
 	 */
-	private final ObjectFactory _factory65536 = new ObjectFactory() {
-		protected Object create() {
-			return ArrayFactory.this.create(65536);
+	ArrayFactory(int elementSize) {
+		for(int i = 0; i < CLASSES; i++) {
+			_factories[i] = new SizeFactory(1 << (i + MIN_BITS));
+			_depots[i] = new Depot((long) elementSize << (i + MIN_BITS));
+			_localCapacities[i] = (int) MathLib.min(8, LOCAL_BYTES / ((long) elementSize << (i + MIN_BITS)));
 		}
-	};
-	// Above 65536 we use the heap exclusively.
-	/**
-	 * Default constructor.
-	 */
-	public ArrayFactory() {}
+	}
 	/**
 	 * Returns an array possibly recycled or preallocated of specified
 	 * minimum size.
@@ -263,98 +221,65 @@ public abstract class ArrayFactory/*<T>*/ {
 	 * @param capacity the minimum size of the array to be returned.
 	 * @return a recycled, pre-allocated or new factory array.
 	 */
-	public final Object/*{T}*/ array(int capacity) { // Short to be inlined.
-		return capacity <= 4 ? (Object/*{T}*/) _factory4.object() : largeArray(capacity);
-	}
-	private final Object/*{T}*/ largeArray(int capacity) {
-		if(capacity <= 8)
-			return (Object/*{T}*/) _factory8.object();
-		else if(capacity <= 16)
-			return (Object/*{T}*/) _factory16.object();
-		else if(capacity <= 32)
-			return (Object/*{T}*/) _factory32.object();
-		else if(capacity <= 64)
-			return (Object/*{T}*/) _factory64.object();
-		else if(capacity <= 128)
-			return (Object/*{T}*/) _factory128.object();
-		else if(capacity <= 256)
-			return (Object/*{T}*/) _factory256.object();
-		else if(capacity <= 512)
-			return (Object/*{T}*/) _factory512.object();
-		else if(capacity <= 1024)
-			return (Object/*{T}*/) _factory1024.object();
-		else if(capacity <= 2048)
-			return (Object/*{T}*/) _factory2048.object();
-		else if(capacity <= 4096)
-			return (Object/*{T}*/) _factory4096.object();
-		else if(capacity <= 8192)
-			return (Object/*{T}*/) _factory8192.object();
-		else if(capacity <= 16384)
-			return (Object/*{T}*/) _factory16384.object();
-		else if(capacity <= 32768)
-			return (Object/*{T}*/) _factory32768.object();
-		else if(capacity <= 65536)
-			return (Object/*{T}*/) _factory65536.object();
-		else
+	public final Object/*{T}*/ array(int capacity) {
+		if(capacity > 1 << MAX_BITS)
 			return create(capacity); // Default allocation for very large arrays.
+		final int index = capacity <= 1 << MIN_BITS ? 0 : MathLib.bitLength(capacity - 1) - MIN_BITS;
+		if(!(AllocatorContext.getCurrentAllocatorContext() instanceof HeapContext))
+			return (Object/*{T}*/) _factories[index].object();
+		if(_localCapacities[index] == 0) { // Not cached per thread.
+			final Object array = _depots[index].poll();
+			return (Object/*{T}*/) (array != null ? array : create(1 << (index + MIN_BITS)));
+		}
+		final Cache caches = (Cache) _caches.get();
+		Object[] cache = caches._arrays[index];
+		int size = caches._sizes[index];
+		if(size == 0) {
+			if(cache == null) {
+				cache = caches._arrays[index] = new Object[_localCapacities[index]];
+			}
+			size = _depots[index].take(cache);
+			if(size == 0)
+				return create(1 << (index + MIN_BITS));
+		}
+		final Object array = cache[--size];
+		cache[size] = null;
+		caches._sizes[index] = size;
+		return (Object/*{T}*/) array;
 	}
 	/**
 	 * Recycles the specified arrays.
 	 *
 	 * @param array the array to be recycled.
 	 */
-	public void recycle(Object/*{T}*/ array) { // Short to be inlined.
-		final int length = ((Object[]) array).length;
-		if(length <= 4) {
-			_factory4.recycle(array);
-		}
-		else {
-			recycle(array, length);
-		}
+	public void recycle(Object/*{T}*/ array) {
+		recycle(array, ((Object[]) array).length);
 	}
 	final void recycle(Object array, int length) {
-		if(length <= 8) {
-			_factory8.recycle(array);
-		}
-		else if(length <= 16) {
-			_factory16.recycle(array);
-		}
-		else if(length <= 32) {
-			_factory32.recycle(array);
-		}
-		else if(length <= 64) {
-			_factory64.recycle(array);
-		}
-		else if(length <= 128) {
-			_factory128.recycle(array);
-		}
-		else if(length <= 256) {
-			_factory256.recycle(array);
-		}
-		else if(length <= 512) {
-			_factory512.recycle(array);
-		}
-		else if(length <= 1024) {
-			_factory1024.recycle(array);
-		}
-		else if(length <= 2048) {
-			_factory2048.recycle(array);
-		}
-		else if(length <= 4096) {
-			_factory4096.recycle(array);
-		}
-		else if(length <= 8192) {
-			_factory8192.recycle(array);
-		}
-		else if(length <= 16384) {
-			_factory16384.recycle(array);
-		}
-		else if(length <= 32768) {
-			_factory32768.recycle(array);
-		}
-		else if(length <= 65536) {
-			_factory65536.recycle(array);
-		}
+		if(length < 1 << MIN_BITS || length >= 1 << MAX_BITS + 1)
+			return; // Not pooled.
+		final int index = MathLib.bitLength(length) - 1 - MIN_BITS; // Length greater or equal to the class size.
+		if(!(AllocatorContext.getCurrentAllocatorContext() instanceof HeapContext)) {
+			_factories[index].recycle(array);
+			return;
+		}
+		if(_localCapacities[index] == 0) { // Not cached per thread.
+			_depots[index].offer(array);
+			return;
+		}
+		final Cache caches = (Cache) _caches.get();
+		Object[] cache = caches._arrays[index];
+		if(cache == null) {
+			cache = caches._arrays[index] = new Object[_localCapacities[index]];
+		}
+		int size = caches._sizes[index];
+		if(size == cache.length) { // Moves half of the cache to the shared pool.
+			final int half = (size + 1) >> 1;
+			_depots[index].put(cache, size - half, half);
+			size -= half;
+		}
+		cache[size++] = array;
+		caches._sizes[index] = size;
 	}
 	/**
 	 * Constructs a new array of specified size from this factory
@@ -364,4 +289,87 @@ public abstract class ArrayFactory/*<T>*/ {
 	 * @return a new factory array.
 	 */
 	protected abstract Object/*{T}*/ create(int size);
-}
\ No newline at end of file
+	// Reserves (or releases if negative) the specified number of bytes.
+	private static synchronized boolean reserve(long bytes) {
+		if(bytes > 0 && _PooledBytes + bytes > ((Integer) MAXIMUM_POOL_SIZE.get()).intValue())
+			return false;
+		_PooledBytes += bytes;
+		return true;
+	}
+	// Holds the factory for a size class (non-heap allocator contexts).
+	private final class SizeFactory extends ObjectFactory {
+		private final int _size;
+		SizeFactory(int size) {
+			_size = size;
+		}
+		protected Object create() {
+			return ArrayFactory.this.create(_size);
+		}
+	}
+	// Holds the arrays cached by a thread (per size class).
+	private static final class Cache {
+		private final Object[][] _arrays = new Object[CLASSES][];
+		private final int[] _sizes = new int[CLASSES];
+	}
+	// Holds the arrays of a size class shared by all the threads.
+	private static final class Depot {
+		private final long _bytes; // Per array.
+		private Object[] _arrays = new Object[16];
+		private int _size;
+		Depot(long bytes) {
+			_bytes = bytes;
+		}
+		// Moves up to half the capacity of the specified cache into it,
+		// returns the number of arrays moved.
+		synchronized int take(Object[] cache) {
+			final int n = MathLib.min(_size, (cache.length + 1) >> 1);
+			if(n == 0)
+				return 0;
+			_size -= n;
+			System.arraycopy(_arrays, _size, cache, 0, n);
+			for(int i = _size; i < _size + n; i++) {
+				_arrays[i] = null;
+			}
+			reserve(-_bytes * n);
+			return n;
+		}
+		// Removes and returns an array or null if none.
+		synchronized Object poll() {
+			if(_size == 0)
+				return null;
+			final Object array = _arrays[--_size];
+			_arrays[_size] = null;
+			reserve(-_bytes);
+			return array;
+		}
+		// Adds the specified array unless the maximum pool size is reached.
+		synchronized void offer(Object array) {
+			if(!reserve(_bytes))
+				return; // Discarded.
+			if(_size == _arrays.length) {
+				final Object[] tmp = new Object[_arrays.length << 1];
+				System.arraycopy(_arrays, 0, tmp, 0, _size);
+				_arrays = tmp;
+			}
+			_arrays[_size++] = array;
+		}
+		// Moves the specified arrays from the cache (arrays exceeding the
+		// maximum pool size are discarded).
+		synchronized void put(Object[] cache, int from, int n) {
+			int accepted = 0;
+			while(accepted < n && reserve(_bytes)) {
+				accepted++;
+			}
+			if(_size + accepted > _arrays.length) {
+				final Object[] tmp = new Object[MathLib.max(_arrays.length << 1, _size + accepted)];
+				System.arraycopy(_arrays, 0, tmp, 0, _size);
+				_arrays = tmp;
+			}
+			System.arraycopy(cache, from, _arrays, _size, accepted);
+			_size += accepted;
+			for(int i = from; i < from + n; i++) {
+				cache[i] = null;
+			}
+		}
+	}
+}
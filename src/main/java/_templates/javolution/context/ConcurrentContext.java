@@ -7,6 +7,8 @@
  * freely granted, provided that this notice is preserved.
  */
 package _templates.javolution.context;
+import _templates.javax.realtime.MemoryArea;
+import _templates.javax.realtime.RealtimeThread;
 import _templates.javolution.lang.Configurable;
 import _templates.javolution.lang.MathLib;
 import _templates.javolution.lang.Reflection;
@@ -154,6 +156,16 @@ public abstract class ConcurrentContext extends Context {
 				return new Default();
 			}
 		}, Default.class);
+		ObjectFactory.setInstance(new ObjectFactory() {
+			protected Object create() {
+				return new WorkStealing();
+			}
+		}, WorkStealing.class);
+		ObjectFactory.setInstance(new ObjectFactory() {
+			protected Object create() {
+				return new VirtualThreads();
+			}
+		}, VirtualThreads.class);
 	}
 	/**
 	 * Holds the maximum number of concurrent executors
@@ -166,7 +178,7 @@ public abstract class ConcurrentContext extends Context {
 			CONCURRENCY.setDefault(newValue);
 		}
 	};
-	private static int availableProcessors() {
+	static int availableProcessors() {
 		final Reflection.Method availableProcessors = Reflection.getInstance()
 				.getMethod("java.lang.Runtime.availableProcessors()");
 		if(availableProcessors != null) {
@@ -185,6 +197,37 @@ public abstract class ConcurrentContext extends Context {
 	 */
 	public static final Configurable/*<Class<? extends ConcurrentContext>>*/ DEFAULT = new Configurable(
 			Default.class) {};
+	/**
+	 * Holds a work-stealing implementation. Each concurrent thread has its
+	 * own deque of tasks; tasks submitted from a concurrent execution
+	 * (nested/recursive parallelism) are queued to the deque of the executing
+	 * thread and idle threads steal the oldest tasks of the other deques.
+	 * Upon {@link #exit exit}, the current thread executes pending tasks
+	 * while its concurrent executions are not completed (join by helping).
+	 * Local {@link #getConcurrency concurrency} of <code>0</code> disables
+	 * concurrency; any other value allows the use of all the work-stealing
+	 * threads. To select this implementation:[code]
+	 *     Configurable.configure(ConcurrentContext.DEFAULT, ConcurrentContext.WORK_STEALING);[/code]
+	 *
+	 * @since 5.7.5
+	 */
+	public static final Class/*<? extends ConcurrentContext>*/ WORK_STEALING = WorkStealing.class;
+	/**
+	 * Holds an implementation executing each concurrent logic by a new
+	 * virtual thread (Java 21+, detected through {@link Reflection}).
+	 * The number of concurrent executions is limited neither by
+	 * {@link #MAXIMUM_CONCURRENCY} nor by the local
+	 * {@link #getConcurrency concurrency} (both based on the number of
+	 * processors), which makes this implementation suitable for logics
+	 * blocking on I/O (e.g. thousands of remote lookups). On runtimes
+	 * without virtual threads, the logics are executed by the current
+	 * thread (their errors are still propagated upon {@link #exit exit}).
+	 * To select this implementation:[code]
+	 *     Configurable.configure(ConcurrentContext.DEFAULT, ConcurrentContext.VIRTUAL_THREADS);[/code]
+	 *
+	 * @since 5.7.5
+	 */
+	public static final Class/*<? extends ConcurrentContext>*/ VIRTUAL_THREADS = VirtualThreads.class;
 	/**
 	 * Holds the current concurrency.
 	 */
@@ -327,11 +370,16 @@ public abstract class ConcurrentContext extends Context {
 		/**
 		 * Holds the number of concurrent execution initiated.
 		 */
-		private int _initiated;
+		private volatile int _initiated;
 		/**
 		 * Holds the number of concurrent execution completed.
 		 */
-		private int _completed;
+		private volatile int _completed;
+		/**
+		 * Indicates if the thread exiting this context is blocked waiting
+		 * for the concurrent executions to complete (to be notified).
+		 */
+		private volatile boolean _waiting;
 		// Implements Context abstract method.
 		protected void enterAction() {
 			_concurrency = ConcurrentContext.getConcurrency();
@@ -340,10 +388,17 @@ public abstract class ConcurrentContext extends Context {
 		protected void executeAction(Runnable logic) {
 			if(_error != null)
 				return; // No point to continue (there is an error).
-			for(int i = _concurrency; --i >= 0;) {
-				if(_Executors[i].execute(logic, this)) {
+			if(_concurrency > 0) {
+				// Counted before the handoff (the execution may complete immediately).
+				synchronized(this) { // Logics may also be submitted by concurrent executions.
 					_initiated++;
-					return; // Done concurrently.
+				}
+				for(int i = _concurrency; --i >= 0;) {
+					if(_Executors[i].execute(logic, this))
+						return; // Done concurrently.
+				}
+				synchronized(this) {
+					_initiated--;
 				}
 			}
 			// Execution by current thread.
@@ -352,18 +407,113 @@ public abstract class ConcurrentContext extends Context {
 		// Implements Context abstract method.
 		protected void exitAction() {
 			try {
-				if(_initiated != 0) {
-					synchronized(this) {
-						while(_initiated != _completed) {
-							try {
-								this.wait();
-							}
-							catch(final InterruptedException e) {
-								throw new ConcurrentException(e);
-							}
-						}
+				if(_initiated != _completed) {
+					awaitCompletion();
+				}
+				if(_error != null) {
+					if(_error instanceof RuntimeException)
+						throw (RuntimeException) _error;
+					if(_error instanceof Error)
+						throw (Error) _error;
+					throw new ConcurrentException(_error); // Wrapper.
+				}
+			}
+			finally {
+				_error = null;
+				_initiated = 0;
+				_completed = 0;
+			}
+		}
+		// Waits for the concurrent executions to complete (spins, yields then blocks).
+		private void awaitCompletion() {
+			for(int i = ConcurrentThread.SPINS + ConcurrentThread.YIELDS; i > 0; i--) {
+				if(_initiated == _completed)
+					return;
+				if(i <= ConcurrentThread.YIELDS) {
+					Thread.yield();
+				}
+			}
+			synchronized(this) {
+				_waiting = true; // Registers before re-checking.
+				try {
+					while(_initiated != _completed) {
+						this.wait();
 					}
 				}
+				catch(final InterruptedException e) {
+					throw new ConcurrentException(e);
+				}
+				finally {
+					_waiting = false;
+				}
+			}
+		}
+		// Called when a concurrent execution starts.
+		void started() {
+			Context.setConcurrentContext(this);
+		}
+		// Called when a concurrent execution finishes.
+		void completed() {
+			AllocatorContext.getCurrentAllocatorContext().deactivate();
+			synchronized(this) {
+				++_completed;
+				if(_waiting) {
+					notify(); // Otherwise the completion is seen while spinning.
+				}
+			}
+		}
+		// Called when an error occurs.
+		void error(Throwable error) {
+			synchronized(this) {
+				if(_error == null) { // First error.
+					_error = error;
+				}
+			}
+		}
+	}
+	/**
+	 * Work-stealing implementation using {@link WorkStealingThread} workers.
+	 */
+	static final class WorkStealing extends ConcurrentContext {
+		/**
+		 * Holds the concurrency.
+		 */
+		private int _concurrency;
+		/**
+		 * Holds any error occurring during concurrent execution.
+		 */
+		private volatile Throwable _error;
+		/**
+		 * Holds the number of concurrent execution initiated.
+		 */
+		private int _initiated;
+		/**
+		 * Holds the number of concurrent execution completed.
+		 */
+		private int _completed;
+		// Implements Context abstract method.
+		protected void enterAction() {
+			_concurrency = ConcurrentContext.getConcurrency();
+		}
+		// Implements ConcurrentContext abstract method.
+		protected void executeAction(Runnable logic) {
+			if(_error != null)
+				return; // No point to continue (there is an error).
+			if(_concurrency == 0 || WorkStealingThread.WORKERS.length == 0) {
+				logic.run(); // Execution by current thread.
+				return;
+			}
+			synchronized(this) { // Tasks may also be submitted by concurrent executions.
+				_initiated++;
+			}
+			WorkStealingThread.submit(logic, this);
+		}
+		// Implements Context abstract method.
+		protected void exitAction() {
+			try {
+				if(_initiated != 0) {
+					WorkStealingThread.join(this);
+				}
 				if(_error != null) {
 					if(_error instanceof RuntimeException)
 						throw (RuntimeException) _error;
@@ -378,17 +528,114 @@ public abstract class ConcurrentContext extends Context {
 				_completed = 0;
 			}
 		}
+		// Indicates if all the concurrent executions are completed.
+		synchronized boolean isDone() {
+			return _initiated == _completed;
+		}
 		// Called when a concurrent execution starts.
 		void started() {
 			Context.setConcurrentContext(this);
 		}
 		// Called when a concurrent execution finishes.
+		void completed() {
+			AllocatorContext.getCurrentAllocatorContext().deactivate();
+			synchronized(this) {
+				++_completed;
+			}
+			WorkStealingThread.signal();
+		}
+		// Called when an error occurs.
+		void error(Throwable error) {
+			synchronized(this) {
+				if(_error == null) { // First error.
+					_error = error;
+				}
+			}
+		}
+	}
+	/**
+	 * Implementation starting a virtual thread for each concurrent execution.
+	 */
+	static final class VirtualThreads extends ConcurrentContext {
+		/**
+		 * Holds the <code>Thread.startVirtualThread(Runnable)</code> method
+		 * or <code>null</code> if virtual threads are not supported.
+		 */
+		private static final Reflection.Method START_VIRTUAL_THREAD = Reflection.getInstance()
+				.getMethod("java.lang.Thread.startVirtualThread(java.lang.Runnable)");
+		/**
+		 * Holds any error occurring during concurrent execution.
+		 */
+		private volatile Throwable _error;
+		/**
+		 * Holds the number of concurrent execution initiated.
+		 */
+		private int _initiated;
+		/**
+		 * Holds the number of concurrent execution completed.
+		 */
+		private int _completed;
+		// Implements Context abstract method.
+		protected void enterAction() {
+			// Nothing to do (concurrency not limited).
+		}
+		// Implements ConcurrentContext abstract method.
+		protected void executeAction(Runnable logic) {
+			if(_error != null)
+				return; // No point to continue (there is an error).
+			if(START_VIRTUAL_THREAD == null) { // Execution by current thread.
+				try {
+					logic.run();
+				}
+				catch(final Throwable error) { // Raised upon exit (as for virtual threads).
+					error(error);
+				}
+				return;
+			}
+			synchronized(this) { // Logics may also be submitted by concurrent executions.
+				_initiated++;
+			}
+			try {
+				START_VIRTUAL_THREAD.invoke(null, new Execution(logic, this, RealtimeThread.getCurrentMemoryArea()));
+			}
+			catch(final Throwable error) { // Not started.
+				error(error);
+				completed();
+			}
+		}
+		// Implements Context abstract method.
+		protected void exitAction() {
+			try {
+				synchronized(this) {
+					while(_initiated != _completed) {
+						try {
+							this.wait();
+						}
+						catch(final InterruptedException e) {
+							throw new ConcurrentException(e);
+						}
+					}
+				}
+				if(_error != null) {
+					if(_error instanceof RuntimeException)
+						throw (RuntimeException) _error;
+					if(_error instanceof Error)
+						throw (Error) _error;
+					throw new ConcurrentException(_error); // Wrapper.
+				}
+			}
+			finally {
+				_error = null;
+				_initiated = 0;
+				_completed = 0;
+			}
+		}
+		// Called when a concurrent execution finishes.
 		void completed() {
 			synchronized(this) {
 				++_completed;
 				notify();
 			}
-			AllocatorContext.getCurrentAllocatorContext().deactivate();
 		}
 		// Called when an error occurs.
 		void error(Throwable error) {
@@ -398,5 +645,32 @@ public abstract class ConcurrentContext extends Context {
 				}
 			}
 		}
+		/**
+		 * The logic executed by a virtual thread, in the context and memory
+		 * area of the submitter.
+		 */
+		private static final class Execution implements Runnable {
+			private final Runnable _logic;
+			private final VirtualThreads _context;
+			private final MemoryArea _memoryArea;
+			Execution(Runnable logic, VirtualThreads context, MemoryArea memoryArea) {
+				_logic = logic;
+				_context = context;
+				_memoryArea = memoryArea;
+			}
+			public void run() {
+				try {
+					Context.setConcurrentContext(_context);
+					_memoryArea.executeInArea(_logic);
+				}
+				catch(final Throwable error) {
+					_context.error(error);
+				}
+				finally {
+					AllocatorContext.getCurrentAllocatorContext().deactivate();
+					_context.completed();
+				}
+			}
+		}
 	}
-}
\ No newline at end of file
+}
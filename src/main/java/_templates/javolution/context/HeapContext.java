@@ -114,7 +114,7 @@ public class HeapContext extends AllocatorContext {
 			_factory = factory;
 		}
 		protected Object allocate() {
-			return _recycled.isEmpty() ? _factory.create() : _recycled.removeLast();
+			return _recycled.isEmpty() ? _factory.newObject() : _recycled.removeLast();
 		}
 		protected void recycle(Object object) {
 			if(_factory.doCleanup()) {
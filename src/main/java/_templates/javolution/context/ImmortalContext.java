@@ -127,7 +127,7 @@ public final class ImmortalContext extends AllocatorContext {
 		}
 		private final Runnable _allocate = new Runnable() {
 			public void run() {
-				_allocated = _factory.create();
+				_allocated = _factory.newObject();
 			}
 		};
 		private final Runnable _resize = new Runnable() {
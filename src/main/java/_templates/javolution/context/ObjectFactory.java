@@ -99,6 +99,9 @@ public abstract class ObjectFactory/*<T>*/ {
 	 * @return a recycled, pre-allocated or new factory object.
 	 */
 	public final Object/*{T}*/ object() {
+		if(AllocationStatistics._Enabled) {
+			AllocationStatistics.object(this);
+		}
 		final Allocator/*<T>*/ allocator = _allocator;
 		return allocator.user == Thread.currentThread() ? allocator.next() : currentAllocator().next();
 	}
@@ -116,6 +119,9 @@ public abstract class ObjectFactory/*<T>*/ {
 	 * @param obj the object to be recycled.
 	 */
 	public final void recycle(Object/*{T}*/ obj) {
+		if(AllocationStatistics._Enabled) {
+			AllocationStatistics.recycle(this, 1);
+		}
 		Allocator/*<T>*/ allocator = _allocator;
 		if(allocator.user != Thread.currentThread()) {
 			allocator = currentAllocator();
@@ -153,6 +159,24 @@ public abstract class ObjectFactory/*<T>*/ {
 	 * @return a new factory object.
 	 */
 	protected abstract Object/*{T}*/ create();
+	/**
+	 * Creates a new object on behalf of an allocator (recorded when
+	 * {@link AllocationStatistics#ENABLED allocation statistics} are enabled).
+	 *
+	 * @return <code>create()</code>
+	 */
+	final Object/*{T}*/ newObject() {
+		final Object/*{T}*/ obj = create();
+		if(AllocationStatistics._Enabled) {
+			AllocationStatistics.create(this, obj);
+		}
+		return obj;
+	}
+	/**
+	 * Holds the allocation statistics entries of this factory (one per
+	 * allocator context type).
+	 */
+	volatile AllocationStatistics.Entry _statistics;
 	/**
 	 * Cleans-up this factory's objects for future reuse.
 	 * The default implementation {@link Reusable#reset resets} reusable
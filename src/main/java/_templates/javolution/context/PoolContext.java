@@ -8,6 +8,8 @@
  */
 package _templates.javolution.context;
 import _templates.java.lang.ThreadLocal;
+import _templates.javolution.lang.Configurable;
+import _templates.javolution.lang.MathLib;
 import _templates.javolution.util.FastMap;
 import _templates.javolution.util.FastTable;
 /**
@@ -40,10 +42,26 @@ import _templates.javolution.util.FastTable;
  *            }};
  *     [/code]</p>
  *
+ * <p> Recycled objects are cached per thread in magazines (small arrays of
+ *     {@link #MAGAZINE_SIZE} objects); most allocations and recyclings do not
+ *     synchronize. Only full or empty magazines are exchanged with the
+ *     factory shared depot (one lock acquisition per batch). Magazines are
+ *     returned to the depot when the thread allocators are
+ *     {@link #deactivate deactivated} (e.g. when the thread exits its pool
+ *     context) so that recycled objects are reused by the other threads.</p>
+ *
  * @author  <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
  * @version 5.3, March 10, 2009
  */
 public class PoolContext extends AllocatorContext {
+	/**
+	 * Holds the number of recycled objects per magazine (default
+	 * <code>32</code>). Changes apply to factories first used in a pool
+	 * context after the change.
+	 *
+	 * @since 5.7.5
+	 */
+	public static final Configurable/*<Integer>*/ MAGAZINE_SIZE = new Configurable(new Integer(32)) {};
 	/**
 	 * Holds the factory to allocator mapping (per thread).
 	 */
@@ -83,7 +101,9 @@ public class PoolContext extends AllocatorContext {
 		final FastTable allocators = (FastTable) ACTIVE_ALLOCATORS.get();
 		final int n = allocators.size();
 		for(int i = 0; i < n;) {
-			((Allocator) allocators.get(i++)).user = null;
+			final PoolAllocator allocator = (PoolAllocator) allocators.get(i++);
+			allocator.user = null;
+			allocator.flush();
 		}
 		allocators.clear();
 	}
@@ -110,39 +130,122 @@ public class PoolContext extends AllocatorContext {
 	protected void exitAction() {
 		deactivate();
 	}
-	// Holds heap allocator implementation.
+	// Holds pool allocator implementation (one per thread and factory).
 	private static final class PoolAllocator extends Allocator {
-		private static final FastMap FACTORY_TO_POOL = new FastMap();
+		private static final FastMap FACTORY_TO_DEPOT = new FastMap();
 		private final ObjectFactory _factory;
-		private final FastTable _recycled;
+		private final Depot _depot;
+		private Magazine _loaded; // Used first.
+		private Magazine _previous; // Full or empty (swapped with loaded).
 		public PoolAllocator(ObjectFactory factory) {
 			_factory = factory;
-			synchronized(FACTORY_TO_POOL) {
-				FastTable recycled = (FastTable) FACTORY_TO_POOL.get(factory);
-				if(recycled == null) {
-					recycled = new FastTable();
-					FACTORY_TO_POOL.put(factory, recycled);
+			synchronized(FACTORY_TO_DEPOT) {
+				Depot depot = (Depot) FACTORY_TO_DEPOT.get(factory);
+				if(depot == null) {
+					depot = new Depot(MathLib.max(1, ((Integer) MAGAZINE_SIZE.get()).intValue()));
+					FACTORY_TO_DEPOT.put(factory, depot);
 				}
-				_recycled = recycled;
+				_depot = depot;
 			}
+			_loaded = new Magazine(_depot._capacity);
+			_previous = new Magazine(_depot._capacity);
 		}
 		protected Object allocate() {
-			if(_recycled.isEmpty())
-				return _factory.create();
-			synchronized(_recycled) {
-				return _recycled.removeLast();
+			if(_loaded._size == 0) {
+				if(_previous._size != 0) {
+					swap();
+				}
+				else {
+					final Magazine full = _depot.exchangeEmpty(_previous);
+					if(full == null)
+						return _factory.newObject();
+					_previous = _loaded;
+					_loaded = full;
+				}
 			}
+			return _loaded.pop();
 		}
 		protected void recycle(Object object) {
 			if(_factory.doCleanup()) {
 				_factory.cleanup(object);
 			}
-			synchronized(_recycled) {
-				_recycled.addLast(object);
+			if(_loaded._size == _loaded._objects.length) {
+				if(_previous._size == 0) {
+					swap();
+				}
+				else {
+					final Magazine empty = _depot.exchangeFull(_previous);
+					_previous = _loaded;
+					_loaded = empty;
+				}
+			}
+			_loaded.push(object);
+		}
+		// Returns the objects held by this allocator to the depot.
+		void flush() {
+			if(_loaded._size != 0) {
+				_loaded = _depot.exchangeFull(_loaded);
+			}
+			if(_previous._size != 0) {
+				_previous = _depot.exchangeFull(_previous);
 			}
 		}
+		private void swap() {
+			final Magazine tmp = _loaded;
+			_loaded = _previous;
+			_previous = tmp;
+		}
 		public String toString() {
 			return "Pool allocator for " + _factory.getClass();
 		}
 	}
+	// Holds the magazines shared by all the threads (one per factory).
+	private static final class Depot {
+		private final int _capacity;
+		private final FastTable _full = new FastTable(); // Non-empty magazines.
+		private final FastTable _empty = new FastTable();
+		private volatile int _fullCount; // Allows for unsynchronized check.
+		Depot(int capacity) {
+			_capacity = capacity;
+		}
+		// Returns a non-empty magazine in exchange of the specified empty one,
+		// or null if none.
+		Magazine exchangeEmpty(Magazine empty) {
+			if(_fullCount == 0)
+				return null;
+			synchronized(this) {
+				if(_full.isEmpty())
+					return null;
+				_fullCount--;
+				_empty.addLast(empty);
+				return (Magazine) _full.removeLast();
+			}
+		}
+		// Returns an empty magazine in exchange of the specified non-empty one.
+		Magazine exchangeFull(Magazine full) {
+			synchronized(this) {
+				_full.addLast(full);
+				_fullCount++;
+				if(!_empty.isEmpty())
+					return (Magazine) _empty.removeLast();
+			}
+			return new Magazine(_capacity);
+		}
+	}
+	// Holds recycled objects (stack).
+	private static final class Magazine {
+		private final Object[] _objects;
+		private int _size;
+		Magazine(int capacity) {
+			_objects = new Object[capacity];
+		}
+		Object pop() {
+			final Object object = _objects[--_size];
+			_objects[_size] = null;
+			return object;
+		}
+		void push(Object object) {
+			_objects[_size++] = object;
+		}
+	}
 }
\ No newline at end of file
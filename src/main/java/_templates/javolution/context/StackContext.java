@@ -181,7 +181,7 @@ public abstract class StackContext extends AllocatorContext {
 			if(_queueLimit >= queue.length) {
 				resize();
 			}
-			final Object obj = _factory.create();
+			final Object obj = _factory.newObject();
 			queue[_queueLimit++] = obj;
 			return obj;
 		}
@@ -201,6 +201,9 @@ public abstract class StackContext extends AllocatorContext {
 		}
 		protected void reset() {
 			_inUse = false;
+			if(AllocationStatistics._Enabled && queueSize != _queueLimit) { // Released.
+				AllocationStatistics.recycle(_factory, _queueLimit - queueSize);
+			}
 			while(_factory.doCleanup() && queueSize != _queueLimit) {
 				final Object obj = queue[queueSize++];
 				_factory.cleanup(obj);
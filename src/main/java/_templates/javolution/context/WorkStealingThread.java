@@ -0,0 +1,316 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.context;
+import _templates.javax.realtime.MemoryArea;
+import _templates.javax.realtime.RealtimeThread;
+import _templates.javolution.lang.Reflection;
+/**
+ * <p> This class represents the workers used by the work-stealing
+ *     implementation of {@link ConcurrentContext}. Each worker has its own
+ *     deque of tasks: tasks submitted by a worker are pushed and popped at
+ *     the tail of its deque (LIFO) while idle threads steal the oldest tasks
+ *     at the head of the other deques (FIFO). Tasks submitted by other
+ *     threads are queued to a shared submission deque.</p>
+ *
+ * <p> Threads waiting for the completion of their concurrent context
+ *     execute pending tasks (join by helping) instead of blocking.</p>
+ *
+ * @since 5.7.5
+ */
+class WorkStealingThread extends RealtimeThread {
+	/**
+	 * Holds the monitor used by idle threads and joiners to wait for a signal
+	 * (new task or task completion).
+	 */
+	private static final Object LOCK = new Object();
+	/**
+	 * Holds the signal count (incremented when waiters have to re-check).
+	 */
+	private static int _Signal;
+	/**
+	 * Holds the number of threads waiting on {@link #LOCK}.
+	 */
+	private static volatile int _Waiters;
+	/**
+	 * Holds the maximum nesting of tasks from other contexts executed
+	 * by a worker waiting for its own context.
+	 */
+	private static final int MAXIMUM_HELPING = 2;
+	/**
+	 * Holds the tasks submitted by non-worker threads.
+	 */
+	private static final Deque SUBMISSIONS = new Deque();
+	/**
+	 * Holds the index of the next worker to be stolen from (rotating, not
+	 * synchronized).
+	 */
+	private static int _Victim;
+	/**
+	 * Holds this worker tasks.
+	 */
+	private final Deque _deque = new Deque();
+	/**
+	 * Holds this worker index.
+	 */
+	private final int _index;
+	/**
+	 * Holds the number of nested executions of tasks from other contexts
+	 * while joining.
+	 */
+	private int _helping;
+	private final String _name;
+	/**
+	 * Creates the worker at the specified index.
+	 */
+	private WorkStealingThread(int index) {
+		_index = index;
+		_name = "WorkStealingThread-" + index;
+		if(SET_NAME != null) {
+			SET_NAME.invoke(this, _name);
+		}
+		if(SET_DAEMON != null) {
+			SET_DAEMON.invoke(this, Boolean.TRUE);
+		}
+	}
+	private static final Reflection.Method SET_NAME = Reflection.getInstance()
+			.getMethod("java.lang.Thread.setName(String)");
+	private static final Reflection.Method SET_DAEMON = Reflection.getInstance()
+			.getMethod("java.lang.Thread.setDaemon(boolean)");
+	/**
+	 * Holds the workers (started on first use of the work-stealing context).
+	 */
+	static final WorkStealingThread[] WORKERS = new WorkStealingThread[((Integer) ConcurrentContext.MAXIMUM_CONCURRENCY
+			.get()).intValue()];
+	static {
+		for(int i = 0; i < WORKERS.length; ++i) {
+			WORKERS[i] = new WorkStealingThread(i);
+			WORKERS[i].start();
+		}
+	}
+	/**
+	 * Executes tasks until the end of times.
+	 */
+	public void run() {
+		while(true) {
+			final Task task = findTask(this, null, true);
+			if(task != null) {
+				task.run();
+			}
+			else {
+				await(this, null, true);
+			}
+		}
+	}
+	/**
+	 * Submits the specified logic for concurrent execution.
+	 *
+	 * @param logic the logic to execute.
+	 * @param context the concurrent context of the logic.
+	 */
+	static void submit(Runnable logic, ConcurrentContext.WorkStealing context) {
+		final Thread current = Thread.currentThread();
+		final Task task = new Task(logic, context, RealtimeThread.getCurrentMemoryArea(), current.getPriority());
+		if(current instanceof WorkStealingThread) {
+			((WorkStealingThread) current)._deque.push(task);
+		}
+		else {
+			SUBMISSIONS.push(task);
+		}
+		signal();
+	}
+	/**
+	 * Executes pending tasks until all the tasks of the specified context
+	 * are completed (the specified context is the current context).
+	 * Tasks of the specified context are executed first; workers may also
+	 * execute the tasks of other contexts up to {@link #MAXIMUM_HELPING}
+	 * nested levels (bounds the stack depth).
+	 *
+	 * @param context the concurrent context being exited.
+	 */
+	static void join(ConcurrentContext.WorkStealing context) {
+		final Thread current = Thread.currentThread();
+		final WorkStealingThread worker = current instanceof WorkStealingThread ? (WorkStealingThread) current
+				: null;
+		while(!context.isDone()) {
+			final boolean canHelp = worker != null && worker._helping < MAXIMUM_HELPING;
+			Task task = findTask(worker, context, true);
+			if(task == null && canHelp) {
+				task = findTask(worker, null, true);
+			}
+			if(task == null) {
+				await(worker, context, canHelp);
+				continue;
+			}
+			final boolean helping = task._context != context;
+			if(helping) {
+				worker._helping++;
+			}
+			try {
+				task.run();
+			}
+			finally {
+				if(helping) {
+					worker._helping--;
+				}
+				Context.setConcurrentContext(context); // Restores.
+			}
+		}
+	}
+	/**
+	 * Notifies the waiting threads (if any) that a task has been submitted
+	 * or completed.
+	 */
+	static void signal() {
+		if(_Waiters == 0)
+			return; // Shortcut to avoid synchronizing.
+		synchronized(LOCK) {
+			_Signal++;
+			LOCK.notifyAll();
+		}
+	}
+	// Waits for a signal, the specified context is null for idle workers.
+	private static void await(WorkStealingThread worker, ConcurrentContext.WorkStealing context, boolean canHelp) {
+		final int signal;
+		synchronized(LOCK) {
+			_Waiters++;
+			signal = _Signal;
+		}
+		try {
+			if(context != null && (context.isDone() || findTask(worker, context, false) != null))
+				return; // Completed or submitted before registration.
+			if(canHelp && findTask(worker, null, false) != null)
+				return; // Submitted before registration.
+			synchronized(LOCK) {
+				while(_Signal == signal) {
+					LOCK.wait();
+				}
+			}
+		}
+		catch(final InterruptedException e) {
+			throw new ConcurrentException(e);
+		}
+		finally {
+			synchronized(LOCK) {
+				_Waiters--;
+			}
+		}
+	}
+	// Returns a task from the worker deque, the submissions or stolen from
+	// other workers (any task if the specified context is null).
+	private static Task findTask(WorkStealingThread worker, ConcurrentContext.WorkStealing context, boolean remove) {
+		Task task = worker != null ? worker._deque.take(true, context, remove) : null;
+		if(task != null)
+			return task;
+		task = SUBMISSIONS.take(false, context, remove);
+		if(task != null)
+			return task;
+		final int n = WORKERS.length;
+		final int start = worker != null ? worker._index + 1 : _Victim++;
+		for(int i = 0; i < n; i++) {
+			final WorkStealingThread victim = WORKERS[(start + i & 0x7FFFFFFF) % n];
+			if(victim != worker && victim._deque._count > 0) {
+				task = victim._deque.take(false, context, remove);
+				if(task != null)
+					return task;
+			}
+		}
+		return null;
+	}
+	/**
+	 * Returns the name of this worker.
+	 *
+	 * @return the string representation of this thread.
+	 */
+	public String toString() {
+		return _name;
+	}
+	/**
+	 * This class represents a concurrent execution.
+	 */
+	private static final class Task {
+		private final Runnable _logic;
+		private final ConcurrentContext.WorkStealing _context;
+		private final MemoryArea _memoryArea;
+		private final int _priority;
+		Task(Runnable logic, ConcurrentContext.WorkStealing context, MemoryArea memoryArea, int priority) {
+			_logic = logic;
+			_context = context;
+			_memoryArea = memoryArea;
+			_priority = priority;
+		}
+		// Executes this task in its context, at the submitter priority.
+		void run() {
+			final Thread current = Thread.currentThread();
+			final int priority = current.getPriority();
+			try {
+				if(priority != _priority) {
+					current.setPriority(_priority);
+				}
+				_context.started();
+				_memoryArea.executeInArea(_logic);
+			}
+			catch(final Throwable error) {
+				_context.error(error);
+			}
+			finally {
+				if(priority != _priority) {
+					current.setPriority(priority);
+				}
+				_context.completed();
+			}
+		}
+	}
+	/**
+	 * This class represents a double-ended queue of tasks. The owner pushes
+	 * and pops at the tail; thieves steal at the head.
+	 */
+	private static final class Deque {
+		private Task[] _tasks = new Task[32];
+		private int _head;
+		private int _tail;
+		/**
+		 * Holds the number of tasks (unsynchronized read shortcut).
+		 */
+		volatile int _count;
+		synchronized void push(Task task) {
+			if(_tail - _head == _tasks.length) {
+				final Task[] tasks = new Task[_tasks.length << 1];
+				for(int i = _head; i != _tail; i++) {
+					tasks[i - _head] = _tasks[i & _tasks.length - 1];
+				}
+				_tail -= _head;
+				_head = 0;
+				_tasks = tasks;
+			}
+			_tasks[_tail++ & _tasks.length - 1] = task;
+			_count = _tail - _head;
+		}
+		// Takes the task at the tail (owner) or at the head (thieves) if it
+		// belongs to the specified context (or any context if null).
+		synchronized Task take(boolean tail, ConcurrentContext.WorkStealing context, boolean remove) {
+			if(_tail == _head)
+				return null;
+			final int i = (tail ? _tail - 1 : _head) & _tasks.length - 1;
+			final Task task = _tasks[i];
+			if(context != null && task._context != context)
+				return null;
+			if(remove) {
+				_tasks[i] = null;
+				if(tail) {
+					_tail--;
+				}
+				else {
+					_head++;
+				}
+				_count = _tail - _head;
+			}
+			return task;
+		}
+	}
+}
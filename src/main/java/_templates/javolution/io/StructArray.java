@@ -0,0 +1,447 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.io;
+import _templates.java.lang.IllegalStateException;
+import _templates.java.nio.ByteBuffer;
+import _templates.java.util.Comparator;
+import _templates.javolution.context.HeapContext;
+import _templates.javolution.context.ObjectFactory;
+/**
+ * <p> This class represents a resizable array of {@link Struct} records
+ *     stored contiguously in a single <b>direct</b> byte buffer
+ *     (array-of-structs, off-heap).</p>
+ *
+ * <p> Records are accessed through flyweight {@link Struct} views which
+ *     are positioned on the record; no object is allocated per record or
+ *     per access. For example:[code]
+ *     public static class Tick extends Struct {
+ *         public final Signed64 time   = new Signed64();
+ *         public final Float64  price  = new Float64();
+ *         public final Signed32 volume = new Signed32();
+ *     }
+ *     StructArray<Tick> ticks = new StructArray<Tick>(ObjectFactory.getInstance(Tick.class), 1000000);
+ *     Tick tick = ticks.add(); // Appends a new (zeroed) record.
+ *     tick.time.set(System.currentTimeMillis());
+ *     tick.price.set(101.25);
+ *     ...
+ *     ticks.sort(new Comparator<Tick>() { // Sort by price.
+ *         public int compare(Tick t1, Tick t2) {
+ *             return Double.compare(t1.price.get(), t2.price.get());
+ *         }
+ *     });
+ *     double first = ticks.get(0).price.get();[/code]</p>
+ *
+ * <p> The view returned by {@link #get(int)} and {@link #add()} is shared,
+ *     it is repositioned by the next call to these methods. Independent views
+ *     can be obtained using {@link #newView()} and positioned using
+ *     {@link #get(int, Struct)}. When the array grows its records are moved
+ *     to a new buffer; views then have to be repositioned.</p>
+ *
+ * <p> Instances of this class are not thread-safe.</p>
+ *
+ * @since 5.7.5
+ */
+public class StructArray/*<S extends Struct>*/ {
+	/**
+	 * Holds the default capacity (number of records).
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+	/**
+	 * Holds the factory producing the views.
+	 */
+	private final ObjectFactory/*<S>*/ _factory;
+	/**
+	 * Holds the size in bytes of a record.
+	 */
+	private final int _structSize;
+	/**
+	 * Holds the shared view.
+	 */
+	private final Struct _view;
+	/**
+	 * Holds the views used for comparisons when sorting (lazy).
+	 */
+	private Struct _left, _right;
+	/**
+	 * Holds the records buffer.
+	 */
+	private ByteBuffer _buffer;
+	/**
+	 * Holds the capacity (number of records).
+	 */
+	private int _capacity;
+	/**
+	 * Holds the number of records.
+	 */
+	private int _size;
+	/**
+	 * Holds the bytes used for bulk copies.
+	 */
+	private final byte[] _bytes;
+	/**
+	 * Creates an array of records produced by the specified factory having
+	 * the default capacity.
+	 *
+	 * @param factory the factory of the struct views.
+	 */
+	public StructArray(ObjectFactory/*<S>*/ factory) {
+		this(factory, DEFAULT_CAPACITY);
+	}
+	/**
+	 * Creates an array of records produced by the specified factory having
+	 * the specified initial capacity.
+	 *
+	 * @param factory the factory of the struct views.
+	 * @param capacity the initial capacity (number of records).
+	 * @throws IllegalArgumentException if the capacity is negative or if the
+	 *         struct is an inner struct.
+	 */
+	public StructArray(ObjectFactory/*<S>*/ factory, int capacity) {
+		if(capacity < 0)
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		_factory = factory;
+		_view = newStruct();
+		if(_view.outer() != null)
+			throw new IllegalArgumentException("Inner structs cannot be stored in a struct array");
+		_structSize = _view.size();
+		_bytes = new byte[Math.max(_structSize << 1, 1024)];
+		_buffer = allocate(Math.max(capacity, 1));
+		_capacity = Math.max(capacity, 1);
+		_view.setByteBuffer(_buffer, 0);
+	}
+	/**
+	 * Returns the number of records in this array.
+	 *
+	 * @return the number of records.
+	 */
+	public final int size() {
+		return _size;
+	}
+	/**
+	 * Returns the number of records this array can hold without growing.
+	 *
+	 * @return the current capacity.
+	 */
+	public final int capacity() {
+		return _capacity;
+	}
+	/**
+	 * Returns the size in bytes of the records (the struct size).
+	 *
+	 * @return the struct size.
+	 */
+	public final int structSize() {
+		return _structSize;
+	}
+	/**
+	 * Returns the byte buffer holding the records; the record at index
+	 * <code>i</code> starts at position <code>i * structSize()</code>.
+	 *
+	 * @return the records buffer (replaced when this array grows).
+	 */
+	public final ByteBuffer getByteBuffer() {
+		return _buffer;
+	}
+	/**
+	 * Returns the shared view positioned on the record at the specified index.
+	 *
+	 * @param index the record index.
+	 * @return the shared view on the record.
+	 * @throws IndexOutOfBoundsException if <code>(index < 0) ||
+	 *         (index >= size())</code>
+	 */
+	public final Object/*{S}*/ get(int index) {
+		return get(index, (Object/*{S}*/) _view);
+	}
+	/**
+	 * Positions the specified view on the record at the specified index.
+	 *
+	 * @param index the record index.
+	 * @param view the view to position (see {@link #newView()}).
+	 * @return the specified view.
+	 * @throws IndexOutOfBoundsException if <code>(index < 0) ||
+	 *         (index >= size())</code>
+	 */
+	public final Object/*{S}*/ get(int index, Object/*{S}*/ view) {
+		if(index < 0 || index >= _size)
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + _size);
+		((Struct) view).setByteBuffer(_buffer, index * _structSize);
+		return view;
+	}
+	/**
+	 * Returns a new view over this array (positioned on the first record).
+	 *
+	 * @return a new struct view.
+	 */
+	public final Object/*{S}*/ newView() {
+		final Struct view = newStruct();
+		view.setByteBuffer(_buffer, 0);
+		return (Object/*{S}*/) view;
+	}
+	/**
+	 * Appends a new record (all bytes set to zero) to this array.
+	 *
+	 * @return the shared view positioned on the new record.
+	 */
+	public final Object/*{S}*/ add() {
+		ensureCapacity(_size + 1);
+		final int position = _size++ * _structSize;
+		for(int i = _structSize; --i >= 0;) {
+			_buffer.put(position + i, (byte) 0);
+		}
+		_view.setByteBuffer(_buffer, position);
+		return (Object/*{S}*/) _view;
+	}
+	/**
+	 * Appends a copy of the specified struct bytes to this array.
+	 *
+	 * @param struct the struct to copy (same layout as the records).
+	 * @return the shared view positioned on the new record.
+	 * @throws IllegalArgumentException if the struct size is different from
+	 *         the records size.
+	 */
+	public final Object/*{S}*/ add(Struct struct) {
+		checkSize(struct);
+		ensureCapacity(_size + 1);
+		final int position = _size++ * _structSize;
+		copy(struct.getByteBuffer(), struct.getByteBufferPosition(), _buffer, position, _structSize);
+		_view.setByteBuffer(_buffer, position);
+		return (Object/*{S}*/) _view;
+	}
+	/**
+	 * Replaces the record at the specified index with a copy of the
+	 * specified struct bytes.
+	 *
+	 * @param index the record index.
+	 * @param struct the struct to copy (same layout as the records).
+	 * @throws IndexOutOfBoundsException if <code>(index < 0) ||
+	 *         (index >= size())</code>
+	 * @throws IllegalArgumentException if the struct size is different from
+	 *         the records size.
+	 */
+	public final void set(int index, Struct struct) {
+		if(index < 0 || index >= _size)
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + _size);
+		checkSize(struct);
+		copy(struct.getByteBuffer(), struct.getByteBufferPosition(), _buffer, index * _structSize, _structSize);
+	}
+	/**
+	 * Appends all the records of the specified array to this array
+	 * (bulk copy).
+	 *
+	 * @param that the array whose records are appended.
+	 * @throws IllegalArgumentException if the records of the specified array
+	 *         have a different size.
+	 */
+	public final void addAll(StructArray/*<? extends S>*/ that) {
+		if(that._structSize != _structSize)
+			throw new IllegalArgumentException("Records of different sizes");
+		final int n = that._size;
+		ensureCapacity(_size + n);
+		copy(that._buffer, 0, _buffer, _size * _structSize, n * _structSize);
+		_size += n;
+	}
+	/**
+	 * Copies the specified records of this array to the specified array
+	 * (bulk copy, overlapping ranges within the same array are supported).
+	 *
+	 * @param srcIndex the index of the first record to copy.
+	 * @param dest the destination array (can be this array).
+	 * @param destIndex the destination index of the first record.
+	 * @param length the number of records to copy.
+	 * @throws IndexOutOfBoundsException if either range is out of bounds.
+	 * @throws IllegalArgumentException if the records of the destination
+	 *         array have a different size.
+	 */
+	public final void copyTo(int srcIndex, StructArray/*<? super S>*/ dest, int destIndex, int length) {
+		if(dest._structSize != _structSize)
+			throw new IllegalArgumentException("Records of different sizes");
+		if(srcIndex < 0 || length < 0 || srcIndex + length > _size)
+			throw new IndexOutOfBoundsException("srcIndex: " + srcIndex + ", length: " + length + ", size: " + _size);
+		if(destIndex < 0 || destIndex + length > dest._size)
+			throw new IndexOutOfBoundsException("destIndex: " + destIndex + ", length: " + length + ", size: "
+					+ dest._size);
+		copy(_buffer, srcIndex * _structSize, dest._buffer, destIndex * _structSize, length * _structSize);
+	}
+	/**
+	 * Swaps the records at the specified indices.
+	 *
+	 * @param i the index of the first record.
+	 * @param j the index of the second record.
+	 * @throws IndexOutOfBoundsException if either index is out of bounds.
+	 */
+	public final void swap(int i, int j) {
+		if(i < 0 || i >= _size || j < 0 || j >= _size)
+			throw new IndexOutOfBoundsException("i: " + i + ", j: " + j + ", size: " + _size);
+		swapRecords(i, j);
+	}
+	/**
+	 * Removes the last record of this array.
+	 *
+	 * @throws IndexOutOfBoundsException if this array is empty.
+	 */
+	public final void removeLast() {
+		if(_size == 0)
+			throw new IndexOutOfBoundsException("Empty array");
+		_size--;
+	}
+	/**
+	 * Removes all the records of this array (the buffer is kept).
+	 */
+	public final void clear() {
+		_size = 0;
+	}
+	/**
+	 * Ensures that this array can hold the specified number of records
+	 * without growing.
+	 *
+	 * @param minCapacity the minimum capacity.
+	 * @throws IllegalStateException if the records would not fit in a
+	 *         single byte buffer (2 GB).
+	 */
+	public final void ensureCapacity(int minCapacity) {
+		if(minCapacity <= _capacity)
+			return;
+		final long limit = Integer.MAX_VALUE / _structSize;
+		if(minCapacity > limit)
+			throw new IllegalStateException("Maximum capacity (" + limit + " records) exceeded");
+		final int capacity = (int) Math.min(Math.max((long) _capacity << 1, minCapacity), limit);
+		final ByteBuffer buffer = allocate(capacity);
+		copy(_buffer, 0, buffer, 0, _size * _structSize);
+		_buffer = buffer;
+		_capacity = capacity;
+		_view.setByteBuffer(buffer, 0);
+	}
+	/**
+	 * Sorts the records of this array in place (quick sort) using the
+	 * specified comparator. The comparator is called with views positioned
+	 * on the records being compared (e.g. comparing a member value).
+	 *
+	 * @param comparator the records comparator.
+	 */
+	public final void sort(Comparator/*<? super S>*/ comparator) {
+		if(_left == null) {
+			_left = newStruct();
+			_right = newStruct();
+		}
+		if(_size > 1) {
+			final Struct pivot = newStruct(); // Holds the pivot record.
+			pivot.setByteBuffer(ByteBuffer.allocate(_structSize).order(_buffer.order()), 0);
+			quicksort(0, _size - 1, comparator, pivot);
+		}
+	}
+	private void quicksort(int first, int last, Comparator cmp, Struct pivot) {
+		while(last - first > 16) {
+			final int mid = first + last >>> 1;
+			if(compare(cmp, mid, first) < 0) {
+				swapRecords(mid, first);
+			}
+			if(compare(cmp, last, first) < 0) {
+				swapRecords(last, first);
+			}
+			if(compare(cmp, last, mid) < 0) {
+				swapRecords(last, mid);
+			}
+			copy(_buffer, mid * _structSize, pivot.getByteBuffer(), 0, _structSize);
+			int i = first, j = last;
+			while(i <= j) {
+				while(compare(cmp, i, pivot) < 0) {
+					i++;
+				}
+				while(compare(cmp, j, pivot) > 0) {
+					j--;
+				}
+				if(i <= j) {
+					if(i != j) {
+						swapRecords(i, j);
+					}
+					i++;
+					j--;
+				}
+			}
+			if(j - first < last - i) { // Recurses on the smallest part.
+				quicksort(first, j, cmp, pivot);
+				first = i;
+			}
+			else {
+				quicksort(i, last, cmp, pivot);
+				last = j;
+			}
+		}
+		for(int i = first; ++i <= last;) { // Insertion sort.
+			for(int j = i; j > first && compare(cmp, j - 1, j) > 0; j--) {
+				swapRecords(j - 1, j);
+			}
+		}
+	}
+	private int compare(Comparator cmp, int i, int j) {
+		_left.setByteBuffer(_buffer, i * _structSize);
+		_right.setByteBuffer(_buffer, j * _structSize);
+		return cmp.compare(_left, _right);
+	}
+	private int compare(Comparator cmp, int i, Struct pivot) {
+		_left.setByteBuffer(_buffer, i * _structSize);
+		return cmp.compare(_left, pivot);
+	}
+	private void swapRecords(int i, int j) {
+		final int n = _structSize;
+		final ByteBuffer buffer = _buffer;
+		buffer.position(i * n);
+		buffer.get(_bytes, 0, n);
+		buffer.position(j * n);
+		buffer.get(_bytes, n, n);
+		buffer.position(j * n);
+		buffer.put(_bytes, 0, n);
+		buffer.position(i * n);
+		buffer.put(_bytes, n, n);
+	}
+	// Copies bytes between buffers (by chunks, overlap safe).
+	private void copy(ByteBuffer src, int srcPos, ByteBuffer dst, int dstPos, int length) {
+		final int chunk = _bytes.length;
+		if(src == dst && srcPos < dstPos && dstPos < srcPos + length) { // Backward.
+			for(int end = length; end > 0;) {
+				final int n = Math.min(chunk, end);
+				end -= n;
+				src.position(srcPos + end);
+				src.get(_bytes, 0, n);
+				dst.position(dstPos + end);
+				dst.put(_bytes, 0, n);
+			}
+			return;
+		}
+		for(int start = 0; start < length;) {
+			final int n = Math.min(chunk, length - start);
+			src.position(srcPos + start);
+			src.get(_bytes, 0, n);
+			dst.position(dstPos + start);
+			dst.put(_bytes, 0, n);
+			start += n;
+		}
+	}
+	private void checkSize(Struct struct) {
+		if(struct.size() != _structSize)
+			throw new IllegalArgumentException("Struct size " + struct.size() + " different from records size "
+					+ _structSize);
+	}
+	private ByteBuffer allocate(int capacity) {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(capacity * _structSize);
+		buffer.order(_view.byteOrder());
+		return buffer;
+	}
+	// Views are long-lived, they are never allocated on the stack.
+	private Struct newStruct() {
+		HeapContext.enter();
+		try {
+			return (Struct) _factory.object();
+		}
+		finally {
+			HeapContext.exit();
+		}
+	}
+}
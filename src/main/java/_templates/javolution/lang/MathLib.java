@@ -467,13 +467,16 @@ public final class MathLib {
 		long m = bits & 0x000fffffffffffffL;
 		if(exp == 0x7FF)
 			throw new ArithmeticException("Cannot convert to long (Infinity or NaN)");
-		if(exp == 0) {
-			if(m == 0)
-				return 0L;
-			return toLongPow10(d * 1E16, n - 16);
+		if(exp == 0 && m == 0)
+			return 0L;
+		int pow2;
+		if(exp == 0) { // Subnormal (no implicit MSB, scaling by 1E16 would round).
+			pow2 = 1 - 1023 - 52;
+		}
+		else {
+			m |= 0x0010000000000000L; // Sets MSB (bit 52)
+			pow2 = exp - 1023 - 52;
 		}
-		m |= 0x0010000000000000L; // Sets MSB (bit 52)
-		int pow2 = exp - 1023 - 52;
 		// Retrieves 63 bits m with n == 0.
 		if(n >= 0) {
 			// Works with 4 x 32 bits registers (x3:x2:x1:x0)
@@ -354,7 +354,8 @@ public final class Text implements CharSequence, Comparable, XMLSerializable, Va
 	 *
 	 * @param  d the <code>double</code> to format.
 	 * @param  digits the number of significative digits (excludes exponent) or
-	 *         <code>-1</code> to mimic the standard library (16 or 17 digits).
+	 *         <code>-1</code> for the shortest representation which can be
+	 *         parsed back to the same <code>double</code> (at most 17 digits).
 	 * @param  scientific <code>true</code> to forces the use of the scientific
 	 *         notation (e.g. <code>1.23E3</code>); <code>false</code>
 	 *         otherwise.
@@ -444,16 +444,38 @@ public class TextBuilder implements Appendable, CharSequence, Reusable, Realtime
 			i = -i;
 		}
 		final int digits = MathLib.digitLength(i);
-		if(_capacity < _length + digits) {
+		while(_capacity < _length + digits) {
 			increaseCapacity();
 		}
 		_length += digits;
-		for(int index = _length - 1;; --index) {
-			final int j = i / 10;
-			_high[index >> B1][index & M1] = (char) ('0' + i - j * 10);
-			if(j == 0)
-				return this;
-			i = j;
+		appendDigits(i, _length);
+		return this;
+	}
+	// Writes the digits of the specified positive int backward (two at a time)
+	// from the specified index (exclusive).
+	private void appendDigits(int i, int index) {
+		while(i >= 100) {
+			final int q = i / 100;
+			final int r = i - q * 100;
+			i = q;
+			_high[--index >> B1][index & M1] = DIGIT_ONES[r];
+			_high[--index >> B1][index & M1] = DIGIT_TENS[r];
+		}
+		if(i >= 10) {
+			_high[--index >> B1][index & M1] = DIGIT_ONES[i];
+			_high[--index >> B1][index & M1] = DIGIT_TENS[i];
+		}
+		else {
+			_high[--index >> B1][index & M1] = (char) ('0' + i);
+		}
+	}
+	// Holds the tens and units characters of the numbers 0 to 99.
+	private static final char[] DIGIT_TENS = new char[100];
+	private static final char[] DIGIT_ONES = new char[100];
+	static {
+		for(int i = 0; i < 100; i++) {
+			DIGIT_TENS[i] = (char) ('0' + i / 10);
+			DIGIT_ONES[i] = (char) ('0' + i % 10);
 		}
 	}
 	/**
@@ -527,11 +549,22 @@ public class TextBuilder implements Appendable, CharSequence, Reusable, Realtime
 		}
 		if(l <= Integer.MAX_VALUE)
 			return append((int) l);
-		append(l / 1000000000);
-		final int i = (int) (l % 1000000000);
-		final int digits = MathLib.digitLength(i);
-		append("000000000", 0, 9 - digits);
-		return append(i);
+		final int digits = MathLib.digitLength(l);
+		while(_capacity < _length + digits) {
+			increaseCapacity();
+		}
+		_length += digits;
+		int index = _length;
+		do {
+			final long q = l / 100;
+			final int r = (int) (l - q * 100);
+			l = q;
+			_high[--index >> B1][index & M1] = DIGIT_ONES[r];
+			_high[--index >> B1][index & M1] = DIGIT_TENS[r];
+		}
+		while(l > Integer.MAX_VALUE);
+		appendDigits((int) l, index);
+		return this;
 	}
 	/**
 	 * Appends the radix representation of the specified <code>long</code>
@@ -593,10 +626,9 @@ public class TextBuilder implements Appendable, CharSequence, Reusable, Realtime
 		return append(f, 10, MathLib.abs(f) >= 1E7 || MathLib.abs(f) < 0.001, false);
 	}
 	/**
-	 * Appends the textual representation of the specified <code>double</code>;
-	 * the number of digits is 17 or 16 when the 16 digits representation
-	 * can be parsed back to the same <code>double</code> (mimic the standard
-	 * library formatting).
+	 * Appends the textual representation of the specified <code>double</code>
+	 * using the shortest number of digits (at most 17) which can be parsed
+	 * back to the same <code>double</code>.
 	 *
 	 * @param  d the <code>double</code> to format.
 	 * @return <code>append(d, -1, (MathLib.abs(d) >= 1E7) ||
@@ -611,7 +643,8 @@ public class TextBuilder implements Appendable, CharSequence, Reusable, Realtime
 	 *
 	 * @param  d the <code>double</code> value.
 	 * @param  digits the number of significative digits (excludes exponent) or
-	 *         <code>-1</code> to mimic the standard library (16 or 17 digits).
+	 *         <code>-1</code> for the shortest representation which can be
+	 *         parsed back to the same <code>double</code> (at most 17 digits).
 	 * @param  scientific <code>true</code> to forces the use of the scientific
 	 *         notation (e.g. <code>1.23E3</code>); <code>false</code>
 	 *         otherwise.
@@ -645,27 +678,45 @@ public class TextBuilder implements Appendable, CharSequence, Reusable, Realtime
 			d = -d;
 			append('-');
 		}
+		if(digits < 0 && !showZero && appendShortest(d, scientific))
+			return this;
 		// Find the exponent e such as: value == x.xxx * 10^e
-		final int e = MathLib.floorLog10(d);
+		int e = MathLib.floorLog10(d);
 		long m;
-		if(digits < 0) { // Use 16 or 17 digits.
-			// Try 17 digits.
-			final long m17 = MathLib.toLongPow10(d, 17 - 1 - e);
-			// Check if we can use 16 digits.
-			final long m16 = m17 / 10;
-			final double dd = MathLib.toDoublePow10(m16, e - 16 + 1);
-			if(dd == d) { // 16 digits is enough.
-				digits = 16;
-				m = m16;
+		if(digits < 0) { // Shortest not guaranteed (see appendShortest) or trailing zeros shown.
+			long m17 = MathLib.toLongPow10(d, 17 - 1 - e);
+			if(m17 < POW10_LONG[16]) { // Exponent overestimated (e.g. 1E23 is 9.99..E22)
+				m17 = MathLib.toLongPow10(d, 17 - e--);
 			}
-			else { // We cannot remove the last digit.
-				digits = 17;
-				m = m17;
+			digits = 17;
+			m = m17;
+			// Searches the fewest digits (rounded or truncated) which can be parsed back.
+			for(int n = showZero ? 16 : 1; n < 17; n++) {
+				final long pow10 = POW10_LONG[17 - n];
+				final long truncated = m17 / pow10;
+				final long rounded = m17 - truncated * pow10 >= pow10 >> 1 ? truncated + 1 : truncated;
+				if(isParsedBack(rounded, e - n + 1, d)) {
+					digits = n;
+					m = rounded;
+					if(rounded == POW10_LONG[n]) { // Carry (e.g. 9.96 rounded to 10.0)
+						m /= 10;
+						e++;
+					}
+					break;
+				}
+				if(rounded != truncated && isParsedBack(truncated, e - n + 1, d)) {
+					digits = n;
+					m = truncated;
+					break;
+				}
 			}
 		}
 		else {
 			m = MathLib.toLongPow10(d, digits - 1 - e);
 		}
+		if(digits > 0 && m < POW10_LONG[digits - 1]) { // Exponent overestimated (e.g. 1E23 is 9.99..E22)
+			m = MathLib.toLongPow10(d, digits - e--);
+		}
 		// Formats.
 		if(scientific || e >= digits) {
 			// Scientific notation has to be used ("x.xxxEyy").
@@ -692,6 +743,14 @@ public class TextBuilder implements Appendable, CharSequence, Reusable, Realtime
 		}
 		return this;
 	}
+	// Indicates if m * 10^n is parsed back to the specified positive double.
+	private static boolean isParsedBack(long m, int n, double d) {
+		final long bits = Double.doubleToLongBits(d);
+		final long approx = Double.doubleToLongBits(MathLib.toDoublePow10(m, n));
+		if(approx < bits - 1 || approx > bits + 1)
+			return false; // Not even close (most candidates).
+		return TypeFormat.toDoublePow10(m, n) == d;
+	}
 	private final void appendFraction(long l, int digits, boolean showZero) {
 		append('.');
 		if(l == 0) {
@@ -717,6 +776,196 @@ public class TextBuilder implements Appendable, CharSequence, Reusable, Realtime
 			append(l);
 		}
 	}
+	/**
+	 * Appends the shortest decimal representation of the specified positive
+	 * finite <code>double</code> using the Grisu3 algorithm (Florian Loitsch,
+	 * "Printing Floating-Point Numbers Quickly and Accurately with Integers").
+	 * The digits are generated directly into this builder using 64 bits
+	 * integer arithmetic only (no allocation). Grisu3 detects the rare cases
+	 * (about 0.5%) for which it cannot guarantee the shortest representation;
+	 * this builder is then left unchanged and <code>false</code> is returned.
+	 *
+	 * @param d the positive value to format.
+	 * @param scientific indicates if the scientific notation is forced.
+	 * @return <code>true</code> if the value has been appended;
+	 *         <code>false</code> otherwise.
+	 */
+	private boolean appendShortest(double d, boolean scientific) {
+		final long bits = Double.doubleToLongBits(d);
+		final int biasedExp = (int) (bits >>> 52) & 0x7FF;
+		final long fraction = bits & 0x000FFFFFFFFFFFFFL;
+		final long f = biasedExp == 0 ? fraction : fraction | 0x0010000000000000L;
+		final int e = biasedExp == 0 ? -1074 : biasedExp - 1075;
+		// Normalized value and boundaries (all with the same binary exponent).
+		final int shift = 64 - MathLib.bitLength(f);
+		final long wF = f << shift;
+		final int wE = e - shift;
+		final long plusF = (f << 1) + 1 << shift - 1;
+		final long minusF = fraction == 0 && biasedExp > 1 ? (f << 2) - 1 << shift - 2 : (f << 1) - 1 << shift - 1;
+		// Cached power of ten such that the scaled exponent is in [-60, -32]
+		final double k = (-60 - (wE + 64) + 63) * 0.30102999566398114; // log10(2)
+		int ceilK = (int) k;
+		if(ceilK < k) {
+			ceilK++;
+		}
+		final int index = (348 + ceilK - 1) / 8 + 1;
+		final long cF = CACHED_POW10_SIGNIFICANDS[index];
+		final int exp = wE + CACHED_POW10_EXPONENTS[index] + 64;
+		while(_capacity < _length + 24) { // Digits (at most 17) written directly.
+			increaseCapacity();
+		}
+		final int start = _length;
+		final int kappa = digitGen(multiplyHigh(minusF, cF), multiplyHigh(wF, cF), multiplyHigh(plusF, cF), exp);
+		if(kappa == Integer.MIN_VALUE) { // Shortest not guaranteed.
+			_length = start;
+			return false;
+		}
+		final int n = _length - start;
+		final int e10 = n - 1 + kappa - (-348 + index * 8); // Exponent of the first digit.
+		if(scientific || e10 >= (n < 17 ? 16 : 17)) { // "x.xxxEyy"
+			shiftRight(start + 1, 1);
+			_high[start + 1 >> B1][start + 1 & M1] = '.';
+			if(n == 1) {
+				append('0');
+			}
+			append('E');
+			append(e10);
+		}
+		else if(e10 < 0) { // "0.00xxx"
+			final int count = 1 - e10;
+			shiftRight(start, count);
+			for(int i = start + count; --i >= start;) {
+				_high[i >> B1][i & M1] = '0';
+			}
+			_high[start + 1 >> B1][start + 1 & M1] = '.';
+		}
+		else if(e10 + 1 >= n) { // "xxx00.0"
+			for(int i = n; i <= e10; i++) {
+				append('0');
+			}
+			append('.');
+			append('0');
+		}
+		else { // "xx.xxx"
+			final int dot = start + e10 + 1;
+			shiftRight(dot, 1);
+			_high[dot >> B1][dot & M1] = '.';
+		}
+		return true;
+	}
+	/**
+	 * Generates the shortest digits within the scaled boundaries (Grisu3).
+	 *
+	 * @return kappa (the digits have to be multiplied by 10^kappa) or
+	 *         <code>Integer.MIN_VALUE</code> if the shortest representation
+	 *         cannot be guaranteed.
+	 */
+	private int digitGen(long lowF, long wF, long highF, int exp) {
+		long unit = 1;
+		final long tooLowF = lowF - unit;
+		final long tooHighF = highF + unit;
+		long unsafeInterval = tooHighF - tooLowF;
+		final int shift = -exp;
+		final long one = 1L << shift;
+		long integrals = tooHighF >>> shift;
+		long fractionals = tooHighF & one - 1;
+		int kappa = integrals == 0 ? 0 : MathLib.digitLength(integrals);
+		while(kappa > 0) {
+			final long divisor = POW10_LONG[--kappa];
+			final long digit = integrals / divisor;
+			_high[_length >> B1][_length & M1] = (char) ('0' + (int) digit);
+			_length++;
+			integrals -= digit * divisor;
+			final long rest = (integrals << shift) + fractionals;
+			if(isLess(rest, unsafeInterval))
+				return roundWeed(tooHighF - wF, unsafeInterval, rest, divisor << shift, unit) ? kappa
+						: Integer.MIN_VALUE;
+		}
+		for(;;) {
+			fractionals *= 10;
+			unit *= 10;
+			unsafeInterval *= 10;
+			_high[_length >> B1][_length & M1] = (char) ('0' + (int) (fractionals >>> shift));
+			_length++;
+			fractionals &= one - 1;
+			kappa--;
+			if(isLess(fractionals, unsafeInterval))
+				return roundWeed((tooHighF - wF) * unit, unsafeInterval, fractionals, one, unit) ? kappa
+						: Integer.MIN_VALUE;
+		}
+	}
+	// Adjusts the last digit generated towards the value (all values unsigned).
+	private boolean roundWeed(long distanceTooHighW, long unsafeInterval, long rest, long tenKappa, long unit) {
+		final long smallDistance = distanceTooHighW - unit;
+		final long bigDistance = distanceTooHighW + unit;
+		final int last = _length - 1;
+		while(isLess(rest, smallDistance) && !isLess(unsafeInterval - rest, tenKappa)
+				&& (isLess(rest + tenKappa, smallDistance)
+						|| !isLess(smallDistance - rest, rest + tenKappa - smallDistance))) {
+			_high[last >> B1][last & M1]--;
+			rest += tenKappa;
+		}
+		if(isLess(rest, bigDistance) && !isLess(unsafeInterval - rest, tenKappa)
+				&& (isLess(rest + tenKappa, bigDistance) || isLess(rest + tenKappa - bigDistance, bigDistance - rest)))
+			return false;
+		return !isLess(rest, 2 * unit) && !isLess(unsafeInterval - 4 * unit, rest);
+	}
+	// Unsigned comparison.
+	private static boolean isLess(long a, long b) {
+		return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+	}
+	// Returns the 64 high bits (rounded) of the unsigned 128 bits product.
+	static long multiplyHigh(long x, long y) {
+		final long a = x >>> 32;
+		final long b = x & 0xFFFFFFFFL;
+		final long c = y >>> 32;
+		final long d = y & 0xFFFFFFFFL;
+		final long bc = b * c;
+		final long ad = a * d;
+		final long tmp = (b * d >>> 32) + (ad & 0xFFFFFFFFL) + (bc & 0xFFFFFFFFL) + (1L << 31);
+		return a * c + (ad >>> 32) + (bc >>> 32) + (tmp >>> 32);
+	}
+	// Shifts the characters from the specified index to the right.
+	private void shiftRight(int index, int count) {
+		for(int i = 0; i < count; i++) {
+			append(' '); // Ensures capacity.
+		}
+		for(int i = _length - count; --i >= index;) {
+			final int j = i + count;
+			_high[j >> B1][j & M1] = _high[i >> B1][i & M1];
+		}
+	}
+	// Normalized 64 bits significands and binary exponents of 10^(-348 + 8 * i)
+	static final long[] CACHED_POW10_SIGNIFICANDS = new long[] {
+			0xFA8FD5A0081C0288L, 0xBAAEE17FA23EBF76L, 0x8B16FB203055AC76L, 0xCF42894A5DCE35EAL,
+			0x9A6BB0AA55653B2DL, 0xE61ACF033D1A45DFL, 0xAB70FE17C79AC6CAL, 0xFF77B1FCBEBCDC4FL,
+			0xBE5691EF416BD60CL, 0x8DD01FAD907FFC3CL, 0xD3515C2831559A83L, 0x9D71AC8FADA6C9B5L,
+			0xEA9C227723EE8BCBL, 0xAECC49914078536DL, 0x823C12795DB6CE57L, 0xC21094364DFB5637L,
+			0x9096EA6F3848984FL, 0xD77485CB25823AC7L, 0xA086CFCD97BF97F4L, 0xEF340A98172AACE5L,
+			0xB23867FB2A35B28EL, 0x84C8D4DFD2C63F3BL, 0xC5DD44271AD3CDBAL, 0x936B9FCEBB25C996L,
+			0xDBAC6C247D62A584L, 0xA3AB66580D5FDAF6L, 0xF3E2F893DEC3F126L, 0xB5B5ADA8AAFF80B8L,
+			0x87625F056C7C4A8BL, 0xC9BCFF6034C13053L, 0x964E858C91BA2655L, 0xDFF9772470297EBDL,
+			0xA6DFBD9FB8E5B88FL, 0xF8A95FCF88747D94L, 0xB94470938FA89BCFL, 0x8A08F0F8BF0F156BL,
+			0xCDB02555653131B6L, 0x993FE2C6D07B7FACL, 0xE45C10C42A2B3B06L, 0xAA242499697392D3L,
+			0xFD87B5F28300CA0EL, 0xBCE5086492111AEBL, 0x8CBCCC096F5088CCL, 0xD1B71758E219652CL,
+			0x9C40000000000000L, 0xE8D4A51000000000L, 0xAD78EBC5AC620000L, 0x813F3978F8940984L,
+			0xC097CE7BC90715B3L, 0x8F7E32CE7BEA5C70L, 0xD5D238A4ABE98068L, 0x9F4F2726179A2245L,
+			0xED63A231D4C4FB27L, 0xB0DE65388CC8ADA8L, 0x83C7088E1AAB65DBL, 0xC45D1DF942711D9AL,
+			0x924D692CA61BE758L, 0xDA01EE641A708DEAL, 0xA26DA3999AEF774AL, 0xF209787BB47D6B85L,
+			0xB454E4A179DD1877L, 0x865B86925B9BC5C2L, 0xC83553C5C8965D3DL, 0x952AB45CFA97A0B3L,
+			0xDE469FBD99A05FE3L, 0xA59BC234DB398C25L, 0xF6C69A72A3989F5CL, 0xB7DCBF5354E9BECEL,
+			0x88FCF317F22241E2L, 0xCC20CE9BD35C78A5L, 0x98165AF37B2153DFL, 0xE2A0B5DC971F303AL,
+			0xA8D9D1535CE3B396L, 0xFB9B7CD9A4A7443CL, 0xBB764C4CA7A44410L, 0x8BAB8EEFB6409C1AL,
+			0xD01FEF10A657842CL, 0x9B10A4E5E9913129L, 0xE7109BFBA19C0C9DL, 0xAC2820D9623BF429L,
+			0x80444B5E7AA7CF85L, 0xBF21E44003ACDD2DL, 0x8E679C2F5E44FF8FL, 0xD433179D9C8CB841L,
+			0x9E19DB92B4E31BA9L, 0xEB96BF6EBADF77D9L, 0xAF87023B9BF0EE6BL};
+	static final short[] CACHED_POW10_EXPONENTS = new short[] {
+			-1220, -1193, -1166, -1140, -1113, -1087, -1060, -1034, -1007, -980, -954, -927, -901, -874, -847, -821,
+			-794, -768, -741, -715, -688, -661, -635, -608, -582, -555, -529, -502, -475, -449, -422, -396,
+			-369, -343, -316, -289, -263, -236, -210, -183, -157, -130, -103, -77, -50, -24, 3, 30,
+			56, 83, 109, 136, 162, 189, 216, 242, 269, 295, 322, 348, 375, 402, 428, 455,
+			481, 508, 534, 561, 588, 614, 641, 667, 694, 720, 747, 774, 800, 827, 853, 880,
+			907, 933, 960, 986, 1013, 1039, 1066};
 	private static final long[] POW10_LONG = new long[] {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
 			100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
 			1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L};
@@ -20,10 +20,10 @@ import _templates.javolution.lang.MathLib;
  *     <a href="http://javolution.org/doc/benchmark.html">benchmark</a>).</p>
  *
  * <p> The number of digits when formatting floating point numbers can be
- *     specified. The default setting for <code>double</code> is 17 digits
- *     or even 16 digits when the conversion is lossless back and forth
- *     (mimic the standard library formatting). For example:[code]
- *         TypeFormat.format(0.2, a) = "0.2" // 17 or 16 digits (as long as lossless conversion), remove trailing zeros.
+ *     specified. The default setting for <code>double</code> is the
+ *     shortest number of digits for which the conversion is lossless back
+ *     and forth. For example:[code]
+ *         TypeFormat.format(0.2, a) = "0.2" // Shortest lossless representation.
  *         TypeFormat.format(0.2, 17, false, false, a) = "0.20000000000000001" // Closest 17 digits number.
  *         TypeFormat.format(0.2, 19, false, false, a) = "0.2000000000000000111" // Closest 19 digits.
  *         TypeFormat.format(0.2, 4, false, false, a) = "0.2" // Fixed-point notation, remove trailing zeros.
@@ -421,6 +421,19 @@ public final class TypeFormat {
 	 *         a parsable <code>double</code>.
 	 */
 	public static double parseDouble(CharSequence csq, Cursor cursor) throws NumberFormatException {
+		if(csq instanceof CharArray) { // Reads the characters directly.
+			final CharArray ca = (CharArray) csq;
+			final int offset = ca.offset();
+			if(cursor == null)
+				return parseDouble(ca.array(), offset, offset + ca.length(), null);
+			cursor.setIndex(cursor.getIndex() + offset);
+			try {
+				return parseDouble(ca.array(), cursor.getIndex(), offset + ca.length(), cursor);
+			}
+			finally {
+				cursor.setIndex(cursor.getIndex() - offset);
+			}
+		}
 		final int start = cursor != null ? cursor.getIndex() : 0;
 		final int end = csq.length();
 		int i = start;
@@ -443,16 +456,22 @@ public final class TypeFormat {
 		// At least one digit or a '.' required.
 		if((c < '0' || c > '9') && c != '.')
 			throw new NumberFormatException("Digit or '.' required");
-		// Reads decimal and fraction (both merged to a long).
-		long decimal = 0;
+		// Reads decimal and fraction (the first 19 significant digits merged to a long).
+		long significand = 0;
+		int digits = 0; // Number of significant digits.
+		int first = i; // Index of the first significant digit.
 		int decimalPoint = -1;
 		while(true) {
 			final int digit = c - '0';
 			if(digit >= 0 && digit < 10) {
-				final long tmp = decimal * 10 + digit;
-				if(tmp < decimal)
-					throw new NumberFormatException("Too many digits - Overflow");
-				decimal = tmp;
+				if(digits < 19) {
+					significand = significand * 10 + digit;
+				}
+				if(digits != 0 || digit != 0) {
+					if(digits++ == 0) {
+						first = i;
+					}
+				}
 			}
 			else if(c == '.' && decimalPoint < 0) {
 				decimalPoint = i;
@@ -465,9 +484,7 @@ public final class TypeFormat {
 			}
 			c = csq.charAt(i);
 		}
-		if(isNegative) {
-			decimal = -decimal;
-		}
+		final int last = i; // Index after the last digit.
 		final int fractionLength = decimalPoint >= 0 ? i - decimalPoint - 1 : 0;
 		// Reads exponent.
 		int exp = 0;
@@ -500,7 +517,434 @@ public final class TypeFormat {
 			}
 		}
 		increment(cursor, i - start, end, csq);
-		return MathLib.toDoublePow10(decimal, exp - fractionLength);
+		final double d = toDouble(significand, digits, exp - fractionLength, csq, null, first, last);
+		return isNegative ? -d : d;
+	}
+	/**
+	 * Parses the specified characters as a <code>double</code> (same format
+	 * as {@link #parseDouble(CharSequence)}). The characters are read
+	 * directly from the array (no intermediate character sequence).
+	 *
+	 * @param  chars the characters array.
+	 * @param  offset the index of the first character to parse.
+	 * @param  length the number of characters to parse.
+	 * @return the double number represented by the specified characters.
+	 * @throws NumberFormatException if the specified characters do not
+	 *         represent a parsable <code>double</code>.
+	 * @since 5.7.5
+	 */
+	public static double parseDouble(char[] chars, int offset, int length) throws NumberFormatException {
+		return parseDouble(chars, offset, offset + length, null);
+	}
+	/**
+	 * Parses the <code>double</code> numbers separated by white spaces
+	 * and/or commas (e.g. <code>"1.0, 2.5 -3E2"</code> as found in XML
+	 * attributes) from the specified characters.
+	 *
+	 * @param  chars the characters array.
+	 * @param  offset the index of the first character to parse.
+	 * @param  length the number of characters to parse.
+	 * @param  values the array receiving the parsed values.
+	 * @param  index the index in <code>values</code> of the first value parsed.
+	 * @return the number of values parsed.
+	 * @throws NumberFormatException if the specified characters do not
+	 *         represent a list of parsable <code>double</code>.
+	 * @throws ArrayIndexOutOfBoundsException if <code>values</code> is too small.
+	 * @since 5.7.5
+	 */
+	public static int parseDoubles(char[] chars, int offset, int length, double[] values, int index)
+			throws NumberFormatException {
+		final int end = offset + length;
+		final Cursor cursor = Cursor.newInstance();
+		try {
+			int n = 0;
+			for(int i = offset;;) {
+				while(i < end && isSeparator(chars[i])) {
+					i++;
+				}
+				if(i >= end)
+					return n;
+				cursor.setIndex(i);
+				values[index + n++] = parseDouble(chars, i, end, cursor);
+				i = cursor.getIndex();
+				if(i < end && !isSeparator(chars[i]))
+					throw new NumberFormatException("Extraneous character: '" + chars[i] + "'");
+			}
+		}
+		finally {
+			Cursor.recycle(cursor);
+		}
+	}
+	/**
+	 * Equivalent to {@link #parseDoubles(char[], int, int, double[], int)}
+	 * for the characters of the specified character array.
+	 *
+	 * @param  csq the character array to parse.
+	 * @param  values the array receiving the parsed values.
+	 * @param  index the index in <code>values</code> of the first value parsed.
+	 * @return the number of values parsed.
+	 * @throws NumberFormatException if the specified character array does
+	 *         not represent a list of parsable <code>double</code>.
+	 * @since 5.7.5
+	 */
+	public static int parseDoubles(CharArray csq, double[] values, int index) throws NumberFormatException {
+		return parseDoubles(csq.array(), csq.offset(), csq.length(), values, index);
+	}
+	private static boolean isSeparator(char c) {
+		return c == ' ' || c == ',' || c == '\n' || c == '\t' || c == '\r';
+	}
+	// Parses chars[start, end[ (the whole range if the cursor is null,
+	// otherwise the cursor is set to the index after the number).
+	private static double parseDouble(char[] chars, int start, int end, Cursor cursor) throws NumberFormatException {
+		int i = start;
+		if(i >= end)
+			throw new NumberFormatException("Digit or '.' required");
+		char c = chars[i];
+		if(c == 'N' && match("NaN", chars, i, end)) {
+			return end(cursor, i + 3, end, chars, Double.NaN);
+		}
+		final boolean isNegative = c == '-';
+		if((isNegative || c == '+') && ++i < end) {
+			c = chars[i];
+		}
+		if(c == 'I' && match("Infinity", chars, i, end)) {
+			return end(cursor, i + 8, end, chars, isNegative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+		}
+		if((c < '0' || c > '9') && c != '.')
+			throw new NumberFormatException("Digit or '.' required");
+		long significand = 0;
+		int digits = 0;
+		int first = i;
+		int decimalPoint = -1;
+		for(;; c = chars[i]) {
+			final int digit = c - '0';
+			if(digit >= 0 && digit < 10) {
+				if(digits < 19) {
+					significand = significand * 10 + digit;
+				}
+				if(digits != 0 || digit != 0) {
+					if(digits++ == 0) {
+						first = i;
+					}
+				}
+			}
+			else if(c == '.' && decimalPoint < 0) {
+				decimalPoint = i;
+			}
+			else {
+				break;
+			}
+			if(++i >= end) {
+				break;
+			}
+		}
+		final int last = i;
+		final int fractionLength = decimalPoint >= 0 ? i - decimalPoint - 1 : 0;
+		int exp = 0;
+		if(i < end && (c == 'E' || c == 'e')) {
+			if(++i >= end)
+				throw new NumberFormatException("Invalid exponent");
+			c = chars[i];
+			final boolean isNegativeExp = c == '-';
+			if((isNegativeExp || c == '+') && ++i < end) {
+				c = chars[i];
+			}
+			if(c < '0' || c > '9')
+				throw new NumberFormatException("Invalid exponent");
+			for(;; c = chars[i]) {
+				final int digit = c - '0';
+				if(digit < 0 || digit > 9) {
+					break;
+				}
+				final int tmp = exp * 10 + digit;
+				if(tmp < exp)
+					throw new NumberFormatException("Exponent Overflow");
+				exp = tmp;
+				if(++i >= end) {
+					break;
+				}
+			}
+			if(isNegativeExp) {
+				exp = -exp;
+			}
+		}
+		final double d = toDouble(significand, digits, exp - fractionLength, null, chars, first, last);
+		return end(cursor, i, end, chars, isNegative ? -d : d);
+	}
+	// Sets the cursor or checks that the whole range has been parsed.
+	private static double end(Cursor cursor, int i, int end, char[] chars, double d) throws NumberFormatException {
+		if(cursor != null) {
+			cursor.setIndex(i);
+		}
+		else if(i != end)
+			throw new NumberFormatException("Extraneous character: '" + chars[i] + "'");
+		return d;
+	}
+	private static boolean match(String str, char[] chars, int start, int end) {
+		final int len = str.length();
+		if(start + len > end)
+			return false;
+		for(int i = 0; i < len; ++i) {
+			if(chars[start + i] != str.charAt(i))
+				return false;
+		}
+		return true;
+	}
+	/**
+	 * Returns the <code>double</code> closest to the specified decimal number
+	 * (correctly rounded). The exact conversion of small numbers is
+	 * performed using a single floating point operation (Clinger's fast
+	 * path), otherwise the number is converted using 64 bits integer
+	 * arithmetic with error tracking (cached powers of ten shared with
+	 * {@link TextBuilder}); if the result is too close to a rounding boundary it is verified with
+	 * exact big integer arithmetic.
+	 *
+	 * @param significand the first 19 significant digits (unsigned).
+	 * @param digits the number of significant digits.
+	 * @param exp10 the power of ten to apply to the number formed by all the
+	 *        significant digits.
+	 * @param csq the parsed character sequence or <code>null</code>.
+	 * @param chars the parsed characters or <code>null</code>.
+	 * @param first the index of the first significant digit.
+	 * @param last the index after the last digit.
+	 */
+	private static double toDouble(long significand, int digits, int exp10, CharSequence csq, char[] chars, int first,
+			int last) {
+		if(digits == 0)
+			return 0.0;
+		if(digits + exp10 > 309)
+			return Double.POSITIVE_INFINITY;
+		if(digits + exp10 < -323)
+			return 0.0;
+		final int read = digits < 19 ? digits : 19;
+		final int exponent = exp10 + digits - read; // Applies to the significand.
+		if(read == digits && significand >= 0 && significand <= 1L << 53) { // Exact.
+			if(exponent >= 0 && exponent < POW10_DOUBLE.length)
+				return significand * POW10_DOUBLE[exponent];
+			if(exponent < 0 && -exponent < POW10_DOUBLE.length)
+				return significand / POW10_DOUBLE[-exponent];
+		}
+		// 64 bits approximation (with errors in 1/8 units of the last bit).
+		long f = significand;
+		long error = 0;
+		if(read != digits) {
+			if(digitAt(csq, chars, first, last, read) >= 5) {
+				f++; // Rounds (cannot overflow, at most 10^19)
+			}
+			error = 4;
+		}
+		int e = 0;
+		int shift = leadingZeros(f);
+		f <<= shift;
+		e -= shift;
+		error <<= shift;
+		final int index = (exponent + 348) / 8;
+		final int cachedExponent = -348 + index * 8;
+		if(cachedExponent != exponent) { // Adjusts with an exact power of ten.
+			final int adjustment = exponent - cachedExponent;
+			f = TextBuilder.multiplyHigh(f, ADJUSTMENT_POW10_SIGNIFICANDS[adjustment - 1]);
+			e += ADJUSTMENT_POW10_EXPONENTS[adjustment - 1] + 64;
+			if(19 - digits < adjustment) { // Product not exact.
+				error += 4;
+			}
+		}
+		f = TextBuilder.multiplyHigh(f, TextBuilder.CACHED_POW10_SIGNIFICANDS[index]);
+		e += TextBuilder.CACHED_POW10_EXPONENTS[index] + 64;
+		error += 4 + (error == 0 ? 0 : 1) + 4;
+		shift = leadingZeros(f);
+		f <<= shift;
+		e -= shift;
+		error <<= shift;
+		// Number of bits beyond the double precision.
+		final int magnitude = 64 + e;
+		int precision = 64 - (magnitude >= -1074 + 53 ? 53 : magnitude <= -1074 ? 0 : magnitude + 1074);
+		if(precision + 3 >= 64) { // Very small denormals, avoids overflow.
+			final int amount = precision + 3 - 64 + 1;
+			f >>>= amount;
+			e += amount;
+			error = (error >>> amount) + 1 + 8;
+			precision -= amount;
+		}
+		final long precisionBits = (f & (1L << precision) - 1) * 8;
+		final long halfWay = (1L << precision - 1) * 8;
+		long rounded = f >>> precision;
+		if(!isLess(precisionBits, halfWay + error)) {
+			rounded++;
+		}
+		final double guess = toDouble(rounded, e + precision);
+		if(!isLess(halfWay - error, precisionBits) || !isLess(precisionBits, halfWay + error))
+			return guess; // Guaranteed.
+		// Exact comparison with the boundary between the guess and the next double
+		// (the guess is either correct or the next lower double).
+		if(guess == Double.POSITIVE_INFINITY)
+			return guess;
+		final long bits = Double.doubleToLongBits(guess);
+		final int biasedExp = (int) (bits >>> 52);
+		final long boundaryF = ((biasedExp == 0 ? bits : bits & 0x000FFFFFFFFFFFFFL | 0x0010000000000000L) << 1) + 1;
+		final int boundaryE = (biasedExp == 0 ? -1074 : biasedExp - 1075) - 1;
+		final int n = digits < MAX_EXACT_DIGITS ? digits : MAX_EXACT_DIGITS;
+		final Bignum number = new Bignum();
+		for(int j = 0; j < n; j++) {
+			number.multiplyAdd(10, digitAt(csq, chars, first, last, j));
+		}
+		int exactExp = exp10 + digits - n;
+		if(n != digits) { // Truncated, accounts for the remaining (non-zero) digits.
+			number.multiplyAdd(10, 1);
+			exactExp--;
+		}
+		final Bignum boundary = new Bignum();
+		boundary.multiplyAdd(1 << 16, (int) (boundaryF >>> 48));
+		boundary.multiplyAdd(1 << 16, (int) (boundaryF >>> 32) & 0xFFFF);
+		boundary.multiplyAdd(1 << 16, (int) (boundaryF >>> 16) & 0xFFFF);
+		boundary.multiplyAdd(1 << 16, (int) boundaryF & 0xFFFF);
+		if(exactExp >= 0) {
+			number.multiplyPow10(exactExp);
+		}
+		else {
+			boundary.multiplyPow10(-exactExp);
+		}
+		if(boundaryE > 0) {
+			boundary.shiftLeft(boundaryE);
+		}
+		else {
+			number.shiftLeft(-boundaryE);
+		}
+		final int cmp = number.compareTo(boundary);
+		if(cmp < 0 || cmp == 0 && (bits & 1) == 0)
+			return guess; // Below the boundary or tie with even guess.
+		return Double.longBitsToDouble(bits + 1);
+	}
+	/**
+	 * Returns the <code>double</code> closest to the specified positive
+	 * significand multiplied by the specified power of ten (as parsed by
+	 * {@link #parseDouble(CharSequence)}).
+	 *
+	 * @param significand the positive significand.
+	 * @param exp10 the power of ten exponent.
+	 */
+	static double toDoublePow10(long significand, int exp10) {
+		final int digits = MathLib.digitLength(significand);
+		final char[] chars = new char[digits]; // Read for exact comparisons only.
+		long l = significand;
+		for(int i = digits; --i >= 0; l /= 10) {
+			chars[i] = (char) ('0' + (int) (l % 10));
+		}
+		return toDouble(significand, digits, exp10, null, chars, 0, digits);
+	}
+	// Returns the significant digit at the specified position.
+	private static int digitAt(CharSequence csq, char[] chars, int first, int last, int position) {
+		for(int i = first; i < last; i++) {
+			final char c = csq != null ? csq.charAt(i) : chars[i];
+			if(c != '.' && position-- == 0)
+				return c - '0';
+		}
+		return 0;
+	}
+	// Returns the double value of f * 2^e (f less than 2^54).
+	private static double toDouble(long f, int e) {
+		while(f > 0x001FFFFFFFFFFFFFL) {
+			f >>>= 1;
+			e++;
+		}
+		if(e >= 972)
+			return Double.POSITIVE_INFINITY;
+		if(e < -1074)
+			return 0.0;
+		while(e > -1074 && (f & 0x0010000000000000L) == 0) {
+			f <<= 1;
+			e--;
+		}
+		final long biasedExp = e == -1074 && (f & 0x0010000000000000L) == 0 ? 0 : e + 1075;
+		return Double.longBitsToDouble(f & 0x000FFFFFFFFFFFFFL | biasedExp << 52);
+	}
+	// Unsigned comparison.
+	private static boolean isLess(long a, long b) {
+		return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+	}
+	// Number of leading zeros of the specified 64 bits value.
+	private static int leadingZeros(long l) {
+		return l < 0 ? 0 : 64 - MathLib.bitLength(l);
+	}
+	// Holds the maximum number of digits used for exact comparisons
+	// (the following digits are equivalent to a trailing '1').
+	private static final int MAX_EXACT_DIGITS = 780;
+	// Holds the powers of ten exactly representable as double.
+	private static final double[] POW10_DOUBLE = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+			1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	// Holds the normalized significands and exponents of 10^1 to 10^7
+	private static final long[] ADJUSTMENT_POW10_SIGNIFICANDS = {0xA000000000000000L, 0xC800000000000000L,
+			0xFA00000000000000L, 0x9C40000000000000L, 0xC350000000000000L, 0xF424000000000000L, 0x9896800000000000L};
+	private static final int[] ADJUSTMENT_POW10_EXPONENTS = {-60, -57, -54, -50, -47, -44, -40};
+	/**
+	 * This class represents the unsigned big integers used for exact
+	 * comparisons (rare, allocates).
+	 */
+	private static final class Bignum {
+		private int[] _words = new int[8]; // Little endian.
+		private int _length;
+		void multiplyAdd(int m, int a) {
+			long carry = a;
+			for(int i = 0; i < _length; i++) {
+				final long p = (_words[i] & 0xFFFFFFFFL) * m + carry;
+				_words[i] = (int) p;
+				carry = p >>> 32;
+			}
+			if(carry != 0) {
+				ensureCapacity(_length + 1);
+				_words[_length++] = (int) carry;
+			}
+		}
+		void multiplyPow10(int n) {
+			shiftLeft(n);
+			for(; n >= 13; n -= 13) {
+				multiplyAdd(1220703125, 0); // 5^13
+			}
+			if(n > 0) {
+				int pow5 = 1;
+				while(n-- > 0) {
+					pow5 *= 5;
+				}
+				multiplyAdd(pow5, 0);
+			}
+		}
+		void shiftLeft(int n) {
+			if(_length == 0)
+				return;
+			final int words = n >>> 5;
+			final int bits = n & 31;
+			ensureCapacity(_length + words + 1);
+			_words[_length + words] = 0;
+			for(int i = _length; --i >= 0;) {
+				final int w = _words[i];
+				if(bits != 0) {
+					_words[i + words + 1] |= w >>> 32 - bits;
+				}
+				_words[i + words] = w << bits;
+			}
+			for(int i = 0; i < words; i++) {
+				_words[i] = 0;
+			}
+			_length += words + 1;
+			while(_length > 0 && _words[_length - 1] == 0) {
+				_length--;
+			}
+		}
+		int compareTo(Bignum that) {
+			if(_length != that._length)
+				return _length < that._length ? -1 : 1;
+			for(int i = _length; --i >= 0;) {
+				if(_words[i] != that._words[i])
+					return isLess(_words[i] & 0xFFFFFFFFL, that._words[i] & 0xFFFFFFFFL) ? -1 : 1;
+			}
+			return 0;
+		}
+		private void ensureCapacity(int length) {
+			if(length <= _words.length)
+				return;
+			final int[] tmp = new int[MathLib.max(length, _words.length << 1)];
+			System.arraycopy(_words, 0, tmp, 0, _length);
+			_words = tmp;
+		}
 	}
 	static boolean match(String str, CharSequence csq, int start, int length) {
 		final int len = str.length();
@@ -638,7 +1082,8 @@ public final class TypeFormat {
 		return TypeFormat.format(f, 10, MathLib.abs(f) >= 1E7 || MathLib.abs(f) < 0.001, false, a);
 	}
 	/**
-	 * Formats the specified <code>double</code> value (16 or 17 digits output).
+	 * Formats the specified <code>double</code> value (shortest representation
+	 * which can be parsed back to the same <code>double</code>).
 	 *
 	 * @param  d the <code>double</code> value.
 	 * @param  a the <code>Appendable</code> to append.
@@ -655,7 +1100,8 @@ public final class TypeFormat {
 	 *
 	 * @param  d the <code>double</code> value.
 	 * @param  digits the number of significative digits (excludes exponent) or
-	 *         <code>-1</code> to mimic the standard library (16 or 17 digits).
+	 *         <code>-1</code> for the shortest representation which can be
+	 *         parsed back to the same <code>double</code> (at most 17 digits).
 	 * @param  scientific <code>true</code> to forces the use of the scientific
 	 *         notation (e.g. <code>1.23E3</code>); <code>false</code>
 	 *         otherwise.
@@ -0,0 +1,918 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2008 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util;
+import java.io.IOException;
+import _templates.java.io.ObjectInputStream;
+import _templates.java.io.ObjectOutputStream;
+import _templates.java.io.Serializable;
+import _templates.javolution.lang.MathLib;
+/**
+ * <p> This class represents the compressed representation of a
+ *     {@link FastBitSet}. Bit indices are grouped in chunks of 64K (same
+ *     high 16 bits); each chunk holds the low 16 bits of its indices in the
+ *     smallest of:
+ *     <ul>
+ *     <li> a sorted array (at most 4096 values),</li>
+ *     <li> a bitmap (1024 words),</li>
+ *     <li> a sorted list of runs (start and length of consecutive
+ *          indices).</li>
+ *     </ul>
+ *     Chunks without any index are not allocated; logical operations only
+ *     visit the chunks present in both sets (roaring bitmaps layout).</p>
+ *
+ * <p> Single bit updates keep arrays and bitmaps (an array becomes a bitmap
+ *     above 4096 values and conversely); runs are selected by range
+ *     operations.</p>
+ *
+ * @since 5.7.5
+ */
+final class CompressedBits implements Serializable {
+	// Range operations.
+	static final int SET = 0;
+	static final int CLEAR = 1;
+	static final int FLIP = 2;
+	// Logical operations.
+	private static final int AND = 0;
+	private static final int OR = 1;
+	private static final int XOR = 2;
+	private static final int AND_NOT = 3;
+	/**
+	 * Holds the chunks keys (high 16 bits, increasing order).
+	 */
+	private transient char[] _keys = new char[4];
+	/**
+	 * Holds the chunks.
+	 */
+	private transient Chunk[] _chunks = new Chunk[4];
+	/**
+	 * Holds the number of chunks.
+	 */
+	private transient int _size;
+	/**
+	 * Returns the compressed representation of the specified words.
+	 *
+	 * @param words the words (64 bits per long).
+	 * @param length the number of words.
+	 * @return the corresponding compressed bits.
+	 */
+	static CompressedBits valueOf(long[] words, int length) {
+		final CompressedBits bits = new CompressedBits();
+		for(int start = 0; start < length; start += 1024) {
+			final int n = MathLib.min(1024, length - start);
+			int count = 0;
+			for(int i = start; i < start + n; i++) {
+				count += MathLib.bitCount(words[i]);
+			}
+			if(count == 0) {
+				continue;
+			}
+			final Chunk chunk = new Chunk();
+			chunk._words = new long[1024];
+			System.arraycopy(words, start, chunk._words, 0, n);
+			chunk._count = count;
+			chunk.optimize();
+			bits.insert(bits._size, (char) (start >>> 10), chunk);
+		}
+		return bits;
+	}
+	/**
+	 * Copies the first words of this set into the specified array (the
+	 * array is assumed to be cleared).
+	 *
+	 * @param words the destination words.
+	 * @param length the number of words to copy.
+	 */
+	void toWords(long[] words, int length) {
+		for(int i = 0; i < _size; i++) {
+			final int start = _keys[i] << 10;
+			if(start >= length) {
+				break;
+			}
+			final long[] chunkWords = _chunks[i].words();
+			System.arraycopy(chunkWords, 0, words, start, MathLib.min(1024, length - start));
+		}
+	}
+	boolean get(int bitIndex) {
+		final int i = indexOf(bitIndex >>> 16);
+		return i >= 0 && _chunks[i].contains(bitIndex & 0xFFFF);
+	}
+	void set(int bitIndex) {
+		if(bitIndex < 0)
+			throw new IndexOutOfBoundsException();
+		int i = indexOf(bitIndex >>> 16);
+		if(i < 0) {
+			i = ~i;
+			insert(i, (char) (bitIndex >>> 16), new Chunk());
+		}
+		_chunks[i].add(bitIndex & 0xFFFF);
+	}
+	void clear(int bitIndex) {
+		final int i = indexOf(bitIndex >>> 16);
+		if(i >= 0 && _chunks[i].remove(bitIndex & 0xFFFF) && _chunks[i]._count == 0) {
+			delete(i);
+		}
+	}
+	void flip(int bitIndex) {
+		if(get(bitIndex)) {
+			clear(bitIndex);
+		}
+		else {
+			set(bitIndex);
+		}
+	}
+	void clear() {
+		for(int i = _size; --i >= 0;) {
+			_chunks[i] = null;
+		}
+		_size = 0;
+	}
+	/**
+	 * Applies the specified operation to the bits from the specified index
+	 * (inclusive) to the specified last index (inclusive).
+	 *
+	 * @param from the first index.
+	 * @param last the last index.
+	 * @param op the range operation.
+	 */
+	void range(int from, int last, int op) {
+		for(int key = from >>> 16, lastKey = last >>> 16; from <= last && key <= lastKey; key++) {
+			final int start = key == from >>> 16 ? from & 0xFFFF : 0;
+			final int end = key == lastKey ? (last & 0xFFFF) + 1 : 0x10000;
+			int i = indexOf(key);
+			if(i < 0) {
+				if(op == CLEAR) {
+					continue;
+				}
+				i = ~i;
+				insert(i, (char) key, new Chunk());
+			}
+			final Chunk chunk = _chunks[i];
+			chunk.range(start, end, op);
+			if(chunk._count == 0) {
+				delete(i);
+			}
+		}
+	}
+	int cardinality() {
+		int sum = 0;
+		for(int i = 0; i < _size; i++) {
+			sum += _chunks[i]._count;
+		}
+		return sum;
+	}
+	int length() {
+		if(_size == 0)
+			return 0;
+		return (_keys[_size - 1] << 16 | _chunks[_size - 1].last()) + 1;
+	}
+	int nextSetBit(int fromIndex) {
+		if(fromIndex < 0)
+			throw new IndexOutOfBoundsException();
+		final int fromKey = fromIndex >>> 16;
+		int i = indexOf(fromKey);
+		if(i < 0) {
+			i = ~i;
+		}
+		for(; i < _size; i++) {
+			final int key = _keys[i];
+			final int value = _chunks[i].nextSet(key == fromKey ? fromIndex & 0xFFFF : 0);
+			if(value >= 0)
+				return key << 16 | value;
+		}
+		return -1;
+	}
+	int nextClearBit(int fromIndex) {
+		if(fromIndex < 0)
+			throw new IndexOutOfBoundsException();
+		int key = fromIndex >>> 16;
+		int value = fromIndex & 0xFFFF;
+		while(true) {
+			final int i = indexOf(key);
+			if(i >= 0) {
+				value = _chunks[i].nextClear(value);
+			}
+			if(value < 0x10000)
+				return key << 16 | value;
+			key++;
+			value = 0;
+		}
+	}
+	/**
+	 * Returns the bit index at the specified position.
+	 *
+	 * @param position the position of the bit set (zero for the first one).
+	 * @return the corresponding index or <code>-1</code> if none.
+	 */
+	int select(int position) {
+		for(int i = 0; i < _size; i++) {
+			final Chunk chunk = _chunks[i];
+			if(position < chunk._count)
+				return _keys[i] << 16 | chunk.select(position);
+			position -= chunk._count;
+		}
+		return -1;
+	}
+	/**
+	 * Returns the bits from the specified index (inclusive) to the specified
+	 * last index (inclusive).
+	 */
+	CompressedBits get(int from, int last) {
+		final CompressedBits bits = new CompressedBits();
+		for(int i = 0; i < _size; i++) {
+			final int key = _keys[i];
+			if(key >= from >>> 16 && key <= last >>> 16) {
+				bits.insert(bits._size, (char) key, _chunks[i].copy());
+			}
+		}
+		if(from > 0) {
+			bits.range(0, from - 1, CLEAR);
+		}
+		if(last < Integer.MAX_VALUE) {
+			bits.range(last + 1, Integer.MAX_VALUE, CLEAR);
+		}
+		return bits;
+	}
+	void and(CompressedBits that) {
+		combine(that, AND);
+	}
+	void andNot(CompressedBits that) {
+		combine(that, AND_NOT);
+	}
+	void or(CompressedBits that) {
+		combine(that, OR);
+	}
+	void xor(CompressedBits that) {
+		combine(that, XOR);
+	}
+	boolean intersects(CompressedBits that) {
+		for(int i = 0, j = 0; i < _size && j < that._size;) {
+			if(_keys[i] < that._keys[j]) {
+				i++;
+			}
+			else if(_keys[i] > that._keys[j]) {
+				j++;
+			}
+			else if(_chunks[i++].intersects(that._chunks[j++]))
+				return true;
+		}
+		return false;
+	}
+	public boolean equals(Object obj) {
+		if(!(obj instanceof CompressedBits))
+			return false;
+		final CompressedBits that = (CompressedBits) obj;
+		if(_size != that._size)
+			return false;
+		for(int i = 0; i < _size; i++) {
+			if(_keys[i] != that._keys[i] || !_chunks[i].equals(that._chunks[i]))
+				return false;
+		}
+		return true;
+	}
+	// Sum of the indices (as for FastBitSet).
+	public int hashCode() {
+		int h = 0;
+		for(int i = 0; i < _size; i++) {
+			final Chunk chunk = _chunks[i];
+			h += chunk._count * (_keys[i] << 16) + chunk.sum();
+		}
+		return h;
+	}
+	// Combines the chunks with the same keys (merge of the sorted keys).
+	private void combine(CompressedBits that, int op) {
+		final int capacity = op == AND ? MathLib.min(_size, that._size)
+				: op == AND_NOT ? _size : _size + that._size;
+		final char[] keys = new char[MathLib.max(capacity, 4)];
+		final Chunk[] chunks = new Chunk[keys.length];
+		int n = 0;
+		for(int i = 0, j = 0; i < _size || j < that._size;) {
+			final int key = i < _size ? _keys[i] : Integer.MAX_VALUE;
+			final int thatKey = j < that._size ? that._keys[j] : Integer.MAX_VALUE;
+			Chunk chunk;
+			if(key < thatKey) {
+				chunk = op == AND ? null : _chunks[i];
+				i++;
+			}
+			else if(key > thatKey) {
+				chunk = op == OR || op == XOR ? that._chunks[j].copy() : null;
+				j++;
+			}
+			else {
+				chunk = Chunk.combine(_chunks[i++], that._chunks[j++], op);
+			}
+			if(chunk != null) {
+				keys[n] = (char) MathLib.min(key, thatKey);
+				chunks[n++] = chunk;
+			}
+		}
+		_keys = keys;
+		_chunks = chunks;
+		_size = n;
+	}
+	// Returns the index of the specified key or ~insertion point.
+	private int indexOf(int key) {
+		int low = 0;
+		int high = _size - 1;
+		while(low <= high) {
+			final int mid = low + high >>> 1;
+			final int k = _keys[mid];
+			if(k < key) {
+				low = mid + 1;
+			}
+			else if(k > key) {
+				high = mid - 1;
+			}
+			else
+				return mid;
+		}
+		return ~low;
+	}
+	private void insert(int index, char key, Chunk chunk) {
+		if(_size == _keys.length) {
+			final char[] keys = new char[_size << 1];
+			System.arraycopy(_keys, 0, keys, 0, _size);
+			_keys = keys;
+			final Chunk[] chunks = new Chunk[_size << 1];
+			System.arraycopy(_chunks, 0, chunks, 0, _size);
+			_chunks = chunks;
+		}
+		System.arraycopy(_keys, index, _keys, index + 1, _size - index);
+		System.arraycopy(_chunks, index, _chunks, index + 1, _size - index);
+		_keys[index] = key;
+		_chunks[index] = chunk;
+		_size++;
+	}
+	private void delete(int index) {
+		System.arraycopy(_keys, index + 1, _keys, index, _size - index - 1);
+		System.arraycopy(_chunks, index + 1, _chunks, index, _size - index - 1);
+		_chunks[--_size] = null;
+	}
+	// Chunk types (serialization).
+	private static final int ARRAY = 0;
+	private static final int BITMAP = 1;
+	private static final int RUNS = 2;
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		s.writeInt(_size);
+		for(int i = 0; i < _size; i++) {
+			final Chunk chunk = _chunks[i];
+			s.writeChar(_keys[i]);
+			if(chunk._words != null) {
+				s.writeByte(BITMAP);
+				for(int j = 0; j < 1024; j++) {
+					s.writeLong(chunk._words[j]);
+				}
+			}
+			else if(chunk._runs > 0) {
+				s.writeByte(RUNS);
+				s.writeInt(chunk._runs);
+				for(int j = 0; j < chunk._runs << 1; j++) {
+					s.writeChar(chunk._values[j]);
+				}
+			}
+			else {
+				s.writeByte(ARRAY);
+				s.writeInt(chunk._count);
+				for(int j = 0; j < chunk._count; j++) {
+					s.writeChar(chunk._values[j]);
+				}
+			}
+		}
+	}
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		_size = s.readInt();
+		_keys = new char[MathLib.max(_size, 4)];
+		_chunks = new Chunk[_keys.length];
+		for(int i = 0; i < _size; i++) {
+			final Chunk chunk = new Chunk();
+			_keys[i] = s.readChar();
+			final int type = s.readByte();
+			if(type == BITMAP) {
+				chunk._words = new long[1024];
+				for(int j = 0; j < 1024; j++) {
+					chunk._words[j] = s.readLong();
+				}
+				chunk.count();
+			}
+			else {
+				final int n = type == RUNS ? (chunk._runs = s.readInt()) << 1 : (chunk._count = s.readInt());
+				chunk._values = new char[MathLib.max(n, 4)];
+				for(int j = 0; j < n; j++) {
+					chunk._values[j] = s.readChar();
+				}
+				if(type == RUNS) {
+					for(int j = 0; j < n; j += 2) {
+						chunk._count += chunk._values[j + 1] + 1;
+					}
+				}
+			}
+			_chunks[i] = chunk;
+		}
+	}
+	/**
+	 * This class represents the indices sharing the same high 16 bits.
+	 */
+	private static final class Chunk {
+		/**
+		 * Holds the maximum number of values of array chunks (same size as
+		 * bitmaps).
+		 */
+		private static final int ARRAY_MAXIMUM = 4096;
+		/**
+		 * Holds the sorted values (array chunks) or the runs start and
+		 * length minus one (run chunks).
+		 */
+		char[] _values = new char[4];
+		/**
+		 * Holds the bits (bitmap chunks) or <code>null</code>.
+		 */
+		long[] _words;
+		/**
+		 * Holds the number of values.
+		 */
+		int _count;
+		/**
+		 * Holds the number of runs (run chunks) or <code>0</code>.
+		 */
+		int _runs;
+		boolean contains(int value) {
+			if(_words != null)
+				return (_words[value >>> 6] & 1L << value) != 0;
+			if(_runs > 0)
+				return runOf(value) >= 0;
+			return search(value) >= 0;
+		}
+		boolean add(int value) {
+			if(_words != null) {
+				final long bit = 1L << value;
+				if((_words[value >>> 6] & bit) != 0)
+					return false;
+				_words[value >>> 6] |= bit;
+				_count++;
+				return true;
+			}
+			if(_runs > 0) {
+				if(runOf(value) >= 0)
+					return false;
+				toBitmap();
+				return add(value);
+			}
+			int i = search(value);
+			if(i >= 0)
+				return false;
+			if(_count == ARRAY_MAXIMUM) {
+				toBitmap();
+				return add(value);
+			}
+			if(_count == _values.length) {
+				final char[] values = new char[MathLib.min(_count << 1, ARRAY_MAXIMUM)];
+				System.arraycopy(_values, 0, values, 0, _count);
+				_values = values;
+			}
+			i = ~i;
+			System.arraycopy(_values, i, _values, i + 1, _count - i);
+			_values[i] = (char) value;
+			_count++;
+			return true;
+		}
+		boolean remove(int value) {
+			if(_words != null) {
+				final long bit = 1L << value;
+				if((_words[value >>> 6] & bit) == 0)
+					return false;
+				_words[value >>> 6] &= ~bit;
+				if(--_count <= ARRAY_MAXIMUM) {
+					toArray();
+				}
+				return true;
+			}
+			if(_runs > 0) {
+				if(runOf(value) < 0)
+					return false;
+				toBitmap();
+				return remove(value);
+			}
+			final int i = search(value);
+			if(i < 0)
+				return false;
+			System.arraycopy(_values, i + 1, _values, i, --_count - i);
+			return true;
+		}
+		// Applies the specified operation to the values [start, end).
+		void range(int start, int end, int op) {
+			if(op == SET && start == 0 && end == 0x10000) { // Full.
+				_values = new char[] {0, 0xFFFF};
+				_words = null;
+				_runs = 1;
+				_count = 0x10000;
+				return;
+			}
+			toBitmap();
+			range(_words, start, end, op);
+			count();
+			optimize();
+		}
+		int nextSet(int value) {
+			if(_words != null)
+				return nextSetBit(_words, value);
+			if(_runs > 0) { // Searches the first run ending at or after value.
+				int low = 0;
+				int high = _runs - 1;
+				while(low <= high) {
+					final int mid = low + high >>> 1;
+					if(_values[mid << 1] + _values[(mid << 1) + 1] < value) {
+						low = mid + 1;
+					}
+					else {
+						high = mid - 1;
+					}
+				}
+				return low < _runs ? MathLib.max(_values[low << 1], value) : -1;
+			}
+			int i = search(value);
+			if(i < 0) {
+				i = ~i;
+			}
+			return i < _count ? _values[i] : -1;
+		}
+		// Returns 0x10000 if none.
+		int nextClear(int value) {
+			if(_words != null)
+				return nextClearBit(_words, value);
+			if(_runs > 0) {
+				final int r = runOf(value);
+				return r < 0 ? value : _values[r << 1] + _values[(r << 1) + 1] + 1;
+			}
+			int i = search(value);
+			if(i < 0)
+				return value;
+			while(i < _count && _values[i] == value) {
+				i++;
+				value++;
+			}
+			return value;
+		}
+		int last() {
+			if(_words != null) {
+				for(int i = 1024; --i >= 0;) {
+					if(_words[i] != 0)
+						return i << 6 | 63 - MathLib.numberOfLeadingZeros(_words[i]);
+				}
+			}
+			if(_runs > 0)
+				return _values[(_runs << 1) - 2] + _values[(_runs << 1) - 1];
+			return _values[_count - 1];
+		}
+		int select(int position) {
+			if(_words != null) {
+				for(int i = 0;; i++) {
+					final int n = MathLib.bitCount(_words[i]);
+					if(position < n) {
+						long word = _words[i];
+						while(--position >= 0) {
+							word &= word - 1;
+						}
+						return i << 6 | MathLib.numberOfTrailingZeros(word);
+					}
+					position -= n;
+				}
+			}
+			if(_runs > 0) {
+				for(int r = 0;; r++) {
+					final int n = _values[(r << 1) + 1] + 1;
+					if(position < n)
+						return _values[r << 1] + position;
+					position -= n;
+				}
+			}
+			return _values[position];
+		}
+		// Returns the sum of the values.
+		int sum() {
+			int sum = 0;
+			if(_words != null) {
+				for(int i = 0; i < 1024; i++) {
+					for(long word = _words[i]; word != 0; word &= word - 1) {
+						sum += i << 6 | MathLib.numberOfTrailingZeros(word);
+					}
+				}
+			}
+			else if(_runs > 0) {
+				for(int r = 0; r < _runs; r++) {
+					final int start = _values[r << 1];
+					final int n = _values[(r << 1) + 1] + 1;
+					sum += (int) ((long) n * (start + start + n - 1) >> 1);
+				}
+			}
+			else {
+				for(int i = 0; i < _count; i++) {
+					sum += _values[i];
+				}
+			}
+			return sum;
+		}
+		Chunk copy() {
+			final Chunk chunk = new Chunk();
+			if(_words != null) {
+				chunk._words = new long[1024];
+				System.arraycopy(_words, 0, chunk._words, 0, 1024);
+			}
+			else {
+				chunk._values = new char[_values.length];
+				System.arraycopy(_values, 0, chunk._values, 0, _values.length);
+			}
+			chunk._count = _count;
+			chunk._runs = _runs;
+			return chunk;
+		}
+		boolean intersects(Chunk that) {
+			if(this.isArray() || that.isArray()) {
+				final Chunk array = this.isArray() ? this : that;
+				final Chunk other = array == this ? that : this;
+				for(int i = 0; i < array._count; i++) {
+					if(other.contains(array._values[i]))
+						return true;
+				}
+				return false;
+			}
+			final long[] words = words();
+			final long[] thatWords = that.words();
+			for(int i = 0; i < 1024; i++) {
+				if((words[i] & thatWords[i]) != 0)
+					return true;
+			}
+			return false;
+		}
+		public boolean equals(Object obj) {
+			final Chunk that = (Chunk) obj;
+			if(_count != that._count)
+				return false;
+			if(isArray() && that.isArray()) {
+				for(int i = 0; i < _count; i++) {
+					if(_values[i] != that._values[i])
+						return false;
+				}
+				return true;
+			}
+			final long[] words = words();
+			final long[] thatWords = that.words();
+			for(int i = 0; i < 1024; i++) {
+				if(words[i] != thatWords[i])
+					return false;
+			}
+			return true;
+		}
+		public int hashCode() {
+			return sum();
+		}
+		/**
+		 * Returns the combination of the specified chunks (inputs are not
+		 * modified).
+		 *
+		 * @return the resulting chunk or <code>null</code> if empty.
+		 */
+		static Chunk combine(Chunk a, Chunk b, int op) {
+			if(op == AND && (a.isArray() || b.isArray())) { // Filters the array.
+				final Chunk array = a.isArray() && (!b.isArray() || a._count <= b._count) ? a : b;
+				return array.filter(array == a ? b : a, true);
+			}
+			if(op == AND_NOT && a.isArray())
+				return a.filter(b, false);
+			if(op == OR && a.isArray() && b.isArray() && a._count + b._count <= ARRAY_MAXIMUM)
+				return a.union(b);
+			final Chunk chunk = new Chunk();
+			chunk._values = null;
+			chunk._words = a._words != null ? a.copy()._words : a.words();
+			if(op == AND) {
+				final long[] words = b.words();
+				for(int i = 0; i < 1024; i++) {
+					chunk._words[i] &= words[i];
+				}
+			}
+			else {
+				b.applyTo(chunk._words, op == OR ? SET : op == XOR ? FLIP : CLEAR);
+			}
+			chunk.count();
+			if(chunk._count == 0)
+				return null;
+			if(a._runs > 0 && (b._runs > 0 || op == AND_NOT)) {
+				chunk.optimize(); // Keeps runs.
+			}
+			else if(chunk._count <= ARRAY_MAXIMUM) {
+				chunk.toArray();
+			}
+			return chunk;
+		}
+		// Returns the array values contained (or not) in the specified chunk.
+		private Chunk filter(Chunk that, boolean contained) {
+			final Chunk chunk = new Chunk();
+			chunk._values = new char[MathLib.max(_count, 4)];
+			int n = 0;
+			for(int i = 0; i < _count; i++) {
+				final char value = _values[i];
+				if(that.contains(value) == contained) {
+					chunk._values[n++] = value;
+				}
+			}
+			chunk._count = n;
+			return n != 0 ? chunk : null;
+		}
+		// Returns the union of two array chunks (merge).
+		private Chunk union(Chunk that) {
+			final Chunk chunk = new Chunk();
+			final char[] values = chunk._values = new char[MathLib.max(_count + that._count, 4)];
+			int i = 0;
+			int j = 0;
+			int n = 0;
+			while(i < _count && j < that._count) {
+				final char a = _values[i];
+				final char b = that._values[j];
+				if(a <= b) {
+					values[n++] = a;
+					i++;
+					if(a == b) {
+						j++;
+					}
+				}
+				else {
+					values[n++] = b;
+					j++;
+				}
+			}
+			while(i < _count) {
+				values[n++] = _values[i++];
+			}
+			while(j < that._count) {
+				values[n++] = that._values[j++];
+			}
+			chunk._count = n;
+			return chunk;
+		}
+		// Applies the specified range operation to the words for each value.
+		private void applyTo(long[] words, int op) {
+			if(_words != null) {
+				for(int i = 0; i < 1024; i++) {
+					final long word = _words[i];
+					words[i] = op == SET ? words[i] | word : op == FLIP ? words[i] ^ word : words[i] & ~word;
+				}
+			}
+			else if(_runs > 0) {
+				for(int r = 0; r < _runs; r++) {
+					final int start = _values[r << 1];
+					range(words, start, start + _values[(r << 1) + 1] + 1, op);
+				}
+			}
+			else {
+				for(int i = 0; i < _count; i++) {
+					final int value = _values[i];
+					final long bit = 1L << value;
+					words[value >>> 6] = op == SET ? words[value >>> 6] | bit
+							: op == FLIP ? words[value >>> 6] ^ bit : words[value >>> 6] & ~bit;
+				}
+			}
+		}
+		private boolean isArray() {
+			return _words == null && _runs == 0;
+		}
+		// Returns the bitmap of this chunk (new array unless bitmap chunk).
+		long[] words() {
+			if(_words != null)
+				return _words;
+			final long[] words = new long[1024];
+			applyTo(words, SET);
+			return words;
+		}
+		void count() {
+			int count = 0;
+			for(int i = 0; i < 1024; i++) {
+				count += MathLib.bitCount(_words[i]);
+			}
+			_count = count;
+		}
+		private void toBitmap() {
+			_words = words();
+			_values = null;
+			_runs = 0;
+		}
+		// Converts a bitmap chunk to an array chunk.
+		private void toArray() {
+			final char[] values = new char[MathLib.max(_count, 4)];
+			int n = 0;
+			for(int i = 0; i < 1024; i++) {
+				for(long word = _words[i]; word != 0; word &= word - 1) {
+					values[n++] = (char) (i << 6 | MathLib.numberOfTrailingZeros(word));
+				}
+			}
+			_values = values;
+			_words = null;
+		}
+		// Selects the smallest representation for a bitmap chunk.
+		void optimize() {
+			int runs = 0;
+			long previous = 0;
+			for(int i = 0; i < 1024; i++) {
+				final long word = _words[i];
+				runs += MathLib.bitCount(word & ~(word << 1 | previous >>> 63)); // Runs starts.
+				previous = word;
+			}
+			if(runs << 2 < MathLib.min(_count << 1, 8192)) { // Runs (4 bytes per run) are smaller.
+				final char[] values = new char[runs << 1];
+				int n = 0;
+				for(int start = nextSetBit(_words, 0); start >= 0;) {
+					final int end = nextClearBit(_words, start);
+					values[n++] = (char) start;
+					values[n++] = (char) (end - start - 1);
+					start = end < 0x10000 ? nextSetBit(_words, end) : -1;
+				}
+				_values = values;
+				_words = null;
+				_runs = runs;
+			}
+			else if(_count <= ARRAY_MAXIMUM) {
+				toArray();
+			}
+		}
+		// Binary search of an array chunk value.
+		private int search(int value) {
+			int low = 0;
+			int high = _count - 1;
+			while(low <= high) {
+				final int mid = low + high >>> 1;
+				final int v = _values[mid];
+				if(v < value) {
+					low = mid + 1;
+				}
+				else if(v > value) {
+					high = mid - 1;
+				}
+				else
+					return mid;
+			}
+			return ~low;
+		}
+		// Returns the run holding the specified value or -1.
+		private int runOf(int value) {
+			int low = 0;
+			int high = _runs - 1;
+			while(low <= high) {
+				final int mid = low + high >>> 1;
+				final int start = _values[mid << 1];
+				if(start > value) {
+					high = mid - 1;
+				}
+				else if(value > start + _values[(mid << 1) + 1]) {
+					low = mid + 1;
+				}
+				else
+					return mid;
+			}
+			return -1;
+		}
+		// Applies the specified operation to the bits [from, to) of the words.
+		static void range(long[] words, int from, int to, int op) {
+			if(from >= to)
+				return;
+			final int i = from >>> 6;
+			final int j = to - 1 >>> 6;
+			for(int k = i; k <= j; k++) {
+				long mask = -1L;
+				if(k == i) {
+					mask &= -1L << from;
+				}
+				if(k == j) {
+					mask &= -1L >>> -to;
+				}
+				words[k] = op == SET ? words[k] | mask : op == FLIP ? words[k] ^ mask : words[k] & ~mask;
+			}
+		}
+		static int nextSetBit(long[] words, int from) {
+			int i = from >>> 6;
+			long word = words[i] & -1L << from;
+			while(true) {
+				if(word != 0)
+					return i << 6 | MathLib.numberOfTrailingZeros(word);
+				if(++i == words.length)
+					return -1;
+				word = words[i];
+			}
+		}
+		static int nextClearBit(long[] words, int from) {
+			int i = from >>> 6;
+			long word = ~words[i] & -1L << from;
+			while(true) {
+				if(word != 0)
+					return i << 6 | MathLib.numberOfTrailingZeros(word);
+				if(++i == words.length)
+					return words.length << 6;
+				word = ~words[i];
+			}
+		}
+	}
+}
@@ -22,6 +22,18 @@ import _templates.javolution.lang.Reusable;
  *     for methods such as {@link #size} (cardinality) or {@link #equals}
  *     (same set of indices).</p>
  *
+ * <p> Bit sets are held in a table of words sized to the highest bit set,
+ *     sparse bit sets (e.g. posting lists of an in-memory index) should be
+ *     {@link #setCompressed compressed}: the bits are then grouped in chunks
+ *     of 64K, each chunk being stored in the smallest of a sorted array,
+ *     a bitmap or a list of runs (empty chunks are not stored). Logical
+ *     operations between compressed sets only visit the non-empty chunks
+ *     (e.g. intersections of sparse sets iterate over the smallest arrays).
+ *     [code]
+ *     FastBitSet postings = new FastBitSet().setCompressed(true);
+ *     postings.set(1000000000); // Allocates a single chunk.
+ *     [/code]</p>
+ *
  * @author  <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
  * @version 5.3, February 24, 2008
  */
@@ -44,6 +56,10 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * to be zero).
 	 */
 	private int _length;
+	/**
+	 * Holds the compressed bits or <code>null</code> if not compressed.
+	 */
+	private CompressedBits _compressed;
 	/**
 	 * Creates a bit set of small initial capacity. All bits are initially
 	 * {@code false}.
@@ -83,6 +99,44 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	public static void recycle(FastBitSet instance) {
 		FACTORY.recycle(instance);
 	}
+	/**
+	 * Sets the compressed status of this bit set (the bits set are kept).
+	 * Compressed bit sets require memory proportional to the number of
+	 * bits set (instead of the highest bit set).
+	 *
+	 * @param compressed <code>true</code> to compress this bit set;
+	 *        <code>false</code> to store its bits in a single table.
+	 * @return <code>this</code>
+	 * @since 5.7.5
+	 */
+	public FastBitSet setCompressed(boolean compressed) {
+		if(compressed == (_compressed != null))
+			return this;
+		if(compressed) {
+			_compressed = CompressedBits.valueOf(bits, _length);
+			bits = new long[1];
+			_length = 0;
+		}
+		else {
+			final CompressedBits compressedBits = _compressed;
+			_compressed = null;
+			final int length = compressedBits.length() + 63 >>> 6;
+			setLength(length);
+			compressedBits.toWords(bits, length);
+		}
+		return this;
+	}
+	/**
+	 * Indicates if this bit set is compressed.
+	 *
+	 * @return <code>true</code> if this bit set is compressed;
+	 *         <code>false</code> otherwise.
+	 * @see #setCompressed
+	 * @since 5.7.5
+	 */
+	public boolean isCompressed() {
+		return _compressed != null;
+	}
 	/**
 	 * Adds the specified index to this set. This method is equivalent
 	 * to <code>set(index.intValue())</code>.
@@ -106,6 +160,11 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @param that the second bit set.
 	 */
 	public void and(FastBitSet that) {
+		if(_compressed != null) {
+			_compressed.and(compressed(that));
+			return;
+		}
+		that = uncompressed(that, _length);
 		final int n = MathLib.min(_length, that._length);
 		for(int i = 0; i < n; ++i) {
 			bits[i] &= that.bits[i];
@@ -121,6 +180,11 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @param that the second bit set
 	 */
 	public void andNot(FastBitSet that) {
+		if(_compressed != null) {
+			_compressed.andNot(compressed(that));
+			return;
+		}
+		that = uncompressed(that, _length);
 		for(int i = Math.min(_length, that._length); --i >= 0;) {
 			bits[i] &= ~that.bits[i];
 		}
@@ -132,6 +196,8 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @return the number of bits being set.
 	 */
 	public int cardinality() {
+		if(_compressed != null)
+			return _compressed.cardinality();
 		int sum = 0;
 		for(int i = 0; i < _length; ++i) {
 			sum += MathLib.bitCount(bits[i]);
@@ -142,6 +208,9 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * Sets all bits in the set to {@code false} (empty the set).
 	 */
 	public void clear() {
+		if(_compressed != null) {
+			_compressed.clear();
+		}
 		_length = 0;
 	}
 	/**
@@ -152,6 +221,10 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @throws IndexOutOfBoundsException if {@code index < 0}
 	 */
 	public void clear(int bitIndex) {
+		if(_compressed != null) {
+			_compressed.clear(bitIndex);
+			return;
+		}
 		final int longIndex = bitIndex >> 6;
 		if(longIndex >= _length)
 			return;
@@ -169,6 +242,10 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	public void clear(int fromIndex, int toIndex) {
 		if(fromIndex < 0 || toIndex < fromIndex)
 			throw new IndexOutOfBoundsException();
+		if(_compressed != null) {
+			_compressed.range(fromIndex, toIndex - 1, CompressedBits.CLEAR);
+			return;
+		}
 		final int i = fromIndex >>> 6;
 		if(i >= _length)
 			return; // Ensures that i < _length
@@ -192,8 +269,14 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @throws IndexOutOfBoundsException if {@code bitIndex < 0}
 	 */
 	public void flip(int bitIndex) {
+		if(_compressed != null) {
+			_compressed.flip(bitIndex);
+			return;
+		}
 		final int i = bitIndex >> 6;
-		setLength(i + 1);
+		if(i >= _length) {
+			setLength(i + 1);
+		}
 		bits[i] ^= 1L << bitIndex;
 	}
 	/**
@@ -207,9 +290,15 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	public void flip(int fromIndex, int toIndex) {
 		if(fromIndex < 0 || toIndex < fromIndex)
 			throw new IndexOutOfBoundsException();
+		if(_compressed != null) {
+			_compressed.range(fromIndex, toIndex - 1, CompressedBits.FLIP);
+			return;
+		}
 		final int i = fromIndex >>> 6;
 		final int j = toIndex >>> 6;
-		setLength(j + 1);
+		if(j >= _length) {
+			setLength(j + 1);
+		}
 		if(i == j) {
 			bits[i] ^= -1L << fromIndex & (1L << toIndex) - 1;
 			return;
@@ -229,6 +318,8 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @throws IndexOutOfBoundsException if {@code bitIndex < 0}
 	 */
 	public boolean get(int bitIndex) {
+		if(_compressed != null)
+			return _compressed.get(bitIndex);
 		final int i = bitIndex >> 6;
 		return i >= _length ? false : (bits[i] & 1L << bitIndex) != 0;
 	}
@@ -245,11 +336,17 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 		if(fromIndex < 0 || fromIndex > toIndex)
 			throw new IndexOutOfBoundsException();
 		final FastBitSet bitSet = FastBitSet.newInstance();
+		if(_compressed != null) {
+			bitSet._compressed = _compressed.get(fromIndex, toIndex - 1);
+			return bitSet;
+		}
 		final int length = MathLib.min(_length, (toIndex >>> 6) + 1);
 		bitSet.setLength(length);
 		System.arraycopy(bits, 0, bitSet.bits, 0, length);
 		bitSet.clear(0, fromIndex);
-		bitSet.clear(toIndex, length << 6);
+		if(toIndex < length << 6) { // Otherwise no bit beyond the range.
+			bitSet.clear(toIndex, length << 6);
+		}
 		return bitSet;
 	}
 	/**
@@ -260,6 +357,9 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @return {@code true} if the sets intersect; {@code false} otherwise.
 	 */
 	public boolean intersects(FastBitSet that) {
+		if(_compressed != null)
+			return _compressed.intersects(compressed(that));
+		that = uncompressed(that, _length);
 		for(int i = MathLib.min(_length, that._length); --i >= 0;) {
 			if((bits[i] & that.bits[i]) != 0)
 				return true;
@@ -276,10 +376,12 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @return the index of the highest set bit plus one.
 	 */
 	public int length() {
+		if(_compressed != null)
+			return _compressed.length();
 		for(int i = _length; --i >= 0;) {
 			final long l = bits[i];
 			if(l != 0)
-				return i << 6 + 64 - MathLib.numberOfTrailingZeros(l);
+				return (i << 6) + 64 - MathLib.numberOfLeadingZeros(l);
 		}
 		return 0;
 	}
@@ -292,6 +394,8 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @throws IndexOutOfBoundsException if {@code fromIndex < 0}
 	 */
 	public int nextClearBit(int fromIndex) {
+		if(_compressed != null)
+			return _compressed.nextClearBit(fromIndex);
 		long mask = 1L << fromIndex;
 		for(int offset = fromIndex >> 6; offset < _length; ++offset) {
 			final long h = bits[offset];
@@ -310,7 +414,7 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * Returns the index of the next {@code true} bit, from the specified bit
 	 * (inclusive). If there is none, {@code -1} is returned.
 	 * The following code will iterates through the bit set:[code]
-	 *    for (int i=nextSetBit(0); i >= 0; i = nextSetBit(i)) {
+	 *    for (int i=nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
 	 *         ...
 	 *    }[/code]
 	 *
@@ -319,6 +423,8 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @throws IndexOutOfBoundsException if {@code fromIndex < 0}
 	 */
 	public int nextSetBit(int fromIndex) {
+		if(_compressed != null)
+			return _compressed.nextSetBit(fromIndex);
 		long mask = 1L << fromIndex;
 		for(int offset = fromIndex >> 6; offset < _length; ++offset) {
 			final long h = bits[offset];
@@ -341,6 +447,11 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @param that the second bit set.
 	 */
 	public void or(FastBitSet that) {
+		if(_compressed != null) {
+			_compressed.or(compressed(that));
+			return;
+		}
+		that = uncompressed(that, Integer.MAX_VALUE);
 		if(that._length > _length) {
 			setLength(that._length);
 		}
@@ -356,6 +467,10 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @throws IndexOutOfBoundsException if {@code bitIndex < 0}
 	 */
 	public void set(int bitIndex) {
+		if(_compressed != null) {
+			_compressed.set(bitIndex);
+			return;
+		}
 		final int i = bitIndex >> 6;
 		if(i >= _length) {
 			setLength(i + 1);
@@ -389,9 +504,15 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	public void set(int fromIndex, int toIndex) {
 		if(fromIndex < 0 || toIndex < fromIndex)
 			throw new IndexOutOfBoundsException();
+		if(_compressed != null) {
+			_compressed.range(fromIndex, toIndex - 1, CompressedBits.SET);
+			return;
+		}
 		final int i = fromIndex >>> 6;
 		final int j = toIndex >>> 6;
-		setLength(j + 1);
+		if(j >= _length) {
+			setLength(j + 1);
+		}
 		if(i == j) {
 			bits[i] |= -1L << fromIndex & (1L << toIndex) - 1;
 			return;
@@ -441,6 +562,11 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	 * @param that the second bit set.
 	 */
 	public void xor(FastBitSet that) {
+		if(_compressed != null) {
+			_compressed.xor(compressed(that));
+			return;
+		}
+		that = uncompressed(that, Integer.MAX_VALUE);
 		if(that._length > _length) {
 			setLength(that._length);
 		}
@@ -453,6 +579,8 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 		if(!(obj instanceof FastBitSet))
 			return super.equals(obj);
 		final FastBitSet that = (FastBitSet) obj;
+		if(_compressed != null || that._compressed != null)
+			return compressed(this).equals(compressed(that));
 		final int n = MathLib.min(_length, that._length);
 		for(int i = 0; i < n; ++i) {
 			if(bits[i] != that.bits[i])
@@ -471,14 +599,17 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	}
 	// Optimization.
 	public int hashCode() {
+		if(_compressed != null)
+			return _compressed.hashCode();
 		int h = 0;
-		for(int i = nextSetBit(0); i >= 0; i = nextSetBit(i)) {
+		for(int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
 			h += i;
 		}
 		return h;
 	}
 	// Implements Reusable.
 	public void reset() {
+		_compressed = null;
 		_length = 0;
 	}
 	// Implements abstract methods.
@@ -492,6 +623,10 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 	}
 	public Object/*{Index}*/ valueOf(Record record) {
 		final int i = ((Index) record).intValue();
+		if(_compressed != null) {
+			final int bitIndex = _compressed.select(i);
+			return bitIndex >= 0 ? Index.valueOf(bitIndex) : null;
+		}
 		int count = 0;
 		for(int j = 0; j < _length;) {
 			long l = bits[j++];
@@ -513,6 +648,19 @@ public class FastBitSet extends FastCollection/*<Index>*/ implements Set/*<Index
 		if(bitIndex != null)
 			throw new UnsupportedOperationException("Not supported yet.");
 	}
+	// Returns the compressed bits of the specified bit set.
+	private static CompressedBits compressed(FastBitSet that) {
+		return that._compressed != null ? that._compressed : CompressedBits.valueOf(that.bits, that._length);
+	}
+	// Returns the specified bit set or an uncompressed copy (first words only).
+	private static FastBitSet uncompressed(FastBitSet that, int maxLength) {
+		if(that._compressed == null)
+			return that;
+		final FastBitSet bitSet = new FastBitSet();
+		bitSet.setLength(MathLib.min(that._compressed.length() + 63 >>> 6, maxLength));
+		that._compressed.toWords(bitSet.bits, bitSet._length);
+		return bitSet;
+	}
 	/**
 	 * Sets the new length of the table (all new bits are <code>false</code>).
 	 *
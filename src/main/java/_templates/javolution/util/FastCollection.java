@@ -285,7 +285,7 @@ public abstract class FastCollection/*<E>*/ implements Collection/*<E>*/, Iterab
 		}
 		return modified;
 	}
-	private static boolean contains(Collection c, Object obj, FastComparator cmp) {
+	static boolean contains(Collection c, Object obj, FastComparator cmp) {
 		if(c instanceof FastCollection && ((FastCollection) c).getValueComparator().equals(cmp))
 			return c.contains(obj); // Direct is ok (same value comparator).
 		for(final Iterator /*<?>*/ itr = c.iterator(); itr.hasNext();) {
@@ -0,0 +1,721 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util;
+import java.io.IOException;
+import _templates.java.io.ObjectInputStream;
+import _templates.java.io.ObjectOutputStream;
+import _templates.java.lang.UnsupportedOperationException;
+import _templates.java.util.Collection;
+import _templates.java.util.Iterator;
+import _templates.java.util.List;
+import _templates.java.util.ListIterator;
+import _templates.java.util.NoSuchElementException;
+import _templates.java.util.RandomAccess;
+import _templates.javolution.context.ObjectFactory;
+import _templates.javolution.lang.Reusable;
+/**
+ * <p> This class represents a thread-safe random access collection for which
+ *     all modifications are made on a fresh copy of the underlying array
+ *     (copy-on-write). The new array is published when the modification
+ *     completes; reads, iterations and searches never lock and operate on
+ *     the array current when they started (snapshot).</p>
+ *
+ * <p> Copy-on-write tables are well suited for collections rarely modified
+ *     but frequently traversed (e.g. listeners, routing tables):
+ *     [code]
+ *         final FastCopyOnWriteTable<Listener> listeners = new FastCopyOnWriteTable<Listener>();
+ *         ...
+ *         for (Record r = listeners.head(), end = listeners.tail(); (r = r.getNext()) != end;) {
+ *             listeners.valueOf(r).onEvent(event); // Listeners may be added or removed concurrently.
+ *         }[/code]</p>
+ *
+ * <p> The {@link #head head} and {@link #tail tail} records are constant;
+ *     a traversal from one to the other visits the records of a single
+ *     snapshot (these records are created the first time a snapshot is
+ *     traversed, subsequent traversals of the same snapshot do not allocate).
+ *     Iterators are also snapshot based and do not support modification
+ *     ({@link UnsupportedOperationException} raised).</p>
+ *
+ * <p> Modifications are synchronized on the table and cost a copy of the
+ *     whole array each; bulk operations ({@link #addAll(Collection) addAll},
+ *     {@link #removeAll removeAll}...) copy the array only once.</p>
+ *
+ * @version 5.7.5
+ * @since 5.7.5
+ */
+public class FastCopyOnWriteTable/*<E>*/ extends FastAbstractList/*<E>*/ implements List/*<E>*/, Reusable, RandomAccess {
+	/**
+	 * Holds the factory for this table.
+	 */
+	private static final ObjectFactory FACTORY = new ObjectFactory() {
+		public Object create() {
+			return new FastCopyOnWriteTable();
+		}
+	};
+	private static final Object[] EMPTY = new Object[0];
+	/**
+	 * Holds the current (immutable) array of values.
+	 */
+	private transient volatile Object[] _array = EMPTY;
+	/**
+	 * Holds the records of the last snapshot traversed.
+	 */
+	private transient volatile Chain _chain;
+	/**
+	 * Holds the value comparator.
+	 */
+	private transient volatile FastComparator/*<? super E>*/ _valueComparator = FastComparator.DEFAULT;
+	/**
+	 * Holds the head record (constant, restored on deserialization).
+	 */
+	private transient Record _head = new Head();
+	/**
+	 * Holds the tail record (constant, restored on deserialization).
+	 */
+	private transient Record _tail = new Tail();
+	/**
+	 * Creates an empty table.
+	 */
+	public FastCopyOnWriteTable() {}
+	/**
+	 * Creates a table containing the specified values, in the order they
+	 * are returned by the collection's iterator.
+	 *
+	 * @param values the values to be placed into this table.
+	 */
+	public FastCopyOnWriteTable(Collection/*<? extends E>*/ values) {
+		_array = toArray(values);
+	}
+	/**
+	 * Returns a new, preallocated or {@link #recycle recycled} table instance
+	 * (on the stack when executing in a {@link _templates.javolution.context.StackContext
+	 * StackContext}).
+	 *
+	 * @return a new, preallocated or recycled table instance.
+	 */
+	public static/*<E>*/FastCopyOnWriteTable/*<E>*/ newInstance() {
+		return (FastCopyOnWriteTable/*<E>*/) FACTORY.object();
+	}
+	/**
+	 * Recycles a table {@link #newInstance() instance} immediately
+	 * (on the stack when executing in a {@link _templates.javolution.context.StackContext
+	 * StackContext}).
+	 */
+	public static void recycle(FastCopyOnWriteTable instance) {
+		FACTORY.recycle(instance);
+	}
+	/**
+	 * Returns the element at the specified index.
+	 *
+	 * @param index index of value to return.
+	 * @return the value at the specified position in this list.
+	 * @throws IndexOutOfBoundsException if <code>(index < 0) ||
+	 *         (index >= size())</code>
+	 */
+	public Object/*{E}*/ get(int index) {
+		final Object[] array = _array;
+		if((index < 0) || (index >= array.length))
+			throw new IndexOutOfBoundsException("index: " + index);
+		return (Object/*{E}*/) array[index];
+	}
+	/**
+	 * Replaces the value at the specified position in this table.
+	 *
+	 * @param index index of value to replace.
+	 * @param value value to be stored at the specified position.
+	 * @return previous value.
+	 * @throws IndexOutOfBoundsException if <code>(index < 0) ||
+	 *         (index >= size())</code>
+	 */
+	public synchronized Object/*{E}*/ set(int index, Object/*{E}*/ value) {
+		final Object[] array = _array;
+		if((index < 0) || (index >= array.length))
+			throw new IndexOutOfBoundsException("index: " + index);
+		final Object previous = array[index];
+		final Object[] copy = new Object[array.length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		copy[index] = value;
+		_array = copy;
+		return (Object/*{E}*/) previous;
+	}
+	/**
+	 * Appends the specified value to the end of this table.
+	 *
+	 * @param value the value to be appended to this table.
+	 * @return <code>true</code> (as per the general contract of the
+	 *         <code>Collection.add</code> method).
+	 */
+	public synchronized boolean add(Object/*{E}*/ value) {
+		final Object[] array = _array;
+		final Object[] copy = new Object[array.length + 1];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		copy[array.length] = value;
+		_array = copy;
+		return true;
+	}
+	/**
+	 * Appends the specified value to the end of this table if not already
+	 * present (according to this table value comparator).
+	 *
+	 * @param value the value to be appended to this table.
+	 * @return <code>true</code> if the value has been added;
+	 *         <code>false</code> otherwise.
+	 */
+	public synchronized boolean addIfAbsent(Object/*{E}*/ value) {
+		if(indexOf(value, _array, _valueComparator) >= 0)
+			return false;
+		return add(value);
+	}
+	/**
+	 * Inserts the specified value at the specified position in this table.
+	 *
+	 * @param index the index at which the specified value is to be inserted.
+	 * @param value the value to be inserted.
+	 * @throws IndexOutOfBoundsException if <code>(index < 0) ||
+	 *         (index > size())</code>
+	 */
+	public synchronized void add(int index, Object/*{E}*/ value) {
+		final Object[] array = _array;
+		if((index < 0) || (index > array.length))
+			throw new IndexOutOfBoundsException("index: " + index);
+		final Object[] copy = new Object[array.length + 1];
+		System.arraycopy(array, 0, copy, 0, index);
+		copy[index] = value;
+		System.arraycopy(array, index, copy, index + 1, array.length - index);
+		_array = copy;
+	}
+	// Overrides (one copy for all the values).
+	public boolean addAll(Collection/*<? extends E>*/ c) {
+		return insert(-1, toArray(c));
+	}
+	/**
+	 * Inserts all of the values in the specified collection into this
+	 * table at the specified position (one array copy).
+	 *
+	 * @param index the index at which to insert first value from the
+	 *        specified collection.
+	 * @param values the values to be inserted into this table.
+	 * @return <code>true</code> if this table changed as a result of the
+	 *         call; <code>false</code> otherwise.
+	 * @throws IndexOutOfBoundsException if <code>(index < 0) ||
+	 *         (index > size())</code>
+	 */
+	public boolean addAll(int index, Collection/*<? extends E>*/ values) {
+		if(index < 0)
+			throw new IndexOutOfBoundsException("index: " + index);
+		return insert(index, toArray(values));
+	}
+	/**
+	 * Removes the value at the specified position from this table.
+	 *
+	 * @param index the index of the value to removed.
+	 * @return the value previously at the specified position.
+	 * @throws IndexOutOfBoundsException if <code>(index < 0) ||
+	 *         (index >= size())</code>
+	 */
+	public synchronized Object/*{E}*/ remove(int index) {
+		final Object[] array = _array;
+		if((index < 0) || (index >= array.length))
+			throw new IndexOutOfBoundsException("index: " + index);
+		final Object previous = array[index];
+		_array = removeRange(array, index, index + 1);
+		return (Object/*{E}*/) previous;
+	}
+	// Overrides (optimization).
+	public synchronized boolean remove(Object value) {
+		final Object[] array = _array;
+		final int index = indexOf(value, array, _valueComparator);
+		if(index < 0)
+			return false;
+		_array = removeRange(array, index, index + 1);
+		return true;
+	}
+	/**
+	 * Removes the values between <code>[fromIndex..toIndex[</code> from
+	 * this table.
+	 *
+	 * @param fromIndex the beginning index, inclusive.
+	 * @param toIndex the ending index, exclusive.
+	 * @throws IndexOutOfBoundsException if <code>(fromIndex < 0) || (toIndex < 0)
+	 *         || (fromIndex > toIndex) || (toIndex > this.size())</code>
+	 */
+	public synchronized void removeRange(int fromIndex, int toIndex) {
+		final Object[] array = _array;
+		if((fromIndex < 0) || (toIndex < 0) || (fromIndex > toIndex) || (toIndex > array.length))
+			throw new IndexOutOfBoundsException("FastCopyOnWriteTable removeRange(" + fromIndex + ", " + toIndex
+					+ ") index out of bounds, size: " + array.length);
+		if(fromIndex != toIndex) {
+			_array = removeRange(array, fromIndex, toIndex);
+		}
+	}
+	// Overrides (one copy for all the values).
+	public boolean removeAll(Collection/*<?>*/ c) {
+		return filter(c, false);
+	}
+	// Overrides (one copy for all the values).
+	public boolean retainAll(Collection/*<?>*/ c) {
+		return filter(c, true);
+	}
+	// Overrides.
+	public synchronized void clear() {
+		_array = EMPTY;
+	}
+	// Implements Reusable interface.
+	public synchronized void reset() {
+		_array = EMPTY;
+		_chain = null;
+		_valueComparator = FastComparator.DEFAULT;
+	}
+	/**
+	 * Returns the first value of this table.
+	 *
+	 * @return this table first value.
+	 * @throws NoSuchElementException if this table is empty.
+	 */
+	public Object/*{E}*/ getFirst() {
+		final Object[] array = _array;
+		if(array.length == 0)
+			throw new NoSuchElementException();
+		return (Object/*{E}*/) array[0];
+	}
+	/**
+	 * Returns the last value of this table.
+	 *
+	 * @return this table last value.
+	 * @throws NoSuchElementException if this table is empty.
+	 */
+	public Object/*{E}*/ getLast() {
+		final Object[] array = _array;
+		if(array.length == 0)
+			throw new NoSuchElementException();
+		return (Object/*{E}*/) array[array.length - 1];
+	}
+	/**
+	 * Returns the index in this table of the first occurrence of the specified
+	 * value, or -1 if this table does not contain this value.
+	 *
+	 * @param value the value to search for.
+	 * @return the index in this table of the first occurrence of the specified
+	 *         value, or -1 if this table does not contain this value.
+	 */
+	public int indexOf(Object value) {
+		return indexOf(value, _array, _valueComparator);
+	}
+	/**
+	 * Returns the index in this table of the last occurrence of the specified
+	 * value, or -1 if this table does not contain this value.
+	 *
+	 * @param value the value to search for.
+	 * @return the index in this table of the last occurrence of the specified
+	 *         value, or -1 if this table does not contain this value.
+	 */
+	public int lastIndexOf(Object value) {
+		final Object[] array = _array;
+		final FastComparator comp = _valueComparator;
+		for(int i = array.length; --i >= 0;) {
+			if(comp == FastComparator.DEFAULT ? defaultEquals(value, array[i]) : comp.areEqual(value, array[i]))
+				return i;
+		}
+		return -1;
+	}
+	// Overrides (optimization).
+	public boolean contains(Object value) {
+		return indexOf(value, _array, _valueComparator) >= 0;
+	}
+	/**
+	 * Returns an iterator over the current values of this table
+	 * (allocated on the stack when executed in a
+	 * {@link _templates.javolution.context.StackContext StackContext}).
+	 * The iterator does not support modification.
+	 *
+	 * @return an iterator over a snapshot of this table.
+	 */
+	public Iterator/*<E>*/ iterator() {
+		return SnapshotIterator.valueOf(_array, 0);
+	}
+	/**
+	 * Returns a list iterator over the current values of this table
+	 * (allocated on the stack when executed in a
+	 * {@link _templates.javolution.context.StackContext StackContext}).
+	 * The iterator does not support modification.
+	 *
+	 * @return a list iterator over a snapshot of this table.
+	 */
+	public ListIterator/*<E>*/ listIterator() {
+		return SnapshotIterator.valueOf(_array, 0);
+	}
+	/**
+	 * Returns a list iterator over the current values of this table
+	 * starting at the specified position. The iterator does not support
+	 * modification.
+	 *
+	 * @param index the index of first value to be returned from the
+	 *        list iterator (by a call to the <code>next</code> method).
+	 * @return a list iterator over a snapshot of this table.
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 *         [code](index < 0 || index > size())[/code]
+	 */
+	public ListIterator/*<E>*/ listIterator(int index) {
+		final Object[] array = _array;
+		if((index < 0) || (index > array.length))
+			throw new IndexOutOfBoundsException("index: " + index);
+		return SnapshotIterator.valueOf(array, index);
+	}
+	/**
+	 * Returns an unmodifiable list holding the values of this table
+	 * between the specified indexes (snapshot, later modifications of this
+	 * table are not reflected in the returned list).
+	 *
+	 * @param fromIndex low endpoint (inclusive) of the subList.
+	 * @param toIndex high endpoint (exclusive) of the subList.
+	 * @return the values within the specified range.
+	 * @throws IndexOutOfBoundsException if [code](fromIndex < 0 ||
+	 *          toIndex > size || fromIndex > toIndex)[/code]
+	 */
+	public List/*<E>*/ subList(int fromIndex, int toIndex) {
+		final Object[] array = _array;
+		if((fromIndex < 0) || (toIndex > array.length) || (fromIndex > toIndex))
+			throw new IndexOutOfBoundsException(
+					"fromIndex: " + fromIndex + ", toIndex: " + toIndex + " for list of size: " + array.length);
+		final FastCopyOnWriteTable/*<E>*/ sub = new FastCopyOnWriteTable/*<E>*/();
+		final Object[] values = new Object[toIndex - fromIndex];
+		System.arraycopy(array, fromIndex, values, 0, values.length);
+		sub._array = values;
+		sub._valueComparator = _valueComparator;
+		return (List/*<E>*/) sub.unmodifiable();
+	}
+	/**
+	 * Sorts this table using this table {@link #getValueComparator() value
+	 * comparator} (smallest first). Concurrent readers see either the
+	 * unsorted or the sorted values.
+	 *
+	 * @return <code>this</code>
+	 */
+	public synchronized FastCopyOnWriteTable/*<E>*/ sort() {
+		final Object[] array = _array;
+		if(array.length > 1) {
+			final FastTable table = FastTable.newInstance();
+			try {
+				for(int i = 0; i < array.length; ++i) {
+					table.addLast(array[i]);
+				}
+				table.setValueComparator(_valueComparator).sort();
+				_array = table.toArray(new Object[array.length]);
+			}
+			finally {
+				FastTable.recycle(table);
+			}
+		}
+		return this;
+	}
+	/**
+	 * Sets the comparator to use for value equality.
+	 *
+	 * @param comparator the value comparator.
+	 * @return <code>this</code>
+	 */
+	public FastCopyOnWriteTable/*<E>*/ setValueComparator(FastComparator/*<? super E>*/ comparator) {
+		_valueComparator = comparator;
+		return this;
+	}
+	// Overrides.
+	public FastComparator/*<? super E>*/ getValueComparator() {
+		return _valueComparator;
+	}
+	// Implements FastAbstractList abstract method.
+	public int size() {
+		return _array.length;
+	}
+	// Implements FastAbstractList abstract method.
+	public boolean isEmpty() {
+		return _array.length == 0;
+	}
+	// Implements FastAbstractList abstract method.
+	public Record head() {
+		return _head;
+	}
+	// Implements FastAbstractList abstract method.
+	public Record tail() {
+		return _tail;
+	}
+	// Implements FastAbstractList abstract method.
+	public Object/*{E}*/ valueOf(Record record) {
+		return (Object/*{E}*/) ((Slot) record)._value;
+	}
+	/**
+	 * Removes the value of the specified record from this table. If the
+	 * table has been modified since the record was obtained, the value
+	 * is removed only if still present (same instance).
+	 *
+	 * @param record the record to be removed.
+	 */
+	public synchronized void delete(Record record) {
+		final Slot slot = (Slot) record;
+		final Object[] array = _array;
+		int index = -1;
+		if(slot._array == array) {
+			index = slot._index;
+		}
+		else {
+			for(int i = 0; i < array.length; ++i) {
+				if(array[i] == slot._value) {
+					index = i;
+					break;
+				}
+			}
+		}
+		if(index >= 0) {
+			_array = removeRange(array, index, index + 1);
+		}
+	}
+	/**
+	 * Returns <code>this</code> (copy-on-write tables are thread-safe).
+	 *
+	 * @return <code>this</code>
+	 */
+	public FastCollection/*FastAbstractList<E>*/ shared() {
+		return this;
+	}
+	// Overrides (snapshot).
+	public Object[] toArray() {
+		final Object[] array = _array;
+		final Object[] copy = new Object[array.length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+	// Overrides (snapshot).
+	public Object/*{<T> T}*/[] toArray(Object/*{T}*/[] array) {
+		final Object[] values = _array;
+		if(array.length < values.length)
+			throw new UnsupportedOperationException("Destination array too small");
+		System.arraycopy(values, 0, array, 0, values.length);
+		if(array.length > values.length) {
+			array[values.length] = null; // As per Collection contract.
+		}
+		return array;
+	}
+	/**
+	 * Saves the state of this table to a stream (serializes it).
+	 *
+	 * @serialData The value comparator is emitted (FastComparator),
+	 *             followed by the number of values (int) and by all the
+	 *             values (each an Object) in the proper order.
+	 */
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		final Object[] array = _array; // Snapshot.
+		s.writeObject(_valueComparator);
+		s.writeInt(array.length);
+		for(int i = 0; i < array.length; ++i) {
+			s.writeObject(array[i]);
+		}
+	}
+	/**
+	 * Reconstitutes this table from a stream (deserializes it).
+	 */
+	private synchronized void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		_head = new Head();
+		_tail = new Tail();
+		_valueComparator = (FastComparator) s.readObject();
+		final Object[] array = new Object[s.readInt()];
+		for(int i = 0; i < array.length; ++i) {
+			array[i] = s.readObject();
+		}
+		_array = array;
+	}
+	// Returns the records of the current snapshot (lazily created).
+	private Chain chain() {
+		final Object[] array = _array;
+		final Chain chain = _chain;
+		if((chain != null) && (chain._array == array))
+			return chain;
+		final Chain newChain = new Chain(array, _head, _tail);
+		_chain = newChain; // Benign race (same chain for the same array).
+		return newChain;
+	}
+	// Inserts the specified values at the specified index (or appends them if index < 0).
+	private synchronized boolean insert(int index, Object[] values) {
+		final Object[] array = _array;
+		if(index < 0) {
+			index = array.length;
+		}
+		else if(index > array.length)
+			throw new IndexOutOfBoundsException("index: " + index);
+		if(values.length == 0)
+			return false;
+		final Object[] copy = new Object[array.length + values.length];
+		System.arraycopy(array, 0, copy, 0, index);
+		System.arraycopy(values, 0, copy, index, values.length);
+		System.arraycopy(array, index, copy, index + values.length, array.length - index);
+		_array = copy;
+		return true;
+	}
+	private synchronized boolean filter(Collection c, boolean retain) {
+		final Object[] array = _array;
+		final FastComparator comp = _valueComparator;
+		final Object[] kept = new Object[array.length];
+		int n = 0;
+		for(int i = 0; i < array.length; ++i) {
+			if(FastCollection.contains(c, array[i], comp) == retain) { // Reads do not lock.
+				kept[n++] = array[i];
+			}
+		}
+		if(n == array.length)
+			return false;
+		final Object[] copy = new Object[n];
+		System.arraycopy(kept, 0, copy, 0, n);
+		_array = copy;
+		return true;
+	}
+	private static Object[] toArray(Collection values) {
+		if(values instanceof FastCopyOnWriteTable)
+			return ((FastCopyOnWriteTable) values)._array; // Immutable.
+		return values.toArray();
+	}
+	private static Object[] removeRange(Object[] array, int fromIndex, int toIndex) {
+		final Object[] copy = new Object[array.length - (toIndex - fromIndex)];
+		System.arraycopy(array, 0, copy, 0, fromIndex);
+		System.arraycopy(array, toIndex, copy, fromIndex, array.length - toIndex);
+		return copy;
+	}
+	private static int indexOf(Object value, Object[] array, FastComparator comp) {
+		for(int i = 0; i < array.length; ++i) {
+			if(comp == FastComparator.DEFAULT ? defaultEquals(value, array[i]) : comp.areEqual(value, array[i]))
+				return i;
+		}
+		return -1;
+	}
+	// For inlining of default comparator.
+	private static boolean defaultEquals(Object o1, Object o2) {
+		return o1 == null ? o2 == null : o1 == o2 || o1.equals(o2);
+	}
+	/**
+	 * This inner class represents the head record of this table.
+	 */
+	private final class Head implements Record {
+		public Record getPrevious() {
+			return null;
+		}
+		public Record getNext() {
+			return chain()._first;
+		}
+	}
+	/**
+	 * This inner class represents the tail record of this table.
+	 */
+	private final class Tail implements Record {
+		public Record getPrevious() {
+			return chain()._last;
+		}
+		public Record getNext() {
+			return null;
+		}
+	}
+	/**
+	 * This inner class holds the records of a snapshot (linked from the
+	 * constant head record to the constant tail record).
+	 */
+	private static final class Chain {
+		private final Object[] _array;
+		private final Record _first;
+		private final Record _last;
+		private Chain(Object[] array, Record head, Record tail) {
+			_array = array;
+			if(array.length == 0) {
+				_first = tail;
+				_last = head;
+				return;
+			}
+			final Slot[] slots = new Slot[array.length];
+			for(int i = 0; i < array.length; ++i) {
+				slots[i] = new Slot(array, i);
+			}
+			for(int i = 0; i < array.length; ++i) {
+				slots[i]._previous = i == 0 ? head : slots[i - 1];
+				slots[i]._next = i == array.length - 1 ? tail : slots[i + 1];
+			}
+			_first = slots[0];
+			_last = slots[array.length - 1];
+		}
+	}
+	/**
+	 * This inner class represents a record of a snapshot.
+	 */
+	private static final class Slot implements Record {
+		private final Object[] _array;
+		private final int _index;
+		private final Object _value;
+		private Record _previous; // Published with the chain.
+		private Record _next; // Published with the chain.
+		private Slot(Object[] array, int index) {
+			_array = array;
+			_index = index;
+			_value = array[index];
+		}
+		public Record getPrevious() {
+			return _previous;
+		}
+		public Record getNext() {
+			return _next;
+		}
+	}
+	/**
+	 * This inner class implements a snapshot (read-only) iterator.
+	 */
+	private static final class SnapshotIterator implements ListIterator {
+		private static final ObjectFactory FACTORY = new ObjectFactory() {
+			protected Object create() {
+				return new SnapshotIterator();
+			}
+			protected void cleanup(Object obj) {
+				((SnapshotIterator) obj)._array = null;
+			}
+		};
+		private Object[] _array;
+		private int _nextIndex;
+		public static SnapshotIterator valueOf(Object[] array, int nextIndex) {
+			final SnapshotIterator iterator = (SnapshotIterator) FACTORY.object();
+			iterator._array = array;
+			iterator._nextIndex = nextIndex;
+			return iterator;
+		}
+		public boolean hasNext() {
+			return _nextIndex != _array.length;
+		}
+		public Object next() {
+			if(_nextIndex == _array.length)
+				throw new NoSuchElementException();
+			return _array[_nextIndex++];
+		}
+		public int nextIndex() {
+			return _nextIndex;
+		}
+		public boolean hasPrevious() {
+			return _nextIndex != 0;
+		}
+		public Object previous() {
+			if(_nextIndex == 0)
+				throw new NoSuchElementException();
+			return _array[--_nextIndex];
+		}
+		public int previousIndex() {
+			return _nextIndex - 1;
+		}
+		public void add(Object o) {
+			throw new UnsupportedOperationException("Snapshot iterator");
+		}
+		public void set(Object o) {
+			throw new UnsupportedOperationException("Snapshot iterator");
+		}
+		public void remove() {
+			throw new UnsupportedOperationException("Snapshot iterator");
+		}
+	}
+}
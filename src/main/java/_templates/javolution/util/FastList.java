@@ -18,6 +18,7 @@ import _templates.javax.realtime.MemoryArea;
 import _templates.javolution.context.ObjectFactory;
 import _templates.javolution.context.PersistentContext;
 import _templates.javolution.lang.Reusable;
+import _templates.javolution.util.internal.collection.FastSharedList;
 /**
  * <p> This class represents a linked list with real-time behavior;
  *     smooth capacity increase and no memory allocation as long as the
@@ -563,7 +564,7 @@ public class FastList/*<E>*/ extends FastAbstractList/*<E>*/ implements List/*<E
 	}
 	// Overrides to return a list (JDK1.5+).
 	public FastCollection/*FastList<E>*/ shared() {
-		return new FastList/*<E>*/(super.shared());
+		return new FastSharedList/*<E>*/(this);
 	}
 	/**
 	 * Returns a new node for this list; this method can be overriden by
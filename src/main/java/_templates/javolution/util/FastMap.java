@@ -99,6 +99,10 @@ import _templates.javolution.xml.XMLSerializable;
  * <p> {@link #shared() Shared} maps do not use internal synchronization, except in case of
  *     concurrent modifications of the map structure (entries being added/deleted).
  *     Reads and iterations are never synchronized and never blocking.
+ *     Structural modifications lock only the sub-map holding the key
+ *     (large maps are divided into sub-maps, see implementation note),
+ *     concurrent insertions/removals of keys dispatched to different
+ *     sub-maps do not block each other.
  *     With regards to the memory model, shared maps are equivalent to shared
  *     non-volatile variables (no "happen before" guarantee). They can be used
  *     as very efficient lookup tables. For example:[code]
@@ -114,6 +118,17 @@ import _templates.javolution.xml.XMLSerializable;
  *         }
  *    }[/code]</p>
  *
+ * <p> {@link FastMap} can be bounded to be used as a cache (maximum
+ *     {@link #setMaximumSize size} and/or {@link #setMaximumWeight weight}).
+ *     Entries are then evicted in least recently used order; shared maps use
+ *     a CLOCK approximation so that their reads remain lock-free. For example:[code]
+ *     FastMap<Integer, Session> sessions = new FastMap<Integer, Session>().shared()
+ *         .setMaximumSize(10000).setEvictionListener(new FastMap.EvictionListener<Integer, Session>() {
+ *              public void evicted(Integer id, Session session) {
+ *                  session.close();
+ *              }
+ *         });[/code]</p>
+ *
  * <p> <b>Implementation Note:</b> To maintain time-determinism, rehash/resize
  *     is performed only when the map's size is small (see chart). For large
  *     maps (size > 512), the map is divided recursively into (64)
@@ -200,6 +215,38 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 	 * Indicates if this map is shared (thread-safe).
 	 */
 	private transient boolean _isShared;
+	/**
+	 * Indicates if this map is bounded (cache mode).
+	 */
+	private transient boolean _isBounded;
+	/**
+	 * Holds the maximum number of entries (cache mode) or <code>0</code>.
+	 */
+	private transient int _maximumSize;
+	/**
+	 * Holds the maximum total weight (cache mode).
+	 */
+	private transient long _maximumWeight;
+	/**
+	 * Holds the entries weigher (cache mode) or <code>null</code>.
+	 */
+	private transient Weigher _weigher;
+	/**
+	 * Holds the eviction listener (cache mode) or <code>null</code>.
+	 */
+	private transient EvictionListener _evictionListener;
+	/**
+	 * Holds the number of entries (cache mode).
+	 */
+	private transient int _cacheSize;
+	/**
+	 * Holds the total weight of the entries (cache mode).
+	 */
+	private transient long _totalWeight;
+	/**
+	 * Holds the clock hand, the last entry swept (shared cache mode).
+	 */
+	private transient Entry _hand;
 	/**
 	 * Creates a map whose capacity increment smoothly without large resize
 	 * operations.
@@ -378,7 +425,12 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 	 */
 	public final Object/*{V}*/ get(Object key) {
 		final Entry/*<K,V>*/ entry = getEntry(key);
-		return entry != null ? entry._value : null;
+		if(entry == null)
+			return null;
+		if(_isBounded) {
+			touch(entry);
+		}
+		return entry._value;
 	}
 	/**
 	 * Returns the entry with the specified key.
@@ -410,7 +462,8 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 	 * Associates the specified value with the specified key in this map.
 	 * If this map previously contained a mapping for this key, the old value
 	 * is replaced. For {@link #isShared() shared} map, internal synchronization
-	 * is performed only when new entries are created.
+	 * is performed only when new entries are created (and only on the
+	 * sub-map holding the key).
 	 *
 	 * @param key the key with which the specified value is to be associated.
 	 * @param value the value to be associated with the specified key.
@@ -447,54 +500,110 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 					return returnEntry ? entry : entry._value;
 				final Object prevValue = entry._value;
 				entry._value = value;
+				if(_isBounded) {
+					replaced(entry);
+				}
 				return returnEntry ? entry : prevValue;
 			}
 		}
 		// Add new entry (synchronize if concurrent).
-		if(concurrent) {
-			synchronized(this) {
-				return put(key, value, keyHash, false, noReplace, returnEntry);
-			}
-		}
+		if(concurrent)
+			return putShared(map, key, value, keyHash, noReplace, returnEntry);
 		// Setup entry.
-		final Entry entry;
-		if(!_isShared) {
-			entry = _tail;
-			entry._key = key;
-			entry._value = value;
-			entry._keyHash = keyHash;
-			if(entry._next == null) {
-				createNewEntries();
-			}
-			entries[slot] = entry;
-			map._entryCount += ONE_VOLATILE; // Prevents reordering.
-			_tail = _tail._next;
+		final Entry entry = _tail;
+		entry._key = key;
+		entry._value = value;
+		entry._keyHash = keyHash;
+		if(entry._next == null) {
+			createNewEntries();
+		}
+		entries[slot] = entry;
+		map._entryCount += ONE_VOLATILE; // Prevents reordering.
+		_tail = _tail._next;
+		if(map._entryCount + map._nullCount > entries.length >> 1) { // Table more than half empty.
+			map.resizeTable(false);
 		}
-		else {
-			// keep _tail as the same object
-			// check entry caches
-			if(_tail._next == null) {
-				createNewEntries();
+		if(_isBounded) {
+			added(entry, _weigher != null ? _weigher.weightOf(key, value) : 0);
+			evict(entry);
+		}
+		return returnEntry ? entry : null;
+	}
+	// Adds a new entry to a shared map. Only the sub-map holding the key is
+	// locked (writers of distinct sub-maps proceed concurrently); the entries
+	// chain is updated under the head entry monitor (short critical section).
+	private Object putShared(FastMap map, Object key, Object value, int keyHash, boolean noReplace,
+			boolean returnEntry) {
+		Entry entry = null;
+		for(;; map = getSubMap(keyHash)) {
+			synchronized(map) {
+				if(getSubMap(keyHash) != map) {
+					continue; // Sub-map has been split or detached (clear), retry.
+				}
+				final Entry[] entries = map._entries; // Cannot change while locked.
+				final int mask = entries.length - 1;
+				int slot = -1;
+				Entry existing = null;
+				for(int i = keyHash >> map._keyShift;; ++i) {
+					final Entry e = entries[i & mask];
+					if(e == null) {
+						slot = slot < 0 ? i & mask : slot;
+						break;
+					}
+					else if(e == Entry.NULL) {
+						slot = slot < 0 ? i & mask : slot;
+					}
+					else if(key == e._key || keyHash == e._keyHash
+							&& (_isDirectKeyComparator ? key.equals(e._key) : _keyComparator.areEqual(key, e._key))) {
+						if(noReplace)
+							return returnEntry ? e : e._value;
+						existing = e;
+						break;
+					}
+				}
+				if(existing != null) {
+					break; // Key added concurrently.
+				}
+				final int weight = _weigher != null ? _weigher.weightOf(key, value) : 0;
+				synchronized(_head) { // The head entry never changes.
+					if(getSubMap(keyHash) != map) {
+						continue; // Sub-map has been detached (clear), retry.
+					}
+					// keep _tail as the same object
+					// check entry caches
+					if(_tail._next == null) {
+						createNewEntries();
+					}
+					// assign entry
+					entry = _tail._next;
+					// step forward in the entry cache
+					_tail._next = entry._next;
+					// populate entry
+					entry._key = key;
+					entry._value = value;
+					entry._keyHash = keyHash;
+					entry._next = _tail;
+					entry._previous = _tail._previous; // backwards
+					// set the hash table slots
+					entries[slot] = entry;
+					map._entryCount += ONE_VOLATILE; // Prevents reordering.
+					// insert into chain at correct location
+					entry._next._previous = entry; // backwards
+					entry._previous._next = entry; // forwards
+					if(_isBounded) {
+						added(entry, weight);
+					}
+				}
+				if(map._entryCount + map._nullCount > entries.length >> 1) { // Table more than half empty.
+					map.resizeTable(true);
+				}
 			}
-			// assign entry
-			entry = _tail._next;
-			// step forward in the entry cache
-			_tail._next = entry._next;
-			// populate entry
-			entry._key = key;
-			entry._value = value;
-			entry._keyHash = keyHash;
-			entry._next = _tail;
-			entry._previous = _tail._previous; // backwards
-			// set the hash table slots
-			entries[slot] = entry;
-			map._entryCount += ONE_VOLATILE; // Prevents reordering.
-			// insert into chain at correct location
-			entry._next._previous = entry; // backwards
-			entry._previous._next = entry; // forwards
+			break;
 		}
-		if(map._entryCount + map._nullCount > entries.length >> 1) { // Table more than half empty.
-			map.resizeTable(_isShared);
+		if(entry == null) // Replaces the value of the existing entry (no lock held).
+			return put(key, value, keyHash, true, noReplace, returnEntry);
+		if(_isBounded) {
+			evictShared(entry); // No lock held.
 		}
 		return returnEntry ? entry : null;
 	}
@@ -696,9 +805,8 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 					&& (_isDirectKeyComparator ? key.equals(entry._key) : _keyComparator.areEqual(key, entry._key))) {
 				// Found the entry.
 				if(concurrent) {
-					synchronized(this) {
-						return remove(key, keyHash, false);
-					}
+					final Entry removed = removeShared(map, key, keyHash, null);
+					return removed != null ? removed._value : null;
 				}
 				// Detaches entry from list.
 				entry._previous._next = entry._next;
@@ -707,25 +815,68 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 				entries[i & mask] = Entry.NULL;
 				map._nullCount++;
 				map._entryCount--;
-				final Object prevValue = entry._value;
-				if(!_isShared) { // Clears key/value and recycle.
-					entry._key = null;
-					entry._value = null;
-					final Entry next = _tail._next;
-					entry._previous = _tail;
-					entry._next = next;
-					_tail._next = entry;
-					if(next != null) {
-						next._previous = entry;
-					}
+				if(_isBounded) {
+					_cacheSize--;
+					_totalWeight -= entry._weight;
 				}
-				else {
-					// do nothing, preserving the iterator-free iterations of other threads
+				final Object prevValue = entry._value;
+				// Clears key/value and recycle.
+				entry._key = null;
+				entry._value = null;
+				final Entry next = _tail._next;
+				entry._previous = _tail;
+				entry._next = next;
+				_tail._next = entry;
+				if(next != null) {
+					next._previous = entry;
 				}
 				return prevValue;
 			}
 		}
 	}
+	// Removes an entry from a shared map (same locking scheme as putShared),
+	// only if it is the expected entry when specified. Removed entries are
+	// not recycled, preserving the iterator-free iterations of other threads.
+	private Entry removeShared(FastMap map, Object key, int keyHash, Entry expected) {
+		for(;; map = getSubMap(keyHash)) {
+			synchronized(map) {
+				if(getSubMap(keyHash) != map) {
+					continue; // Sub-map has been split or detached (clear), retry.
+				}
+				final Entry[] entries = map._entries; // Cannot change while locked.
+				final int mask = entries.length - 1;
+				for(int i = keyHash >> map._keyShift;; ++i) {
+					final Entry entry = entries[i & mask];
+					if(entry == null)
+						return null;
+					if(key == entry._key || keyHash == entry._keyHash
+							&& (_isDirectKeyComparator ? key.equals(entry._key) : _keyComparator.areEqual(key, entry._key))) {
+						if(expected != null && expected != entry)
+							return null;
+						synchronized(_head) {
+							if(getSubMap(keyHash) != map)
+								return null; // Map has been cleared.
+							// Detaches entry from list.
+							entry._previous._next = entry._next;
+							entry._next._previous = entry._previous;
+							// Removes from table.
+							entries[i & mask] = Entry.NULL;
+							map._nullCount++;
+							map._entryCount--;
+							if(_isBounded) {
+								_cacheSize--;
+								_totalWeight -= entry._weight;
+								if(_hand == entry) { // Keeps the clock hand on the chain.
+									_hand = entry._previous;
+								}
+							}
+						}
+						return entry;
+					}
+				}
+			}
+		}
+	}
 	/**
 	 * <p> Sets the shared status of this map (whether the map is thread-safe
 	 *     or not). Shared maps are typically used for lookup table (e.g. static
@@ -799,6 +950,204 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 	public FastComparator/*<? super V>*/ getValueComparator() {
 		return _valueComparator;
 	}
+	/**
+	 * Sets the maximum number of entries of this map (cache mode). When this
+	 * maximum is exceeded, entries are evicted in least recently used order
+	 * (see {@link #get get}); for {@link #isShared shared} maps a CLOCK
+	 * approximation (reference bit) is used so that reads are never
+	 * synchronized.
+	 *
+	 * <p> Note: For non-shared bounded maps {@link #get get} updates the
+	 *           entries order (the most recently accessed entry is last) and
+	 *           is not thread-safe.</p>
+	 *
+	 * @param maximumSize the maximum number of entries or <code>0</code>
+	 *        for no maximum (default).
+	 * @return <code>this</code>
+	 * @throws IllegalArgumentException if the specified size is negative.
+	 */
+	public FastMap/*<K,V>*/ setMaximumSize(int maximumSize) {
+		if(maximumSize < 0)
+			throw new IllegalArgumentException("Negative maximum size: " + maximumSize);
+		_maximumSize = maximumSize;
+		updateBounds();
+		return this;
+	}
+	/**
+	 * Returns the maximum number of entries of this map.
+	 *
+	 * @return the maximum number of entries or <code>0</code> if none.
+	 */
+	public int getMaximumSize() {
+		return _maximumSize;
+	}
+	/**
+	 * Sets the maximum total weight of the entries of this map (cache mode).
+	 * The weight of an entry is calculated when the entry is added or its
+	 * value replaced through this map. Eviction follows the same policy as
+	 * for {@link #setMaximumSize maximum size}; the most recently added entry
+	 * is never evicted.
+	 *
+	 * @param maximumWeight the maximum total weight.
+	 * @param weigher the entries weigher or <code>null</code> for no maximum
+	 *        weight (default).
+	 * @return <code>this</code>
+	 */
+	public FastMap/*<K,V>*/ setMaximumWeight(long maximumWeight, Weigher/*<? super K, ? super V>*/ weigher) {
+		_maximumWeight = maximumWeight;
+		_weigher = weigher;
+		updateBounds();
+		return this;
+	}
+	/**
+	 * Returns the maximum total weight of this map entries.
+	 *
+	 * @return the maximum weight (meaningful only if a weigher is set).
+	 */
+	public long getMaximumWeight() {
+		return _maximumWeight;
+	}
+	/**
+	 * Sets the listener notified of the entries evicted from this map
+	 * (cache mode). The listener is never called while the map is locked.
+	 *
+	 * @param listener the eviction listener or <code>null</code>.
+	 * @return <code>this</code>
+	 */
+	public FastMap/*<K,V>*/ setEvictionListener(EvictionListener/*<? super K, ? super V>*/ listener) {
+		_evictionListener = listener;
+		return this;
+	}
+	// Recalculates the cache state (size, weights) and evicts if necessary.
+	private void updateBounds() {
+		if(_isShared) {
+			synchronized(_head) {
+				recount();
+			}
+			evictShared(null);
+		}
+		else {
+			recount();
+			evict(null);
+		}
+	}
+	private void recount() {
+		_isBounded = _maximumSize > 0 || _weigher != null;
+		_cacheSize = 0;
+		_totalWeight = 0;
+		_hand = null;
+		for(Entry e = _head, end = _tail; (e = e._next) != end;) {
+			e._weight = _weigher != null ? _weigher.weightOf(e._key, e._value) : 0;
+			_cacheSize++;
+			_totalWeight += e._weight;
+		}
+	}
+	private boolean isOverLimit() {
+		return _maximumSize > 0 && _cacheSize > _maximumSize || _weigher != null && _totalWeight > _maximumWeight;
+	}
+	// Records an access to the specified entry (cache mode).
+	private void touch(Entry entry) {
+		if(_isShared) { // CLOCK, no synchronization.
+			if(!entry._referenced) {
+				entry._referenced = true;
+			}
+			return;
+		}
+		// LRU, moves the entry last.
+		final Entry last = _tail._previous;
+		if(entry == last)
+			return;
+		entry._previous._next = entry._next;
+		entry._next._previous = entry._previous;
+		entry._previous = last;
+		entry._next = _tail;
+		last._next = entry;
+		_tail._previous = entry;
+	}
+	// Updates the cache state when an entry is added (entries chain locked if shared).
+	private void added(Entry entry, int weight) {
+		entry._weight = weight;
+		entry._referenced = false;
+		_cacheSize++;
+		_totalWeight += weight;
+	}
+	// Updates the cache state when an entry value is replaced (no lock held).
+	private void replaced(Entry entry) {
+		if(_weigher != null) {
+			final int weight = _weigher.weightOf(entry._key, entry._value);
+			if(_isShared) {
+				synchronized(_head) {
+					_totalWeight += weight - entry._weight;
+					entry._weight = weight;
+				}
+			}
+			else {
+				_totalWeight += weight - entry._weight;
+				entry._weight = weight;
+			}
+		}
+		touch(entry);
+		if(_isShared) {
+			evictShared(entry);
+		}
+		else {
+			evict(entry);
+		}
+	}
+	// Evicts the least recently used entries until this map is within bounds.
+	private void evict(Entry newest) {
+		while(isOverLimit()) {
+			final Entry entry = _head._next;
+			if(entry == _tail || entry == newest)
+				return; // The newest entry is never evicted.
+			final Object key = entry._key;
+			final Object value = entry._value;
+			remove(key, entry._keyHash, false);
+			if(_evictionListener != null) {
+				_evictionListener.evicted(key, value);
+			}
+		}
+	}
+	// Evicts entries not recently used until this map is within bounds.
+	private void evictShared(Entry newest) {
+		for(;;) {
+			final Entry victim;
+			synchronized(_head) {
+				if(!isOverLimit())
+					return;
+				victim = nextVictim(newest);
+			}
+			if(victim == null)
+				return;
+			final Entry removed = removeShared(getSubMap(victim._keyHash), victim._key, victim._keyHash, victim);
+			if(removed != null && _evictionListener != null) {
+				_evictionListener.evicted(removed._key, removed._value);
+			}
+		}
+	}
+	// Sweeps the entries from the clock hand, giving a second chance to the
+	// entries accessed since the last sweep (entries chain locked).
+	private Entry nextVictim(Entry newest) {
+		final Entry first = _head._next;
+		if(first == _tail || first == newest && newest._next == _tail)
+			return null; // No entry or only the newest entry.
+		Entry entry = _hand != null ? _hand : _head;
+		for(int n = _cacheSize;;) {
+			entry = entry._next;
+			if(entry == _tail) {
+				entry = _head._next;
+			}
+			if(entry == newest) {
+				continue;
+			}
+			if(entry._referenced && --n >= 0) {
+				entry._referenced = false;
+				continue;
+			}
+			_hand = entry;
+			return entry;
+		}
+	}
 	/**
 	 * Removes all map's entries. The entries are removed and recycled;
 	 * unless this map is {@link #isShared shared} in which case the entries
@@ -821,6 +1170,8 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 		}
 		_tail = _head._next; // Reuse linked list of entries.
 		clearTables();
+		_cacheSize = 0;
+		_totalWeight = 0;
 	}
 	private void clearTables() {
 		if(_useSubMaps) {
@@ -834,24 +1185,29 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 		_entryCount = 0;
 	}
 	private synchronized void clearShared() {
-		// We do not modify the linked list of entries (e.g. key, values)
-		// Concurrent iterations can still proceed unaffected.
-		// The linked list fragment is detached from the map and will be
-		// garbage collected once all concurrent iterations are completed.
-		_head._next = _tail;
-		_tail._previous = _head;
-		// We also detach the main entry table and sub-maps.
-		MemoryArea.getMemoryArea(this).executeInArea(new Runnable() {
-			public void run() {
-				_entries = (Entry/*<K,V>*/[]) new Entry[C0];
-				if(_useSubMaps) {
-					_useSubMaps = false;
-					_subMaps = newSubMaps(C0);
+		synchronized(_head) { // Excludes concurrent updates of the entries chain.
+			// We do not modify the linked list of entries (e.g. key, values)
+			// Concurrent iterations can still proceed unaffected.
+			// The linked list fragment is detached from the map and will be
+			// garbage collected once all concurrent iterations are completed.
+			_head._next = _tail;
+			_tail._previous = _head;
+			// We also detach the main entry table and sub-maps.
+			MemoryArea.getMemoryArea(this).executeInArea(new Runnable() {
+				public void run() {
+					_entries = (Entry/*<K,V>*/[]) new Entry[C0];
+					if(_useSubMaps) {
+						_useSubMaps = false;
+						_subMaps = newSubMaps(C0);
+					}
+					_entryCount = 0;
+					_nullCount = 0;
 				}
-				_entryCount = 0;
-				_nullCount = 0;
-			}
-		});
+			});
+			_cacheSize = 0;
+			_totalWeight = 0;
+			_hand = null;
+		}
 	}
 	/**
 	 * Compares the specified object with this map for equality.
@@ -1353,6 +1709,11 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 		clear(); // In which case, it is safe to recycle the entries.
 		setKeyComparator(FastComparator.DEFAULT);
 		setValueComparator(FastComparator.DEFAULT);
+		_maximumSize = 0;
+		_maximumWeight = 0;
+		_weigher = null;
+		_evictionListener = null;
+		_isBounded = false;
 	}
 	/**
 	 * This class represents a {@link FastMap} entry.
@@ -1392,6 +1753,15 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 		 * Holds the key hash code.
 		 */
 		private int _keyHash;
+		/**
+		 * Holds the entry weight (bounded maps).
+		 */
+		private int _weight;
+		/**
+		 * Indicates if the entry has been accessed since the last clock
+		 * sweep (shared bounded maps).
+		 */
+		private boolean _referenced;
 		/**
 		 * Default constructor.
 		 */
@@ -1470,6 +1840,34 @@ public class FastMap/*<K,V>*/ implements Map/*<K,V>*/, Reusable, XMLSerializable
 			return Text.valueOf(_key).plus("=").plus(_value);
 		}
 	}
+	/**
+	 * This interface represents the weigher of the entries of a bounded map
+	 * (see {@link FastMap#setMaximumWeight}).
+	 */
+	public interface Weigher/*<K,V>*/ {
+		/**
+		 * Returns the weight of the specified mapping (e.g. its memory
+		 * footprint).
+		 *
+		 * @param key the entry key.
+		 * @param value the entry value.
+		 * @return the weight of the mapping (non-negative).
+		 */
+		int weightOf(Object/*{K}*/ key, Object/*{V}*/ value);
+	}
+	/**
+	 * This interface represents a listener notified of the entries evicted
+	 * from a bounded map (see {@link FastMap#setEvictionListener}).
+	 */
+	public interface EvictionListener/*<K,V>*/ {
+		/**
+		 * Notifies that the specified mapping has been evicted.
+		 *
+		 * @param key the evicted entry key.
+		 * @param value the evicted entry value.
+		 */
+		void evicted(Object/*{K}*/ key, Object/*{V}*/ value);
+	}
 	/**
 	 * This class represents an read-only view over a {@link FastMap}.
 	 */
@@ -16,10 +16,13 @@ import _templates.java.util.ListIterator;
 import _templates.java.util.NoSuchElementException;
 import _templates.java.util.RandomAccess;
 import _templates.javax.realtime.MemoryArea;
+import _templates.javolution.context.ConcurrentContext;
 import _templates.javolution.context.ObjectFactory;
 import _templates.javolution.context.PersistentContext;
+import _templates.javolution.lang.Configurable;
 import _templates.javolution.lang.MathLib;
 import _templates.javolution.lang.Reusable;
+import _templates.javolution.util.internal.collection.FastSharedTable;
 /**
  * <p> This class represents a random access collection with real-time behavior
  *     (smooth capacity increase).</p>
@@ -46,6 +49,14 @@ import _templates.javolution.lang.Reusable;
  *      using the {@link FastCollection#getValueComparator() value comparator}
  *      for the table (no object or array allocation when sorting).</p>
  *
+ *  <p> Large tables can also be {@link #parallelSort sorted},
+ *      {@link #parallelForEach iterated over} or
+ *      {@link #parallelIndexOf searched} concurrently; the index range is
+ *      split recursively down to the {@link #SEQUENTIAL_THRESHOLD sequential
+ *      threshold} and the sub-ranges are processed within a
+ *      {@link ConcurrentContext}. The table should not be modified while
+ *      such operations are executing.</p>
+ *
  * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
  * @version 5.4.5, August 20, 2007
  */
@@ -65,6 +76,22 @@ public class FastTable/*<E>*/ extends FastAbstractList/*<E>*/ implements List/*<
 	private static final int B1 = 10; // Low array maximum capacity in bits.
 	private static final int C1 = 1 << B1; // Low array maximum capacity (1024).
 	private static final int M1 = C1 - 1; // Mask.
+	/**
+	 * Holds the number of elements below which the parallel operations
+	 * (e.g. {@link #parallelSort}) process the elements sequentially
+	 * (default <code>8192</code>).
+	 *
+	 * @since 5.7.5
+	 */
+	public static final Configurable/*<Integer>*/ SEQUENTIAL_THRESHOLD = new Configurable(new Integer(8192)) {
+		protected void notifyChange(Object oldValue, Object newValue) {
+			_SequentialThreshold = MathLib.max(16, ((Integer) newValue).intValue());
+		}
+	};
+	/**
+	 * Holds the current sequential threshold (read for each operation).
+	 */
+	private static volatile int _SequentialThreshold = 8192;
 	/**
 	 * Holds whether {@code null} values are rejected.
 	 */
@@ -672,6 +699,295 @@ public class FastTable/*<E>*/ extends FastAbstractList/*<E>*/ implements List/*<
 		set(i, get(j));
 		set(j, tmp);
 	}
+	/**
+	 * Sorts this table using a concurrent merge sort and this table
+	 * {@link FastCollection#getValueComparator() value comparator}
+	 * (smallest first). Unlike {@link #sort()} this sort is stable (equal
+	 * elements are not reordered); it allocates two temporary arrays of
+	 * this table size. The sub-ranges larger than the
+	 * {@link #SEQUENTIAL_THRESHOLD sequential threshold} are sorted and
+	 * merged concurrently.
+	 *
+	 * @return <code>this</code>
+	 * @since 5.7.5
+	 */
+	public FastTable/*<E>*/ parallelSort() {
+		final int size = _size;
+		if(size > 1) {
+			final Object[] values = new Object[size];
+			copyTo(values);
+			mergeSort(values, new Object[size], 0, size, false, getValueComparator(), threshold());
+			copyFrom(values);
+		}
+		return this;
+	}
+	/**
+	 * Executes the specified consumer for each element of this table.
+	 * The elements are processed concurrently by index ranges of at most
+	 * the {@link #SEQUENTIAL_THRESHOLD sequential threshold}; the order of
+	 * execution is unspecified.
+	 *
+	 * @param consumer the consumer called for each element (thread-safe).
+	 * @since 5.7.5
+	 */
+	public void parallelForEach(Consumer/*<? super E>*/ consumer) {
+		forEach(0, _size, consumer, threshold());
+	}
+	private void forEach(final int from, final int to, final Consumer consumer, final int threshold) {
+		if(to - from > threshold) {
+			final int mid = from + to >>> 1;
+			ConcurrentContext.enter();
+			try {
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						forEach(from, mid, consumer, threshold);
+					}
+				});
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						forEach(mid, to, consumer, threshold);
+					}
+				});
+			}
+			finally {
+				ConcurrentContext.exit();
+			}
+			return;
+		}
+		for(int i = from; i < to; i++) {
+			consumer.accept(_high[i >> B1][i & M1]);
+		}
+	}
+	/**
+	 * Equivalent to {@link #indexOf(Object)} with the index ranges being
+	 * searched concurrently.
+	 *
+	 * @param value the value to search for.
+	 * @return the index in this table of the first occurrence of the specified
+	 *         value, or -1 if this table does not contain this value.
+	 * @since 5.7.5
+	 */
+	public int parallelIndexOf(Object value) {
+		final int[] first = {Integer.MAX_VALUE};
+		indexOf(0, _size, value, getValueComparator(), threshold(), first);
+		return first[0] != Integer.MAX_VALUE ? first[0] : -1;
+	}
+	private void indexOf(final int from, final int to, final Object value, final FastComparator comp,
+			final int threshold, final int[] first) {
+		if(to - from > threshold) {
+			final int mid = from + to >>> 1;
+			ConcurrentContext.enter();
+			try {
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						indexOf(from, mid, value, comp, threshold, first);
+					}
+				});
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						indexOf(mid, to, value, comp, threshold, first);
+					}
+				});
+			}
+			finally {
+				ConcurrentContext.exit();
+			}
+			return;
+		}
+		if(from >= first[0])
+			return; // An occurrence has already been found before (unsynchronized hint).
+		for(int i = from; i < to; i++) {
+			final Object element = _high[i >> B1][i & M1];
+			if(comp == FastComparator.DEFAULT ? defaultEquals(value, element) : comp.areEqual(value, element)) {
+				synchronized(first) {
+					if(i < first[0]) {
+						first[0] = i;
+					}
+				}
+				return;
+			}
+		}
+	}
+	/**
+	 * Equivalent to {@link #removeAll(Collection)} with the look-up of
+	 * the elements in the specified collection performed concurrently by
+	 * index ranges. The specified collection is read concurrently and
+	 * should not be modified during this call.
+	 *
+	 * @param c collection that defines which values will be removed from
+	 *          this table.
+	 * @return <code>true</code> if this table changed as a result of
+	 *         the call; <code>false</code> otherwise.
+	 * @since 5.7.5
+	 */
+	public boolean parallelRemoveAll(Collection/*<?>*/ c) {
+		final int size = _size;
+		final boolean[] removed = new boolean[size];
+		mark(0, size, c, getValueComparator(), threshold(), removed);
+		int n = 0;
+		for(int i = 0; i < size; i++) { // Compacts.
+			if(!removed[i]) {
+				_high[n >> B1][n & M1] = _high[i >> B1][i & M1];
+				n++;
+			}
+		}
+		if(n == size)
+			return false;
+		for(int i = n; i < size; i++) {
+			_high[i >> B1][i & M1] = null; // Deallocates for GC.
+		}
+		_size = n; // No need for volatile, removal are not thread-safe.
+		return true;
+	}
+	private void mark(final int from, final int to, final Collection c, final FastComparator comp,
+			final int threshold, final boolean[] removed) {
+		if(to - from > threshold) {
+			final int mid = from + to >>> 1;
+			ConcurrentContext.enter();
+			try {
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						mark(from, mid, c, comp, threshold, removed);
+					}
+				});
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						mark(mid, to, c, comp, threshold, removed);
+					}
+				});
+			}
+			finally {
+				ConcurrentContext.exit();
+			}
+			return;
+		}
+		for(int i = from; i < to; i++) {
+			removed[i] = FastCollection.contains(c, _high[i >> B1][i & M1], comp);
+		}
+	}
+	private static int threshold() {
+		return _SequentialThreshold;
+	}
+	// Copies the elements of this table to the specified array.
+	private void copyTo(Object[] values) {
+		for(int i = 0; i < _size; i += C1) {
+			System.arraycopy(_high[i >> B1], 0, values, i, MathLib.min(C1, _size - i));
+		}
+	}
+	// Sets the elements of this table from the specified array.
+	private void copyFrom(Object[] values) {
+		for(int i = 0; i < _size; i += C1) {
+			System.arraycopy(values, i, _high[i >> B1], 0, MathLib.min(C1, _size - i));
+		}
+	}
+	// Sorts src[from, to[ (stable), the result is placed into dst if toDst;
+	// otherwise into src.
+	private static void mergeSort(final Object[] src, final Object[] dst, final int from, final int to,
+			final boolean toDst, final FastComparator cmp, final int threshold) {
+		final int length = to - from;
+		if(length <= 16) {
+			for(int i = from + 1; i < to; i++) { // Insertion sort.
+				final Object key = src[i];
+				int j = i;
+				for(; j > from && cmp.compare(src[j - 1], key) > 0; j--) {
+					src[j] = src[j - 1];
+				}
+				src[j] = key;
+			}
+			if(toDst) {
+				System.arraycopy(src, from, dst, from, length);
+			}
+			return;
+		}
+		final int mid = from + to >>> 1;
+		if(length > threshold) {
+			ConcurrentContext.enter();
+			try {
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						mergeSort(src, dst, from, mid, !toDst, cmp, threshold);
+					}
+				});
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						mergeSort(src, dst, mid, to, !toDst, cmp, threshold);
+					}
+				});
+			}
+			finally {
+				ConcurrentContext.exit();
+			}
+		}
+		else {
+			mergeSort(src, dst, from, mid, !toDst, cmp, threshold);
+			mergeSort(src, dst, mid, to, !toDst, cmp, threshold);
+		}
+		final Object[] halves = toDst ? src : dst; // Holds the sorted halves.
+		final Object[] target = toDst ? dst : src;
+		if(cmp.compare(halves[mid - 1], halves[mid]) <= 0) { // Already ordered.
+			System.arraycopy(halves, from, target, from, length);
+		}
+		else {
+			merge(halves, from, mid, mid, to, target, from, cmp, threshold);
+		}
+	}
+	// Merges the sorted ranges src[lo1, hi1[ and src[lo2, hi2[ into dst
+	// (stable); large ranges are split and merged concurrently.
+	private static void merge(final Object[] src, final int lo1, final int hi1, final int lo2, final int hi2,
+			final Object[] dst, final int dstFrom, final FastComparator cmp, final int threshold) {
+		final int n1 = hi1 - lo1;
+		final int n2 = hi2 - lo2;
+		if(n1 + n2 > threshold && n1 > 0 && n2 > 0) {
+			final int m1, m2;
+			if(n1 >= n2) { // Splits on the left range middle element.
+				m1 = lo1 + hi1 >>> 1;
+				m2 = search(src, lo2, hi2, src[m1], false, cmp);
+			}
+			else { // Splits on the right range middle element.
+				m2 = lo2 + hi2 >>> 1;
+				m1 = search(src, lo1, hi1, src[m2], true, cmp);
+			}
+			final int dstMid = dstFrom + (m1 - lo1) + (m2 - lo2);
+			ConcurrentContext.enter();
+			try {
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						merge(src, lo1, m1, lo2, m2, dst, dstFrom, cmp, threshold);
+					}
+				});
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						merge(src, m1, hi1, m2, hi2, dst, dstMid, cmp, threshold);
+					}
+				});
+			}
+			finally {
+				ConcurrentContext.exit();
+			}
+			return;
+		}
+		int i = lo1, j = lo2, k = dstFrom;
+		while(i < hi1 && j < hi2) {
+			dst[k++] = cmp.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];
+		}
+		System.arraycopy(src, i, dst, k, hi1 - i);
+		System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+	}
+	// Returns the index of the first element of a[from, to[ greater than
+	// (strict) or greater or equal to the specified value.
+	private static int search(Object[] a, int from, int to, Object value, boolean strict, FastComparator cmp) {
+		while(from < to) {
+			final int mid = from + to >>> 1;
+			final int c = cmp.compare(a[mid], value);
+			if(c < 0 || strict && c == 0) {
+				from = mid + 1;
+			}
+			else {
+				to = mid;
+			}
+		}
+		return from;
+	}
 	/**
 	 * Sets the comparator to use for value equality or comparison if the
 	 * collection is ordered (see {@link #sort()}).
@@ -717,7 +1033,7 @@ public class FastTable/*<E>*/ extends FastAbstractList/*<E>*/ implements List/*<
 	}
 	// Overrides to return a list (JDK1.5+).
 	public FastCollection/*FastTable<E>*/ shared() {
-		return new FastTable/*<E>*/(super.shared(), _rejectNulls);
+		return new FastSharedTable/*<E>*/(this);
 	}
 	// Overrides (optimization).
 	public boolean contains(Object value) {
@@ -757,6 +1073,20 @@ public class FastTable/*<E>*/ extends FastAbstractList/*<E>*/ implements List/*<
 			}
 		});
 	}
+	/**
+	 * This interface represents the action performed on each element
+	 * by {@link FastTable#parallelForEach}.
+	 *
+	 * @since 5.7.5
+	 */
+	public interface Consumer/*<T>*/ {
+		/**
+		 * Performs this action on the specified element.
+		 *
+		 * @param element the table element.
+		 */
+		void accept(Object/*{T}*/ element);
+	}
 	/**
 	 * This inner class implements a sub-table.
 	 */
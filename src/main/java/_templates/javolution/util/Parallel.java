@@ -0,0 +1,486 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util;
+import _templates.javolution.context.ConcurrentContext;
+import _templates.javolution.lang.Configurable;
+import _templates.javolution.lang.MathLib;
+import _templates.javolution.util.primitive.FastDoubleArrayList;
+import _templates.javolution.util.primitive.FastIntArrayList;
+import _templates.javolution.util.primitive.FastLongArrayList;
+/**
+ * <p> This utility class provides divide-and-conquer algorithms (for-range,
+ *     map, reduce, prefix sum) over index ranges, arrays, {@link FastTable}
+ *     and the <code>javolution.util.primitive</code> lists. The range is cut
+ *     into contiguous pieces executed within a single {@link ConcurrentContext}:
+ *     [code]
+ *         // Sum of squares (combined in index order).
+ *         Long sum = (Long) Parallel.reduce(0, values.length, new Parallel.Reducer() {
+ *             public Object reduce(int from, int to) {
+ *                 long sum = 0;
+ *                 for (int i = from; i < to; i++) sum += values[i] * values[i];
+ *                 return new Long(sum);
+ *             }
+ *             public Object combine(Object left, Object right) {
+ *                 return new Long(((Long) left).longValue() + ((Long) right).longValue());
+ *             }
+ *         });[/code]</p>
+ *
+ * <p> Granularity is automatic: the number of pieces is proportional to the
+ *     {@link ConcurrentContext#getConcurrency() concurrency} (a few pieces
+ *     per concurrent thread for load balancing), each piece holding at least
+ *     {@link #MINIMUM_GRAIN} indices. Ranges smaller than that (or when
+ *     concurrency is disabled) are processed by the current thread in a
+ *     single call, without entering a concurrent context. Overloads taking
+ *     an explicit <code>grain</code> (maximum piece size) are provided for
+ *     costly or blocking iterations.</p>
+ *
+ * <p> The data processed should not be modified by other threads while
+ *     these operations are executing. Exceptions raised by the pieces are
+ *     propagated to the caller (see {@link ConcurrentContext#exit}).</p>
+ *
+ * @version 5.7.5
+ * @since 5.7.5
+ */
+public final class Parallel {
+	/**
+	 * Holds the minimum number of indices per piece when the granularity
+	 * is automatic (default <code>1024</code>).
+	 */
+	public static final Configurable/*<Integer>*/ MINIMUM_GRAIN = new Configurable(new Integer(1024)) {
+		protected void notifyChange(Object oldValue, Object newValue) {
+			_MinimumGrain = MathLib.max(1, ((Integer) newValue).intValue());
+		}
+	};
+	/**
+	 * Holds the current minimum grain (read for each operation).
+	 */
+	private static volatile int _MinimumGrain = 1024;
+	/**
+	 * Holds the number of pieces per concurrent thread (load balancing).
+	 */
+	private static final int PIECES_PER_THREAD = 4;
+	/**
+	 * Default constructor (utility class).
+	 */
+	private Parallel() {}
+	/**
+	 * Executes the specified range logic over the sub-ranges of
+	 * <code>[from, to)</code>, concurrently if the range is large enough.
+	 *
+	 * @param from the first index inclusive.
+	 * @param to the last index exclusive.
+	 * @param range the logic executed for each sub-range (thread-safe).
+	 * @throws IllegalArgumentException if <code>from &gt; to</code>
+	 */
+	public static void forRange(int from, int to, Range range) {
+		forRange(from, to, grain(from, to), range);
+	}
+	/**
+	 * Executes the specified range logic over sub-ranges of
+	 * <code>[from, to)</code> holding at most <code>grain</code> indices.
+	 *
+	 * @param from the first index inclusive.
+	 * @param to the last index exclusive.
+	 * @param grain the maximum number of indices per sub-range.
+	 * @param range the logic executed for each sub-range (thread-safe).
+	 * @throws IllegalArgumentException if <code>from &gt; to</code> or
+	 *         <code>grain &lt; 1</code>
+	 */
+	public static void forRange(int from, int to, int grain, final Range range) {
+		final int pieces = pieces(from, to, grain);
+		if(pieces == 1) {
+			range.run(from, to);
+		}
+		else if(pieces > 1) {
+			split(from, to, pieces, new Piece() {
+				void run(int index, int start, int end) {
+					range.run(start, end);
+				}
+			});
+		}
+	}
+	/**
+	 * Reduces the range <code>[from, to)</code>: sub-ranges are reduced
+	 * concurrently, then the partial results are combined in index order
+	 * (the combination does not need to be commutative). For an empty range
+	 * this method returns <code>reducer.reduce(from, to)</code>.
+	 *
+	 * @param from the first index inclusive.
+	 * @param to the last index exclusive.
+	 * @param reducer the reducer (thread-safe).
+	 * @return the combination of the sub-ranges results.
+	 * @throws IllegalArgumentException if <code>from &gt; to</code>
+	 */
+	public static/*<R>*/Object/*{R}*/ reduce(int from, int to, Reducer/*<R>*/ reducer) {
+		return reduce(from, to, grain(from, to), reducer);
+	}
+	/**
+	 * Reduces the range <code>[from, to)</code> using sub-ranges holding at
+	 * most <code>grain</code> indices.
+	 *
+	 * @param from the first index inclusive.
+	 * @param to the last index exclusive.
+	 * @param grain the maximum number of indices per sub-range.
+	 * @param reducer the reducer (thread-safe).
+	 * @return the combination of the sub-ranges results.
+	 * @throws IllegalArgumentException if <code>from &gt; to</code> or
+	 *         <code>grain &lt; 1</code>
+	 */
+	public static/*<R>*/Object/*{R}*/ reduce(int from, int to, int grain, final Reducer/*<R>*/ reducer) {
+		final int pieces = pieces(from, to, grain);
+		if(pieces <= 1)
+			return reducer.reduce(from, to);
+		final Object[] results = new Object[pieces];
+		split(from, to, pieces, new Piece() {
+			void run(int index, int start, int end) {
+				results[index] = reducer.reduce(start, end);
+			}
+		});
+		Object/*{R}*/ result = (Object/*{R}*/) results[0];
+		for(int i = 1; i < pieces; i++) {
+			result = reducer.combine(result, (Object/*{R}*/) results[i]);
+		}
+		return result;
+	}
+	/**
+	 * Sets the elements of the specified results array to the function
+	 * applied to the elements of the specified values array (concurrently
+	 * for large arrays). Both arrays may be the same (in-place map).
+	 *
+	 * @param values the source array.
+	 * @param results the destination array (at least as long as the source).
+	 * @param function the function applied to each element (thread-safe).
+	 * @return <code>results</code>
+	 * @throws IllegalArgumentException if the destination array is too short.
+	 */
+	public static/*<T,R>*/Object/*{R}*/[] map(final Object/*{T}*/[] values, final Object/*{R}*/[] results, final Function/*<? super T, ? extends R>*/ function) {
+		if(results.length < values.length)
+			throw new IllegalArgumentException("Destination array too short");
+		forRange(0, values.length, new Range() {
+			public void run(int from, int to) {
+				for(int i = from; i < to; i++) {
+					results[i] = function.apply(values[i]);
+				}
+			}
+		});
+		return results;
+	}
+	/**
+	 * Returns a new table holding the function applied to the elements of
+	 * the specified table, in the same order (concurrently for large tables).
+	 *
+	 * @param values the source table.
+	 * @param function the function applied to each element (thread-safe).
+	 * @return a new table of the same size as the source table.
+	 */
+	public static/*<T,R>*/FastTable/*<R>*/ map(final FastTable/*<T>*/ values, final Function/*<? super T, ? extends R>*/ function) {
+		final int size = values.size();
+		final FastTable/*<R>*/ results = new FastTable/*<R>*/(size);
+		results.setSize(size);
+		forRange(0, size, new Range() {
+			public void run(int from, int to) {
+				for(int i = from; i < to; i++) {
+					results.set(i, function.apply(values.get(i)));
+				}
+			}
+		});
+		return results;
+	}
+	/**
+	 * Replaces the elements of the specified array by their inclusive prefix
+	 * sums (<code>values[i] = values[0] + ... + values[i]</code>). Large arrays
+	 * are processed in two concurrent passes (pieces sums, then pieces scans
+	 * from their offset).
+	 *
+	 * @param values the array to scan in place.
+	 */
+	public static void prefixSum(final int[] values) {
+		prefixSum(values.length, new LongScan() {
+			long get(int i) {
+				return values[i];
+			}
+			void set(int i, long value) {
+				values[i] = (int) value;
+			}
+		});
+	}
+	/**
+	 * Replaces the elements of the specified array by their inclusive prefix
+	 * sums.
+	 *
+	 * @param values the array to scan in place.
+	 * @see #prefixSum(int[])
+	 */
+	public static void prefixSum(final long[] values) {
+		prefixSum(values.length, new LongScan() {
+			long get(int i) {
+				return values[i];
+			}
+			void set(int i, long value) {
+				values[i] = value;
+			}
+		});
+	}
+	/**
+	 * Replaces the elements of the specified array by their inclusive prefix
+	 * sums. For large arrays the additions are not performed in the same
+	 * order as a sequential scan (results may differ in the last bits).
+	 *
+	 * @param values the array to scan in place.
+	 * @see #prefixSum(int[])
+	 */
+	public static void prefixSum(final double[] values) {
+		prefixSum(values.length, new DoubleScan() {
+			double get(int i) {
+				return values[i];
+			}
+			void set(int i, double value) {
+				values[i] = value;
+			}
+		});
+	}
+	/**
+	 * Replaces the elements of the specified list by their inclusive prefix
+	 * sums.
+	 *
+	 * @param list the list to scan in place.
+	 * @see #prefixSum(int[])
+	 */
+	public static void prefixSum(final FastIntArrayList list) {
+		prefixSum(list.size(), new LongScan() {
+			long get(int i) {
+				return list.get(i);
+			}
+			void set(int i, long value) {
+				list.set(i, (int) value);
+			}
+		});
+	}
+	/**
+	 * Replaces the elements of the specified list by their inclusive prefix
+	 * sums.
+	 *
+	 * @param list the list to scan in place.
+	 * @see #prefixSum(int[])
+	 */
+	public static void prefixSum(final FastLongArrayList list) {
+		prefixSum(list.size(), new LongScan() {
+			long get(int i) {
+				return list.get(i);
+			}
+			void set(int i, long value) {
+				list.set(i, value);
+			}
+		});
+	}
+	/**
+	 * Replaces the elements of the specified list by their inclusive prefix
+	 * sums.
+	 *
+	 * @param list the list to scan in place.
+	 * @see #prefixSum(double[])
+	 */
+	public static void prefixSum(final FastDoubleArrayList list) {
+		prefixSum(list.size(), new DoubleScan() {
+			double get(int i) {
+				return list.get(i);
+			}
+			void set(int i, double value) {
+				list.set(i, value);
+			}
+		});
+	}
+	// Scans the elements [0, n) sequentially or, for large ranges, in two
+	// concurrent passes (pieces sums, then pieces scans from their offset).
+	private static void prefixSum(int n, final Scan scan) {
+		final int pieces = pieces(0, n, grain(0, n));
+		scan.allocate(MathLib.max(1, pieces));
+		if(pieces <= 1) {
+			scan.scan(0, 0, n); // Offset zero.
+			return;
+		}
+		split(0, n, pieces, new Piece() {
+			void run(int index, int start, int end) {
+				scan.sum(index, start, end);
+			}
+		});
+		scan.offsets();
+		split(0, n, pieces, new Piece() {
+			void run(int index, int start, int end) {
+				scan.scan(index, start, end);
+			}
+		});
+	}
+	// Returns the automatic grain for the specified range.
+	private static int grain(int from, int to) {
+		final int concurrency = ConcurrentContext.getConcurrency();
+		final int length = to - from;
+		if(concurrency <= 0 || length <= 0)
+			return MathLib.max(1, length); // Sequential.
+		final int pieces = (concurrency + 1) * PIECES_PER_THREAD;
+		return MathLib.max(_MinimumGrain, (int) (((long) length + pieces - 1) / pieces));
+	}
+	// Returns the number of pieces for the specified range and grain.
+	private static int pieces(int from, int to, int grain) {
+		if(from > to)
+			throw new IllegalArgumentException("from: " + from + " > to: " + to);
+		if(grain < 1)
+			throw new IllegalArgumentException("grain: " + grain);
+		return (int) (((long) to - from + grain - 1) / grain);
+	}
+	// Executes the pieces (same size +/- 1) concurrently.
+	private static void split(final int from, final int to, final int pieces, final Piece piece) {
+		final long length = (long) to - from;
+		ConcurrentContext.enter();
+		try {
+			for(int i = 0; i < pieces; i++) {
+				final int index = i;
+				final int start = from + (int) (length * i / pieces);
+				final int end = from + (int) (length * (i + 1) / pieces);
+				ConcurrentContext.execute(new Runnable() {
+					public void run() {
+						piece.run(index, start, end);
+					}
+				});
+			}
+		}
+		finally {
+			ConcurrentContext.exit();
+		}
+	}
+	/**
+	 * This interface represents the logic executed over a sub-range.
+	 */
+	public interface Range {
+		/**
+		 * Processes the indices of the specified sub-range.
+		 *
+		 * @param from the first index inclusive.
+		 * @param to the last index exclusive.
+		 */
+		void run(int from, int to);
+	}
+	/**
+	 * This interface represents a range reduction.
+	 */
+	public interface Reducer/*<R>*/ {
+		/**
+		 * Returns the result for the specified sub-range.
+		 *
+		 * @param from the first index inclusive.
+		 * @param to the last index exclusive.
+		 * @return the sub-range result.
+		 */
+		Object/*{R}*/ reduce(int from, int to);
+		/**
+		 * Combines the results of two adjacent sub-ranges.
+		 *
+		 * @param left the result of the lower sub-range.
+		 * @param right the result of the upper sub-range.
+		 * @return the result of the union of both sub-ranges.
+		 */
+		Object/*{R}*/ combine(Object/*{R}*/ left, Object/*{R}*/ right);
+	}
+	/**
+	 * This interface represents a function applied to elements.
+	 */
+	public interface Function/*<T,R>*/ {
+		/**
+		 * Returns the result of this function for the specified element.
+		 *
+		 * @param value the element.
+		 * @return the function result.
+		 */
+		Object/*{R}*/ apply(Object/*{T}*/ value);
+	}
+	/**
+	 * This inner class represents a piece logic (piece index and bounds).
+	 */
+	private static abstract class Piece {
+		abstract void run(int index, int from, int to);
+	}
+	/**
+	 * This inner class represents a block prefix sum (one offset per piece).
+	 */
+	private static abstract class Scan {
+		// Allocates the pieces offsets (initially zero).
+		abstract void allocate(int pieces);
+		// Sets the offset of the specified piece to the sum of its elements.
+		abstract void sum(int index, int from, int to);
+		// Replaces the pieces sums by their exclusive prefix sums.
+		abstract void offsets();
+		// Scans the specified piece from its offset.
+		abstract void scan(int index, int from, int to);
+	}
+	/**
+	 * This inner class represents the prefix sum of integral elements
+	 * (<code>int</code> sums wrap the same when calculated on <code>long</code>).
+	 */
+	private static abstract class LongScan extends Scan {
+		private long[] _offsets;
+		abstract long get(int i);
+		abstract void set(int i, long value);
+		void allocate(int pieces) {
+			_offsets = new long[pieces];
+		}
+		void sum(int index, int from, int to) {
+			long sum = 0;
+			for(int i = from; i < to; i++) {
+				sum += get(i);
+			}
+			_offsets[index] = sum;
+		}
+		void offsets() {
+			long offset = 0;
+			for(int i = 0; i < _offsets.length; i++) {
+				final long sum = _offsets[i];
+				_offsets[i] = offset;
+				offset += sum;
+			}
+		}
+		void scan(int index, int from, int to) {
+			long sum = _offsets[index];
+			for(int i = from; i < to; i++) {
+				set(i, sum += get(i));
+			}
+		}
+	}
+	/**
+	 * This inner class represents the prefix sum of floating-point elements.
+	 */
+	private static abstract class DoubleScan extends Scan {
+		private double[] _offsets;
+		abstract double get(int i);
+		abstract void set(int i, double value);
+		void allocate(int pieces) {
+			_offsets = new double[pieces];
+		}
+		void sum(int index, int from, int to) {
+			double sum = 0;
+			for(int i = from; i < to; i++) {
+				sum += get(i);
+			}
+			_offsets[index] = sum;
+		}
+		void offsets() {
+			double offset = 0;
+			for(int i = 0; i < _offsets.length; i++) {
+				final double sum = _offsets[i];
+				_offsets[i] = offset;
+				offset += sum;
+			}
+		}
+		void scan(int index, int from, int to) {
+			double sum = _offsets[index];
+			for(int i = from; i < to; i++) {
+				set(i, sum += get(i));
+			}
+		}
+	}
+}
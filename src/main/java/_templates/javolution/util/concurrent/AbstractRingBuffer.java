@@ -0,0 +1,453 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.concurrent;
+import _templates.java.util.Collection;
+import _templates.javolution.lang.Reflection;
+/**
+ * <p> This class holds the logic common to the array-based ring buffers
+ *     ({@link RingBuffer}, {@link MPSCRingBuffer} and {@link SPSCRingBuffer}).</p>
+ *
+ * <p> Elements are stored in a pre-allocated array whose length is a power
+ *     of two; the free running <code>_head</code> (next take) and
+ *     <code>_tail</code> (next put) counters are volatile and each of them is
+ *     only written by one thread at a time (sub-classes serialize the
+ *     producers and/or the consumers when there are more than one).
+ *     A producer stores the element before publishing the new tail and a
+ *     consumer clears the slot before publishing the new head, so the fast
+ *     path never allocates and never blocks.</p>
+ *
+ * <p> Blocked threads first spin (multi-processors only), then yield and
+ *     eventually wait on the <code>_notEmpty</code> / <code>_notFull</code>
+ *     monitors. Waiters register themselves before re-checking the buffer;
+ *     the opposite side only synchronizes to notify them when there are
+ *     registered waiters.</p>
+ *
+ * @since 5.7.5
+ */
+abstract class AbstractRingBuffer implements BoundedChannel {
+	/**
+	 * Holds the number of busy-wait iterations before yielding (none on
+	 * uniprocessors).
+	 */
+	static final int SPINS = availableProcessors() > 1 ? 128 : 0;
+	/**
+	 * Holds the number of yields before waiting.
+	 */
+	static final int YIELDS = 8;
+	private static int availableProcessors() {
+		final Reflection.Method availableProcessors = Reflection.getInstance()
+				.getMethod("java.lang.Runtime.availableProcessors()");
+		if(availableProcessors != null) {
+			final Integer processors = (Integer) availableProcessors.invoke(Runtime.getRuntime());
+			return processors.intValue();
+		}
+		// J2ME.
+		return 1;
+	}
+	/**
+	 * Holds the elements (length is a power of two).
+	 */
+	private final Object[] _buffer;
+	/**
+	 * Holds the index mask (buffer length - 1).
+	 */
+	private final int _mask;
+	/**
+	 * Holds the capacity.
+	 */
+	private final int _capacity;
+	/**
+	 * Holds the number of elements taken (wraps around).
+	 */
+	private volatile int _head;
+	/**
+	 * Holds the number of elements put (wraps around).
+	 */
+	private volatile int _tail;
+	/**
+	 * Monitor of the consumers waiting for an element.
+	 */
+	private final Object _notEmpty = new Object();
+	/**
+	 * Monitor of the producers waiting for room.
+	 */
+	private final Object _notFull = new Object();
+	/**
+	 * Holds the number of consumers waiting on <code>_notEmpty</code>.
+	 */
+	private volatile int _takeWaiters;
+	/**
+	 * Holds the number of producers waiting on <code>_notFull</code>.
+	 */
+	private volatile int _putWaiters;
+	/**
+	 * Creates a ring buffer of specified capacity.
+	 *
+	 * @param capacity the maximum number of elements.
+	 * @exception IllegalArgumentException if capacity less or equal to zero
+	 */
+	AbstractRingBuffer(int capacity) {
+		if(capacity <= 0 || capacity > 1 << 30)
+			throw new IllegalArgumentException();
+		int length = 1;
+		while(length < capacity) {
+			length <<= 1;
+		}
+		_buffer = new Object[length];
+		_mask = length - 1;
+		_capacity = capacity;
+	}
+	/**
+	 * Inserts the specified element if there is room (does not block).
+	 * Sub-classes serialize concurrent producers if any.
+	 *
+	 * @param x the element to insert (non-null).
+	 * @return <code>true</code> if inserted; <code>false</code> if full.
+	 */
+	abstract boolean insert(Object x);
+	/**
+	 * Removes the first element if any (does not block).
+	 * Sub-classes serialize concurrent consumers if any.
+	 *
+	 * @return the element removed or <code>null</code> if empty.
+	 */
+	abstract Object extract();
+	/**
+	 * Inserts as many of the specified elements as there is room for
+	 * (does not block). Sub-classes serialize concurrent producers if any.
+	 *
+	 * @return the number of elements inserted.
+	 */
+	abstract int insert(Object[] items, int offset, int length);
+	/**
+	 * Removes up to <code>max</code> elements into the specified array
+	 * (if not <code>null</code>) or collection (does not block).
+	 * Sub-classes serialize concurrent consumers if any.
+	 *
+	 * @return the number of elements removed.
+	 */
+	abstract int extract(Object[] dst, int offset, Collection c, int max);
+	/**
+	 * Inserts the specified element if there is room; must not be called
+	 * concurrently by more than one thread.
+	 */
+	final boolean insertElement(Object x) {
+		final int tail = _tail;
+		if(tail - _head >= _capacity)
+			return false;
+		_buffer[tail & _mask] = x;
+		_tail = tail + 1; // Publishes.
+		return true;
+	}
+	/**
+	 * Removes the first element if any; must not be called concurrently by
+	 * more than one thread.
+	 */
+	final Object extractElement() {
+		final int head = _head;
+		if(head == _tail)
+			return null;
+		final int i = head & _mask;
+		final Object x = _buffer[i];
+		_buffer[i] = null;
+		_head = head + 1; // Publishes.
+		return x;
+	}
+	/**
+	 * Inserts as many elements as there is room for, publishing the new tail
+	 * once; must not be called concurrently by more than one thread.
+	 */
+	final int insertElements(Object[] items, int offset, int length) {
+		final int tail = _tail;
+		final int room = _capacity - (tail - _head);
+		final int n = room < length ? room : length;
+		for(int i = 0; i < n; i++) {
+			_buffer[tail + i & _mask] = items[offset + i];
+		}
+		_tail = tail + n; // Publishes.
+		return n;
+	}
+	/**
+	 * Removes up to max elements, publishing the new head once; must not be
+	 * called concurrently by more than one thread.
+	 */
+	final int extractElements(Object[] dst, int offset, Collection c, int max) {
+		final int head = _head;
+		final int size = _tail - head;
+		final int n = size < max ? size : max;
+		int i = 0;
+		try {
+			for(; i < n; i++) {
+				final int j = head + i & _mask;
+				if(dst != null) {
+					dst[offset + i] = _buffer[j];
+				}
+				else {
+					c.add(_buffer[j]);
+				}
+				_buffer[j] = null;
+			}
+		}
+		finally { // Publishes (the elements transferred if add fails).
+			_head = head + i;
+		}
+		return n;
+	}
+	/**
+	 * Returns the capacity of this ring buffer.
+	 */
+	public final int capacity() {
+		return _capacity;
+	}
+	/**
+	 * Returns the number of elements in the buffer. This is only a snapshot
+	 * value, that may be in the midst of changing.
+	 */
+	public final int size() {
+		final int head = _head;
+		final int size = _tail - head;
+		return size < 0 ? 0 : size > _capacity ? _capacity : size;
+	}
+	/**
+	 * Indicates if the buffer is empty (snapshot value).
+	 */
+	public final boolean isEmpty() {
+		return _tail == _head;
+	}
+	/**
+	 * Returns, but does not remove the first element or <code>null</code>
+	 * if empty. When there are concurrent consumers, the element returned
+	 * may already have been taken.
+	 */
+	public Object peek() {
+		final int head = _head;
+		if(head == _tail)
+			return null;
+		return _buffer[head & _mask];
+	}
+	public final void put(Object x) throws InterruptedException {
+		if(x == null)
+			throw new IllegalArgumentException();
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		if(insert(x) || spinInsert(x)) {
+			signalNotEmpty();
+			return;
+		}
+		awaitInsert(x, 0, false);
+	}
+	public final boolean offer(Object x, long msecs) throws InterruptedException {
+		if(x == null)
+			throw new IllegalArgumentException();
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		if(insert(x) || msecs > 0 && spinInsert(x)) {
+			signalNotEmpty();
+			return true;
+		}
+		return msecs > 0 && awaitInsert(x, msecs, true);
+	}
+	public final Object take() throws InterruptedException {
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		Object x = extract();
+		if(x == null) {
+			x = spinExtract();
+		}
+		if(x != null) {
+			signalNotFull();
+			return x;
+		}
+		return awaitExtract(0, false);
+	}
+	public final Object poll(long msecs) throws InterruptedException {
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		Object x = extract();
+		if(x == null && msecs > 0) {
+			x = spinExtract();
+		}
+		if(x != null) {
+			signalNotFull();
+			return x;
+		}
+		return msecs > 0 ? awaitExtract(msecs, true) : null;
+	}
+	public final void putAll(Object[] items, int offset, int length) throws InterruptedException {
+		for(int i = offset, end = offset + length; i < end; i++) {
+			if(items[i] == null)
+				throw new IllegalArgumentException();
+		}
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		while(length > 0) {
+			final int n = insert(items, offset, length);
+			if(n > 0) {
+				signalNotEmpty();
+				offset += n;
+				length -= n;
+			}
+			else { // Full, waits for room.
+				put(items[offset++]);
+				length--;
+			}
+		}
+	}
+	public final int drainTo(Collection c, int maxElements) {
+		if(c == null)
+			throw new IllegalArgumentException();
+		final int n = maxElements > 0 ? extract(null, 0, c, maxElements) : 0;
+		if(n > 0) {
+			signalNotFull();
+		}
+		return n;
+	}
+	public final int poll(Object[] dst, long msecs) throws InterruptedException {
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		if(dst.length == 0)
+			return 0;
+		int n = extract(dst, 0, null, dst.length);
+		if(n == 0) {
+			final Object x = poll(msecs); // Waits for the first one.
+			if(x == null)
+				return 0;
+			dst[0] = x;
+			n = 1 + extract(dst, 1, null, dst.length - 1);
+		}
+		signalNotFull();
+		return n;
+	}
+	// Spins then yields until the element is inserted or the spin count exhausted.
+	private boolean spinInsert(Object x) {
+		for(int i = SPINS + YIELDS; i > 0; i--) {
+			if(i <= YIELDS) {
+				Thread.yield();
+			}
+			if(insert(x))
+				return true;
+		}
+		return false;
+	}
+	// Spins then yields until an element is extracted or the spin count exhausted.
+	private Object spinExtract() {
+		for(int i = SPINS + YIELDS; i > 0; i--) {
+			if(i <= YIELDS) {
+				Thread.yield();
+			}
+			final Object x = extract();
+			if(x != null)
+				return x;
+		}
+		return null;
+	}
+	// Waits on _notFull until inserted (or timeout).
+	private boolean awaitInsert(Object x, long msecs, boolean timed) throws InterruptedException {
+		boolean inserted = false;
+		synchronized(_notFull) {
+			_putWaiters++; // Registers before re-checking.
+			try {
+				long waitTime = msecs;
+				final long start = timed ? System.currentTimeMillis() : 0;
+				for(;;) {
+					if(insert(x)) {
+						inserted = true;
+						break;
+					}
+					if(timed) {
+						if(waitTime <= 0)
+							break;
+						_notFull.wait(waitTime);
+						waitTime = msecs - (System.currentTimeMillis() - start);
+					}
+					else {
+						_notFull.wait();
+					}
+				}
+			}
+			finally {
+				// Passes the signal on if it may have been consumed for nothing.
+				if(--_putWaiters > 0 && size() < _capacity) {
+					_notFull.notify();
+				}
+			}
+		}
+		if(inserted) {
+			signalNotEmpty();
+		}
+		return inserted;
+	}
+	// Waits on _notEmpty until an element is extracted (or timeout).
+	private Object awaitExtract(long msecs, boolean timed) throws InterruptedException {
+		Object x = null;
+		synchronized(_notEmpty) {
+			_takeWaiters++; // Registers before re-checking.
+			try {
+				long waitTime = msecs;
+				final long start = timed ? System.currentTimeMillis() : 0;
+				for(;;) {
+					x = extract();
+					if(x != null)
+						break;
+					if(timed) {
+						if(waitTime <= 0)
+							break;
+						_notEmpty.wait(waitTime);
+						waitTime = msecs - (System.currentTimeMillis() - start);
+					}
+					else {
+						_notEmpty.wait();
+					}
+				}
+			}
+			finally {
+				// Passes the signal on if it may have been consumed for nothing.
+				if(--_takeWaiters > 0 && !isEmpty()) {
+					_notEmpty.notify();
+				}
+			}
+		}
+		if(x != null) {
+			signalNotFull();
+		}
+		return x;
+	}
+	/**
+	 * Wakes up a waiting consumer (if any), called after insertion.
+	 */
+	final void signalNotEmpty() {
+		if(_takeWaiters == 0)
+			return; // Shortcut to avoid synchronizing.
+		synchronized(_notEmpty) {
+			_notEmpty.notify();
+		}
+	}
+	/**
+	 * Wakes up a waiting producer (if any), called after extraction.
+	 */
+	final void signalNotFull() {
+		if(_putWaiters == 0)
+			return; // Shortcut to avoid synchronizing.
+		synchronized(_notFull) {
+			_notFull.notify();
+		}
+	}
+}
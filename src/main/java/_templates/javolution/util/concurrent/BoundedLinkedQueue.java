@@ -15,6 +15,7 @@
  * 27jan2000    dl             setCapacity forces immediate permit reconcile
  */
 package _templates.javolution.util.concurrent;
+import _templates.java.util.Collection;
 /**
  * A bounded variant of LinkedQueue class. This class may be preferable to
  * BoundedBuffer because it allows a bit more concurency among puts and takes,
@@ -166,6 +167,36 @@ public final class BoundedLinkedQueue implements BoundedChannel {
 			return x;
 		}
 	}
+	/**
+	 * Main mechanics for drainTo/poll(Object[], long): removes up to max
+	 * elements into the specified array (if not null) or collection.
+	 */
+	private synchronized int extract(Object[] dst, int offset, Collection c, int max) {
+		synchronized(_head) {
+			LinkedNode head = _head;
+			int n = 0;
+			try {
+				for(LinkedNode first; n < max && (first = head.next) != null; n++) {
+					if(dst != null) {
+						dst[offset + n] = first.value;
+					}
+					else {
+						c.add(first.value);
+					}
+					first.value = null;
+					head = first;
+				}
+			}
+			finally { // Publishes (the elements transferred if add fails).
+				if(n > 0) {
+					_head = head;
+					_takeSidePutPermits += n;
+					notify();
+				}
+			}
+			return n;
+		}
+	}
 	public Object peek() {
 		synchronized(_head) {
 			final LinkedNode first = _head.next;
@@ -243,6 +274,22 @@ public final class BoundedLinkedQueue implements BoundedChannel {
 			_last = p;
 		}
 	}
+	/**
+	 * Create and insert length nodes at once.
+	 * Call only under synch on putGuard_ (enough permits available)
+	 */
+	private void insert(Object[] items, int offset, int length) {
+		_putSidePutPermits -= length;
+		final LinkedNode first = new LinkedNode(items[offset]);
+		LinkedNode last = first;
+		for(int i = offset + 1, end = offset + length; i < end; i++) {
+			last = last.next = new LinkedNode(items[i]);
+		}
+		synchronized(_last) {
+			_last.next = first;
+			_last = last;
+		}
+	}
 	/*
 	 * put and offer(ms) differ only in policy before insert/allowTake
 	 */
@@ -315,6 +362,73 @@ public final class BoundedLinkedQueue implements BoundedChannel {
 		allowTake();
 		return true;
 	}
+	public void putAll(Object[] items, int offset, int length) throws InterruptedException {
+		for(int i = offset, end = offset + length; i < end; i++) {
+			if(items[i] == null)
+				throw new IllegalArgumentException();
+		}
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		while(length > 0) {
+			final int n;
+			synchronized(_putGuard) {
+				if(_putSidePutPermits < length) {
+					synchronized(this) {
+						if(reconcilePutPermits() <= 0) {
+							try {
+								for(;;) {
+									wait();
+									if(reconcilePutPermits() > 0) {
+										break;
+									}
+								}
+							}
+							catch(final InterruptedException ex) {
+								notify();
+								throw ex;
+							}
+						}
+					}
+				}
+				n = _putSidePutPermits < length ? _putSidePutPermits : length;
+				insert(items, offset, n);
+			}
+			// Wakes up takers before waiting for more permits.
+			synchronized(_takeGuard) {
+				if(n == 1) {
+					_takeGuard.notify();
+				}
+				else {
+					_takeGuard.notifyAll();
+				}
+			}
+			offset += n;
+			length -= n;
+		}
+	}
+	public int drainTo(Collection c, int maxElements) {
+		if(c == null)
+			throw new IllegalArgumentException();
+		return maxElements > 0 ? extract(null, 0, c, maxElements) : 0;
+	}
+	public int poll(Object[] dst, long msecs) throws InterruptedException {
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		if(dst.length == 0)
+			return 0;
+		final int n = extract(dst, 0, null, dst.length);
+		if(n > 0)
+			return n;
+		final Object x = poll(msecs); // Waits for the first one.
+		if(x == null)
+			return 0;
+		dst[0] = x;
+		return 1 + extract(dst, 1, null, dst.length - 1);
+	}
 	public boolean isEmpty() {
 		synchronized(_head) {
 			return _head.next == null;
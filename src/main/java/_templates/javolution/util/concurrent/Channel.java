@@ -12,6 +12,7 @@
  * 25aug1998    dl             added peek
  */
 package _templates.javolution.util.concurrent;
+import _templates.java.util.Collection;
 import _templates.javolution.util.concurrent.locks.Sync;
 /**
  * Main interface for buffers, queues, pipes, conduits, etc.
@@ -256,6 +257,23 @@ public interface Channel extends Puttable, Takable {
 	 * to be inserted (i.e., is equivalent to a false return).
 	 */
 	public boolean offer(Object item, long msecs) throws InterruptedException;
+	/**
+	 * Place the specified items in the channel (in order), possibly waiting
+	 * indefinitely until all of them are accepted. Implementations insert
+	 * as many items as possible per lock acquisition.
+	 * @param items the array holding the elements to be inserted.
+	 * @param offset the index of the first element to insert.
+	 * @param length the number of elements to insert. Should all be non-null.
+	 * @exception IllegalArgumentException if any of the elements is null
+	 * (in which case no element is inserted).
+	 * @exception InterruptedException if the current thread has
+	 * been interrupted at a point at which interruption
+	 * is detected, in which case some of the elements may have been
+	 * inserted. Otherwise, on normal return, all the elements are
+	 * guaranteed to have been inserted.
+	 * @since 5.7.5
+	 */
+	public void putAll(Object[] items, int offset, int length) throws InterruptedException;
 	/**
 	 * Return and remove an item from channel,
 	 * possibly waiting indefinitely until
@@ -284,6 +302,32 @@ public interface Channel extends Puttable, Takable {
 	 * (i.e., equivalent to a null return).
 	 */
 	public Object poll(long msecs) throws InterruptedException;
+	/**
+	 * Remove the items immediately available from channel (at most
+	 * maxElements) and add them to the specified collection (in order).
+	 * Never waits.
+	 * @param c the collection to which the items are added.
+	 * @param maxElements the maximum number of items to transfer.
+	 * @return the number of items transferred.
+	 * @since 5.7.5
+	 */
+	public int drainTo(Collection c, int maxElements);
+	/**
+	 * Remove items from channel into the specified array, waiting up to
+	 * msecs milliseconds for the first one to be available; then as many
+	 * items as immediately available are removed (at most
+	 * <code>dst.length</code>).
+	 * @param dst the array receiving the items (from index 0).
+	 * @param msecs the number of milliseconds to wait. If less than
+	 *  or equal to zero, the operation does not perform any timed waits.
+	 * @return the number of items removed (zero if the channel is empty).
+	 * @exception InterruptedException if the current thread has
+	 * been interrupted at a point at which interruption
+	 * is detected, in which case state of the channel is unchanged
+	 * (i.e., equivalent to a zero return).
+	 * @since 5.7.5
+	 */
+	public int poll(Object[] dst, long msecs) throws InterruptedException;
 	/**
 	 * Return, but do not remove object at head of Channel,
 	 * or null if it is empty.
@@ -0,0 +1,995 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.concurrent;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import _templates.java.io.ObjectInputStream;
+import _templates.java.io.ObjectOutputStream;
+import _templates.java.io.Serializable;
+import _templates.java.util.AbstractCollection;
+import _templates.java.util.AbstractMap;
+import _templates.java.util.AbstractSet;
+import _templates.java.util.Collection;
+import _templates.java.util.Iterator;
+import _templates.java.util.Map;
+import _templates.java.util.Set;
+/**
+ * <p> This class represents a hash table supporting full concurrency of
+ *     retrievals and high concurrency of updates, with atomic
+ *     <i>check-then-act</i> operations ({@link #putIfAbsent putIfAbsent},
+ *     {@link #computeIfAbsent computeIfAbsent}, {@link #compute compute},
+ *     {@link #merge merge}, ...) not requiring any external lock.</p>
+ *
+ * <p> Unlike {@link ConcurrentHashMap} (fixed number of segments, resizing
+ *     and clearing under all the segment locks):<ul>
+ *     <li> Retrievals never lock (even unsuccessful ones).</li>
+ *     <li> Updates only lock the bin holding the key (the monitor of the
+ *          first node of the bin).</li>
+ *     <li> The table is resized while updates proceed: bins are moved one
+ *          at a time, threads updating a bin already moved help moving the
+ *          remaining bins (cooperative resizing).</li>
+ *     </ul></p>
+ *
+ * <p> For example, a cache loading each value exactly once:[code]
+ *     ConcurrentHashMapV8 cache = new ConcurrentHashMapV8();
+ *     ConcurrentHashMapV8.Function loader = new ConcurrentHashMapV8.Function() {
+ *         public Object apply(Object key) {
+ *             return load(key); // Called at most once per key.
+ *         }
+ *     };
+ *     ...
+ *     Object value = cache.computeIfAbsent(key, loader);
+ *     [/code]
+ *     The functions of atomic operations are called while holding the
+ *     bin lock; they should be short and must not update this map.</p>
+ *
+ * <p> On Java 8 and later, <code>java.util.Map</code> declares default
+ *     <code>computeIfAbsent</code>, <code>computeIfPresent</code>,
+ *     <code>compute</code> and <code>merge</code> methods taking
+ *     <code>java.util.function</code> arguments. These defaults are NOT
+ *     atomic (the function may be called several times for the same key):
+ *     always pass {@link Function}/{@link BiFunction} instances. Lambda
+ *     arguments are ambiguous and have to be cast to the nested interfaces,
+ *     for example <code>cache.computeIfAbsent(key,
+ *     (ConcurrentHashMapV8.Function) k -&gt; load(k))</code>.</p>
+ *
+ * <p> Iterators are weakly consistent: they return the elements reflecting
+ *     the state of the map at some point at or since their creation and
+ *     never throw <code>ConcurrentModificationException</code>.
+ *     Like <code>java.util.Hashtable</code>, this class does NOT allow
+ *     <code>null</code> to be used as a key or value.</p>
+ *
+ * @see ConcurrentHashMap
+ * @since 5.7.5
+ */
+public final class ConcurrentHashMapV8 extends AbstractMap implements Map, Serializable {
+	/*
+	 * Table slots hold the first node of their bin. Updates of a non-empty
+	 * bin lock its first node and check that it is still the first node
+	 * (retrying otherwise); a slot is only written by the holder of the
+	 * monitor of its first node, or, while empty, by the holder of the
+	 * (striped) empty bin monitor. Functions computing the value of a key
+	 * in an empty bin run while holding a locked reservation node put in the
+	 * bin, never while holding an empty bin monitor. Nodes are appended at
+	 * the end of their chain (volatile next link), so that readers traverse
+	 * the chains without locking. Node keys are final; a null value can only
+	 * be observed through a racy read of a new node, in which case readers
+	 * lock the bin. The number of entries is held by a striped counter.
+	 *
+	 * Resizing splits the nodes of each bin into the two bins of the next
+	 * table (copying the nodes whose next link changes), then replaces the
+	 * bin with a forwarding node referring (final field) to the next table.
+	 * Readers and writers finding a forwarding node retry with the next
+	 * table; writers help moving the remaining bins first. The next table is
+	 * switched in when all the bins have been moved.
+	 */
+	/**
+	 * The default initial capacity.
+	 */
+	public static final int DEFAULT_INITIAL_CAPACITY = 16;
+	/**
+	 * The minimum table length.
+	 */
+	private static final int MINIMUM_CAPACITY = 16;
+	/**
+	 * The maximum table length.
+	 */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	/**
+	 * The maximum number of empty bin monitors.
+	 */
+	private static final int MAXIMUM_CONCURRENCY = 16 * Striped.STRIPES;
+	/**
+	 * The number of bins claimed at once by resizing threads.
+	 */
+	private static final int TRANSFER_STRIDE = 16;
+	/**
+	 * The operations performed by {@link #update}. Operations up to
+	 * <code>REPLACE</code> return the previous value, the others the new value.
+	 */
+	private static final int PUT = 0, PUT_IF_ABSENT = 1, REPLACE = 2, COMPUTE_IF_ABSENT = 3,
+			COMPUTE_IF_PRESENT = 4, COMPUTE = 5, MERGE = 6;
+	/**
+	 * The key of the node reserving an empty bin while its value is computed.
+	 */
+	private static final Object RESERVED = new Object();
+	/**
+	 * Holds the current table.
+	 */
+	private transient volatile Node[] _table;
+	/**
+	 * Holds the size at which the table is resized.
+	 */
+	private transient volatile int _threshold;
+	/**
+	 * Guards the resizing state below.
+	 */
+	private transient Object _resizeLock;
+	/**
+	 * Holds the monitors guarding the empty bins (power of two).
+	 */
+	private transient Object[] _emptyLocks;
+	/**
+	 * Holds the number of entries.
+	 */
+	private transient LongAdder _count;
+	/**
+	 * Holds the table being filled (null if not resizing).
+	 */
+	private transient Node[] _nextTable;
+	/**
+	 * Holds the upper index of the bins not yet claimed for transfer.
+	 */
+	private transient int _transferIndex;
+	/**
+	 * Holds the number of bins transferred.
+	 */
+	private transient int _transferred;
+	/**
+	 * Creates a map with the default initial capacity.
+	 */
+	public ConcurrentHashMapV8() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+	/**
+	 * Creates a map holding the specified number of entries without resizing.
+	 *
+	 * @param initialCapacity the initial capacity.
+	 * @throws IllegalArgumentException if the initial capacity is negative.
+	 */
+	public ConcurrentHashMapV8(int initialCapacity) {
+		if(initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal Initial Capacity: " + initialCapacity);
+		init(initialCapacity);
+	}
+	/**
+	 * Creates a map holding the mappings of the specified map.
+	 *
+	 * @param t the map whose mappings are copied.
+	 */
+	public ConcurrentHashMapV8(Map t) {
+		this(t.size());
+		putAll(t);
+	}
+	// Initializes the transient state.
+	private void init(int initialCapacity) {
+		final int size = initialCapacity + (initialCapacity >>> 1) + 1; // Load factor 0.75
+		int length = MINIMUM_CAPACITY;
+		while(length < size && length < MAXIMUM_CAPACITY) {
+			length <<= 1;
+		}
+		_resizeLock = new Object();
+		_emptyLocks = new Object[length < MAXIMUM_CONCURRENCY ? length : MAXIMUM_CONCURRENCY];
+		for(int i = 0; i < _emptyLocks.length; i++) {
+			_emptyLocks[i] = new Object();
+		}
+		_count = new LongAdder();
+		_threshold = length - (length >>> 2);
+		_table = new Node[length];
+	}
+	/**
+	 * Returns a hash code for the specified non-null key (same as
+	 * {@link ConcurrentHashMap}).
+	 */
+	private static int hash(Object x) {
+		final int h = x.hashCode();
+		return (h << 7) - h + (h >>> 9) + (h >>> 17);
+	}
+	/**
+	 * Check for equality of non-null references x and y.
+	 */
+	private static boolean eq(Object x, Object y) {
+		return x == y || x.equals(y);
+	}
+	/**
+	 * Returns the number of mappings in this map.
+	 *
+	 * @return the number of key-value mappings.
+	 */
+	public int size() {
+		final long n = count();
+		return n < 0 ? 0 : n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+	}
+	/**
+	 * Indicates if this map is empty.
+	 *
+	 * @return <code>true</code> if this map holds no mapping.
+	 */
+	public boolean isEmpty() {
+		return count() <= 0;
+	}
+	// Returns the number of entries (snapshot value).
+	private long count() {
+		return _count.get();
+	}
+	// Returns the monitor guarding the specified bin while empty.
+	private Object emptyLock(int i) {
+		return _emptyLocks[i & _emptyLocks.length - 1];
+	}
+	/**
+	 * Returns the value to which the specified key is mapped (never locks).
+	 *
+	 * @param key the key.
+	 * @return the value of the key or <code>null</code> if none.
+	 * @throws NullPointerException if the key is <code>null</code>.
+	 */
+	public Object get(Object key) {
+		final int hash = hash(key);
+		Node[] tab = _table;
+		for(;;) {
+			Node e = tab[hash & tab.length - 1];
+			if(e != null && e._key == null) { // Moved.
+				tab = ((Forward) e)._nextTable;
+				continue;
+			}
+			for(; e != null; e = e._next) {
+				if(e._hash == hash && eq(key, e._key)) {
+					final Object value = e._value;
+					return value != null ? value : lockedGet(key, hash, tab);
+				}
+			}
+			return null;
+		}
+	}
+	// Returns the value of the key while holding the bin lock.
+	private Object lockedGet(Object key, int hash, Node[] tab) {
+		for(;;) {
+			final int i = hash & tab.length - 1;
+			final Node first = tab[i];
+			if(first == null)
+				return null;
+			if(first._key == null) { // Moved.
+				tab = ((Forward) first)._nextTable;
+				continue;
+			}
+			synchronized(first) {
+				if(tab[i] != first)
+					continue; // First node changed, retries.
+				for(Node e = first; e != null; e = e._next) {
+					if(e._hash == hash && eq(key, e._key))
+						return e._value;
+				}
+				return null;
+			}
+		}
+	}
+	/**
+	 * Indicates if this map holds the specified key (never locks).
+	 *
+	 * @param key the key.
+	 * @return <code>true</code> if the key is mapped.
+	 * @throws NullPointerException if the key is <code>null</code>.
+	 */
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+	/**
+	 * Indicates if this map holds the specified value (traverses the map).
+	 *
+	 * @param value the value.
+	 * @return <code>true</code> if at least one key is mapped to the value.
+	 * @throws NullPointerException if the value is <code>null</code>.
+	 */
+	public boolean containsValue(Object value) {
+		if(value == null)
+			throw new NullPointerException();
+		for(final Iterator i = new HashIterator(HashIterator.VALUES); i.hasNext();) {
+			if(eq(value, i.next()))
+				return true;
+		}
+		return false;
+	}
+	/**
+	 * Associates the specified value with the specified key.
+	 *
+	 * @param key the key.
+	 * @param value the value.
+	 * @return the previous value of the key or <code>null</code> if none.
+	 * @throws NullPointerException if the key or the value is <code>null</code>.
+	 */
+	public Object put(Object key, Object value) {
+		if(value == null)
+			throw new NullPointerException();
+		return update(key, PUT, value, null, null);
+	}
+	/**
+	 * Associates the specified value with the specified key if the key is
+	 * not already mapped (atomic).
+	 *
+	 * @param key the key.
+	 * @param value the value.
+	 * @return the current value of the key (not replaced) or
+	 *         <code>null</code> if the value has been put.
+	 * @throws NullPointerException if the key or the value is <code>null</code>.
+	 */
+	public Object putIfAbsent(Object key, Object value) {
+		if(value == null)
+			throw new NullPointerException();
+		return update(key, PUT_IF_ABSENT, value, null, null);
+	}
+	/**
+	 * Copies all the mappings of the specified map to this map.
+	 *
+	 * @param t the mappings to be stored in this map.
+	 */
+	public void putAll(Map t) {
+		for(final Iterator i = t.entrySet().iterator(); i.hasNext();) {
+			final Map.Entry entry = (Map.Entry) i.next();
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+	/**
+	 * Removes the mapping of the specified key.
+	 *
+	 * @param key the key.
+	 * @return the previous value of the key or <code>null</code> if none.
+	 * @throws NullPointerException if the key is <code>null</code>.
+	 */
+	public Object remove(Object key) {
+		return update(key, REPLACE, null, null, null);
+	}
+	/**
+	 * Removes the mapping of the specified key only if it is currently
+	 * mapped to the specified value (atomic).
+	 *
+	 * @param key the key.
+	 * @param value the expected value.
+	 * @return <code>true</code> if the mapping has been removed.
+	 * @throws NullPointerException if the key is <code>null</code>.
+	 */
+	public boolean remove(Object key, Object value) {
+		return value != null && update(key, REPLACE, null, value, null) != null;
+	}
+	/**
+	 * Replaces the value of the specified key only if the key is mapped
+	 * (atomic).
+	 *
+	 * @param key the key.
+	 * @param value the new value.
+	 * @return the previous value of the key or <code>null</code> if none
+	 *         (nothing replaced).
+	 * @throws NullPointerException if the key or the value is <code>null</code>.
+	 */
+	public Object replace(Object key, Object value) {
+		if(value == null)
+			throw new NullPointerException();
+		return update(key, REPLACE, value, null, null);
+	}
+	/**
+	 * Replaces the value of the specified key only if it is currently
+	 * mapped to the specified value (atomic).
+	 *
+	 * @param key the key.
+	 * @param oldValue the expected value.
+	 * @param newValue the new value.
+	 * @return <code>true</code> if the value has been replaced.
+	 * @throws NullPointerException if any argument is <code>null</code>.
+	 */
+	public boolean replace(Object key, Object oldValue, Object newValue) {
+		if(oldValue == null || newValue == null)
+			throw new NullPointerException();
+		return update(key, REPLACE, newValue, oldValue, null) != null;
+	}
+	/**
+	 * Returns the value of the specified key, computing it with the
+	 * specified function if the key is not mapped (atomic: the function is
+	 * called at most once per absent key, concurrent callers for the same
+	 * key wait for the value).
+	 *
+	 * @param key the key.
+	 * @param function the function returning the value of the key
+	 *        (or <code>null</code> for no mapping).
+	 * @return the current (existing or computed) value of the key or
+	 *         <code>null</code> if none.
+	 * @throws NullPointerException if the key or the function is <code>null</code>.
+	 */
+	public Object computeIfAbsent(Object key, Function function) {
+		if(function == null)
+			throw new NullPointerException();
+		final Object value = get(key); // Lock-free fast path.
+		return value != null ? value : update(key, COMPUTE_IF_ABSENT, null, null, function);
+	}
+	/**
+	 * Computes the new value of the specified key from its current value
+	 * if the key is mapped (atomic).
+	 *
+	 * @param key the key.
+	 * @param function the function called with the key and its current
+	 *        value, returning the new value (or <code>null</code> to remove).
+	 * @return the new value of the key or <code>null</code> if none.
+	 * @throws NullPointerException if the key or the function is <code>null</code>.
+	 */
+	public Object computeIfPresent(Object key, BiFunction function) {
+		if(function == null)
+			throw new NullPointerException();
+		return update(key, COMPUTE_IF_PRESENT, null, null, function);
+	}
+	/**
+	 * Computes the new value of the specified key from its current value
+	 * (atomic).
+	 *
+	 * @param key the key.
+	 * @param function the function called with the key and its current
+	 *        value (or <code>null</code> if none), returning the new value
+	 *        (or <code>null</code> to remove).
+	 * @return the new value of the key or <code>null</code> if none.
+	 * @throws NullPointerException if the key or the function is <code>null</code>.
+	 */
+	public Object compute(Object key, BiFunction function) {
+		if(function == null)
+			throw new NullPointerException();
+		return update(key, COMPUTE, null, null, function);
+	}
+	/**
+	 * Associates the specified value with the specified key if not mapped;
+	 * otherwise replaces the current value with the result of the specified
+	 * function (atomic), for example to increment counters.
+	 *
+	 * @param key the key.
+	 * @param value the value to put or to merge.
+	 * @param function the function called with the current value and the
+	 *        specified value, returning the new value (or <code>null</code>
+	 *        to remove).
+	 * @return the new value of the key or <code>null</code> if none.
+	 * @throws NullPointerException if any argument is <code>null</code>.
+	 */
+	public Object merge(Object key, Object value, BiFunction function) {
+		if(value == null || function == null)
+			throw new NullPointerException();
+		return update(key, MERGE, value, null, function);
+	}
+	/**
+	 * Performs the specified update operation while holding the lock of
+	 * the key bin.
+	 */
+	private Object update(Object key, int op, Object value, Object expected, Object function) {
+		final int hash = hash(key);
+		Node[] tab = _table;
+		for(;;) {
+			final int i = hash & tab.length - 1;
+			final Node first = tab[i];
+			if(first == null) { // Empty bin.
+				if(op == COMPUTE_IF_ABSENT || op == COMPUTE) {
+					final Node reservation = new Node(hash, RESERVED, null);
+					synchronized(reservation) {
+						synchronized(emptyLock(i)) {
+							if(tab[i] != null)
+								continue; // No longer empty, retries.
+							tab[i] = reservation;
+						}
+						Object newValue = null;
+						try {
+							newValue = op == COMPUTE_IF_ABSENT ? ((Function) function).apply(key)
+									: ((BiFunction) function).apply(key, null);
+						}
+						finally {
+							tab[i] = newValue != null ? new Node(hash, key, newValue) : null;
+						}
+						if(newValue != null) {
+							_count.increment();
+						}
+						return newValue;
+					}
+				}
+				synchronized(emptyLock(i)) {
+					if(tab[i] != null)
+						continue; // No longer empty, retries.
+					if(op == REPLACE || op == COMPUTE_IF_PRESENT)
+						return null; // Not mapped.
+					tab[i] = new Node(hash, key, value); // PUT, PUT_IF_ABSENT or MERGE.
+				}
+				_count.increment();
+				return op <= REPLACE ? null : value;
+			}
+			if(first._key == null) { // Moved, helps resizing and retries.
+				transfer(tab, false);
+				tab = ((Forward) first)._nextTable;
+				continue;
+			}
+			final Object result;
+			synchronized(first) {
+				if(tab[i] != first)
+					continue; // First node changed, retries.
+				Node pred = null;
+				Node e = first;
+				while(e != null && (e._hash != hash || !eq(key, e._key))) {
+					pred = e;
+					e = e._next;
+				}
+				final Object old = e != null ? e._value : null;
+				final Object newValue;
+				switch(op) {
+					case PUT:
+						newValue = value;
+						break;
+					case PUT_IF_ABSENT:
+						if(old != null)
+							return old;
+						newValue = value;
+						break;
+					case REPLACE:
+						if(old == null || expected != null && !eq(expected, old))
+							return null;
+						newValue = value;
+						break;
+					case COMPUTE_IF_ABSENT:
+						if(old != null)
+							return old;
+						newValue = ((Function) function).apply(key);
+						break;
+					case COMPUTE_IF_PRESENT:
+						if(old == null)
+							return null;
+						newValue = ((BiFunction) function).apply(key, old);
+						break;
+					case COMPUTE:
+						newValue = ((BiFunction) function).apply(key, old);
+						break;
+					default: // MERGE
+						newValue = old == null ? value : ((BiFunction) function).apply(old, value);
+				}
+				if(newValue == null) {
+					if(e == null)
+						return null;
+					if(pred == null) {
+						tab[i] = e._next;
+					}
+					else {
+						pred._next = e._next;
+					}
+					_count.decrement();
+					return op <= REPLACE ? old : null;
+				}
+				if(e != null) {
+					e._value = newValue;
+					return op <= REPLACE ? old : newValue;
+				}
+				pred._next = new Node(hash, key, newValue); // Non-empty bin (pred not null).
+				result = op <= REPLACE ? null : newValue;
+			}
+			_count.increment();
+			if(count() >= _threshold) { // Collision in a loaded table.
+				transfer(_table, true);
+			}
+			return result;
+		}
+	}
+	/**
+	 * Moves the bins of the specified table to the next table (starts
+	 * resizing if <code>grow</code> and not already started). Threads
+	 * calling this method share the work (claiming bins by strides).
+	 */
+	private void transfer(Node[] tab, boolean grow) {
+		final Node[] next;
+		synchronized(_resizeLock) {
+			if(_table != tab)
+				return; // Already resized.
+			if(_nextTable == null) {
+				if(!grow || tab.length >= MAXIMUM_CAPACITY || count() < _threshold)
+					return;
+				_nextTable = new Node[tab.length << 1];
+				_transferIndex = tab.length;
+				_transferred = 0;
+			}
+			next = _nextTable;
+		}
+		final int n = tab.length;
+		for(;;) {
+			final int start, end;
+			synchronized(_resizeLock) {
+				if(_nextTable != next || _transferIndex <= 0)
+					return; // All bins claimed (or next resizing started).
+				end = _transferIndex;
+				start = end > TRANSFER_STRIDE ? end - TRANSFER_STRIDE : 0;
+				_transferIndex = start;
+			}
+			for(int i = start; i < end; i++) {
+				moveBin(tab, i, next);
+			}
+			synchronized(_resizeLock) {
+				_transferred += end - start;
+				if(_transferred == n) { // Done.
+					_threshold = next.length - (next.length >>> 2);
+					_table = next;
+					_nextTable = null;
+				}
+			}
+		}
+	}
+	// Splits the specified bin into the two bins of the next table.
+	private void moveBin(Node[] tab, int i, Node[] next) {
+		final int n = tab.length;
+		for(;;) {
+			final Node first = tab[i];
+			if(first == null) {
+				synchronized(emptyLock(i)) {
+					if(tab[i] != null)
+						continue; // No longer empty, retries.
+					tab[i] = new Forward(next);
+					return;
+				}
+			}
+			synchronized(first) {
+				if(tab[i] != first)
+					continue; // First node changed (or reservation done), retries.
+				// The last run of nodes going to the same bin is reused
+				// (unchanged next links), the nodes before are copied.
+				Node lastRun = first;
+				for(Node e = first; e != null; e = e._next) {
+					if((e._hash & n) != (lastRun._hash & n)) {
+						lastRun = e;
+					}
+				}
+				Node lo = null, hi = null;
+				if((lastRun._hash & n) == 0) {
+					lo = lastRun;
+				}
+				else {
+					hi = lastRun;
+				}
+				for(Node e = first; e != lastRun; e = e._next) {
+					final Node copy = new Node(e._hash, e._key, e._value);
+					if((e._hash & n) == 0) {
+						copy._next = lo;
+						lo = copy;
+					}
+					else {
+						copy._next = hi;
+						hi = copy;
+					}
+				}
+				next[i] = lo;
+				next[i + n] = hi;
+				tab[i] = new Forward(next); // Publishes the bins (final field).
+				return;
+			}
+		}
+	}
+	/**
+	 * Removes all the mappings of this map.
+	 */
+	public void clear() {
+		final Node[] tab = _table;
+		for(int i = 0; i < tab.length; i++) {
+			clear(tab, i);
+		}
+	}
+	// Clears the specified bin (and its forward bins if moved).
+	private void clear(Node[] tab, int i) {
+		for(;;) {
+			final Node first = tab[i];
+			if(first == null)
+				return;
+			if(first._key == null) { // Moved.
+				final Node[] forward = ((Forward) first)._nextTable;
+				clear(forward, i);
+				clear(forward, i + tab.length);
+				return;
+			}
+			int n = 0;
+			synchronized(first) {
+				if(tab[i] != first)
+					continue; // First node changed, retries.
+				for(Node e = first; e != null; e = e._next) {
+					n++;
+				}
+				tab[i] = null;
+			}
+			_count.add(-n);
+			return;
+		}
+	}
+	private transient Set _keySet;
+	private transient Collection _values;
+	private transient Set _entrySet;
+	/**
+	 * Returns a set view of the keys contained in this map (weakly
+	 * consistent iterator, supports removal).
+	 *
+	 * @return the keys view.
+	 */
+	public Set keySet() {
+		if(_keySet == null) {
+			_keySet = new AbstractSet() {
+				public Iterator iterator() {
+					return new HashIterator(HashIterator.KEYS);
+				}
+				public int size() {
+					return ConcurrentHashMapV8.this.size();
+				}
+				public boolean contains(Object o) {
+					return containsKey(o);
+				}
+				public boolean remove(Object o) {
+					return ConcurrentHashMapV8.this.remove(o) != null;
+				}
+				public void clear() {
+					ConcurrentHashMapV8.this.clear();
+				}
+			};
+		}
+		return _keySet;
+	}
+	/**
+	 * Returns a collection view of the values contained in this map (weakly
+	 * consistent iterator, supports removal).
+	 *
+	 * @return the values view.
+	 */
+	public Collection values() {
+		if(_values == null) {
+			_values = new AbstractCollection() {
+				public Iterator iterator() {
+					return new HashIterator(HashIterator.VALUES);
+				}
+				public int size() {
+					return ConcurrentHashMapV8.this.size();
+				}
+				public boolean contains(Object o) {
+					return containsValue(o);
+				}
+				public void clear() {
+					ConcurrentHashMapV8.this.clear();
+				}
+			};
+		}
+		return _values;
+	}
+	/**
+	 * Returns a set view of the mappings contained in this map (weakly
+	 * consistent iterator, supports removal). The entries are snapshots;
+	 * their <code>setValue</code> method writes through to this map.
+	 *
+	 * @return the entries view.
+	 */
+	public Set entrySet() {
+		if(_entrySet == null) {
+			_entrySet = new AbstractSet() {
+				public Iterator iterator() {
+					return new HashIterator(HashIterator.ENTRIES);
+				}
+				public int size() {
+					return ConcurrentHashMapV8.this.size();
+				}
+				public boolean contains(Object o) {
+					if(!(o instanceof Map.Entry))
+						return false;
+					final Map.Entry entry = (Map.Entry) o;
+					final Object key = entry.getKey();
+					final Object value = entry.getValue();
+					if(key == null || value == null)
+						return false;
+					final Object v = get(key);
+					return v != null && eq(value, v);
+				}
+				public boolean remove(Object o) {
+					if(!(o instanceof Map.Entry))
+						return false;
+					final Map.Entry entry = (Map.Entry) o;
+					final Object key = entry.getKey();
+					return key != null && ConcurrentHashMapV8.this.remove(key, entry.getValue());
+				}
+				public void clear() {
+					ConcurrentHashMapV8.this.clear();
+				}
+			};
+		}
+		return _entrySet;
+	}
+	/**
+	 * Save the state of this map to a stream (i.e., serialize it).
+	 *
+	 * @serialData the key (Object) and value (Object) of each mapping,
+	 *             followed by a null pair.
+	 */
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		s.writeInt(size());
+		for(final Iterator i = new HashIterator(HashIterator.ENTRIES); i.hasNext();) {
+			final Map.Entry entry = (Map.Entry) i.next();
+			s.writeObject(entry.getKey());
+			s.writeObject(entry.getValue());
+		}
+		s.writeObject(null);
+		s.writeObject(null);
+	}
+	/**
+	 * Reconstitute this map from a stream (i.e., deserialize it).
+	 */
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		init(s.readInt());
+		for(;;) {
+			final Object key = s.readObject();
+			final Object value = s.readObject();
+			if(key == null) {
+				break;
+			}
+			put(key, value);
+		}
+	}
+	/**
+	 * This interface represents the function computing the value of an
+	 * absent key (see {@link ConcurrentHashMapV8#computeIfAbsent}).
+	 */
+	public interface Function {
+		/**
+		 * Returns the value of the specified key.
+		 *
+		 * @param key the key.
+		 * @return the value or <code>null</code> for no mapping.
+		 */
+		Object apply(Object key);
+	}
+	/**
+	 * This interface represents the function computing a new value from
+	 * two arguments (see {@link ConcurrentHashMapV8#compute},
+	 * {@link ConcurrentHashMapV8#computeIfPresent} and
+	 * {@link ConcurrentHashMapV8#merge}).
+	 */
+	public interface BiFunction {
+		/**
+		 * Returns the new value.
+		 *
+		 * @param first the key (compute) or the current value (merge).
+		 * @param second the current value (compute) or the value to merge.
+		 * @return the new value or <code>null</code> to remove the mapping.
+		 */
+		Object apply(Object first, Object second);
+	}
+	/**
+	 * This class represents a mapping.
+	 */
+	private static class Node {
+		final int _hash;
+		final Object _key;
+		volatile Object _value;
+		volatile Node _next;
+		Node(int hash, Object key, Object value) {
+			_hash = hash;
+			_key = key;
+			_value = value;
+		}
+	}
+	/**
+	 * This class represents the node replacing a bin moved to the next
+	 * table (null key).
+	 */
+	private static final class Forward extends Node {
+		final Node[] _nextTable;
+		Forward(Node[] nextTable) {
+			super(0, null, null);
+			_nextTable = nextTable;
+		}
+	}
+	/**
+	 * This class represents a snapshot of a mapping (writes through).
+	 */
+	private final class MapEntry implements Map.Entry {
+		private final Object _key;
+		private Object _value;
+		MapEntry(Object key, Object value) {
+			_key = key;
+			_value = value;
+		}
+		public Object getKey() {
+			return _key;
+		}
+		public Object getValue() {
+			return _value;
+		}
+		public Object setValue(Object value) {
+			if(value == null)
+				throw new NullPointerException();
+			final Object old = _value;
+			_value = value;
+			put(_key, value);
+			return old;
+		}
+		public boolean equals(Object o) {
+			if(!(o instanceof Map.Entry))
+				return false;
+			final Map.Entry e = (Map.Entry) o;
+			return _key.equals(e.getKey()) && _value.equals(e.getValue());
+		}
+		public int hashCode() {
+			return _key.hashCode() ^ _value.hashCode();
+		}
+		public String toString() {
+			return _key + "=" + _value;
+		}
+	}
+	/**
+	 * This class represents the weakly consistent iterator over the keys,
+	 * values or entries. The nodes of each bin (including its forward bins
+	 * when moved) are collected before being returned.
+	 */
+	private final class HashIterator implements Iterator {
+		static final int KEYS = 0, VALUES = 1, ENTRIES = 2;
+		private final int _type;
+		private final Node[] _tab = _table;
+		private int _index;
+		private Node[] _nodes = new Node[4];
+		private int _size;
+		private int _next;
+		private Object _lastKey;
+		HashIterator(int type) {
+			_type = type;
+			advance();
+		}
+		// Collects the nodes of the next non-empty bin.
+		private void advance() {
+			_size = 0;
+			_next = 0;
+			while(_size == 0 && _index < _tab.length) {
+				collect(_tab, _index++);
+			}
+		}
+		private void collect(Node[] tab, int i) {
+			Node e = tab[i];
+			if(e != null && e._key == null) { // Moved.
+				final Node[] forward = ((Forward) e)._nextTable;
+				collect(forward, i);
+				collect(forward, i + tab.length);
+				return;
+			}
+			for(; e != null; e = e._next) {
+				if(e._key == RESERVED)
+					continue; // Value being computed.
+				if(_size == _nodes.length) {
+					final Node[] nodes = new Node[_size << 1];
+					System.arraycopy(_nodes, 0, nodes, 0, _size);
+					_nodes = nodes;
+				}
+				_nodes[_size++] = e;
+			}
+		}
+		public boolean hasNext() {
+			return _next < _size;
+		}
+		public Object next() {
+			if(_next >= _size)
+				throw new NoSuchElementException();
+			final Node node = _nodes[_next];
+			_nodes[_next++] = null;
+			final Object value = node._value;
+			_lastKey = node._key;
+			if(_next == _size) {
+				advance();
+			}
+			return _type == KEYS ? node._key : _type == VALUES ? value : new MapEntry(node._key, value);
+		}
+		public void remove() {
+			if(_lastKey == null)
+				throw new IllegalStateException();
+			ConcurrentHashMapV8.this.remove(_lastKey);
+			_lastKey = null;
+		}
+	}
+}
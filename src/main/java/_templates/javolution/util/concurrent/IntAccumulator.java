@@ -0,0 +1,131 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.concurrent;
+/**
+ * <p> This class represents an <code>int</code> value accumulated by many
+ *     threads using a {@link #SUM sum}, {@link #MAX maximum} or
+ *     {@link #MIN minimum} function (see {@link LongAccumulator}).</p>
+ *
+ * @see IntAdder
+ * @since 5.7.5
+ */
+public final class IntAccumulator extends Striped {
+	/**
+	 * Identifies the sum function.
+	 */
+	public static final int SUM = LongAccumulator.SUM;
+	/**
+	 * Identifies the maximum function.
+	 */
+	public static final int MAX = LongAccumulator.MAX;
+	/**
+	 * Identifies the minimum function.
+	 */
+	public static final int MIN = LongAccumulator.MIN;
+	/**
+	 * Holds the accumulator function.
+	 */
+	private final int _function;
+	/**
+	 * Holds the initial value (accounted for once by {@link #get}).
+	 */
+	private final int _identity;
+	/**
+	 * Holds the initial value of the cells (<code>0</code> for sums,
+	 * the identity value otherwise).
+	 */
+	private final int _neutral;
+	/**
+	 * Creates an accumulator for the specified function.
+	 *
+	 * @param function the function ({@link #SUM}, {@link #MAX} or {@link #MIN}).
+	 * @param identity the initial value (e.g. <code>0</code> for sums,
+	 *        <code>Integer.MIN_VALUE</code> for maximums).
+	 * @throws IllegalArgumentException if the function is unknown.
+	 */
+	public IntAccumulator(int function, int identity) {
+		super(function == SUM ? 0 : identity);
+		if(function < SUM || function > MIN)
+			throw new IllegalArgumentException("Unknown function: " + function);
+		_function = function;
+		_identity = identity;
+		_neutral = function == SUM ? 0 : identity;
+	}
+	/**
+	 * Accumulates the specified value.
+	 *
+	 * @param x the value to accumulate.
+	 */
+	public void accumulate(int x) {
+		final Cell cell = cell();
+		synchronized(cell) {
+			cell._value = apply((int) cell._value, x);
+		}
+	}
+	/**
+	 * Returns the current value.
+	 *
+	 * @return the function applied to the values of all the cells.
+	 */
+	public int get() {
+		int value = _identity;
+		for(int i = 0; i < STRIPES; i++) {
+			value = apply(value, (int) _cells[i]._value);
+		}
+		return value;
+	}
+	/**
+	 * Resets the value to the identity value.
+	 */
+	public void reset() {
+		reset(_neutral);
+	}
+	/**
+	 * Resets the value to the identity value and returns the value before
+	 * reset (each cell is atomically reset, no update is lost).
+	 *
+	 * @return the previous value.
+	 */
+	public int getAndReset() {
+		int value = _identity;
+		for(int i = 0; i < STRIPES; i++) {
+			final Cell cell = _cells[i];
+			synchronized(cell) {
+				value = apply(value, (int) cell._value);
+				cell._value = _neutral;
+			}
+		}
+		return value;
+	}
+	/**
+	 * Returns the function of this accumulator.
+	 *
+	 * @return {@link #SUM}, {@link #MAX} or {@link #MIN}.
+	 */
+	public int getFunction() {
+		return _function;
+	}
+	/**
+	 * Returns the textual representation of the current value.
+	 */
+	public String toString() {
+		return String.valueOf(get());
+	}
+	// Applies the function.
+	private int apply(int a, int b) {
+		switch(_function) {
+			case SUM:
+				return a + b;
+			case MAX:
+				return a >= b ? a : b;
+			default:
+				return a <= b ? a : b;
+		}
+	}
+}
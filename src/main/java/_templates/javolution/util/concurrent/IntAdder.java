@@ -0,0 +1,95 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.concurrent;
+/**
+ * <p> This class represents an <code>int</code> sum updated by many threads
+ *     (e.g. statistics, request metrics). Unlike {@link SynchronizedInt},
+ *     updates are spread over several padded cells (one monitor per cell)
+ *     and do not contend with each other unless performed by threads
+ *     sharing the same cell. Reading the sum does not lock.</p>
+ *
+ * <p> Updates do not return the new value (the sum is only computed by
+ *     {@link #get}); the value returned by {@link #get} is not an atomic
+ *     snapshot when updates are performed concurrently.</p>
+ *
+ * @see IntAccumulator
+ * @since 5.7.5
+ */
+public final class IntAdder extends Striped {
+	/**
+	 * Creates an adder with an initial sum of zero.
+	 */
+	public IntAdder() {
+		super(0);
+	}
+	/**
+	 * Adds the specified amount.
+	 *
+	 * @param amount the value to add.
+	 */
+	public void add(int amount) {
+		final Cell cell = cell();
+		synchronized(cell) {
+			cell._value += amount;
+		}
+	}
+	/**
+	 * Adds one.
+	 */
+	public void increment() {
+		add(1);
+	}
+	/**
+	 * Subtracts one.
+	 */
+	public void decrement() {
+		add(-1);
+	}
+	/**
+	 * Returns the current sum.
+	 *
+	 * @return the sum of all the cells.
+	 */
+	public int get() {
+		int sum = 0;
+		for(int i = 0; i < STRIPES; i++) {
+			sum += (int) _cells[i]._value;
+		}
+		return sum;
+	}
+	/**
+	 * Resets the sum to zero.
+	 */
+	public void reset() {
+		reset(0);
+	}
+	/**
+	 * Resets the sum to zero and returns the sum before reset (each cell is
+	 * atomically reset, no update is lost).
+	 *
+	 * @return the previous sum.
+	 */
+	public int getAndReset() {
+		int sum = 0;
+		for(int i = 0; i < STRIPES; i++) {
+			final Cell cell = _cells[i];
+			synchronized(cell) {
+				sum += (int) cell._value;
+				cell._value = 0;
+			}
+		}
+		return sum;
+	}
+	/**
+	 * Returns the textual representation of the current sum.
+	 */
+	public String toString() {
+		return String.valueOf(get());
+	}
+}
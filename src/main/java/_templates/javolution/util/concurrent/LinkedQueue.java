@@ -14,6 +14,7 @@
  * 10oct1999    dl             lock on node object to ensure visibility
  */
 package _templates.javolution.util.concurrent;
+import _templates.java.util.Collection;
 /**
  * A linked list based channel implementation.
  * The algorithm avoids contention between puts
@@ -66,6 +67,30 @@ public final class LinkedQueue implements Channel {
 			}
 		}
 	}
+	/**
+	 * Main mechanics for putAll: links the nodes at once.
+	 */
+	private void insert(Object[] items, int offset, int length) {
+		final LinkedNode first = new LinkedNode(items[offset]);
+		LinkedNode last = first;
+		for(int i = offset + 1, end = offset + length; i < end; i++) {
+			last = last.next = new LinkedNode(items[i]);
+		}
+		synchronized(_putLock) {
+			synchronized(_last) {
+				_last.next = first;
+				_last = last;
+			}
+			if(_waitingForTake > 0) {
+				if(length == 1) {
+					_putLock.notify();
+				}
+				else {
+					_putLock.notifyAll();
+				}
+			}
+		}
+	}
 	/**
 	 * Main mechanics for take/poll
 	 */
@@ -81,6 +106,32 @@ public final class LinkedQueue implements Channel {
 			return x;
 		}
 	}
+	/**
+	 * Main mechanics for drainTo/poll(Object[], long): removes up to max
+	 * elements into the specified array (if not null) or collection.
+	 */
+	private synchronized int extract(Object[] dst, int offset, Collection c, int max) {
+		synchronized(_head) {
+			LinkedNode head = _head;
+			int n = 0;
+			try {
+				for(LinkedNode first; n < max && (first = head.next) != null; n++) {
+					if(dst != null) {
+						dst[offset + n] = first.value;
+					}
+					else {
+						c.add(first.value);
+					}
+					first.value = null;
+					head = first;
+				}
+			}
+			finally { // Publishes (the elements transferred if add fails).
+				_head = head;
+			}
+			return n;
+		}
+	}
 	public void put(Object x) throws InterruptedException {
 		if(x == null)
 			throw new IllegalArgumentException();
@@ -100,6 +151,19 @@ public final class LinkedQueue implements Channel {
 		insert(x);
 		return true;
 	}
+	public void putAll(Object[] items, int offset, int length) throws InterruptedException {
+		for(int i = offset, end = offset + length; i < end; i++) {
+			if(items[i] == null)
+				throw new IllegalArgumentException();
+		}
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		if(length > 0) {
+			insert(items, offset, length);
+		}
+	}
 	public Object take() throws InterruptedException {
 		/*@JVM-1.1+@
 		if(Thread.interrupted())
@@ -171,4 +235,25 @@ public final class LinkedQueue implements Channel {
 			}
 		}
 	}
+	public int drainTo(Collection c, int maxElements) {
+		if(c == null)
+			throw new IllegalArgumentException();
+		return maxElements > 0 ? extract(null, 0, c, maxElements) : 0;
+	}
+	public int poll(Object[] dst, long msecs) throws InterruptedException {
+		/*@JVM-1.1+@
+		if(Thread.interrupted())
+			throw new InterruptedException();
+		/**/
+		if(dst.length == 0)
+			return 0;
+		final int n = extract(dst, 0, null, dst.length);
+		if(n > 0)
+			return n;
+		final Object x = poll(msecs); // Waits for the first one.
+		if(x == null)
+			return 0;
+		dst[0] = x;
+		return 1 + extract(dst, 1, null, dst.length - 1);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.concurrent;
+import _templates.java.util.Collection;
+/**
+ * <p> This class represents a {@link RingBuffer} with any number of
+ *     producers but a <b>single consumer</b> thread: puts are serialized,
+ *     takes are not synchronized (the consumer never locks unless it has
+ *     to wait for an element).</p>
+ *
+ * <p> Taking elements from more than one thread concurrently results in
+ *     undefined behavior.</p>
+ *
+ * @since 5.7.5
+ */
+public final class MPSCRingBuffer extends AbstractRingBuffer {
+	/**
+	 * Serializes the producers.
+	 */
+	private final Object _putLock = new Object();
+	/**
+	 * Creates a ring buffer of specified capacity.
+	 *
+	 * @param capacity the maximum number of elements.
+	 * @exception IllegalArgumentException if capacity less or equal to zero
+	 */
+	public MPSCRingBuffer(int capacity) {
+		super(capacity);
+	}
+	/**
+	 * Creates a ring buffer with the current default capacity.
+	 *
+	 * @see DefaultChannelCapacity
+	 */
+	public MPSCRingBuffer() {
+		this(DefaultChannelCapacity.get());
+	}
+	// Implements abstract method.
+	boolean insert(Object x) {
+		synchronized(_putLock) {
+			return insertElement(x);
+		}
+	}
+	// Implements abstract method.
+	Object extract() {
+		return extractElement();
+	}
+	// Implements abstract method.
+	int insert(Object[] items, int offset, int length) {
+		synchronized(_putLock) {
+			return insertElements(items, offset, length);
+		}
+	}
+	// Implements abstract method.
+	int extract(Object[] dst, int offset, Collection c, int max) {
+		return extractElements(dst, offset, c, max);
+	}
+}
@@ -54,4 +54,21 @@ public interface Puttable {
 	 * to be inserted (i.e., is equivalent to a false return).
 	 */
 	public boolean offer(Object item, long msecs) throws InterruptedException;
+	/**
+	 * Place the specified items in the channel (in order), possibly waiting
+	 * indefinitely until all of them are accepted. Implementations insert
+	 * as many items as possible per lock acquisition.
+	 * @param items the array holding the elements to be inserted.
+	 * @param offset the index of the first element to insert.
+	 * @param length the number of elements to insert. Should all be non-null.
+	 * @exception IllegalArgumentException if any of the elements is null
+	 * (in which case no element is inserted).
+	 * @exception InterruptedException if the current thread has
+	 * been interrupted at a point at which interruption
+	 * is detected, in which case some of the elements may have been
+	 * inserted. Otherwise, on normal return, all the elements are
+	 * guaranteed to have been inserted.
+	 * @since 5.7.5
+	 */
+	public void putAll(Object[] items, int offset, int length) throws InterruptedException;
 }
\ No newline at end of file
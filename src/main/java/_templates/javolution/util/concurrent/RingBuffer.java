@@ -0,0 +1,78 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.concurrent;
+import _templates.java.util.Collection;
+/**
+ * <p> This class represents a bounded channel backed by a pre-allocated
+ *     array (ring buffer) supporting any number of producers and consumers.
+ *     Unlike {@link BoundedLinkedQueue} no node is allocated per element.</p>
+ *
+ * <p> Puts and takes are serialized independently (one short monitor for
+ *     the producers, another one for the consumers), so that producers and
+ *     consumers never contend with each other unless the buffer is empty or
+ *     full. Blocked threads spin, yield and then wait (spin-then-park).</p>
+ *
+ * <p> If there is only one consumer thread (resp. one producer and one
+ *     consumer thread), {@link MPSCRingBuffer} (resp. {@link SPSCRingBuffer})
+ *     avoids synchronizing altogether on that side.</p>
+ *
+ * @see BoundedLinkedQueue
+ * @since 5.7.5
+ */
+public final class RingBuffer extends AbstractRingBuffer {
+	/**
+	 * Serializes the producers.
+	 */
+	private final Object _putLock = new Object();
+	/**
+	 * Serializes the consumers.
+	 */
+	private final Object _takeLock = new Object();
+	/**
+	 * Creates a ring buffer of specified capacity.
+	 *
+	 * @param capacity the maximum number of elements.
+	 * @exception IllegalArgumentException if capacity less or equal to zero
+	 */
+	public RingBuffer(int capacity) {
+		super(capacity);
+	}
+	/**
+	 * Creates a ring buffer with the current default capacity.
+	 *
+	 * @see DefaultChannelCapacity
+	 */
+	public RingBuffer() {
+		this(DefaultChannelCapacity.get());
+	}
+	// Implements abstract method.
+	boolean insert(Object x) {
+		synchronized(_putLock) {
+			return insertElement(x);
+		}
+	}
+	// Implements abstract method.
+	Object extract() {
+		synchronized(_takeLock) {
+			return extractElement();
+		}
+	}
+	// Implements abstract method.
+	int insert(Object[] items, int offset, int length) {
+		synchronized(_putLock) {
+			return insertElements(items, offset, length);
+		}
+	}
+	// Implements abstract method.
+	int extract(Object[] dst, int offset, Collection c, int max) {
+		synchronized(_takeLock) {
+			return extractElements(dst, offset, c, max);
+		}
+	}
+}
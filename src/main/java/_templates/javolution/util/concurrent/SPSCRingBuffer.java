@@ -0,0 +1,56 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.concurrent;
+import _templates.java.util.Collection;
+/**
+ * <p> This class represents a {@link RingBuffer} exchanging elements
+ *     between a <b>single producer</b> and a <b>single consumer</b> thread
+ *     (e.g. two stages of a pipeline). Neither puts nor takes are
+ *     synchronized; threads only lock when they have to wait.</p>
+ *
+ * <p> Putting (resp. taking) elements from more than one thread
+ *     concurrently results in undefined behavior.</p>
+ *
+ * @since 5.7.5
+ */
+public final class SPSCRingBuffer extends AbstractRingBuffer {
+	/**
+	 * Creates a ring buffer of specified capacity.
+	 *
+	 * @param capacity the maximum number of elements.
+	 * @exception IllegalArgumentException if capacity less or equal to zero
+	 */
+	public SPSCRingBuffer(int capacity) {
+		super(capacity);
+	}
+	/**
+	 * Creates a ring buffer with the current default capacity.
+	 *
+	 * @see DefaultChannelCapacity
+	 */
+	public SPSCRingBuffer() {
+		this(DefaultChannelCapacity.get());
+	}
+	// Implements abstract method.
+	boolean insert(Object x) {
+		return insertElement(x);
+	}
+	// Implements abstract method.
+	Object extract() {
+		return extractElement();
+	}
+	// Implements abstract method.
+	int insert(Object[] items, int offset, int length) {
+		return insertElements(items, offset, length);
+	}
+	// Implements abstract method.
+	int extract(Object[] dst, int offset, Collection c, int max) {
+		return extractElements(dst, offset, c, max);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.concurrent;
+import _templates.javolution.lang.Reflection;
+/**
+ * <p> This class holds the cells common to the striped counters
+ *     ({@link LongAdder}, {@link IntAdder}, {@link LongAccumulator} and
+ *     {@link IntAccumulator}).</p>
+ *
+ * <p> Updates are spread over a power of two number of cells (at least the
+ *     number of processors), each cell being guarded by its own monitor and
+ *     padded to sit on its own cache line. The cell of a thread is selected
+ *     from the thread identity hash code, so that a thread always updates
+ *     the same cell. Cell values are volatile and read without locking.</p>
+ *
+ * @since 5.7.5
+ */
+abstract class Striped {
+	/**
+	 * Holds the number of cells (power of two).
+	 */
+	static final int STRIPES = stripes();
+	private static int stripes() {
+		int processors = 1;
+		final Reflection.Method availableProcessors = Reflection.getInstance()
+				.getMethod("java.lang.Runtime.availableProcessors()");
+		if(availableProcessors != null) {
+			processors = ((Integer) availableProcessors.invoke(Runtime.getRuntime())).intValue();
+		}
+		int stripes = 1;
+		while(stripes < processors && stripes < 64) {
+			stripes <<= 1;
+		}
+		return stripes;
+	}
+	/**
+	 * Holds the cells.
+	 */
+	final Cell[] _cells = new Cell[STRIPES];
+	/**
+	 * Creates the cells with the specified initial value.
+	 */
+	Striped(long initialValue) {
+		for(int i = 0; i < STRIPES; i++) {
+			_cells[i] = new Cell(initialValue);
+		}
+	}
+	/**
+	 * Returns the cell of the current thread.
+	 */
+	final Cell cell() {
+		if(STRIPES == 1)
+			return _cells[0];
+		int h = System.identityHashCode(Thread.currentThread());
+		h ^= h >>> 16; // Spreads (identity hash codes may be aligned addresses).
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return _cells[h & STRIPES - 1];
+	}
+	/**
+	 * Sets all the cells to the specified value.
+	 */
+	final void reset(long value) {
+		for(int i = 0; i < STRIPES; i++) {
+			final Cell cell = _cells[i];
+			synchronized(cell) {
+				cell._value = value;
+			}
+		}
+	}
+	/**
+	 * This class represents a padded cell.
+	 */
+	static final class Cell {
+		long _p0, _p1, _p2, _p3, _p4, _p5, _p6; // Padding.
+		volatile long _value;
+		long _q0, _q1, _q2, _q3, _q4, _q5, _q6; // Padding.
+		Cell(long value) {
+			_value = value;
+		}
+	}
+}
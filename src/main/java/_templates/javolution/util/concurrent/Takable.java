@@ -11,6 +11,7 @@
  * 11Jun1998    dl             Create public version
  */
 package _templates.javolution.util.concurrent;
+import _templates.java.util.Collection;
 /**
  * This interface exists to enable stricter type checking
  * for channels. A method argument or instance variable
@@ -52,4 +53,30 @@ public interface Takable {
 	 * (i.e., equivalent to a false return).
 	 */
 	public Object poll(long msecs) throws InterruptedException;
+	/**
+	 * Remove the items immediately available from channel (at most
+	 * maxElements) and add them to the specified collection (in order).
+	 * Never waits.
+	 * @param c the collection to which the items are added.
+	 * @param maxElements the maximum number of items to transfer.
+	 * @return the number of items transferred.
+	 * @since 5.7.5
+	 */
+	public int drainTo(Collection c, int maxElements);
+	/**
+	 * Remove items from channel into the specified array, waiting up to
+	 * msecs milliseconds for the first one to be available; then as many
+	 * items as immediately available are removed (at most
+	 * <code>dst.length</code>).
+	 * @param dst the array receiving the items (from index 0).
+	 * @param msecs the number of milliseconds to wait. If less than
+	 *  or equal to zero, the operation does not perform any timed waits.
+	 * @return the number of items removed (zero if the channel is empty).
+	 * @exception InterruptedException if the current thread has
+	 * been interrupted at a point at which interruption
+	 * is detected, in which case state of the channel is unchanged
+	 * (i.e., equivalent to a zero return).
+	 * @since 5.7.5
+	 */
+	public int poll(Object[] dst, long msecs) throws InterruptedException;
 }
\ No newline at end of file
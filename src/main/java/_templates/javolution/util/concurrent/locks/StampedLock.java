@@ -0,0 +1,263 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2006 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.concurrent.locks;
+import _templates.java.util.HashMap;
+import _templates.javolution.lang.Reflection;
+/**
+ * <p> This class represents a read-write lock supporting optimistic reads.
+ *     Every write lock acquisition and release increments a volatile version
+ *     (odd while write-locked); an optimistic reader reads the version,
+ *     performs its (read-only) operation and then checks that the version
+ *     has not changed. No monitor is entered when there is no writer:
+ *     [code]
+ *         long stamp = lock.tryOptimisticRead();
+ *         if (stamp != 0) {
+ *             int n = size; // Reads fields (may be inconsistent).
+ *             if (lock.validate(stamp))
+ *                 return n; // Consistent.
+ *         }
+ *         stamp = lock.readLock(); // Falls back to the read lock.
+ *         try {
+ *             return size;
+ *         } finally {
+ *             lock.unlockRead(stamp);
+ *         }[/code]</p>
+ *
+ * <p> The operations performed between {@link #tryOptimisticRead} and
+ *     {@link #validate} may observe an object being modified; they should
+ *     only read fields (no side effects) and be prepared to fail (e.g.
+ *     {@link RuntimeException} caught and the operation retried under
+ *     the read lock).</p>
+ *
+ * <p> Pessimistic read and write locks are reentrant (as for
+ *     {@link ReentrantWriterPreferenceReadWriteLock}): a thread holding
+ *     the read lock is not blocked by waiting writers, the writer may
+ *     acquire the read or write lock again and the sole reader may acquire
+ *     the write lock. Their acquisition is not interruptible (the interrupt
+ *     status is restored once the lock is held). Waiting writers have
+ *     precedence over new readers.</p>
+ *
+ * @version 5.7.5
+ * @since 5.7.5
+ */
+public final class StampedLock {
+	/**
+	 * Holds the load fence ordering the optimistic reads before the
+	 * version check (JRE 9+) or <code>null</code> if not available.
+	 */
+	private static final Reflection.Method ACQUIRE_FENCE = Reflection.getInstance().getMethod("java.lang.invoke.VarHandle.acquireFence()");
+	/**
+	 * Holds the special Integer value one (single read hold).
+	 */
+	private static final Integer IONE = new Integer(1);
+	/**
+	 * Holds the version (odd while write-locked, never zero).
+	 */
+	private volatile long _version = 2;
+	/**
+	 * Holds the number of pessimistic readers (guarded by this).
+	 */
+	private int _readers;
+	/**
+	 * Holds the number of writers waiting (guarded by this).
+	 */
+	private int _waitingWriters;
+	/**
+	 * Holds the read holds per reader thread (guarded by this).
+	 */
+	private final HashMap _readHolds = new HashMap();
+	/**
+	 * Holds the writer thread (guarded by this).
+	 */
+	private Thread _writer;
+	/**
+	 * Holds the number of write holds by the writer thread (guarded by this).
+	 */
+	private int _writeHolds;
+	/**
+	 * Default constructor.
+	 */
+	public StampedLock() {}
+	/**
+	 * Returns a stamp to be {@link #validate validated} later or
+	 * <code>0</code> if this lock is currently write-locked.
+	 *
+	 * @return the optimistic read stamp or <code>0</code> if write-locked.
+	 */
+	public long tryOptimisticRead() {
+		final long version = _version;
+		return (version & 1) == 0 ? version : 0;
+	}
+	/**
+	 * Indicates if this lock has not been write-locked since the specified
+	 * stamp was issued. This method always returns <code>true</code>
+	 * for the stamp of a read lock currently held (unless the reader has
+	 * itself acquired the write lock since). The reads performed before
+	 * this call are ordered before the version check (load fence) when
+	 * the virtual machine supports it.
+	 *
+	 * @param stamp the stamp returned by {@link #tryOptimisticRead} or
+	 *        {@link #readLock}.
+	 * @return <code>true</code> if no write occurred since the stamp was
+	 *         issued; <code>false</code> otherwise.
+	 */
+	public boolean validate(long stamp) {
+		if(ACQUIRE_FENCE != null) {
+			ACQUIRE_FENCE.invoke(null);
+		}
+		return stamp != 0 && stamp == _version;
+	}
+	/**
+	 * Acquires the read lock, blocking while there is a writer
+	 * (active or waiting) unless the current thread already holds this lock.
+	 *
+	 * @return the stamp to be used to {@link #unlockRead unlock}.
+	 */
+	public long readLock() {
+		final Thread current = Thread.currentThread();
+		boolean wasInterrupted = false;
+		synchronized(this) {
+			final Integer holds = (Integer) _readHolds.get(current);
+			if(holds != null) { // Already held, does not wait for writers.
+				_readHolds.put(current, new Integer(holds.intValue() + 1));
+			}
+			else {
+				while((_writer != current) && (((_version & 1) != 0) || (_waitingWriters != 0))) {
+					try {
+						wait();
+					}
+					catch(final InterruptedException ex) {
+						wasInterrupted = true;
+					}
+				}
+				_readHolds.put(current, IONE);
+			}
+			++_readers;
+		}
+		if(wasInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return _version;
+	}
+	/**
+	 * Releases the read lock.
+	 *
+	 * @param stamp the stamp returned by {@link #readLock}.
+	 * @throws IllegalMonitorStateException if the current thread does not
+	 *         hold the read lock.
+	 */
+	public synchronized void unlockRead(long stamp) {
+		final Thread current = Thread.currentThread();
+		final Integer holds = (Integer) _readHolds.get(current);
+		if((holds == null) || (stamp == 0))
+			throw new IllegalMonitorStateException();
+		if(holds != IONE) { // More than one hold.
+			final int h = holds.intValue() - 1;
+			_readHolds.put(current, h == 1 ? IONE : new Integer(h));
+		}
+		else {
+			_readHolds.remove(current);
+		}
+		if((--_readers == 0) && (_waitingWriters != 0)) {
+			notifyAll();
+		}
+	}
+	/**
+	 * Acquires the write lock, blocking while the lock is held by another
+	 * writer or by other readers.
+	 *
+	 * @return the stamp to be used to {@link #unlockWrite unlock}.
+	 */
+	public long writeLock() {
+		final Thread current = Thread.currentThread();
+		boolean wasInterrupted = false;
+		final long stamp;
+		synchronized(this) {
+			if(_writer == current) { // Already held.
+				++_writeHolds;
+				return _version;
+			}
+			if(!canWrite(current)) {
+				++_waitingWriters;
+				try {
+					do {
+						try {
+							wait();
+						}
+						catch(final InterruptedException ex) {
+							wasInterrupted = true;
+						}
+					}
+					while(!canWrite(current));
+				}
+				finally {
+					--_waitingWriters;
+				}
+			}
+			_writer = current;
+			_writeHolds = 1;
+			stamp = ++_version; // Odd.
+		}
+		if(wasInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return stamp;
+	}
+	/**
+	 * Releases the write lock.
+	 *
+	 * @param stamp the stamp returned by {@link #writeLock}.
+	 * @throws IllegalMonitorStateException if the stamp does not match
+	 *         the current write lock.
+	 */
+	public synchronized void unlockWrite(long stamp) {
+		if((_writer != Thread.currentThread()) || (stamp != _version))
+			throw new IllegalMonitorStateException();
+		if(--_writeHolds != 0)
+			return;
+		_writer = null;
+		_version = stamp + 1;
+		notifyAll();
+	}
+	// Indicates if the specified thread may acquire the write lock (guarded by this).
+	private boolean canWrite(Thread thread) {
+		if((_version & 1) != 0)
+			return false; // Another writer.
+		if(_readers == 0)
+			return true;
+		final Integer holds = (Integer) _readHolds.get(thread);
+		return (holds != null) && (holds.intValue() == _readers); // Sole reader.
+	}
+	/**
+	 * Indicates if this lock is currently write-locked.
+	 *
+	 * @return <code>true</code> if a writer holds this lock;
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isWriteLocked() {
+		return (_version & 1) != 0;
+	}
+	/**
+	 * Returns the number of read locks currently held.
+	 *
+	 * @return the number of pessimistic readers.
+	 */
+	public synchronized int getReadLockCount() {
+		return _readers;
+	}
+	/**
+	 * Returns the textual representation of this lock.
+	 *
+	 * @return the lock state.
+	 */
+	public String toString() {
+		final long version = _version;
+		return super.toString() + ((version & 1) != 0 ? "[Write-locked]" : "[Version = " + version + "]");
+	}
+}
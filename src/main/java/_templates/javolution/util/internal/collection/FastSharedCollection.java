@@ -13,373 +13,169 @@ import _templates.java.util.List;
 import _templates.java.util.ListIterator;
 import _templates.javolution.lang.Reusable;
 import _templates.javolution.util.FastAbstractList;
-import _templates.javolution.util.concurrent.locks.ReadWriteLock;
-import _templates.javolution.util.concurrent.locks.ReentrantWriterPreferenceReadWriteLock;
-import _templates.javolution.util.concurrent.locks.Sync;
+import _templates.javolution.util.concurrent.locks.StampedLock;
 /**
- * A shared view over a collection (reads-write locks).
+ * A shared view over a collection (reentrant read-write lock). Constant time reads
+ * ({@link #size}, {@link #get}, {@link #head}...) are performed optimistically
+ * (no locking unless there is a concurrent write).
  */
 public final class FastSharedCollection extends FastAbstractList implements List, Reusable {
 	private final FastAbstractList list;
-	private final ReadWriteLock lock;
+	private final StampedLock lock;
 	public FastSharedCollection(FastAbstractList inner) {
 		list = inner;
-		lock = new ReentrantWriterPreferenceReadWriteLock();
+		lock = new StampedLock();
 	}
 	public boolean add(Object o) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						return list.add(o);
-					}
-					finally {
-						w.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.add(o);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public boolean remove(Object o) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						return list.remove(o);
-					}
-					finally {
-						w.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.remove(o);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public void add(int index, Object element) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						list.add(index, element);
-					}
-					finally {
-						w.release();
-					}
-					break;
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			list.add(index, element);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public boolean addAll(Collection c) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						return list.addAll(c);
-					}
-					finally {
-						w.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.addAll(unwrap(c));
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public boolean addAll(int index, Collection c) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						return list.addAll(index, c);
-					}
-					finally {
-						w.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.addAll(index, unwrap(c));
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public void clear() {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						list.clear();
-					}
-					finally {
-						w.release();
-					}
-					break;
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			list.clear();
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public boolean contains(Object o) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.contains(o);
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.contains(o);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public boolean containsAll(Collection c) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.containsAll(c);
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.containsAll(unwrap(c));
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public void delete(Record record) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						list.delete(record);
-					}
-					finally {
-						w.release();
-					}
-					break;
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			list.delete(record);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public Object get(int index) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
-		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.get(index);
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object value = list.get(index);
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write (or invalid index), retries with the read lock.
 			}
 		}
+		final long stamp = lock.readLock();
+		try {
+			return list.get(index);
+		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public Record head() {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			final Record head = list.head();
+			if(lock.validate(optimistic))
+				return head;
+		}
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.head();
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.head();
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public int indexOf(Object o) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.indexOf(o);
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.indexOf(o);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public boolean isEmpty() {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			final boolean isEmpty = list.isEmpty();
+			if(lock.validate(optimistic))
+				return isEmpty;
+		}
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.isEmpty();
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.isEmpty();
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public Iterator iterator() {
 		return list.iterator(); // Must be manually synched by user!
 	}
 	public int lastIndexOf(Object o) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.lastIndexOf(o);
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.lastIndexOf(o);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public ListIterator listIterator() {
@@ -389,279 +185,128 @@ public final class FastSharedCollection extends FastAbstractList implements List
 		return list.listIterator(index); // Must be manually synched by user!
 	}
 	public Object remove(int index) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						return list.remove(index);
-					}
-					finally {
-						w.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.remove(index);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public boolean removeAll(Collection c) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						return list.removeAll(c);
-					}
-					finally {
-						w.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.removeAll(unwrap(c));
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public void reset() {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						list.reset();
-					}
-					finally {
-						w.release();
-					}
-					break;
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			list.reset();
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public boolean retainAll(Collection c) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						return list.retainAll(c);
-					}
-					finally {
-						w.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.retainAll(unwrap(c));
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public Object set(int index, Object element) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						return list.set(index, element);
-					}
-					finally {
-						w.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.set(index, element);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public int size() {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			final int size = list.size();
+			if(lock.validate(optimistic))
+				return size;
+		}
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.size();
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.size();
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public List subList(int fromIndex, int toIndex) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.writeLock();
 		try {
-			final Sync w = lock.writeLock();
-			for(;;) {
-				try {
-					w.acquire();
-					try {
-						return list.subList(fromIndex, toIndex);
-					}
-					finally {
-						w.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.subList(fromIndex, toIndex);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockWrite(stamp);
 		}
 	}
 	public Record tail() {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			final Record tail = list.tail();
+			if(lock.validate(optimistic))
+				return tail;
+		}
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.tail();
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.tail();
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public Object[] toArray() {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.toArray();
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.toArray();
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public Object[] toArray(Object[] array) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
+		final long stamp = lock.readLock();
 		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.toArray(array);
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
-			}
+			return list.toArray(array);
 		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
 	public Object valueOf(Record record) {
-		boolean wasInterrupted = /*@JVM-1.1+@ true ? Thread.interrupted() : /**/false;
-		try {
-			final Sync r = lock.readLock();
-			for(;;) {
-				try {
-					r.acquire();
-					try {
-						return list.valueOf(record);
-					}
-					finally {
-						r.release();
-					}
-				}
-				catch(final InterruptedException ex) {
-					wasInterrupted = true;
-				}
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object value = list.valueOf(record);
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write, retries with the read lock.
 			}
 		}
+		final long stamp = lock.readLock();
+		try {
+			return list.valueOf(record);
+		}
 		finally {
-			if(wasInterrupted) {
-				Thread.currentThread().interrupt();
-			}
+			lock.unlockRead(stamp);
 		}
 	}
-}
\ No newline at end of file
+	private Collection unwrap(Collection c) { // Avoids locking again.
+		return c == this ? list : c;
+	}
+}
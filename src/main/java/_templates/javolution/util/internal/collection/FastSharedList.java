@@ -0,0 +1,431 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.internal.collection;
+import _templates.java.util.Collection;
+import _templates.java.util.Iterator;
+import _templates.java.util.List;
+import _templates.java.util.ListIterator;
+import _templates.javolution.text.Text;
+import _templates.javolution.util.FastCollection;
+import _templates.javolution.util.FastComparator;
+import _templates.javolution.util.FastList;
+import _templates.javolution.util.concurrent.locks.StampedLock;
+/**
+ * A shared view over a list (reentrant read-write lock), returned by
+ * {@link FastList#shared}. Reads which do not search the list ({@link #size},
+ * {@link #get}, {@link #getFirst}...) are performed optimistically (no locking
+ * unless there is a concurrent write).
+ */
+public final class FastSharedList/*<E>*/ extends FastList/*<E>*/ {
+	private final FastList/*<E>*/ list;
+	private final StampedLock lock;
+	public FastSharedList(FastList/*<E>*/ inner) {
+		list = inner;
+		lock = new StampedLock();
+	}
+	public Object/*{E}*/ get(int index) {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object/*{E}*/ value = list.get(index);
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write (or invalid index), retries with the read lock.
+			}
+		}
+		final long stamp = lock.readLock();
+		try {
+			return list.get(index);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Object/*{E}*/ set(int index, Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			return list.set(index, value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean add(Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			return list.add(value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object/*{E}*/ getFirst() {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object/*{E}*/ value = list.getFirst();
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write (or empty list), retries with the read lock.
+			}
+		}
+		final long stamp = lock.readLock();
+		try {
+			return list.getFirst();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Object/*{E}*/ getLast() {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object/*{E}*/ value = list.getLast();
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write (or empty list), retries with the read lock.
+			}
+		}
+		final long stamp = lock.readLock();
+		try {
+			return list.getLast();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public void addLast(Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			list.addLast(value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void addFirst(Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			list.addFirst(value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object/*{E}*/ removeLast() {
+		final long stamp = lock.writeLock();
+		try {
+			return list.removeLast();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object/*{E}*/ removeFirst() {
+		final long stamp = lock.writeLock();
+		try {
+			return list.removeFirst();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void addBefore(Node/*<E>*/ next, Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			list.addBefore(next, value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void clear() {
+		final long stamp = lock.writeLock();
+		try {
+			list.clear();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void reset() {
+		final long stamp = lock.writeLock();
+		try {
+			list.reset();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean addAll(int index, Collection/*<? extends E>*/ values) {
+		final long stamp = lock.writeLock();
+		try {
+			return list.addAll(index, unwrap(values));
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean addAll(Collection/*<? extends E>*/ c) {
+		final long stamp = lock.writeLock();
+		try {
+			return list.addAll(unwrap(c));
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void add(int index, Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			list.add(index, value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object/*{E}*/ remove(int index) {
+		final long stamp = lock.writeLock();
+		try {
+			return list.remove(index);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean remove(Object o) {
+		final long stamp = lock.writeLock();
+		try {
+			return list.remove(o);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public int indexOf(Object value) {
+		final long stamp = lock.readLock();
+		try {
+			return list.indexOf(value);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public int lastIndexOf(Object value) {
+		final long stamp = lock.readLock();
+		try {
+			return list.lastIndexOf(value);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public boolean contains(Object value) {
+		final long stamp = lock.readLock();
+		try {
+			return list.contains(value);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Iterator/*<E>*/ iterator() {
+		return list.iterator(); // Must be manually synched by user!
+	}
+	public ListIterator/*<E>*/ listIterator() {
+		return list.listIterator(); // Must be manually synched by user!
+	}
+	public ListIterator/*<E>*/ listIterator(int index) {
+		return list.listIterator(index); // Must be manually synched by user!
+	}
+	public List/*<E>*/ subList(int fromIndex, int toIndex) {
+		final long stamp = lock.writeLock();
+		try {
+			return list.subList(fromIndex, toIndex);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public FastList/*<E>*/ setValueComparator(FastComparator/*<? super E>*/ comparator) {
+		final long stamp = lock.writeLock();
+		try {
+			list.setValueComparator(comparator);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+		return this;
+	}
+	public FastComparator/*<? super E>*/ getValueComparator() {
+		return list.getValueComparator();
+	}
+	public int size() {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			final int size = list.size();
+			if(lock.validate(optimistic))
+				return size;
+		}
+		final long stamp = lock.readLock();
+		try {
+			return list.size();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public boolean isEmpty() {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			final boolean isEmpty = list.isEmpty();
+			if(lock.validate(optimistic))
+				return isEmpty;
+		}
+		final long stamp = lock.readLock();
+		try {
+			return list.isEmpty();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Record/*Node<E>*/ head() {
+		return list.head(); // Constant.
+	}
+	public Record/*Node<E>*/ tail() {
+		return list.tail(); // Constant.
+	}
+	public Object/*{E}*/ valueOf(Record record) {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object/*{E}*/ value = list.valueOf(record);
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write, retries with the read lock.
+			}
+		}
+		final long stamp = lock.readLock();
+		try {
+			return list.valueOf(record);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public void delete(Record record) {
+		final long stamp = lock.writeLock();
+		try {
+			list.delete(record);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public FastCollection/*FastList<E>*/ unmodifiable() {
+		final long stamp = lock.readLock();
+		try {
+			return list.unmodifiable();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public FastCollection/*FastList<E>*/ shared() {
+		return this;
+	}
+	public boolean containsAll(Collection/*<?>*/ c) {
+		final long stamp = lock.readLock();
+		try {
+			return list.containsAll(unwrap(c));
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public boolean removeAll(Collection/*<?>*/ c) {
+		final long stamp = lock.writeLock();
+		try {
+			return list.removeAll(unwrap(c));
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean retainAll(Collection/*<?>*/ c) {
+		final long stamp = lock.writeLock();
+		try {
+			return list.retainAll(unwrap(c));
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object[] toArray() {
+		final long stamp = lock.readLock();
+		try {
+			return list.toArray();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Object/*{<T> T}*/[] toArray(Object/*{T}*/[] array) {
+		final long stamp = lock.readLock();
+		try {
+			return list.toArray(array);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Text toText() {
+		final long stamp = lock.readLock();
+		try {
+			return list.toText();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public boolean equals(Object obj) {
+		final long stamp = lock.readLock();
+		try {
+			return list.equals(unwrap(obj));
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public int hashCode() {
+		final long stamp = lock.readLock();
+		try {
+			return list.hashCode();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	private Object unwrap(Object obj) { // Avoids locking again.
+		return obj == this ? list : obj;
+	}
+	private Collection unwrap(Collection c) {
+		return c == this ? list : c;
+	}
+}
@@ -0,0 +1,490 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.internal.collection;
+import _templates.java.util.Collection;
+import _templates.java.util.Iterator;
+import _templates.java.util.List;
+import _templates.java.util.ListIterator;
+import _templates.javolution.text.Text;
+import _templates.javolution.util.FastCollection;
+import _templates.javolution.util.FastComparator;
+import _templates.javolution.util.FastTable;
+import _templates.javolution.util.concurrent.locks.StampedLock;
+/**
+ * A shared view over a table (reentrant read-write lock), returned by
+ * {@link FastTable#shared}. Constant time reads ({@link #size}, {@link #get},
+ * {@link #getLast}...) are performed optimistically (no locking unless there
+ * is a concurrent write).
+ */
+public final class FastSharedTable/*<E>*/ extends FastTable/*<E>*/ {
+	private final FastTable/*<E>*/ table;
+	private final StampedLock lock;
+	public FastSharedTable(FastTable/*<E>*/ inner) {
+		table = inner;
+		lock = new StampedLock();
+	}
+	public void setSize(int size) {
+		final long stamp = lock.writeLock();
+		try {
+			table.setSize(size);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object/*{E}*/ get(int index) {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object/*{E}*/ value = table.get(index);
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write (or invalid index), retries with the read lock.
+			}
+		}
+		final long stamp = lock.readLock();
+		try {
+			return table.get(index);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Object/*{E}*/ set(int index, Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.set(index, value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean add(Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.add(value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object/*{E}*/ getFirst() {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object/*{E}*/ value = table.getFirst();
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write (or empty table), retries with the read lock.
+			}
+		}
+		final long stamp = lock.readLock();
+		try {
+			return table.getFirst();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Object/*{E}*/ getLast() {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object/*{E}*/ value = table.getLast();
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write (or empty table), retries with the read lock.
+			}
+		}
+		final long stamp = lock.readLock();
+		try {
+			return table.getLast();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public void addLast(Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			table.addLast(value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object/*{E}*/ removeLast() {
+		final long stamp = lock.writeLock();
+		try {
+			return table.removeLast();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void clear() {
+		final long stamp = lock.writeLock();
+		try {
+			table.clear();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void reset() {
+		final long stamp = lock.writeLock();
+		try {
+			table.reset();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean addAll(int index, Collection/*<? extends E>*/ values) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.addAll(index, unwrap(values));
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean addAll(Collection/*<? extends E>*/ c) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.addAll(unwrap(c));
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void add(int index, Object/*{E}*/ value) {
+		final long stamp = lock.writeLock();
+		try {
+			table.add(index, value);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object/*{E}*/ remove(int index) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.remove(index);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean remove(Object o) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.remove(o);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void removeRange(int fromIndex, int toIndex) {
+		final long stamp = lock.writeLock();
+		try {
+			table.removeRange(fromIndex, toIndex);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public int indexOf(Object value) {
+		final long stamp = lock.readLock();
+		try {
+			return table.indexOf(value);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public int lastIndexOf(Object value) {
+		final long stamp = lock.readLock();
+		try {
+			return table.lastIndexOf(value);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public boolean contains(Object value) {
+		final long stamp = lock.readLock();
+		try {
+			return table.contains(value);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Iterator/*<E>*/ iterator() {
+		return table.iterator(); // Must be manually synched by user!
+	}
+	public ListIterator/*<E>*/ listIterator() {
+		return table.listIterator(); // Must be manually synched by user!
+	}
+	public ListIterator/*<E>*/ listIterator(int index) {
+		return table.listIterator(index); // Must be manually synched by user!
+	}
+	public List/*<E>*/ subList(int fromIndex, int toIndex) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.subList(fromIndex, toIndex);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public void trimToSize() {
+		final long stamp = lock.writeLock();
+		try {
+			table.trimToSize();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public FastTable/*<E>*/ sort() {
+		final long stamp = lock.writeLock();
+		try {
+			table.sort();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+		return this;
+	}
+	public FastTable/*<E>*/ parallelSort() {
+		final long stamp = lock.writeLock();
+		try {
+			table.parallelSort();
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+		return this;
+	}
+	public void parallelForEach(Consumer/*<? super E>*/ consumer) {
+		final long stamp = lock.readLock();
+		try {
+			table.parallelForEach(consumer);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public int parallelIndexOf(Object value) {
+		final long stamp = lock.readLock();
+		try {
+			return table.parallelIndexOf(value);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public boolean parallelRemoveAll(Collection/*<?>*/ c) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.parallelRemoveAll(unwrap(c));
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public FastTable/*<E>*/ setValueComparator(FastComparator/*<? super E>*/ comparator) {
+		final long stamp = lock.writeLock();
+		try {
+			table.setValueComparator(comparator);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+		return this;
+	}
+	public FastComparator/*<? super E>*/ getValueComparator() {
+		return table.getValueComparator();
+	}
+	public int size() {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			final int size = table.size();
+			if(lock.validate(optimistic))
+				return size;
+		}
+		final long stamp = lock.readLock();
+		try {
+			return table.size();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public boolean isEmpty() {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			final boolean isEmpty = table.isEmpty();
+			if(lock.validate(optimistic))
+				return isEmpty;
+		}
+		final long stamp = lock.readLock();
+		try {
+			return table.isEmpty();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Record head() {
+		return table.head(); // Constant.
+	}
+	public Record tail() {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			final Record tail = table.tail();
+			if(lock.validate(optimistic))
+				return tail;
+		}
+		final long stamp = lock.readLock();
+		try {
+			return table.tail();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Object/*{E}*/ valueOf(Record record) {
+		final long optimistic = lock.tryOptimisticRead();
+		if(optimistic != 0) {
+			try {
+				final Object/*{E}*/ value = table.valueOf(record);
+				if(lock.validate(optimistic))
+					return value;
+			}
+			catch(final RuntimeException e) {
+				// Concurrent write, retries with the read lock.
+			}
+		}
+		final long stamp = lock.readLock();
+		try {
+			return table.valueOf(record);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public void delete(Record record) {
+		final long stamp = lock.writeLock();
+		try {
+			table.delete(record);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public FastCollection/*FastTable<E>*/ unmodifiable() {
+		final long stamp = lock.readLock();
+		try {
+			return table.unmodifiable();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public FastCollection/*FastTable<E>*/ shared() {
+		return this;
+	}
+	public boolean containsAll(Collection/*<?>*/ c) {
+		final long stamp = lock.readLock();
+		try {
+			return table.containsAll(unwrap(c));
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public boolean removeAll(Collection/*<?>*/ c) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.removeAll(unwrap(c));
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public boolean retainAll(Collection/*<?>*/ c) {
+		final long stamp = lock.writeLock();
+		try {
+			return table.retainAll(unwrap(c));
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	public Object[] toArray() {
+		final long stamp = lock.readLock();
+		try {
+			return table.toArray();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Object/*{<T> T}*/[] toArray(Object/*{T}*/[] array) {
+		final long stamp = lock.readLock();
+		try {
+			return table.toArray(array);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public Text toText() {
+		final long stamp = lock.readLock();
+		try {
+			return table.toText();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public boolean equals(Object obj) {
+		final long stamp = lock.readLock();
+		try {
+			return table.equals(unwrap(obj));
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	public int hashCode() {
+		final long stamp = lock.readLock();
+		try {
+			return table.hashCode();
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	private Object unwrap(Object obj) { // Avoids locking again.
+		return obj == this ? table : obj;
+	}
+	private Collection unwrap(Collection c) {
+		return c == this ? table : c;
+	}
+}
@@ -0,0 +1,357 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2005 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.primitive;
+import java.io.IOException;
+import _templates.java.io.ObjectInputStream;
+import _templates.java.io.ObjectOutputStream;
+import _templates.java.io.Serializable;
+import _templates.java.lang.CloneNotSupportedException;
+import _templates.java.lang.Cloneable;
+import _templates.java.lang.UnsupportedOperationException;
+import _templates.javolution.context.ObjectFactory;
+import _templates.javolution.lang.Reusable;
+/**
+ * Implement <code>FastMap</code> for <code>long</code> keys and values.
+ * Open-addressing hash table (linear probing), neither keys nor values
+ * are boxed. Queries for absent keys return <code>0</code> unless a default
+ * value is specified. Instances are {@link Reusable} (see
+ * {@link #newInstance()} and {@link #recycle(FastLongLongMap)}).
+ * @since 5.7.5
+ */
+public class FastLongLongMap implements Reusable, Cloneable, Serializable {
+	public static final int DEFAULT_INITIAL_CAPACITY = 16;
+	private static final long FREE_KEY = 0; // Key 0 is held outside of the table.
+	private transient long[] keys;
+	private transient long[] values;
+	private transient boolean hasFreeKey;
+	private transient long freeValue;
+	private transient int mask;
+	private transient int threshold;
+	private int size;
+	public FastLongLongMap() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+	public FastLongLongMap(int initialCapacity) {
+		if(initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		allocate(tableLengthFor(initialCapacity));
+	}
+	/**
+	 * Returns a potentially {@link #recycle recycled} map instance.
+	 *
+	 * @return a new, preallocated or recycled map instance.
+	 */
+	public static FastLongLongMap newInstance() {
+		return (FastLongLongMap) FACTORY.object();
+	}
+	/**
+	 * Recycles the specified map instance.
+	 *
+	 * @param instance the map instance to recycle.
+	 */
+	public static void recycle(FastLongLongMap instance) {
+		FACTORY.recycle(instance);
+	}
+	public int size() {
+		return size;
+	}
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	public boolean containsKey(long key) {
+		if(key == FREE_KEY)
+			return hasFreeKey;
+		return indexOf(key) >= 0;
+	}
+	public boolean containsValue(long value) {
+		if(hasFreeKey && freeValue == value)
+			return true;
+		for(int i = keys.length; --i >= 0;) {
+			if(keys[i] != FREE_KEY && values[i] == value)
+				return true;
+		}
+		return false;
+	}
+	public long get(long key) {
+		return get(key, 0);
+	}
+	public long get(long key, long defaultValue) {
+		if(key == FREE_KEY)
+			return hasFreeKey ? freeValue : defaultValue;
+		final int i = indexOf(key);
+		return i >= 0 ? values[i] : defaultValue;
+	}
+	public long put(long key, long value) {
+		if(key == FREE_KEY) {
+			final long old = freeValue;
+			if(!hasFreeKey) {
+				hasFreeKey = true;
+				++size;
+			}
+			freeValue = value;
+			return old;
+		}
+		for(int i = hash(key) & mask;; i = i + 1 & mask) {
+			final long k = keys[i];
+			if(k == FREE_KEY) {
+				keys[i] = key;
+				values[i] = value;
+				if(++size >= threshold) {
+					rehash(keys.length << 1);
+				}
+				return 0;
+			}
+			if(k == key) {
+				final long old = values[i];
+				values[i] = value;
+				return old;
+			}
+		}
+	}
+	/**
+	 * Adds the specified increment to the value associated to the specified
+	 * key (a missing mapping counts as <code>0</code>).
+	 *
+	 * @param key the key.
+	 * @param delta the increment.
+	 * @return the new value associated to the key.
+	 */
+	public long add(long key, long delta) {
+		if(key == FREE_KEY) {
+			if(!hasFreeKey) {
+				hasFreeKey = true;
+				++size;
+			}
+			return freeValue += delta;
+		}
+		for(int i = hash(key) & mask;; i = i + 1 & mask) {
+			final long k = keys[i];
+			if(k == FREE_KEY) {
+				keys[i] = key;
+				values[i] = delta;
+				if(++size >= threshold) {
+					rehash(keys.length << 1);
+				}
+				return delta;
+			}
+			if(k == key)
+				return values[i] += delta;
+		}
+	}
+	public long remove(long key) {
+		if(key == FREE_KEY) {
+			if(!hasFreeKey)
+				return 0;
+			final long old = freeValue;
+			hasFreeKey = false;
+			freeValue = 0;
+			--size;
+			return old;
+		}
+		final int i = indexOf(key);
+		if(i < 0)
+			return 0;
+		final long old = values[i];
+		shiftKeys(i);
+		--size;
+		return old;
+	}
+	public void clear() {
+		if(size == 0)
+			return;
+		for(int i = keys.length; --i >= 0;) {
+			keys[i] = FREE_KEY;
+		}
+		hasFreeKey = false;
+		freeValue = 0;
+		size = 0;
+	}
+	// Implements Reusable.
+	public void reset() {
+		clear();
+	}
+	public long[] keys() {
+		final long[] a = new long[size];
+		int n = 0;
+		if(hasFreeKey) {
+			a[n++] = FREE_KEY;
+		}
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				a[n++] = keys[i];
+			}
+		}
+		return a;
+	}
+	public long[] values() {
+		final long[] a = new long[size];
+		int n = 0;
+		if(hasFreeKey) {
+			a[n++] = freeValue;
+		}
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				a[n++] = values[i];
+			}
+		}
+		return a;
+	}
+	public Object/*FastLongLongMap*/ clone() throws CloneNotSupportedException {
+		/*@JVM-1.1+@
+		if(true) {
+			final FastLongLongMap c = (FastLongLongMap) super.clone();
+			c.keys = new long[keys.length];
+			System.arraycopy(keys, 0, c.keys, 0, keys.length);
+			c.values = new long[values.length];
+			System.arraycopy(values, 0, c.values, 0, values.length);
+			return c;
+		}
+		/**/
+		throw new UnsupportedOperationException("J2ME Not Supported Yet");
+	}
+	// Returns the table index of the specified (non-free) key or -1.
+	private int indexOf(long key) {
+		for(int i = hash(key) & mask;; i = i + 1 & mask) {
+			final long k = keys[i];
+			if(k == key)
+				return i;
+			if(k == FREE_KEY)
+				return -1;
+		}
+	}
+	// Backward shift deletion (linear probing does not need tombstones).
+	private void shiftKeys(int pos) {
+		for(;;) {
+			final int last = pos;
+			long k;
+			for(pos = pos + 1 & mask;; pos = pos + 1 & mask) {
+				k = keys[pos];
+				if(k == FREE_KEY) {
+					keys[last] = FREE_KEY;
+					return;
+				}
+				final int slot = hash(k) & mask;
+				if(last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+					break;
+				}
+			}
+			keys[last] = k;
+			values[last] = values[pos];
+		}
+	}
+	private void rehash(int tableLength) {
+		final long[] oldKeys = keys;
+		final long[] oldValues = values;
+		allocate(tableLength);
+		for(int i = oldKeys.length; --i >= 0;) {
+			final long k = oldKeys[i];
+			if(k != FREE_KEY) {
+				int j = hash(k) & mask;
+				while(keys[j] != FREE_KEY) {
+					j = j + 1 & mask;
+				}
+				keys[j] = k;
+				values[j] = oldValues[i];
+			}
+		}
+	}
+	private void allocate(int tableLength) {
+		keys = new long[tableLength];
+		values = new long[tableLength];
+		mask = tableLength - 1;
+		threshold = tableLength >> 1; // Table at most half full.
+	}
+	private static int tableLengthFor(int capacity) {
+		int length = 4;
+		while(length >> 1 <= capacity) {
+			length <<= 1;
+		}
+		return length;
+	}
+	private static int hash(long key) {
+		final long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing.
+		return (int) (h ^ h >>> 32);
+	}
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		s.writeInt(keys.length);
+		if(hasFreeKey) {
+			s.writeLong(FREE_KEY);
+			s.writeLong(freeValue);
+		}
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				s.writeLong(keys[i]);
+				s.writeLong(values[i]);
+			}
+		}
+	}
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		allocate(s.readInt());
+		final int n = size;
+		size = 0;
+		for(int i = -1; ++i < n;) {
+			put(s.readLong(), s.readLong());
+		}
+	}
+	public boolean equals(Object o) {
+		if(this == o)
+			return true;
+		if(o == null || getClass() != o.getClass())
+			return false;
+		final FastLongLongMap that = (FastLongLongMap) o;
+		if(size != that.size)
+			return false;
+		if(hasFreeKey && (!that.hasFreeKey || freeValue != that.freeValue))
+			return false;
+		for(int i = -1; ++i < keys.length;) {
+			final long k = keys[i];
+			if(k != FREE_KEY) {
+				final int j = that.indexOf(k);
+				if(j < 0 || values[i] != that.values[j])
+					return false;
+			}
+		}
+		return true;
+	}
+	public int hashCode() {
+		int h = hasFreeKey ? (int) (freeValue ^ freeValue >>> 32) : 0;
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				h += (int) (keys[i] ^ keys[i] >>> 32 ^ values[i] ^ values[i] >>> 32);
+			}
+		}
+		return h;
+	}
+	public String toString() {
+		if(size == 0)
+			return "{}";
+		final StringBuffer sb = new StringBuffer();
+		sb.append('{');
+		if(hasFreeKey) {
+			sb.append(FREE_KEY).append('=').append(freeValue);
+		}
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				if(sb.length() > 1) {
+					sb.append(',').append(' ');
+				}
+				sb.append(keys[i]).append('=').append(values[i]);
+			}
+		}
+		return sb.append('}').toString();
+	}
+	// Holds the map factory.
+	private static final ObjectFactory FACTORY = new ObjectFactory() {
+		public Object create() {
+			return new FastLongLongMap();
+		}
+	};
+}
@@ -0,0 +1,328 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2005 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.primitive;
+import java.io.IOException;
+import _templates.java.io.ObjectInputStream;
+import _templates.java.io.ObjectOutputStream;
+import _templates.java.io.Serializable;
+import _templates.java.lang.CloneNotSupportedException;
+import _templates.java.lang.Cloneable;
+import _templates.java.lang.UnsupportedOperationException;
+import _templates.javolution.context.ObjectFactory;
+import _templates.javolution.lang.Reusable;
+/**
+ * Implement <code>FastMap</code> for <code>long</code> keys.
+ * Open-addressing hash table (linear probing), keys are not boxed and no
+ * entry object is allocated per mapping. Instances are {@link Reusable}
+ * (see {@link #newInstance()} and {@link #recycle(FastLongMap)}).
+ * @since 5.7.5
+ */
+public class FastLongMap/*<V>*/ implements Reusable, Cloneable, Serializable {
+	public static final int DEFAULT_INITIAL_CAPACITY = 16;
+	private static final long FREE_KEY = 0; // Key 0 is held outside of the table.
+	private transient long[] keys;
+	private transient Object[] values;
+	private transient boolean hasFreeKey;
+	private transient Object freeValue;
+	private transient int mask;
+	private transient int threshold;
+	private int size;
+	public FastLongMap() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+	public FastLongMap(int initialCapacity) {
+		if(initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		allocate(tableLengthFor(initialCapacity));
+	}
+	/**
+	 * Returns a potentially {@link #recycle recycled} map instance.
+	 *
+	 * @return a new, preallocated or recycled map instance.
+	 */
+	public static/*<V>*/ FastLongMap/*<V>*/ newInstance() {
+		return (FastLongMap/*<V>*/) FACTORY.object();
+	}
+	/**
+	 * Recycles the specified map instance.
+	 *
+	 * @param instance the map instance to recycle.
+	 */
+	public static void recycle(FastLongMap instance) {
+		FACTORY.recycle(instance);
+	}
+	public int size() {
+		return size;
+	}
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	public boolean containsKey(long key) {
+		if(key == FREE_KEY)
+			return hasFreeKey;
+		return indexOf(key) >= 0;
+	}
+	public boolean containsValue(Object value) {
+		if(hasFreeKey && (value == null ? freeValue == null : value.equals(freeValue)))
+			return true;
+		for(int i = keys.length; --i >= 0;) {
+			if(keys[i] != FREE_KEY && (value == null ? values[i] == null : value.equals(values[i])))
+				return true;
+		}
+		return false;
+	}
+	public Object/*{V}*/ get(long key) {
+		if(key == FREE_KEY)
+			return (Object/*{V}*/) freeValue;
+		final int i = indexOf(key);
+		return i >= 0 ? (Object/*{V}*/) values[i] : null;
+	}
+	public Object/*{V}*/ put(long key, Object/*{V}*/ value) {
+		if(key == FREE_KEY) {
+			final Object old = freeValue;
+			if(!hasFreeKey) {
+				hasFreeKey = true;
+				++size;
+			}
+			freeValue = value;
+			return (Object/*{V}*/) old;
+		}
+		for(int i = hash(key) & mask;; i = i + 1 & mask) {
+			final long k = keys[i];
+			if(k == FREE_KEY) {
+				keys[i] = key;
+				values[i] = value;
+				if(++size >= threshold) {
+					rehash(keys.length << 1);
+				}
+				return null;
+			}
+			if(k == key) {
+				final Object old = values[i];
+				values[i] = value;
+				return (Object/*{V}*/) old;
+			}
+		}
+	}
+	public Object/*{V}*/ remove(long key) {
+		if(key == FREE_KEY) {
+			if(!hasFreeKey)
+				return null;
+			final Object old = freeValue;
+			hasFreeKey = false;
+			freeValue = null;
+			--size;
+			return (Object/*{V}*/) old;
+		}
+		final int i = indexOf(key);
+		if(i < 0)
+			return null;
+		final Object old = values[i];
+		shiftKeys(i);
+		--size;
+		return (Object/*{V}*/) old;
+	}
+	public void clear() {
+		if(size == 0)
+			return;
+		for(int i = keys.length; --i >= 0;) {
+			keys[i] = FREE_KEY;
+			values[i] = null;
+		}
+		hasFreeKey = false;
+		freeValue = null;
+		size = 0;
+	}
+	// Implements Reusable.
+	public void reset() {
+		clear();
+	}
+	public long[] keys() {
+		final long[] a = new long[size];
+		int n = 0;
+		if(hasFreeKey) {
+			a[n++] = FREE_KEY;
+		}
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				a[n++] = keys[i];
+			}
+		}
+		return a;
+	}
+	public Object[] values() {
+		final Object[] a = new Object[size];
+		int n = 0;
+		if(hasFreeKey) {
+			a[n++] = freeValue;
+		}
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				a[n++] = values[i];
+			}
+		}
+		return a;
+	}
+	public Object/*FastLongMap<V>*/ clone() throws CloneNotSupportedException {
+		/*@JVM-1.1+@
+		if(true) {
+			final FastLongMap c = (FastLongMap) super.clone();
+			c.keys = new long[keys.length];
+			System.arraycopy(keys, 0, c.keys, 0, keys.length);
+			c.values = new Object[values.length];
+			System.arraycopy(values, 0, c.values, 0, values.length);
+			return c;
+		}
+		/**/
+		throw new UnsupportedOperationException("J2ME Not Supported Yet");
+	}
+	// Returns the table index of the specified (non-free) key or -1.
+	private int indexOf(long key) {
+		for(int i = hash(key) & mask;; i = i + 1 & mask) {
+			final long k = keys[i];
+			if(k == key)
+				return i;
+			if(k == FREE_KEY)
+				return -1;
+		}
+	}
+	// Backward shift deletion (linear probing does not need tombstones).
+	private void shiftKeys(int pos) {
+		for(;;) {
+			final int last = pos;
+			long k;
+			for(pos = pos + 1 & mask;; pos = pos + 1 & mask) {
+				k = keys[pos];
+				if(k == FREE_KEY) {
+					keys[last] = FREE_KEY;
+					values[last] = null;
+					return;
+				}
+				final int slot = hash(k) & mask;
+				if(last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+					break;
+				}
+			}
+			keys[last] = k;
+			values[last] = values[pos];
+		}
+	}
+	private void rehash(int tableLength) {
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+		allocate(tableLength);
+		for(int i = oldKeys.length; --i >= 0;) {
+			final long k = oldKeys[i];
+			if(k != FREE_KEY) {
+				int j = hash(k) & mask;
+				while(keys[j] != FREE_KEY) {
+					j = j + 1 & mask;
+				}
+				keys[j] = k;
+				values[j] = oldValues[i];
+			}
+		}
+	}
+	private void allocate(int tableLength) {
+		keys = new long[tableLength];
+		values = new Object[tableLength];
+		mask = tableLength - 1;
+		threshold = tableLength >> 1; // Table at most half full.
+	}
+	private static int tableLengthFor(int capacity) {
+		int length = 4;
+		while(length >> 1 <= capacity) {
+			length <<= 1;
+		}
+		return length;
+	}
+	private static int hash(long key) {
+		final long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing.
+		return (int) (h ^ h >>> 32);
+	}
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		s.writeInt(keys.length);
+		if(hasFreeKey) {
+			s.writeLong(FREE_KEY);
+			s.writeObject(freeValue);
+		}
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				s.writeLong(keys[i]);
+				s.writeObject(values[i]);
+			}
+		}
+	}
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		allocate(s.readInt());
+		final int n = size;
+		size = 0;
+		for(int i = -1; ++i < n;) {
+			put(s.readLong(), (Object/*{V}*/) s.readObject());
+		}
+	}
+	public boolean equals(Object o) {
+		if(this == o)
+			return true;
+		if(o == null || getClass() != o.getClass())
+			return false;
+		final FastLongMap that = (FastLongMap) o;
+		if(size != that.size)
+			return false;
+		if(hasFreeKey && (!that.hasFreeKey || !equals(freeValue, that.freeValue)))
+			return false;
+		for(int i = -1; ++i < keys.length;) {
+			final long k = keys[i];
+			if(k != FREE_KEY) {
+				final int j = that.indexOf(k);
+				if(j < 0 || !equals(values[i], that.values[j]))
+					return false;
+			}
+		}
+		return true;
+	}
+	private static boolean equals(Object o1, Object o2) {
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+	public int hashCode() {
+		int h = hasFreeKey ? (int) FREE_KEY ^ (freeValue != null ? freeValue.hashCode() : 0) : 0;
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				h += (int) (keys[i] ^ keys[i] >>> 32) ^ (values[i] != null ? values[i].hashCode() : 0);
+			}
+		}
+		return h;
+	}
+	public String toString() {
+		if(size == 0)
+			return "{}";
+		final StringBuffer sb = new StringBuffer();
+		sb.append('{');
+		if(hasFreeKey) {
+			sb.append(FREE_KEY).append('=').append(freeValue);
+		}
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				if(sb.length() > 1) {
+					sb.append(',').append(' ');
+				}
+				sb.append(keys[i]).append('=').append(values[i]);
+			}
+		}
+		return sb.append('}').toString();
+	}
+	// Holds the map factory.
+	private static final ObjectFactory FACTORY = new ObjectFactory() {
+		public Object create() {
+			return new FastLongMap();
+		}
+	};
+}
@@ -0,0 +1,446 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2005 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package _templates.javolution.util.primitive;
+import java.io.IOException;
+import _templates.java.io.ObjectInputStream;
+import _templates.java.io.ObjectOutputStream;
+import _templates.java.io.Serializable;
+import _templates.java.lang.CloneNotSupportedException;
+import _templates.java.lang.Cloneable;
+import _templates.java.lang.UnsupportedOperationException;
+import _templates.javolution.context.ObjectFactory;
+import _templates.javolution.lang.MathLib;
+import _templates.javolution.lang.Reusable;
+/**
+ * Implement <code>FastSet</code> for <code>long</code> values, values are
+ * not boxed. The representation is selected automatically from the density
+ * of the values:
+ * <ul>
+ * <li>Sparse sets are held in an open-addressing hash table (linear
+ *     probing).</li>
+ * <li>Dense sets are held in a bitmap (one bit per value of the range
+ *     covered, as <code>FastBitSet</code>).</li>
+ * </ul>
+ * The hash table is replaced by a bitmap when it grows and the bitmap would
+ * take at most 64 bits per element; the bitmap is replaced by a hash table
+ * when it would take more than 256 bits per element (values too spread out).
+ * Instances are {@link Reusable} (see {@link #newInstance()} and
+ * {@link #recycle(FastLongSet)}).
+ * @since 5.7.5
+ */
+public class FastLongSet implements Reusable, Cloneable, Serializable {
+	public static final int DEFAULT_INITIAL_CAPACITY = 16;
+	private static final long FREE_KEY = 0; // Key 0 is held outside of the table.
+	private static final int DENSE = 64; // Bits per element to switch to bitmap.
+	private static final int SPARSE = 256; // Bits per element to switch to hash table.
+	private transient long[] keys; // Hash table (null for bitmap).
+	private transient boolean hasFreeKey;
+	private transient int mask;
+	private transient int threshold;
+	private transient long min; // Lowest value added to the hash table.
+	private transient long max; // Highest value added to the hash table.
+	private transient long[] bits; // Bitmap (null for hash table).
+	private transient long base; // Value of the first bit.
+	private int size;
+	public FastLongSet() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+	public FastLongSet(int initialCapacity) {
+		if(initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		allocate(tableLengthFor(initialCapacity));
+		clearBounds();
+	}
+	/**
+	 * Returns a potentially {@link #recycle recycled} set instance.
+	 *
+	 * @return a new, preallocated or recycled set instance.
+	 */
+	public static FastLongSet newInstance() {
+		return (FastLongSet) FACTORY.object();
+	}
+	/**
+	 * Recycles the specified set instance.
+	 *
+	 * @param instance the set instance to recycle.
+	 */
+	public static void recycle(FastLongSet instance) {
+		FACTORY.recycle(instance);
+	}
+	public int size() {
+		return size;
+	}
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	public boolean contains(long value) {
+		if(bits != null) {
+			final long i = bitIndex(value);
+			return i >= 0 && (bits[(int) (i >> 6)] & 1L << i) != 0;
+		}
+		if(value == FREE_KEY)
+			return hasFreeKey;
+		return indexOf(value) >= 0;
+	}
+	/**
+	 * Adds the specified value to this set.
+	 *
+	 * @param value the value to add.
+	 * @return <code>true</code> if this set did not already contain the
+	 *         value; <code>false</code> otherwise.
+	 */
+	public boolean add(long value) {
+		if(bits != null) {
+			long i = bitIndex(value);
+			if(i < 0) {
+				if(!extend(value)) {
+					toHashTable();
+					return add(value);
+				}
+				i = bitIndex(value);
+			}
+			final int w = (int) (i >> 6);
+			final long bit = 1L << i;
+			if((bits[w] & bit) != 0)
+				return false;
+			bits[w] |= bit;
+			++size;
+			return true;
+		}
+		if(value == FREE_KEY) {
+			if(hasFreeKey)
+				return false;
+			hasFreeKey = true;
+		}
+		else {
+			int i = hash(value) & mask;
+			for(long k; (k = keys[i]) != FREE_KEY; i = i + 1 & mask) {
+				if(k == value)
+					return false;
+			}
+			keys[i] = value;
+		}
+		if(value < min) {
+			min = value;
+		}
+		if(value > max) {
+			max = value;
+		}
+		if(++size >= threshold) {
+			final long range = max - min; // Negative if overflow.
+			if(range >= 0 && range < (long) size * DENSE) {
+				toBitmap();
+			}
+			else {
+				rehash(keys.length << 1);
+			}
+		}
+		return true;
+	}
+	/**
+	 * Adds all the specified values to this set.
+	 *
+	 * @param values the values to add.
+	 * @param offset the index of the first value.
+	 * @param length the number of values to add.
+	 */
+	public void addAll(long[] values, int offset, int length) {
+		for(int i = offset, n = offset + length; i < n; i++) {
+			add(values[i]);
+		}
+	}
+	/**
+	 * Removes the specified value from this set.
+	 *
+	 * @param value the value to remove.
+	 * @return <code>true</code> if this set contained the value;
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean remove(long value) {
+		if(bits != null) {
+			final long i = bitIndex(value);
+			if(i < 0)
+				return false;
+			final int w = (int) (i >> 6);
+			final long bit = 1L << i;
+			if((bits[w] & bit) == 0)
+				return false;
+			bits[w] &= ~bit;
+			if((long) bits.length << 6 > (long) --size * SPARSE) {
+				toHashTable();
+			}
+			return true;
+		}
+		if(value == FREE_KEY) {
+			if(!hasFreeKey)
+				return false;
+			hasFreeKey = false;
+			--size;
+			return true;
+		}
+		final int i = indexOf(value);
+		if(i < 0)
+			return false;
+		shiftKeys(i);
+		--size;
+		return true;
+	}
+	public void clear() {
+		if(size == 0)
+			return;
+		if(bits != null) {
+			for(int i = bits.length; --i >= 0;) {
+				bits[i] = 0;
+			}
+		}
+		else {
+			for(int i = keys.length; --i >= 0;) {
+				keys[i] = FREE_KEY;
+			}
+			hasFreeKey = false;
+			clearBounds();
+		}
+		size = 0;
+	}
+	// Implements Reusable.
+	public void reset() {
+		clear();
+	}
+	/**
+	 * Returns the values of this set (in increasing order if this set is
+	 * held in a bitmap).
+	 *
+	 * @return a new array holding the values of this set.
+	 */
+	public long[] toArray() {
+		final long[] a = new long[size];
+		int n = 0;
+		if(bits != null) {
+			for(int w = -1; ++w < bits.length;) {
+				for(long word = bits[w]; word != 0; word &= word - 1) {
+					a[n++] = base + ((long) w << 6) + MathLib.numberOfTrailingZeros(word);
+				}
+			}
+			return a;
+		}
+		if(hasFreeKey) {
+			a[n++] = FREE_KEY;
+		}
+		for(int i = -1; ++i < keys.length;) {
+			if(keys[i] != FREE_KEY) {
+				a[n++] = keys[i];
+			}
+		}
+		return a;
+	}
+	public Object/*FastLongSet*/ clone() throws CloneNotSupportedException {
+		/*@JVM-1.1+@
+		if(true) {
+			final FastLongSet c = (FastLongSet) super.clone();
+			if(bits != null) {
+				c.bits = new long[bits.length];
+				System.arraycopy(bits, 0, c.bits, 0, bits.length);
+			}
+			else {
+				c.keys = new long[keys.length];
+				System.arraycopy(keys, 0, c.keys, 0, keys.length);
+			}
+			return c;
+		}
+		/**/
+		throw new UnsupportedOperationException("J2ME Not Supported Yet");
+	}
+	// Returns the table index of the specified (non-free) key or -1.
+	private int indexOf(long key) {
+		for(int i = hash(key) & mask;; i = i + 1 & mask) {
+			final long k = keys[i];
+			if(k == key)
+				return i;
+			if(k == FREE_KEY)
+				return -1;
+		}
+	}
+	// Backward shift deletion (linear probing does not need tombstones).
+	private void shiftKeys(int pos) {
+		for(;;) {
+			final int last = pos;
+			long k;
+			for(pos = pos + 1 & mask;; pos = pos + 1 & mask) {
+				k = keys[pos];
+				if(k == FREE_KEY) {
+					keys[last] = FREE_KEY;
+					return;
+				}
+				final int slot = hash(k) & mask;
+				if(last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+					break;
+				}
+			}
+			keys[last] = k;
+		}
+	}
+	private void rehash(int tableLength) {
+		final long[] oldKeys = keys;
+		allocate(tableLength);
+		for(int i = oldKeys.length; --i >= 0;) {
+			final long k = oldKeys[i];
+			if(k != FREE_KEY) {
+				int j = hash(k) & mask;
+				while(keys[j] != FREE_KEY) {
+					j = j + 1 & mask;
+				}
+				keys[j] = k;
+			}
+		}
+	}
+	// Replaces the hash table with a bitmap covering the values range.
+	private void toBitmap() {
+		base = min & ~63L; // Aligned, the last value covered cannot overflow.
+		bits = new long[(int) (max - base >>> 6) + 1];
+		if(hasFreeKey) {
+			final long i = FREE_KEY - base;
+			bits[(int) (i >> 6)] |= 1L << i;
+		}
+		for(int i = keys.length; --i >= 0;) {
+			final long k = keys[i];
+			if(k != FREE_KEY) {
+				final long j = k - base;
+				bits[(int) (j >> 6)] |= 1L << j;
+			}
+		}
+		keys = null;
+		hasFreeKey = false;
+	}
+	// Replaces the bitmap with a hash table.
+	private void toHashTable() {
+		final long[] oldBits = bits;
+		bits = null;
+		allocate(tableLengthFor(size));
+		clearBounds();
+		size = 0;
+		for(int w = -1; ++w < oldBits.length;) {
+			for(long word = oldBits[w]; word != 0; word &= word - 1) {
+				add(base + ((long) w << 6) + MathLib.numberOfTrailingZeros(word));
+			}
+		}
+	}
+	// Returns the bitmap index of the specified value or -1 if not covered.
+	private long bitIndex(long value) {
+		final long i = value - base;
+		return value >= base && i >= 0 && i < (long) bits.length << 6 ? i : -1;
+	}
+	// Extends the bitmap to cover the specified value, returns false if
+	// the bitmap would be too sparse.
+	private boolean extend(long value) {
+		final int length = bits.length;
+		final long last = base + ((long) length << 6) - 1; // Last value covered.
+		final long from = Math.min(base, value) & ~63L;
+		final long range = Math.max(last, value) - from; // Negative if overflow.
+		final long limit = (long) (size + 1) * SPARSE;
+		if(range < 0 || range >= limit)
+			return false;
+		int newLength = (int) (range >>> 6) + 1;
+		if(newLength < length << 1 && (long) length << 7 <= limit) {
+			newLength = length << 1; // Amortizes successive extensions.
+		}
+		int shift = 0; // Words added below.
+		if(value < base) {
+			shift = (int) Math.min(newLength - length, base - Long.MIN_VALUE >>> 6);
+			newLength = length + shift;
+		}
+		else {
+			newLength = (int) Math.min(newLength, length + (Long.MAX_VALUE - last >>> 6));
+		}
+		final long[] tmp = new long[newLength];
+		System.arraycopy(bits, 0, tmp, shift, length);
+		base -= (long) shift << 6;
+		bits = tmp;
+		return true;
+	}
+	private void allocate(int tableLength) {
+		keys = new long[tableLength];
+		mask = tableLength - 1;
+		threshold = tableLength >> 1; // Table at most half full.
+	}
+	private void clearBounds() {
+		min = Long.MAX_VALUE;
+		max = Long.MIN_VALUE;
+	}
+	private static int tableLengthFor(int capacity) {
+		int length = 4;
+		while(length >> 1 <= capacity) {
+			length <<= 1;
+		}
+		return length;
+	}
+	private static int hash(long key) {
+		final long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing.
+		return (int) (h ^ h >>> 32);
+	}
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		final long[] values = toArray();
+		for(int i = -1; ++i < values.length;) {
+			s.writeLong(values[i]);
+		}
+	}
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		final int n = size;
+		allocate(tableLengthFor(n));
+		clearBounds();
+		size = 0;
+		for(int i = -1; ++i < n;) {
+			add(s.readLong());
+		}
+	}
+	public boolean equals(Object o) {
+		if(this == o)
+			return true;
+		if(o == null || getClass() != o.getClass())
+			return false;
+		final FastLongSet that = (FastLongSet) o;
+		if(size != that.size)
+			return false;
+		final long[] values = toArray();
+		for(int i = -1; ++i < values.length;) {
+			if(!that.contains(values[i]))
+				return false;
+		}
+		return true;
+	}
+	public int hashCode() {
+		final long[] values = toArray();
+		int h = 0;
+		for(int i = -1; ++i < values.length;) {
+			h += (int) (values[i] ^ values[i] >>> 32);
+		}
+		return h;
+	}
+	public String toString() {
+		if(size == 0)
+			return "{}";
+		final long[] values = toArray();
+		final StringBuffer sb = new StringBuffer();
+		sb.append('{');
+		for(int i = -1; ++i < values.length;) {
+			if(i > 0) {
+				sb.append(',').append(' ');
+			}
+			sb.append(values[i]);
+		}
+		return sb.append('}').toString();
+	}
+	// Holds the set factory.
+	private static final ObjectFactory FACTORY = new ObjectFactory() {
+		public Object create() {
+			return new FastLongSet();
+		}
+	};
+}
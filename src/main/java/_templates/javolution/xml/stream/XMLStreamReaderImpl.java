@@ -13,7 +13,9 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import _templates.java.lang.CharSequence;
+import _templates.java.io.CharConversionException;
 import _templates.java.lang.IllegalStateException;
+import _templates.java.nio.ByteBuffer;
 import _templates.java.util.Map;
 import _templates.javax.realtime.MemoryArea;
 import _templates.javolution.context.ObjectFactory;
@@ -171,6 +173,10 @@ public final class XMLStreamReaderImpl implements XMLStreamReader, Reusable {
 	 * Holds the reader input source (<code>null</code> when unused).
 	 */
 	private Reader _reader;
+	/**
+	 * Holds the byte buffer input source (<code>null</code> when unused).
+	 */
+	private ByteBuffer _byteBuffer;
 	/**
 	 * Holds the character buffer used for reading.
 	 */
@@ -232,9 +238,11 @@ public final class XMLStreamReaderImpl implements XMLStreamReader, Reusable {
 			setInput(in, prologEncoding.toString());
 		}
 	}
+	// Indicates if the specified encoding is UTF-8 or ASCII (subset of UTF-8).
 	private static boolean isUTF8(Object encoding) {
-		return encoding.equals("utf-8") || encoding.equals("UTF-8") || encoding.equals("ASCII")
-				|| encoding.equals("utf8") || encoding.equals("UTF8");
+		final String name = encoding.toString();
+		return name.equalsIgnoreCase("UTF-8") || name.equalsIgnoreCase("UTF8") || name.equalsIgnoreCase("US-ASCII")
+				|| name.equalsIgnoreCase("ASCII");
 	}
 	/**
 	 * Sets the input stream source and encoding for this XML stream reader.
@@ -266,11 +274,55 @@ public final class XMLStreamReaderImpl implements XMLStreamReader, Reusable {
 	 * @see    _templates.javolution.io.CharSequenceReader
 	 */
 	public void setInput(Reader reader) throws XMLStreamException {
-		if(_reader != null)
+		if(_reader != null || _byteBuffer != null)
 			throw new IllegalStateException("Reader not closed or reset");
 		_reader = reader;
-		try { // Reads prolog (if there)
-			final int readCount = reader.read(_readBuffer, _startOffset, _readBuffer.length - _startOffset);
+		readProlog();
+	}
+	/**
+	 * Sets the UTF-8 (or ASCII) byte buffer input source for this XML stream
+	 * reader; bytes are read from the current buffer position up to its limit.
+	 * The bytes are decoded directly into this reader internal buffer (no
+	 * intermediate reader, ASCII characters are converted in bulk), this is
+	 * the fastest way to parse memory-mapped files:[code]
+	 *     FileChannel channel = new FileInputStream(file).getChannel();
+	 *     MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	 *     xmlReader.setInput(bytes);
+	 *     [/code]
+	 * This method reads the prolog (if any), a leading UTF-8 byte order
+	 * mark is skipped.
+	 *
+	 * @param  byteBuffer the UTF-8 encoded input source.
+	 * @throws XMLStreamException if the input is not UTF-8 or ASCII
+	 *         (<code>US-ASCII</code>) encoded (as per byte order mark or
+	 *         prolog).
+	 * @since 5.7.5
+	 */
+	public void setInput(ByteBuffer byteBuffer) throws XMLStreamException {
+		if(_reader != null || _byteBuffer != null)
+			throw new IllegalStateException("Reader not closed or reset");
+		final int position = byteBuffer.position();
+		if(byteBuffer.limit() - position >= 2) {
+			final int byte0 = byteBuffer.get(position) & 0xFF;
+			final int byte1 = byteBuffer.get(position + 1) & 0xFF;
+			if(byte0 == 0 || byte1 == 0 || byte0 == 0xFF && byte1 == 0xFE || byte0 == 0xFE && byte1 == 0xFF)
+				throw new XMLStreamException("UTF-16 byte buffer input not supported");
+			if(byte0 == 0xEF && byte1 == 0xBB && byteBuffer.limit() - position >= 3
+					&& (byteBuffer.get(position + 2) & 0xFF) == 0xBF) {
+				byteBuffer.position(position + 3); // Skips byte order mark.
+			}
+		}
+		_byteBuffer = byteBuffer;
+		_encoding = "UTF-8";
+		readProlog();
+		final CharArray prologEncoding = getCharacterEncodingScheme();
+		if(prologEncoding != null && !isUTF8(prologEncoding))
+			throw new XMLStreamException(prologEncoding + " byte buffer input not supported");
+	}
+	// Reads the first characters and the prolog (if there).
+	private void readProlog() throws XMLStreamException {
+		try {
+			final int readCount = read(_startOffset);
 			_readCount = readCount >= 0 ? readCount + _startOffset : _startOffset;
 			if(_readCount >= 5 && _readBuffer[0] == '<' && _readBuffer[1] == '?' && _readBuffer[2] == 'x'
 					&& _readBuffer[3] == 'm' && _readBuffer[4] == 'l' && _readBuffer[5] == ' ') { // Prolog detected.
@@ -746,7 +798,7 @@ public final class XMLStreamReaderImpl implements XMLStreamReader, Reusable {
 		_location._charactersRead += _readIndex;
 		_readIndex = 0;
 		try {
-			_readCount = _reader.read(_readBuffer, 0, _readBuffer.length);
+			_readCount = read(0);
 			if(_readCount <= 0 && (_depth != 0 || _state != STATE_CHARACTERS))
 				throw new XMLStreamException("Unexpected end of document", _location);
 		}
@@ -757,6 +809,102 @@ public final class XMLStreamReaderImpl implements XMLStreamReader, Reusable {
 			increaseDataBuffer();
 		}
 	}
+	/**
+	 * Reads characters from the input source into the read buffer.
+	 *
+	 * @param offset the offset at which to start storing characters.
+	 * @return the number of characters read or -1 if the end of the
+	 *         input has been reached.
+	 */
+	private int read(int offset) throws IOException {
+		if(_byteBuffer == null)
+			return _reader.read(_readBuffer, offset, _readBuffer.length - offset);
+		final ByteBuffer in = _byteBuffer;
+		final int limit = in.limit();
+		int position = in.position();
+		if(position >= limit)
+			return -1;
+		final byte[] bytes = in.hasArray() ? in.array() : null;
+		final int shift = bytes != null ? in.arrayOffset() : 0;
+		final char[] chars = _readBuffer;
+		final int end = chars.length;
+		int i = offset;
+		while(i < end && position < limit) {
+			// Main loop (ASCII characters).
+			if(bytes != null) {
+				for(int n = Math.min(end - i, limit - position); --n >= 0;) {
+					final byte b = bytes[shift + position];
+					if(b < 0) {
+						break;
+					}
+					chars[i++] = (char) b;
+					position++;
+				}
+			}
+			else {
+				for(int n = Math.min(end - i, limit - position); --n >= 0;) {
+					final byte b = in.get(position);
+					if(b < 0) {
+						break;
+					}
+					chars[i++] = (char) b;
+					position++;
+				}
+			}
+			if(i >= end || position >= limit) {
+				break;
+			}
+			if(i + 1 >= end) {
+				break; // Keeps room for surrogate pairs.
+			}
+			// Multi-bytes sequence.
+			final int b = in.get(position++);
+			int code;
+			int moreBytes;
+			if((b & 0xe0) == 0xc0) {
+				code = b & 0x1f;
+				moreBytes = 1;
+			}
+			else if((b & 0xf0) == 0xe0) {
+				code = b & 0x0f;
+				moreBytes = 2;
+			}
+			else if((b & 0xf8) == 0xf0) {
+				code = b & 0x07;
+				moreBytes = 3;
+			}
+			else {
+				in.position(position);
+				throw new CharConversionException("Invalid UTF-8 Encoding");
+			}
+			if(position + moreBytes > limit) {
+				in.position(limit);
+				throw new CharConversionException("Incomplete Sequence");
+			}
+			while(--moreBytes >= 0) {
+				final int c = in.get(position++);
+				if((c & 0xc0) != 0x80) {
+					in.position(position);
+					throw new CharConversionException("Invalid UTF-8 Encoding");
+				}
+				code = code << 6 | c & 0x3f;
+			}
+			if(code < 0x10000) {
+				chars[i++] = (char) code;
+			}
+			else if(code <= 0x10ffff) { // Surrogates.
+				chars[i++] = (char) ((code - 0x10000 >> 10) + 0xd800);
+				chars[i++] = (char) ((code - 0x10000 & 0x3ff) + 0xdc00);
+			}
+			else {
+				in.position(position);
+				throw new CharConversionException(
+						"Cannot convert U+" + Integer.toHexString(code) + " to char (code greater than U+10FFFF)");
+			}
+		}
+		in.position(position);
+		return i - offset;
+	}
 	/**
 	 * Detects end of stream.
 	 *
@@ -913,6 +1061,7 @@ public final class XMLStreamReaderImpl implements XMLStreamReader, Reusable {
 		_prolog = null;
 		_readCount = 0;
 		_reader = null;
+		_byteBuffer = null;
 		_depth = 0;
 		_readIndex = 0;
 		_seqsIndex = 0;
@@ -1163,14 +1312,16 @@ public final class XMLStreamReaderImpl implements XMLStreamReader, Reusable {
 	public CharArray getPIData() {
 		if(_eventType != XMLStreamConstants.PROCESSING_INSTRUCTION)
 			throw illegalState("Not a processing instruction");
-		final int offset = _text.indexOf(' ') + _text.offset() + 1;
-		final CharArray piData = newSeq(offset, _text.length() - offset);
+		final int sep = _text.indexOf(' ');
+		final int offset = _text.offset() + (sep >= 0 ? sep + 1 : _text.length());
+		final CharArray piData = newSeq(offset, _text.offset() + _text.length() - offset);
 		return piData;
 	}
 	public CharArray getPITarget() {
 		if(_eventType != XMLStreamConstants.PROCESSING_INSTRUCTION)
 			throw illegalState("Not a processing instruction");
-		final CharArray piTarget = newSeq(_text.offset(), _text.indexOf(' ') + _text.offset());
+		final int sep = _text.indexOf(' ');
+		final CharArray piTarget = newSeq(_text.offset(), sep >= 0 ? sep : _text.length());
 		return piTarget;
 	}
 	public CharArray getText() {
@@ -1296,6 +1447,23 @@ public final class XMLStreamReaderImpl implements XMLStreamReader, Reusable {
 			return "UTF-16";
 		else if(byte0 == 0xFE && byte1 == 0xFF)
 			return "UTF-16";
+		else if(byte0 == 0xEF && byte1 == 0xBB) { // UTF-8 byte order mark.
+			int byte2;
+			try {
+				byte2 = input.read();
+			}
+			catch(final IOException e) {
+				throw new XMLStreamException(e);
+			}
+			if(byte2 == 0xBF)
+				return "UTF-8"; // Skips byte order mark.
+			_readBuffer[_startOffset++] = (char) byte0;
+			_readBuffer[_startOffset++] = (char) byte1;
+			if(byte2 != -1) {
+				_readBuffer[_startOffset++] = (char) byte2;
+			}
+			return "UTF-8";
+		}
 		else { // Encoding unknown (or no prolog) assumes UTF-8
 			_readBuffer[_startOffset++] = (char) byte0;
 			_readBuffer[_startOffset++] = (char) byte1;
@@ -0,0 +1,786 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2007 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import javolution.testing.TestCase;
+import javolution.testing.TestContext;
+import javolution.testing.TestSuite;
+import javolution.util.FastBitSet;
+import javolution.util.FastCollection.Record;
+import javolution.util.FastComparator;
+import javolution.util.FastCopyOnWriteTable;
+import javolution.util.primitive.FastIntIntMap;
+import javolution.util.primitive.FastIntMap;
+import javolution.util.primitive.FastIntSet;
+import javolution.util.primitive.FastLongLongMap;
+import javolution.util.primitive.FastLongMap;
+import javolution.util.primitive.FastLongSet;
+/**
+ * <p> This class holds the test cases for the {@link javolution.util util}
+ *     collections.</p>
+ *
+ * @since 5.7.5
+ */
+public final class CollectionTestSuite extends TestSuite {
+	public CollectionTestSuite() {
+		addTest(new CopyOnWriteSerialization(0));
+		addTest(new CopyOnWriteSerialization(100));
+		addTest(new BitSetRegressions(false));
+		addTest(new BitSetRegressions(true));
+		addTest(new BitSetDifferential());
+		addTest(new PrimitiveSetDifferential(false));
+		addTest(new PrimitiveSetDifferential(true));
+		for(int type = 0; type < 4; type++) {
+			addTest(new PrimitiveMapDifferential(type));
+		}
+	}
+	// Returns a deserialized copy of the specified object.
+	static Object serializeDeserialize(Object obj) throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(obj);
+		out.close();
+		return new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+	}
+	class CopyOnWriteSerialization extends TestCase {
+		final int _size;
+		FastCopyOnWriteTable _table;
+		FastCopyOnWriteTable _copy;
+		public CopyOnWriteSerialization(int size) {
+			_size = size;
+		}
+		public String getName() {
+			return "FastCopyOnWriteTable serialization (" + _size + " values)";
+		}
+		public void setUp() {
+			_table = new FastCopyOnWriteTable();
+			for(int i = 0; i < _size; i++) {
+				_table.add(i == 1 ? null : "v" + i);
+			}
+			_table.setValueComparator(FastComparator.LEXICAL);
+		}
+		public void execute() throws Exception {
+			_copy = (FastCopyOnWriteTable) serializeDeserialize(_table);
+		}
+		public void validate() {
+			TestContext.assertEquals(_size, _copy.size());
+			TestContext.assertEquals(_table, _copy);
+			TestContext.assertTrue(_copy.getValueComparator() == FastComparator.LEXICAL, "Value comparator");
+			int n = 0; // Records traversal.
+			for(Record r = _copy.head(), end = _copy.tail(); (r = r.getNext()) != end; n++) {
+				if(!TestContext.assertEquals(_table.get(n), _copy.valueOf(r)))
+					break;
+			}
+			TestContext.assertEquals(_size, n);
+			for(Record r = _copy.tail(), end = _copy.head(); (r = r.getPrevious()) != end; n--) {
+				if(!TestContext.assertEquals(_table.get(n - 1), _copy.valueOf(r)))
+					break;
+			}
+			TestContext.assertEquals(0, n);
+			_copy.add("added"); // Modifiable.
+			TestContext.assertEquals(_size + 1, _copy.size());
+			TestContext.assertEquals("added", _copy.getLast());
+			TestContext.assertEquals(_size, _copy.indexOf(new StringBuffer("added"))); // Lexical comparator.
+			TestContext.assertEquals(_size, _table.size());
+		}
+	}
+	// Indicates if the specified bit sets hold the same bits.
+	static boolean sameBits(FastBitSet fast, BitSet bits, String message) {
+		if(!TestContext.assertEquals(bits.cardinality(), fast.cardinality(), message + " cardinality"))
+			return false;
+		if(!TestContext.assertEquals(bits.length(), fast.length(), message + " length"))
+			return false;
+		for(int i = bits.nextSetBit(0), j = fast.nextSetBit(0);; i = bits.nextSetBit(i + 1), j = fast
+				.nextSetBit(j + 1)) {
+			if(!TestContext.assertEquals(i, j, message + " nextSetBit"))
+				return false;
+			if(i < 0)
+				return true;
+		}
+	}
+	class BitSetRegressions extends TestCase {
+		final boolean _compressed;
+		FastBitSet _hashed, _flipped, _set, _flippedRange, _length;
+		int _hashCode;
+		public BitSetRegressions(boolean compressed) {
+			_compressed = compressed;
+		}
+		public String getName() {
+			return "FastBitSet hashCode(), flip(), set(from, to) and length() (" + (_compressed ? "compressed" : "plain")
+					+ ")";
+		}
+		public void execute() {
+			_hashed = newBitSet(); // hashCode() used not to terminate.
+			_hashed.set(3);
+			_hashed.set(70);
+			_hashCode = _hashed.hashCode();
+			_flipped = newBitSet(); // flip(int) used to truncate the set.
+			_flipped.set(200);
+			_flipped.flip(3);
+			_set = newBitSet(); // set(int, int) used to truncate the set.
+			_set.set(200);
+			_set.set(1, 5);
+			_flippedRange = newBitSet(); // flip(int, int) used to truncate the set.
+			_flippedRange.set(200);
+			_flippedRange.flip(1, 5);
+			_length = newBitSet(); // length() used to be wrong.
+			_length.set(64);
+		}
+		public void validate() {
+			TestContext.assertEquals(73, _hashCode);
+			TestContext.assertTrue(_flipped.get(200) && _flipped.get(3), "flip(int) truncation");
+			TestContext.assertEquals(201, _flipped.length());
+			TestContext.assertTrue(_set.get(200) && _set.get(4) && !_set.get(5), "set(int, int) truncation");
+			TestContext.assertEquals(5, _set.cardinality());
+			TestContext.assertTrue(_flippedRange.get(200) && _flippedRange.get(1), "flip(int, int) truncation");
+			TestContext.assertEquals(5, _flippedRange.cardinality());
+			TestContext.assertEquals(65, _length.length());
+			_length.set(0);
+			TestContext.assertEquals(65, _length.length());
+			_length.clear(64);
+			TestContext.assertEquals(1, _length.length());
+			_length.clear(0);
+			TestContext.assertEquals(0, _length.length());
+		}
+		FastBitSet newBitSet() {
+			return new FastBitSet().setCompressed(_compressed);
+		}
+	}
+	class BitSetDifferential extends TestCase {
+		final int ROUNDS = 40;
+		final int OPS = 200;
+		final Random _random = new Random(7);
+		int _count;
+		String _failure;
+		public String getName() {
+			return "FastBitSet (plain and compressed) against java.util.BitSet";
+		}
+		public void execute() throws Exception {
+			_count = 0;
+			_failure = null;
+			for(int round = 0; round < ROUNDS && _failure == null; round++) {
+				round(_random.nextInt(4));
+			}
+		}
+		public int count() {
+			return _count;
+		}
+		public void validate() {
+			TestContext.assertNull(_failure);
+		}
+		// Applies random operations to a compressed set and to a possibly compressed one.
+		void round(int mode) throws Exception {
+			final FastBitSet f = new FastBitSet().setCompressed(true);
+			final BitSet fb = new BitSet();
+			final boolean large = mode == 3; // Large indices, compressed sets only (plain sets are slow).
+			final FastBitSet g = new FastBitSet().setCompressed(large || _random.nextBoolean());
+			final BitSet gb = new BitSet();
+			for(int k = 0; k < OPS; k++, _count++) {
+				final int op = _random.nextInt(14);
+				final int i = index(mode);
+				final int j = i + _random.nextInt(_random.nextBoolean() ? 10 : 100000);
+				final boolean first = _random.nextBoolean();
+				final FastBitSet x = first ? f : g;
+				final BitSet xb = first ? fb : gb;
+				switch(op) {
+				case 0:
+				case 1:
+				case 2:
+					x.set(i);
+					xb.set(i);
+					break;
+				case 3:
+					x.clear(i);
+					xb.clear(i);
+					break;
+				case 4:
+					x.flip(i);
+					xb.flip(i);
+					break;
+				case 5:
+					x.set(i, j);
+					xb.set(i, j);
+					break;
+				case 6:
+					x.clear(i, j);
+					xb.clear(i, j);
+					break;
+				case 7:
+					x.flip(i, j);
+					xb.flip(i, j);
+					break;
+				case 8:
+					check(x.get(i) == xb.get(i), "get(" + i + ")");
+					check(x.nextClearBit(i) == xb.nextClearBit(i), "nextClearBit(" + i + ")");
+					break;
+				case 9:
+					check(f.intersects(g) == fb.intersects(gb), "intersects");
+					check(f.equals(g) == fb.equals(gb), "equals");
+					break;
+				case 10: { // Operand copied (the operation may modify it otherwise).
+					final FastBitSet y = copy(first ? g : f);
+					final BitSet yb = first ? gb : fb;
+					final int o = _random.nextInt(4);
+					if(o == 0) {
+						x.and(y);
+						xb.and(yb);
+					}
+					else if(o == 1) {
+						x.or(y);
+						xb.or(yb);
+					}
+					else if(o == 2) {
+						x.xor(y);
+						xb.xor(yb);
+					}
+					else {
+						x.andNot(y);
+						xb.andNot(yb);
+					}
+					break;
+				}
+				case 11: { // FastBitSet.get(from, to) does not shift the bits.
+					final FastBitSet range = x.get(i, j);
+					final BitSet rangeb = new BitSet();
+					for(int b = xb.nextSetBit(i); b >= 0 && b < j; b = xb.nextSetBit(b + 1)) {
+						rangeb.set(b);
+					}
+					check(sameBits(range, rangeb, "get(" + i + ", " + j + ")"), "get(from, to)");
+					break;
+				}
+				case 12:
+					if(!large && _random.nextInt(20) == 0) {
+						x.setCompressed(!x.isCompressed());
+					}
+					break;
+				case 13:
+					if(_random.nextInt(10) == 0) {
+						x.clear();
+						xb.clear();
+					}
+					break;
+				}
+				if(k % 10 == 0) {
+					check(f.cardinality() == fb.cardinality() && f.length() == fb.length(), "operation " + op);
+					check(g.cardinality() == gb.cardinality() && g.length() == gb.length(), "operation " + op);
+				}
+				if(_failure != null)
+					return;
+			}
+			check(sameBits(f, fb, "f") && sameBits(g, gb, "g"), "bits");
+			check(!fb.equals(gb) || f.hashCode() == g.hashCode(), "hashCode");
+			if(!large) {
+				final FastBitSet plain = copy(f).setCompressed(false);
+				check(plain.equals(f) && f.equals(plain) && plain.hashCode() == f.hashCode(), "plain equals");
+			}
+			final FastBitSet copy = (FastBitSet) serializeDeserialize(f);
+			check(sameBits(copy, fb, "deserialized") && copy.isCompressed() == f.isCompressed(), "serialization");
+		}
+		// Returns a random index (dense, sparse, clustered or large).
+		int index(int mode) {
+			switch(mode) {
+			case 0:
+				return _random.nextInt(200000);
+			case 1:
+				return _random.nextInt(1 << 20);
+			case 2:
+				return (_random.nextInt(8) << 16) + _random.nextInt(5000);
+			default:
+				return (1 << 27) - _random.nextInt(200000);
+			}
+		}
+		void check(boolean condition, String message) {
+			if(!condition && _failure == null) {
+				_failure = message;
+			}
+		}
+	}
+	// Returns a copy of the specified bit set (same compressed status).
+	static FastBitSet copy(FastBitSet bits) {
+		final FastBitSet copy = new FastBitSet();
+		copy.or(bits);
+		return copy.setCompressed(bits.isCompressed());
+	}
+	class PrimitiveSetDifferential extends TestCase {
+		final int ROUNDS = 200;
+		final int OPS = 500;
+		final boolean _longs;
+		final Random _random = new Random(11);
+		FastIntSet _ints;
+		FastLongSet _longSet;
+		HashSet _expected;
+		int _count;
+		String _failure;
+		public PrimitiveSetDifferential(boolean longs) {
+			_longs = longs;
+		}
+		public String getName() {
+			return (_longs ? "FastLongSet" : "FastIntSet") + " against java.util.HashSet (negative and extreme values)";
+		}
+		public void execute() throws Exception {
+			_count = 0;
+			_failure = null;
+			for(int round = 0; round < ROUNDS && _failure == null; round++) {
+				round(_random.nextInt(4));
+			}
+		}
+		public int count() {
+			return _count;
+		}
+		public void validate() {
+			TestContext.assertNull(_failure);
+		}
+		// Mostly uses values of the specified kind (switches between the hash table and the bitmap).
+		void round(int kind) throws Exception {
+			_ints = new FastIntSet(_random.nextInt(32));
+			_longSet = new FastLongSet(_random.nextInt(32));
+			_expected = new HashSet();
+			for(int k = 0; k < OPS && _failure == null; k++, _count++) {
+				final long value = value(_random.nextInt(10) == 0 ? _random.nextInt(4) : kind);
+				final int op = _random.nextInt(10);
+				if(op < 5) {
+					check(add(value) == _expected.add(new Long(value)), "add(" + value + ")");
+				}
+				else if(op < 8) {
+					check(remove(value) == _expected.remove(new Long(value)), "remove(" + value + ")");
+				}
+				else if(op == 8) {
+					final int length = 1 + _random.nextInt(8);
+					final long[] values = new long[length + 2];
+					for(int i = 0; i < values.length; i++) {
+						values[i] = value(kind);
+					}
+					addAll(values, 1, length);
+					for(int i = 1; i <= length; i++) {
+						_expected.add(new Long(values[i]));
+					}
+				}
+				else if(_random.nextInt(50) == 0) {
+					clear();
+					_expected.clear();
+				}
+				check(contains(value) == _expected.contains(new Long(value)), "contains(" + value + ")");
+				check(size() == _expected.size(), "size after " + value);
+			}
+			if(_failure != null)
+				return;
+			final long[] values = toArray();
+			final HashSet actual = new HashSet();
+			for(int i = 0; i < values.length; i++) {
+				actual.add(new Long(values[i]));
+			}
+			check(values.length == _expected.size() && actual.equals(_expected), "toArray()");
+			for(final Iterator i = _expected.iterator(); i.hasNext();) {
+				check(contains(((Long) i.next()).longValue()), "contains");
+			}
+			check(current().hashCode() == expectedHashCode(), "hashCode()");
+			final Object clone = _longs ? _longSet.clone() : _ints.clone();
+			check(clone.equals(current()) && clone.hashCode() == current().hashCode(), "clone()");
+			final Object copy = serializeDeserialize(current());
+			check(copy.equals(current()) && current().equals(copy), "serialization");
+		}
+		// Returns a value of the specified kind (dense around zero, dense near the
+		// extremes, sparse or extreme).
+		long value(int kind) {
+			final long min = _longs ? Long.MIN_VALUE : Integer.MIN_VALUE;
+			final long max = _longs ? Long.MAX_VALUE : Integer.MAX_VALUE;
+			switch(kind) {
+			case 0:
+				return _random.nextInt(1001) - 500;
+			case 1:
+				return _random.nextBoolean() ? min + _random.nextInt(1000) : max - _random.nextInt(1000);
+			case 2:
+				return _longs ? _random.nextLong() : _random.nextInt();
+			default:
+				final long[] extremes = { min, min + 1, -1, 0, 1, max - 1, max };
+				return extremes[_random.nextInt(extremes.length)];
+			}
+		}
+		Object current() {
+			return _longs ? (Object) _longSet : (Object) _ints;
+		}
+		boolean add(long value) {
+			return _longs ? _longSet.add(value) : _ints.add((int) value);
+		}
+		boolean remove(long value) {
+			return _longs ? _longSet.remove(value) : _ints.remove((int) value);
+		}
+		boolean contains(long value) {
+			return _longs ? _longSet.contains(value) : _ints.contains((int) value);
+		}
+		void addAll(long[] values, int offset, int length) {
+			if(_longs) {
+				_longSet.addAll(values, offset, length);
+				return;
+			}
+			final int[] ints = new int[values.length];
+			for(int i = 0; i < values.length; i++) {
+				ints[i] = (int) values[i];
+			}
+			_ints.addAll(ints, offset, length);
+		}
+		void clear() {
+			if(_longs) {
+				_longSet.clear();
+			}
+			else {
+				_ints.clear();
+			}
+		}
+		int size() {
+			return _longs ? _longSet.size() : _ints.size();
+		}
+		long[] toArray() {
+			if(_longs)
+				return _longSet.toArray();
+			final int[] ints = _ints.toArray();
+			final long[] values = new long[ints.length];
+			for(int i = 0; i < ints.length; i++) {
+				values[i] = ints[i];
+			}
+			return values;
+		}
+		// Returns the hash code of the expected set (sum of the values hash codes).
+		int expectedHashCode() {
+			int h = 0;
+			for(final Iterator i = _expected.iterator(); i.hasNext();) {
+				final long value = ((Long) i.next()).longValue();
+				h += _longs ? (int) (value ^ value >>> 32) : (int) value;
+			}
+			return h;
+		}
+		void check(boolean condition, String message) {
+			if(!condition && _failure == null) {
+				_failure = message;
+			}
+		}
+	}
+	class PrimitiveMapDifferential extends TestCase {
+		final String[] NAMES = { "FastIntMap", "FastLongMap", "FastIntIntMap", "FastLongLongMap" };
+		final int ROUNDS = 200;
+		final int OPS = 500;
+		final int _type; // Index in NAMES.
+		final boolean _longKeys;
+		final boolean _objectValues;
+		final Random _random = new Random(13);
+		final long[] _colliding = new long[64];
+		HashMap _expected;
+		int _count;
+		String _failure;
+		public PrimitiveMapDifferential(int type) {
+			_type = type;
+			_longKeys = (type & 1) != 0;
+			_objectValues = type < 2;
+		}
+		public String getName() {
+			return NAMES[_type] + " against java.util.HashMap (key 0, negative, extreme and colliding keys)";
+		}
+		public void setUp() {
+			// Keys hashing to the last two and first two slots of a 64 entries
+			// table (runs wrapping around, also in smaller tables).
+			for(int n = 0; n < _colliding.length;) {
+				final long key = _longKeys ? _random.nextLong() : _random.nextInt();
+				final int slot = hash(key) & 63;
+				if(slot >= 62 || slot <= 1) {
+					_colliding[n++] = key;
+				}
+			}
+		}
+		public void execute() throws Exception {
+			_count = 0;
+			_failure = null;
+			for(int round = 0; round < ROUNDS && _failure == null; round++) {
+				round(_random.nextInt(5));
+			}
+		}
+		public int count() {
+			return _count;
+		}
+		public void validate() {
+			TestContext.assertNull(_failure);
+		}
+		// Mostly uses keys of the specified kind.
+		void round(int kind) throws Exception {
+			final Object map = newMap(_random.nextInt(32));
+			_expected = new HashMap();
+			for(int k = 0; k < OPS && _failure == null; k++, _count++) {
+				final long key = key(_random.nextInt(10) == 0 ? _random.nextInt(5) : kind);
+				final Long expectedValue = (Long) _expected.get(new Long(key));
+				final int op = _random.nextInt(10);
+				if(op < 5) {
+					final Long value = value();
+					check(equal(put(map, key, value), expectedValue), "put(" + key + ")");
+					_expected.put(new Long(key), value);
+				}
+				else if(op < 8) {
+					check(equal(remove(map, key), expectedValue), "remove(" + key + ")");
+					_expected.remove(new Long(key));
+				}
+				else if(op == 8 && !_objectValues) {
+					final long delta = value().longValue();
+					final long sum = (expectedValue != null ? expectedValue.longValue() : 0) + delta;
+					final Long expectedSum = new Long(_longKeys ? sum : (int) sum);
+					check(expectedSum.equals(add(map, key, delta)), "add(" + key + ")");
+					_expected.put(new Long(key), expectedSum);
+				}
+				else if(_random.nextInt(50) == 0) {
+					clear(map);
+					_expected.clear();
+				}
+				check(containsKey(map, key) == _expected.containsKey(new Long(key)), "containsKey(" + key + ")");
+				check(equal(get(map, key), (Long) _expected.get(new Long(key))), "get(" + key + ")");
+				check(size(map) == _expected.size(), "size after " + key);
+			}
+			if(_failure != null)
+				return;
+			check(asHashMap(map).equals(_expected), "keys()/values()");
+			for(final Iterator i = _expected.values().iterator(); i.hasNext();) {
+				check(containsValue(map, (Long) i.next()), "containsValue");
+			}
+			final Object clone = clone(map);
+			check(clone.equals(map) && map.equals(clone) && clone.hashCode() == map.hashCode(), "clone()");
+			remove(map, key(4));
+			put(map, 0, value());
+			check(asHashMap(clone).equals(_expected), "clone() independent copy");
+			final Object copy = serializeDeserialize(clone);
+			check(copy.equals(clone) && clone.equals(copy) && asHashMap(copy).equals(_expected), "serialization");
+			// Same mappings inserted in reverse order (different table layout).
+			final Object other = newMap(_expected.size() * 4);
+			final long[] keys = keys(clone);
+			for(int i = keys.length; --i >= 0;) {
+				put(other, keys[i], get(clone, keys[i]));
+			}
+			check(other.equals(clone) && clone.equals(other) && other.hashCode() == clone.hashCode(),
+					"equals()/hashCode()");
+			if(keys.length != 0) {
+				remove(other, keys[0]);
+				check(!other.equals(clone) && !clone.equals(other), "!equals()");
+			}
+		}
+		// Returns a key of the specified kind (dense around zero, dense near the
+		// extremes, sparse, extreme or colliding).
+		long key(int kind) {
+			final long min = _longKeys ? Long.MIN_VALUE : Integer.MIN_VALUE;
+			final long max = _longKeys ? Long.MAX_VALUE : Integer.MAX_VALUE;
+			switch(kind) {
+			case 0:
+				return _random.nextInt(201) - 100;
+			case 1:
+				return _random.nextBoolean() ? min + _random.nextInt(100) : max - _random.nextInt(100);
+			case 2:
+				return _longKeys ? _random.nextLong() : _random.nextInt();
+			case 3:
+				final long[] extremes = { min, min + 1, -1, 0, 1, max - 1, max };
+				return extremes[_random.nextInt(extremes.length)];
+			default:
+				return _colliding[_random.nextInt(_colliding.length)];
+			}
+		}
+		// Returns a value (null for maps of objects, zero or random).
+		Long value() {
+			if(_objectValues && _random.nextInt(20) == 0)
+				return null;
+			if(_random.nextInt(20) == 0)
+				return new Long(0);
+			final long value = _random.nextLong();
+			return new Long(_type == 2 ? (int) value : value);
+		}
+		// Same hash function as the maps under test.
+		int hash(long key) {
+			if(_longKeys) {
+				final long h = key * 0x9E3779B97F4A7C15L;
+				return (int) (h ^ h >>> 32);
+			}
+			final int h = (int) key * 0x9E3779B9;
+			return h ^ h >>> 16;
+		}
+		// Indicates if the specified value is the expected one (missing
+		// mappings are zero for primitive values).
+		boolean equal(Long value, Long expected) {
+			if(!_objectValues && expected == null)
+				return value.longValue() == 0;
+			return expected == null ? value == null : expected.equals(value);
+		}
+		Object newMap(int capacity) {
+			switch(_type) {
+			case 0:
+				return new FastIntMap(capacity);
+			case 1:
+				return new FastLongMap(capacity);
+			case 2:
+				return new FastIntIntMap(capacity);
+			default:
+				return new FastLongLongMap(capacity);
+			}
+		}
+		Long put(Object map, long key, Long value) {
+			switch(_type) {
+			case 0:
+				return (Long) ((FastIntMap) map).put((int) key, value);
+			case 1:
+				return (Long) ((FastLongMap) map).put(key, value);
+			case 2:
+				return new Long(((FastIntIntMap) map).put((int) key, value.intValue()));
+			default:
+				return new Long(((FastLongLongMap) map).put(key, value.longValue()));
+			}
+		}
+		Long add(Object map, long key, long delta) {
+			if(_type == 2)
+				return new Long(((FastIntIntMap) map).add((int) key, (int) delta));
+			return new Long(((FastLongLongMap) map).add(key, delta));
+		}
+		Long remove(Object map, long key) {
+			switch(_type) {
+			case 0:
+				return (Long) ((FastIntMap) map).remove((int) key);
+			case 1:
+				return (Long) ((FastLongMap) map).remove(key);
+			case 2:
+				return new Long(((FastIntIntMap) map).remove((int) key));
+			default:
+				return new Long(((FastLongLongMap) map).remove(key));
+			}
+		}
+		Long get(Object map, long key) {
+			switch(_type) {
+			case 0:
+				return (Long) ((FastIntMap) map).get((int) key);
+			case 1:
+				return (Long) ((FastLongMap) map).get(key);
+			case 2:
+				return new Long(((FastIntIntMap) map).get((int) key));
+			default:
+				return new Long(((FastLongLongMap) map).get(key));
+			}
+		}
+		boolean containsKey(Object map, long key) {
+			switch(_type) {
+			case 0:
+				return ((FastIntMap) map).containsKey((int) key);
+			case 1:
+				return ((FastLongMap) map).containsKey(key);
+			case 2:
+				return ((FastIntIntMap) map).containsKey((int) key);
+			default:
+				return ((FastLongLongMap) map).containsKey(key);
+			}
+		}
+		boolean containsValue(Object map, Long value) {
+			switch(_type) {
+			case 0:
+				return ((FastIntMap) map).containsValue(value);
+			case 1:
+				return ((FastLongMap) map).containsValue(value);
+			case 2:
+				return ((FastIntIntMap) map).containsValue(value.intValue());
+			default:
+				return ((FastLongLongMap) map).containsValue(value.longValue());
+			}
+		}
+		void clear(Object map) {
+			switch(_type) {
+			case 0:
+				((FastIntMap) map).clear();
+				break;
+			case 1:
+				((FastLongMap) map).clear();
+				break;
+			case 2:
+				((FastIntIntMap) map).clear();
+				break;
+			default:
+				((FastLongLongMap) map).clear();
+			}
+		}
+		int size(Object map) {
+			switch(_type) {
+			case 0:
+				return ((FastIntMap) map).size();
+			case 1:
+				return ((FastLongMap) map).size();
+			case 2:
+				return ((FastIntIntMap) map).size();
+			default:
+				return ((FastLongLongMap) map).size();
+			}
+		}
+		Object clone(Object map) throws CloneNotSupportedException {
+			switch(_type) {
+			case 0:
+				return ((FastIntMap) map).clone();
+			case 1:
+				return ((FastLongMap) map).clone();
+			case 2:
+				return ((FastIntIntMap) map).clone();
+			default:
+				return ((FastLongLongMap) map).clone();
+			}
+		}
+		long[] keys(Object map) {
+			if(_type == 1)
+				return ((FastLongMap) map).keys();
+			if(_type == 3)
+				return ((FastLongLongMap) map).keys();
+			final int[] ints = _type == 0 ? ((FastIntMap) map).keys() : ((FastIntIntMap) map).keys();
+			final long[] keys = new long[ints.length];
+			for(int i = 0; i < ints.length; i++) {
+				keys[i] = ints[i];
+			}
+			return keys;
+		}
+		Long[] values(Object map) {
+			if(_objectValues) {
+				final Object[] objects = _type == 0 ? ((FastIntMap) map).values() : ((FastLongMap) map).values();
+				final Long[] values = new Long[objects.length];
+				System.arraycopy(objects, 0, values, 0, objects.length);
+				return values;
+			}
+			final long[] longs;
+			if(_type == 3) {
+				longs = ((FastLongLongMap) map).values();
+			}
+			else {
+				final int[] ints = ((FastIntIntMap) map).values();
+				longs = new long[ints.length];
+				for(int i = 0; i < ints.length; i++) {
+					longs[i] = ints[i];
+				}
+			}
+			final Long[] values = new Long[longs.length];
+			for(int i = 0; i < longs.length; i++) {
+				values[i] = new Long(longs[i]);
+			}
+			return values;
+		}
+		// Returns the mappings of the specified map (keys() and values() have the same order).
+		HashMap asHashMap(Object map) {
+			final long[] keys = keys(map);
+			final Long[] values = values(map);
+			final HashMap mappings = new HashMap();
+			for(int i = 0; i < keys.length; i++) {
+				mappings.put(new Long(keys[i]), values[i]);
+			}
+			return mappings.size() == keys.length && values.length == keys.length ? mappings : null;
+		}
+		void check(boolean condition, String message) {
+			if(!condition && _failure == null) {
+				_failure = message;
+			}
+		}
+	}
+}
@@ -0,0 +1,573 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2007 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import javolution.testing.TestCase;
+import javolution.testing.TestContext;
+import javolution.testing.TestSuite;
+import javolution.util.FastTable;
+import javolution.util.concurrent.BoundedChannel;
+import javolution.util.concurrent.BoundedLinkedQueue;
+import javolution.util.concurrent.Channel;
+import javolution.util.concurrent.ConcurrentHashMapV8;
+import javolution.util.concurrent.IntAccumulator;
+import javolution.util.concurrent.LinkedQueue;
+import javolution.util.concurrent.LongAccumulator;
+import javolution.util.concurrent.MPSCRingBuffer;
+import javolution.util.concurrent.RingBuffer;
+import javolution.util.concurrent.SPSCRingBuffer;
+/**
+ * <p> This class holds the test cases for the {@link javolution.util.concurrent
+ *     concurrent} classes.</p>
+ *
+ * @since 5.7.5
+ */
+public final class ConcurrentTestSuite extends TestSuite {
+	// Holds the number of concurrent threads.
+	static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	public ConcurrentTestSuite() {
+		addTest(new Accumulator(LongAccumulator.SUM, 100));
+		addTest(new Accumulator(LongAccumulator.MAX, -100));
+		addTest(new Accumulator(LongAccumulator.MIN, 100));
+		addTest(new DrainToFailure(false));
+		addTest(new DrainToFailure(true));
+		addTest(new ComputeIfAbsent());
+		addTest(new Merge());
+		addTest(new IterationDuringResize());
+		addTest(new SharedReentrantReads());
+		addTest(new RingBufferTransfer(RingBufferTransfer.MPMC, 1));
+		addTest(new RingBufferTransfer(RingBufferTransfer.MPMC, 5));
+		addTest(new RingBufferTransfer(RingBufferTransfer.MPSC, 1));
+		addTest(new RingBufferTransfer(RingBufferTransfer.MPSC, 5));
+		addTest(new RingBufferTransfer(RingBufferTransfer.SPSC, 1));
+		addTest(new RingBufferTransfer(RingBufferTransfer.SPSC, 5));
+	}
+	// Runs the specified threads concurrently and waits for their completion.
+	static void runAll(Thread[] threads) throws InterruptedException {
+		for(int i = 0; i < threads.length; i++) {
+			threads[i].start();
+		}
+		for(int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+	}
+	class Accumulator extends TestCase {
+		final int N = 10000;
+		final int _function;
+		final int _identity;
+		LongAccumulator _long;
+		IntAccumulator _int;
+		long _initialLong, _resetLong;
+		int _initialInt, _resetInt;
+		public Accumulator(int function, int identity) {
+			_function = function;
+			_identity = identity;
+		}
+		public String getName() {
+			return "LongAccumulator/IntAccumulator ("
+					+ (_function == LongAccumulator.SUM ? "SUM" : _function == LongAccumulator.MAX ? "MAX" : "MIN")
+					+ ", identity " + _identity + ", " + THREADS + " threads)";
+		}
+		public void setUp() {
+			_long = new LongAccumulator(_function, _identity);
+			_int = new IntAccumulator(_function, _identity);
+		}
+		public void execute() throws Exception {
+			_initialLong = _long.get();
+			_initialInt = _int.get();
+			final Thread[] threads = new Thread[THREADS];
+			for(int t = 0; t < THREADS; t++) {
+				final int offset = t * N;
+				threads[t] = new Thread() {
+					public void run() {
+						for(int i = 1; i <= N; i++) {
+							_long.accumulate(offset + i);
+							_int.accumulate(offset + i);
+						}
+					}
+				};
+			}
+			runAll(threads);
+		}
+		public int count() {
+			return THREADS * N;
+		}
+		public void validate() {
+			TestContext.assertEquals(_identity, _initialLong);
+			TestContext.assertEquals(_identity, _initialInt);
+			final long total = (long) THREADS * N;
+			final long expected = _function == LongAccumulator.SUM ? _identity + total * (total + 1) / 2
+					: _function == LongAccumulator.MAX ? Math.max(_identity, total) : Math.min(_identity, 1);
+			TestContext.assertEquals(expected, _long.get());
+			TestContext.assertEquals((int) expected, _int.get());
+			TestContext.assertEquals(expected, _long.getAndReset());
+			TestContext.assertEquals((int) expected, _int.getAndReset());
+			TestContext.assertEquals(_identity, _long.get());
+			TestContext.assertEquals(_identity, _int.get());
+			_long.accumulate(-1000);
+			_int.accumulate(-1000);
+			final long afterUpdate = _function == LongAccumulator.SUM ? _identity - 1000
+					: _function == LongAccumulator.MAX ? _identity : -1000;
+			TestContext.assertEquals(afterUpdate, _long.get());
+			TestContext.assertEquals((int) afterUpdate, _int.get());
+			_long.reset();
+			_int.reset();
+			TestContext.assertEquals(_identity, _long.get());
+			TestContext.assertEquals(_identity, _int.get());
+		}
+	}
+	class DrainToFailure extends TestCase {
+		final int N = 10;
+		final int LIMIT = 3; // Number of elements accepted by the collection.
+		final boolean _bounded;
+		Channel _channel;
+		boolean _thrown;
+		Object[] _remaining;
+		public DrainToFailure(boolean bounded) {
+			_bounded = bounded;
+		}
+		public String getName() {
+			return (_bounded ? "BoundedLinkedQueue" : "LinkedQueue") + ".drainTo(failing collection)";
+		}
+		public void setUp() {
+			_channel = _bounded ? (Channel) new BoundedLinkedQueue(N) : (Channel) new LinkedQueue();
+		}
+		public void execute() throws Exception {
+			for(int i = 0; i < N; i++) {
+				_channel.put(new Integer(i));
+			}
+			final ArrayList limited = new ArrayList() {
+				public boolean add(Object o) {
+					if(size() == LIMIT)
+						throw new IllegalStateException("Full");
+					return super.add(o);
+				}
+			};
+			try {
+				_channel.drainTo(limited, N);
+			}
+			catch(final IllegalStateException e) {
+				_thrown = true;
+			}
+			_remaining = new Object[N];
+			for(int i = 0; i < N; i++) {
+				_remaining[i] = _channel.poll(0);
+			}
+		}
+		public void validate() throws Exception {
+			TestContext.assertTrue(_thrown);
+			for(int i = 0; i < N - LIMIT; i++) {
+				TestContext.assertEquals(new Integer(LIMIT + i), _remaining[i]);
+			}
+			TestContext.assertNull(_remaining[N - LIMIT]);
+			if(_bounded) { // All put permits are available again.
+				for(int i = 0; i < N; i++) {
+					TestContext.assertTrue(_channel.offer(new Integer(i), 0));
+				}
+			}
+		}
+	}
+	class ComputeIfAbsent extends TestCase {
+		final int N = 10000;
+		ConcurrentHashMapV8 _map;
+		int[] _calls;
+		boolean _mismatch;
+		public String getName() {
+			return "ConcurrentHashMapV8.computeIfAbsent(same keys, " + THREADS + " threads)";
+		}
+		public void setUp() {
+			_map = new ConcurrentHashMapV8(0); // Resizes while computing.
+			_calls = new int[N];
+			_mismatch = false;
+		}
+		public void execute() throws Exception {
+			final ConcurrentHashMapV8.Function loader = new ConcurrentHashMapV8.Function() {
+				public Object apply(Object key) {
+					final int i = ((Integer) key).intValue();
+					synchronized(_calls) {
+						_calls[i]++;
+					}
+					return "v" + i;
+				}
+			};
+			final Thread[] threads = new Thread[THREADS];
+			for(int t = 0; t < THREADS; t++) {
+				threads[t] = new Thread() {
+					public void run() {
+						for(int i = 0; i < N; i++) {
+							if(!("v" + i).equals(_map.computeIfAbsent(new Integer(i), loader))) {
+								_mismatch = true;
+							}
+						}
+					}
+				};
+			}
+			runAll(threads);
+		}
+		public int count() {
+			return THREADS * N;
+		}
+		public void validate() {
+			TestContext.assertFalse(_mismatch);
+			TestContext.assertEquals(N, _map.size());
+			for(int i = 0; i < N; i++) {
+				if(!TestContext.assertEquals(1, _calls[i], "Loader calls for " + i))
+					break;
+			}
+		}
+	}
+	class Merge extends TestCase {
+		final int N = 10000;
+		final int KEYS = 100;
+		ConcurrentHashMapV8 _map;
+		public String getName() {
+			return "ConcurrentHashMapV8.merge(counters, " + THREADS + " threads)";
+		}
+		public void setUp() {
+			_map = new ConcurrentHashMapV8();
+		}
+		public void execute() throws Exception {
+			final ConcurrentHashMapV8.BiFunction sum = new ConcurrentHashMapV8.BiFunction() {
+				public Object apply(Object first, Object second) {
+					return new Integer(((Integer) first).intValue() + ((Integer) second).intValue());
+				}
+			};
+			final Integer one = new Integer(1);
+			final Thread[] threads = new Thread[THREADS];
+			for(int t = 0; t < THREADS; t++) {
+				threads[t] = new Thread() {
+					public void run() {
+						for(int i = 0; i < N; i++) {
+							_map.merge(new Integer(i % KEYS), one, sum);
+						}
+					}
+				};
+			}
+			runAll(threads);
+		}
+		public int count() {
+			return THREADS * N;
+		}
+		public void validate() {
+			TestContext.assertEquals(KEYS, _map.size());
+			for(int i = 0; i < KEYS; i++) {
+				if(!TestContext.assertEquals(new Integer(THREADS * N / KEYS), _map.get(new Integer(i))))
+					break;
+			}
+		}
+	}
+	class IterationDuringResize extends TestCase {
+		final int STABLE = 1000; // Keys present during the whole iteration.
+		final int N = 100000; // Keys inserted concurrently.
+		ConcurrentHashMapV8 _map;
+		int _iterations;
+		boolean _duplicate, _missing;
+		public String getName() {
+			return "ConcurrentHashMapV8 iteration during resize";
+		}
+		public void setUp() {
+			_map = new ConcurrentHashMapV8(0);
+			for(int i = 0; i < STABLE; i++) {
+				_map.put(new Integer(-1 - i), "stable");
+			}
+			_iterations = 0;
+			_duplicate = false;
+			_missing = false;
+		}
+		public void execute() throws Exception {
+			final Thread writer = new Thread() {
+				public void run() {
+					for(int i = 0; i < N; i++) {
+						_map.put(new Integer(i), "added");
+					}
+				}
+			};
+			writer.start();
+			while(writer.isAlive() || _iterations == 0) {
+				final HashSet seen = new HashSet();
+				int stable = 0;
+				for(final Iterator i = _map.keySet().iterator(); i.hasNext();) {
+					final Integer key = (Integer) i.next();
+					if(!seen.add(key)) {
+						_duplicate = true;
+					}
+					if(key.intValue() < 0) {
+						stable++;
+					}
+				}
+				if(stable != STABLE) {
+					_missing = true;
+				}
+				_iterations++;
+			}
+			writer.join();
+		}
+		public void validate() {
+			TestContext.assertFalse(_duplicate, "Key returned twice");
+			TestContext.assertFalse(_missing, "Stable key not returned");
+			TestContext.assertEquals(STABLE + N, _map.size());
+			int n = 0;
+			for(final Iterator i = _map.entrySet().iterator(); i.hasNext(); i.next()) {
+				n++;
+			}
+			TestContext.assertEquals(STABLE + N, n);
+		}
+	}
+	class SharedReentrantReads extends TestCase {
+		final int N = 2000;
+		final int SIZE = 16;
+		final long TIMEOUT = 60000; // Milliseconds.
+		FastTable _shared;
+		boolean _deadlock, _mismatch;
+		// Element whose equals() reads the shared table (nested read lock).
+		final class Probe {
+			final int _value;
+			Probe(int value) {
+				_value = value;
+			}
+			public boolean equals(Object obj) {
+				return (obj instanceof Probe) && (((Probe) obj)._value == _value) && (_shared.toArray().length != 0);
+			}
+			public int hashCode() {
+				return _value;
+			}
+		}
+		public String getName() {
+			return "FastTable.shared() reentrant reads with queued writers (" + THREADS + " readers, " + THREADS
+					+ " writers)";
+		}
+		public void setUp() {
+			_shared = (FastTable) new FastTable().shared();
+			for(int i = 0; i < SIZE; i++) {
+				_shared.add(new Probe(i));
+			}
+			_deadlock = false;
+			_mismatch = false;
+		}
+		public void execute() throws Exception {
+			final Thread[] threads = new Thread[2 * THREADS];
+			for(int t = 0; t < THREADS; t++) {
+				threads[t] = new Thread() {
+					public void run() {
+						for(int i = 0; i < N; i++) {
+							if(!_shared.contains(new Probe(i % SIZE))) {
+								_mismatch = true;
+							}
+						}
+					}
+				};
+				final int value = SIZE + t;
+				threads[THREADS + t] = new Thread() {
+					public void run() {
+						for(int i = 0; i < N; i++) {
+							_shared.add(new Probe(value));
+							if(!_shared.remove(new Probe(value))) { // equals() called under the write lock.
+								_mismatch = true;
+							}
+						}
+					}
+				};
+			}
+			for(int i = 0; i < threads.length; i++) {
+				threads[i].setDaemon(true); // Does not prevent the VM exit if dead-locked.
+				threads[i].start();
+			}
+			final long deadline = System.currentTimeMillis() + TIMEOUT;
+			for(int i = 0; i < threads.length; i++) {
+				threads[i].join(Math.max(1, deadline - System.currentTimeMillis()));
+				if(threads[i].isAlive()) {
+					_deadlock = true;
+					break;
+				}
+			}
+		}
+		public int count() {
+			return 3 * THREADS * N;
+		}
+		public void validate() {
+			TestContext.assertFalse(_deadlock, "Dead-lock");
+			if(_deadlock)
+				return;
+			TestContext.assertFalse(_mismatch, "Element not found");
+			TestContext.assertEquals(SIZE, _shared.size());
+		}
+	}
+	class RingBufferTransfer extends TestCase {
+		static final int MPMC = 0;
+		static final int MPSC = 1;
+		static final int SPSC = 2;
+		final int N = 20000; // Elements per producer.
+		final long TIMEOUT = 60000; // Milliseconds.
+		final int _kind;
+		final int _capacity;
+		final int _producers;
+		final int _consumers;
+		BoundedChannel _channel;
+		int[] _received; // Number of times each element is received (guarded by itself).
+		int _total; // Guarded by _received.
+		boolean _deadlock, _outOfOrder;
+		public RingBufferTransfer(int kind, int capacity) {
+			_kind = kind;
+			_capacity = capacity;
+			_producers = kind == SPSC ? 1 : THREADS;
+			_consumers = kind == MPMC ? THREADS : 1;
+		}
+		public String getName() {
+			return (_kind == MPMC ? "RingBuffer" : _kind == MPSC ? "MPSCRingBuffer" : "SPSCRingBuffer") + " (capacity "
+					+ _capacity + ", " + _producers + " producers, " + _consumers + " consumers)";
+		}
+		public void setUp() {
+			_channel = _kind == MPMC ? (BoundedChannel) new RingBuffer(_capacity)
+					: _kind == MPSC ? (BoundedChannel) new MPSCRingBuffer(_capacity) : (BoundedChannel) new SPSCRingBuffer(
+							_capacity);
+			_received = new int[_producers * N];
+			_total = 0;
+			_deadlock = false;
+			_outOfOrder = false;
+		}
+		public void execute() throws Exception {
+			final Thread[] threads = new Thread[_producers + _consumers];
+			for(int p = 0; p < _producers; p++) {
+				final int producer = p;
+				threads[p] = new Thread() {
+					public void run() {
+						try {
+							produce(producer);
+						}
+						catch(final InterruptedException e) {
+							// Dead-lock reported.
+						}
+					}
+				};
+			}
+			for(int c = 0; c < _consumers; c++) {
+				final int consumer = c;
+				threads[_producers + c] = new Thread() {
+					public void run() {
+						try {
+							consume(consumer);
+						}
+						catch(final InterruptedException e) {
+							// Dead-lock reported.
+						}
+					}
+				};
+			}
+			for(int i = 0; i < threads.length; i++) {
+				threads[i].setDaemon(true);
+				threads[i].start();
+			}
+			final long deadline = System.currentTimeMillis() + TIMEOUT;
+			for(int i = 0; i < threads.length; i++) {
+				threads[i].join(Math.max(1, deadline - System.currentTimeMillis()));
+				if(threads[i].isAlive()) {
+					_deadlock = true;
+					break;
+				}
+			}
+		}
+		// Puts the elements of the specified producer in order (single, timed or bulk puts).
+		void produce(int producer) throws InterruptedException {
+			final Random random = new Random(producer);
+			final int first = producer * N;
+			for(int i = 0; i < N;) {
+				final int mode = random.nextInt(3);
+				if(mode == 0) {
+					_channel.put(new Integer(first + i++));
+				}
+				else if(mode == 1) {
+					if(_channel.offer(new Integer(first + i), random.nextInt(2))) {
+						i++;
+					}
+				}
+				else {
+					final int length = Math.min(N - i, 1 + random.nextInt(8));
+					final Object[] items = new Object[length + 2];
+					for(int j = 0; j < length; j++) {
+						items[j + 1] = new Integer(first + i + j);
+					}
+					_channel.putAll(items, 1, length);
+					i += length;
+				}
+			}
+		}
+		// Takes elements until all have been received (single, array or drained takes).
+		void consume(int consumer) throws InterruptedException {
+			final Random random = new Random(-1 - consumer);
+			final int[] last = new int[_producers]; // Last element received from each producer.
+			for(int p = 0; p < _producers; p++) {
+				last[p] = -1;
+			}
+			final Object[] array = new Object[3];
+			final ArrayList drained = new ArrayList();
+			for(;;) {
+				synchronized(_received) {
+					if(_total == _received.length)
+						return;
+				}
+				final int mode = random.nextInt(3);
+				if(mode == 0) {
+					receive(_channel.poll(1), last);
+				}
+				else if(mode == 1) {
+					final int n = _channel.poll(array, 1);
+					for(int i = 0; i < n; i++) {
+						receive(array[i], last);
+						array[i] = null;
+					}
+				}
+				else {
+					drained.clear();
+					_channel.drainTo(drained, 1 + random.nextInt(4));
+					for(int i = 0; i < drained.size(); i++) {
+						receive(drained.get(i), last);
+					}
+				}
+			}
+		}
+		// Records the specified element (elements of a producer are received in order).
+		void receive(Object element, int[] last) {
+			if(element == null)
+				return;
+			final int value = ((Integer) element).intValue();
+			final int producer = value / N;
+			if(value <= last[producer]) {
+				_outOfOrder = true;
+			}
+			last[producer] = value;
+			synchronized(_received) {
+				_received[value]++;
+				_total++;
+			}
+		}
+		public int count() {
+			return _producers * N;
+		}
+		public void validate() throws Exception {
+			TestContext.assertFalse(_deadlock, "Dead-lock");
+			if(_deadlock)
+				return;
+			TestContext.assertFalse(_outOfOrder, "Elements of a producer received out of order");
+			for(int i = 0; i < _received.length; i++) {
+				if(!TestContext.assertEquals(1, _received[i], "Element " + i + " received"))
+					break;
+			}
+			TestContext.assertNull(_channel.peek()); // Empty.
+			TestContext.assertEquals(_capacity, _channel.capacity());
+			int accepted = 0;
+			while(_channel.offer(new Integer(accepted), 0)) {
+				accepted++;
+			}
+			TestContext.assertEquals(_capacity, accepted);
+		}
+	}
+}
@@ -7,17 +7,36 @@
  * freely granted, provided that this notice is preserved.
  */
 package javolution;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Random;
+import _templates.javax.realtime.MemoryArea;
+import _templates.javax.realtime.RealtimeThread;
+import _templates.javolution.context.AllocationStatistics;
+import _templates.javolution.context.AllocatorContext;
+import _templates.javolution.context.ArenaContext;
 import _templates.javolution.context.ArrayFactory;
 import _templates.javolution.context.ConcurrentContext;
+import _templates.javolution.context.ConcurrentException;
+import _templates.javolution.context.Context;
 import _templates.javolution.context.LocalContext;
 import _templates.javolution.context.ObjectFactory;
+import _templates.javolution.context.PoolContext;
 import _templates.javolution.context.StackContext;
+import _templates.javolution.io.Struct;
+import _templates.javolution.lang.Configurable;
 import _templates.javolution.lang.MathLib;
+import _templates.javolution.lang.Reflection;
 import _templates.javolution.testing.TestCase;
 import _templates.javolution.testing.TestContext;
 import _templates.javolution.testing.TestSuite;
 import _templates.javolution.util.FastTable;
 import _templates.javolution.util.Index;
+import _templates.javolution.util.Parallel;
+import _templates.javolution.util.primitive.FastDoubleArrayList;
+import _templates.javolution.util.primitive.FastIntArrayList;
+import _templates.javolution.util.primitive.FastLongArrayList;
 /**
  * <p> This class holds the test cases for the {@link javolution.context
  *     context} classes.</p>
@@ -28,23 +47,47 @@ import _templates.javolution.util.Index;
 public final class ContextTestSuite extends TestSuite {
 	public ContextTestSuite() {
 		final int defaultConcurrency = ConcurrentContext.getConcurrency();
+		if(defaultConcurrency < 2) { // Concurrent threads also on uniprocessors (before their creation).
+			Configurable.configure(ConcurrentContext.MAXIMUM_CONCURRENCY, new Integer(2));
+		}
+		final int concurrency = MathLib.max(2, defaultConcurrency);
 		addTest(new Concurrency(10000, 0)); // Test with concurrency disabled
 		addTest(new Concurrency(10000, defaultConcurrency));
+		addTest(new Concurrency(10000, defaultConcurrency, ConcurrentContext.WORK_STEALING));
+		addTest(new Concurrency(10000, concurrency, ConcurrentContext.WORK_STEALING));
+		addTest(new WorkStealingNested(concurrency));
+		addTest(new ConcurrentHandoff(2000, concurrency));
+		addTest(new Concurrency(10000, defaultConcurrency, ConcurrentContext.VIRTUAL_THREADS));
+		addTest(new VirtualThreadsExecution());
+		addTest(new ParallelSort(100000, defaultConcurrency));
+		addTest(new ParallelOperations(defaultConcurrency));
 		addTest(new SmallObjectAllocation(false));
 		addTest(new SmallObjectAllocation(true));
 		addTest(new ArrayRecycling(4096, false));
 		addTest(new ArrayRecycling(4096, true));
+		addTest(new LargeArrayRecycling(1 << 16));
+		addTest(new CrossThreadPooling(Math.max(2, Runtime.getRuntime().availableProcessors())));
+		addTest(new ArenaAllocation());
+		addTest(new ArenaConcurrentAllocation());
+		addTest(new AllocationStatisticsReport());
 	}
 	class Concurrency extends TestCase {
 		final int _size;
 		final int _concurrency;
+		final Class _contextType;
 		FastTable _table;
 		public Concurrency(int size, int concurrency) {
+			this(size, concurrency, null);
+		}
+		public Concurrency(int size, int concurrency, Class contextType) {
 			_size = size;
 			_concurrency = concurrency;
+			_contextType = contextType;
 		}
 		public String getName() {
-			return "ConcurrentContext (" + _concurrency + ") Quick-Sort (" + _size + " elements)";
+			return "ConcurrentContext (" + _concurrency
+					+ (_contextType == ConcurrentContext.VIRTUAL_THREADS ? ", virtual threads"
+							: _contextType != null ? ", work-stealing" : "") + ") Quick-Sort (" + _size + " elements)";
 		}
 		public void setUp() {
 			_table = new FastTable(_size);
@@ -80,7 +123,12 @@ public final class ContextTestSuite extends TestSuite {
 			else {
 				final FastTable t1 = FastTable.newInstance();
 				final FastTable t2 = FastTable.newInstance();
-				ConcurrentContext.enter();
+				if(_contextType != null) {
+					Context.enter(_contextType);
+				}
+				else {
+					ConcurrentContext.enter();
+				}
 				try {
 					ConcurrentContext.execute(new Runnable() {
 						public void run() {
@@ -124,6 +172,473 @@ public final class ContextTestSuite extends TestSuite {
 			}
 		}
 	}
+	class WorkStealingNested extends TestCase {
+		final int OUTER = 8;
+		final int INNER = 8;
+		final int _concurrency;
+		final ArrayList _executors = new ArrayList(); // Guarded by itself.
+		int _stolen, _helped; // Guarded by _executors.
+		public WorkStealingNested(int concurrency) {
+			_concurrency = concurrency;
+		}
+		public String getName() {
+			return "ConcurrentContext (" + _concurrency + ", work-stealing) nested executions, stealing and helping";
+		}
+		public void setUp() {
+			_executors.clear();
+			_stolen = 0;
+			_helped = 0;
+		}
+		public void execute() {
+			LocalContext.enter();
+			try {
+				ConcurrentContext.setConcurrency(_concurrency);
+				Context.enter(ConcurrentContext.WORK_STEALING);
+				try {
+					for(int i = 0; i < OUTER; i++) {
+						ConcurrentContext.execute(new Runnable() {
+							public void run() {
+								final Thread submitter = Thread.currentThread();
+								Context.enter(ConcurrentContext.WORK_STEALING); // Nested.
+								try {
+									for(int j = 0; j < INNER; j++) {
+										ConcurrentContext.execute(new Runnable() {
+											public void run() {
+												pause();
+												synchronized(_executors) {
+													_executors.add(Thread.currentThread());
+													if(Thread.currentThread() == submitter) {
+														_helped++; // Join by helping (or inline).
+													}
+													else {
+														_stolen++;
+													}
+												}
+											}
+										});
+									}
+								}
+								finally {
+									ConcurrentContext.exit(); // Waits for the inner executions.
+								}
+							}
+						});
+					}
+				}
+				finally {
+					ConcurrentContext.exit();
+				}
+			}
+			finally {
+				LocalContext.exit();
+			}
+		}
+		// Short blocking task (the other threads get to run, also on uniprocessors).
+		void pause() {
+			try {
+				Thread.sleep(1);
+			}
+			catch(final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		public void validate() {
+			TestContext.assertEquals(OUTER * INNER, _executors.size());
+			int workers = 0;
+			final ArrayList distinct = new ArrayList();
+			for(int i = 0; i < _executors.size(); i++) {
+				final Thread thread = (Thread) _executors.get(i);
+				if(!distinct.contains(thread)) {
+					distinct.add(thread);
+					if(thread.toString().startsWith("WorkStealingThread")) { // Worker name.
+						workers++;
+					}
+				}
+			}
+			TestContext.assertTrue(workers >= 2, workers + " work-stealing threads used");
+			TestContext.assertTrue(_stolen > 0, "Inner tasks stolen");
+			TestContext.assertTrue(_helped > 0, "Inner tasks executed by their (joining) submitter");
+		}
+	}
+	class ConcurrentHandoff extends TestCase {
+		final int _rounds;
+		final int _concurrency;
+		final ArrayList _executors = new ArrayList(); // Guarded by itself.
+		int _executed; // Guarded by _executors.
+		Throwable _error;
+		boolean _completed;
+		public ConcurrentHandoff(int rounds, int concurrency) {
+			_rounds = rounds;
+			_concurrency = concurrency;
+		}
+		public String getName() {
+			return "ConcurrentContext (" + _concurrency + ") handoff of short tasks to idle and blocked executors ("
+					+ _rounds + " rounds)";
+		}
+		public void setUp() {
+			_executors.clear();
+			_executed = 0;
+			_error = null;
+			_completed = false;
+		}
+		public void execute() throws InterruptedException {
+			final Thread driver = new Thread() {
+				public void run() {
+					try {
+						handoff();
+					}
+					catch(final Throwable error) {
+						_error = error;
+					}
+				}
+			};
+			driver.setDaemon(true);
+			driver.start();
+			driver.join(60000); // A lost wakeup hangs the driver.
+			_completed = !driver.isAlive();
+		}
+		void handoff() throws InterruptedException {
+			LocalContext.enter();
+			try {
+				ConcurrentContext.setConcurrency(_concurrency);
+				for(int i = 0; i < _rounds; i++) {
+					if((i & 1) != 0) { // Lets the executors exhaust their spins/yields and block.
+						Thread.sleep(1);
+					}
+					ConcurrentContext.enter();
+					try {
+						for(int j = 0; j < _concurrency; j++) {
+							ConcurrentContext.execute(new Runnable() {
+								public void run() {
+									synchronized(_executors) {
+										_executed++;
+										final Thread current = Thread.currentThread();
+										if(!_executors.contains(current)) {
+											_executors.add(current);
+										}
+									}
+								}
+							});
+						}
+					}
+					finally {
+						ConcurrentContext.exit();
+					}
+				}
+			}
+			finally {
+				LocalContext.exit();
+			}
+		}
+		public void validate() {
+			TestContext.assertTrue(_completed, "Handoff completed (no lost wakeup)");
+			TestContext.assertNull(_error, "Handoff error");
+			synchronized(_executors) {
+				TestContext.assertEquals(_rounds * _concurrency, _executed);
+				int executors = 0;
+				for(int i = 0; i < _executors.size(); i++) {
+					if(_executors.get(i).toString().startsWith("ConcurrentThread")) { // Executor name.
+						executors++;
+					}
+				}
+				TestContext.assertTrue(executors > 0, "Tasks executed by concurrent threads");
+			}
+		}
+	}
+	class VirtualThreadsExecution extends TestCase {
+		final int TASKS = 16;
+		final boolean _supported = Reflection.getInstance().getMethod(
+				"java.lang.Thread.startVirtualThread(java.lang.Runnable)") != null;
+		final Reflection.Method _isVirtual = Reflection.getInstance().getMethod("java.lang.Thread.isVirtual()");
+		final ArrayList _allocators = new ArrayList(); // Guarded by itself.
+		final ArrayList _areas = new ArrayList(); // Guarded by _allocators.
+		final ArrayList _threads = new ArrayList(); // Guarded by _allocators.
+		Thread _caller;
+		AllocatorContext _allocator;
+		MemoryArea _area;
+		RuntimeException _runtimeError;
+		ConcurrentException _checkedError;
+		public String getName() {
+			return "ConcurrentContext (virtual threads" + (_supported ? "" : ", not supported") + "), allocator context,"
+					+ " memory area and errors";
+		}
+		public void setUp() {
+			_allocators.clear();
+			_areas.clear();
+			_threads.clear();
+			_runtimeError = null;
+			_checkedError = null;
+		}
+		public void execute() {
+			_caller = Thread.currentThread();
+			StackContext.enter();
+			try {
+				_allocator = AllocatorContext.getCurrentAllocatorContext();
+				_area = RealtimeThread.getCurrentMemoryArea();
+				Context.enter(ConcurrentContext.VIRTUAL_THREADS);
+				try {
+					for(int i = 0; i < TASKS; i++) {
+						ConcurrentContext.execute(new Runnable() {
+							public void run() {
+								XYZ.valueOf(1, 2, 3); // Allocates from the caller allocator context.
+								synchronized(_allocators) {
+									_allocators.add(AllocatorContext.getCurrentAllocatorContext());
+									_areas.add(RealtimeThread.getCurrentMemoryArea());
+									_threads.add(Thread.currentThread());
+								}
+							}
+						});
+					}
+				}
+				finally {
+					ConcurrentContext.exit();
+				}
+			}
+			finally {
+				StackContext.exit();
+			}
+			try {
+				Context.enter(ConcurrentContext.VIRTUAL_THREADS);
+				try {
+					ConcurrentContext.execute(new Runnable() {
+						public void run() {
+							throw new IllegalStateException("Task error");
+						}
+					});
+				}
+				finally {
+					ConcurrentContext.exit();
+				}
+			}
+			catch(final IllegalStateException e) {
+				_runtimeError = e;
+			}
+			try {
+				Context.enter(ConcurrentContext.VIRTUAL_THREADS);
+				try {
+					ConcurrentContext.execute(new Runnable() {
+						public void run() {
+							try {
+								Thrower.class.newInstance(); // Throws a checked exception (undeclared).
+							}
+							catch(final InstantiationException e) {
+								throw new Error(e.toString());
+							}
+							catch(final IllegalAccessException e) {
+								throw new Error(e.toString());
+							}
+						}
+					});
+				}
+				finally {
+					ConcurrentContext.exit();
+				}
+			}
+			catch(final ConcurrentException e) {
+				_checkedError = e;
+			}
+		}
+		public void validate() {
+			TestContext.assertEquals(TASKS, _allocators.size());
+			for(int i = 0; i < _allocators.size(); i++) {
+				TestContext.assertTrue(_allocators.get(i) == _allocator, "Caller allocator context");
+				TestContext.assertTrue(_areas.get(i) == _area, "Caller memory area");
+				final Thread thread = (Thread) _threads.get(i);
+				if(_supported) {
+					TestContext.assertTrue(thread != _caller && Boolean.TRUE.equals(_isVirtual.invoke(thread)),
+							"Executed by a virtual thread");
+				}
+				else {
+					TestContext.assertTrue(thread == _caller, "Executed by the current thread (no virtual threads)");
+				}
+			}
+			TestContext.assertTrue(_runtimeError != null && "Task error".equals(_runtimeError.getMessage()),
+					"Runtime exception propagated");
+			TestContext.assertTrue(_checkedError != null && _checkedError.getCause() instanceof java.io.IOException,
+					"Checked exception propagated as ConcurrentException");
+		}
+	}
+	class ParallelSort extends TestCase {
+		final int _size;
+		final int _concurrency;
+		FastTable _table;
+		int _index;
+		public ParallelSort(int size, int concurrency) {
+			_size = size;
+			_concurrency = concurrency;
+		}
+		public String getName() {
+			return "FastTable.parallelSort (" + _concurrency + ") (" + _size + " elements)";
+		}
+		public void setUp() {
+			_table = new FastTable(_size);
+			for(int i = 0; i < _size; ++i) {
+				_table.add(Index.valueOf(MathLib.random(0, _size)));
+			}
+		}
+		public void execute() {
+			LocalContext.enter();
+			try {
+				ConcurrentContext.setConcurrency(_concurrency);
+				_table.parallelSort();
+				_index = _table.parallelIndexOf(_table.get(_size / 2));
+			}
+			finally {
+				LocalContext.exit();
+			}
+		}
+		public void validate() {
+			TestContext.assertEquals(_size, _table.size());
+			for(int i = 0; i < _size - 1; ++i) {
+				final int i1 = ((Index) _table.get(i)).intValue();
+				final int i2 = ((Index) _table.get(i + 1)).intValue();
+				if(!TestContext.assertTrue(i1 <= i2)) {
+					break;
+				}
+			}
+			TestContext.assertEquals(_table.indexOf(_table.get(_size / 2)), _index);
+		}
+	}
+	class ParallelOperations extends TestCase {
+		final int[] SIZES = { 0, 1, 2, 15, 16, 17, 1000, 10007, 100000 };
+		final int _concurrency;
+		final Random _random = new Random(17);
+		String _failure;
+		public ParallelOperations(int concurrency) {
+			_concurrency = concurrency;
+		}
+		public String getName() {
+			return "Parallel.forRange/reduce/map/prefixSum (" + _concurrency + ") against sequential loops";
+		}
+		public void setUp() {
+			Configurable.configure(Parallel.MINIMUM_GRAIN, new Integer(16)); // Small arrays split.
+		}
+		public void execute() {
+			_failure = null;
+			LocalContext.enter();
+			try {
+				ConcurrentContext.setConcurrency(_concurrency);
+				for(int i = 0; i < SIZES.length; i++) {
+					run(SIZES[i]);
+				}
+			}
+			finally {
+				LocalContext.exit();
+			}
+		}
+		public void tearDown() {
+			Configurable.configure(Parallel.MINIMUM_GRAIN, new Integer(1024));
+		}
+		public void validate() {
+			TestContext.assertNull(_failure);
+		}
+		void run(final int n) {
+			final int[] ints = new int[n];
+			final long[] longs = new long[n];
+			final double[] doubles = new double[n];
+			final FastIntArrayList intList = new FastIntArrayList();
+			final FastLongArrayList longList = new FastLongArrayList();
+			final FastDoubleArrayList doubleList = new FastDoubleArrayList();
+			final Integer[] objects = new Integer[n];
+			final FastTable table = new FastTable();
+			for(int i = 0; i < n; i++) {
+				ints[i] = _random.nextInt(); // Sums overflow.
+				longs[i] = _random.nextLong();
+				doubles[i] = _random.nextInt(2001) - 1000; // Exact sums.
+				intList.add(ints[i]);
+				longList.add(longs[i]);
+				doubleList.add(doubles[i]);
+				objects[i] = new Integer(ints[i]);
+				table.add(objects[i]);
+			}
+			final int grain = MathLib.max(7, n / 100);
+			// forRange (automatic and explicit grain), each index visited once.
+			final int[] visits = new int[n];
+			final Parallel.Range visit = new Parallel.Range() {
+				public void run(int from, int to) {
+					for(int i = from; i < to; i++) {
+						visits[i]++; // Disjoint sub-ranges.
+					}
+				}
+			};
+			Parallel.forRange(0, n, visit);
+			Parallel.forRange(0, n, grain, visit);
+			for(int i = 0; i < n; i++) {
+				check(visits[i] == 2, "forRange(" + n + ") index " + i);
+			}
+			// reduce, combined in index order (sub-ranges adjacent).
+			final int[] range = (int[]) Parallel.reduce(0, n, grain, new Parallel.Reducer() {
+				public Object reduce(int from, int to) {
+					return new int[] { from, to };
+				}
+				public Object combine(Object left, Object right) {
+					final int[] l = (int[]) left;
+					final int[] r = (int[]) right;
+					return l != null && r != null && l[1] == r[0] ? new int[] { l[0], r[1] } : null;
+				}
+			});
+			check(range != null && range[0] == 0 && range[1] == n, "reduce(" + n + ") order");
+			long expectedSum = 0;
+			for(int i = 0; i < n; i++) {
+				expectedSum += longs[i];
+			}
+			final Long sum = (Long) Parallel.reduce(0, n, new Parallel.Reducer() {
+				public Object reduce(int from, int to) {
+					long sum = 0;
+					for(int i = from; i < to; i++) {
+						sum += longs[i];
+					}
+					return new Long(sum);
+				}
+				public Object combine(Object left, Object right) {
+					return new Long(((Long) left).longValue() + ((Long) right).longValue());
+				}
+			});
+			check(sum.longValue() == expectedSum, "reduce(" + n + ") sum");
+			// map (arrays and tables).
+			final Parallel.Function negate = new Parallel.Function() {
+				public Object apply(Object value) {
+					return new Integer(-((Integer) value).intValue());
+				}
+			};
+			final Object[] mapped = Parallel.map(objects, new Object[n], negate);
+			final FastTable mappedTable = Parallel.map(table, negate);
+			check(mappedTable.size() == n, "map(" + n + ") table size");
+			for(int i = 0; i < n; i++) {
+				check(((Integer) mapped[i]).intValue() == -ints[i], "map(" + n + ") array");
+				check(((Integer) mappedTable.get(i)).intValue() == -ints[i], "map(" + n + ") table");
+			}
+			// prefixSum (arrays and lists).
+			final int[] expectedInts = (int[]) ints.clone();
+			final long[] expectedLongs = (long[]) longs.clone();
+			final double[] expectedDoubles = (double[]) doubles.clone();
+			for(int i = 1; i < n; i++) {
+				expectedInts[i] += expectedInts[i - 1];
+				expectedLongs[i] += expectedLongs[i - 1];
+				expectedDoubles[i] += expectedDoubles[i - 1];
+			}
+			Parallel.prefixSum(ints);
+			Parallel.prefixSum(longs);
+			Parallel.prefixSum(doubles);
+			Parallel.prefixSum(intList);
+			Parallel.prefixSum(longList);
+			Parallel.prefixSum(doubleList);
+			for(int i = 0; i < n && _failure == null; i++) {
+				check(ints[i] == expectedInts[i], "prefixSum(int[" + n + "]) index " + i);
+				check(longs[i] == expectedLongs[i], "prefixSum(long[" + n + "]) index " + i);
+				check(doubles[i] == expectedDoubles[i], "prefixSum(double[" + n + "]) index " + i);
+				check(intList.get(i) == expectedInts[i], "prefixSum(FastIntArrayList(" + n + ")) index " + i);
+				check(longList.get(i) == expectedLongs[i], "prefixSum(FastLongArrayList(" + n + ")) index " + i);
+				check(doubleList.get(i) == expectedDoubles[i], "prefixSum(FastDoubleArrayList(" + n + ")) index "
+						+ i);
+			}
+		}
+		void check(boolean condition, String message) {
+			if(!condition && _failure == null) {
+				_failure = message;
+			}
+		}
+	}
 	class SmallObjectAllocation extends TestCase {
 		final int N = 1000;
 		boolean _useStack;
@@ -189,7 +704,351 @@ public final class ContextTestSuite extends TestSuite {
 			TestContext.assertTrue(_array.length >= _size);
 		}
 	}
+	class LargeArrayRecycling extends TestCase {
+		final int _size; // Larger than the arrays cached per thread.
+		final ArrayFactory _factory = new ArrayFactory() {
+			protected Object create(int size) {
+				return new Object[size];
+			}
+		};
+		Object _recycled, _reused;
+		public LargeArrayRecycling(int size) {
+			_size = size;
+		}
+		public String getName() {
+			return "HeapContext, Object[" + _size + "] recycled by one thread, reused by another";
+		}
+		public void execute() throws Exception {
+			final Thread recycler = new Thread() {
+				public void run() {
+					_recycled = _factory.array(_size);
+					_factory.recycle(_recycled);
+				}
+			};
+			recycler.start();
+			recycler.join();
+			final Thread user = new Thread() {
+				public void run() {
+					_reused = _factory.array(_size);
+				}
+			};
+			user.start();
+			user.join();
+		}
+		public void validate() {
+			TestContext.assertTrue(_recycled != null && _reused == _recycled, "Array not returned to the shared pool");
+		}
+	}
+	class CrossThreadPooling extends TestCase {
+		final int ROUNDS = 2000;
+		final int _threads;
+		final LinkedList _exchange = new LinkedList(); // Objects passed between threads (guarded by itself).
+		final ObjectFactory _factory = new ObjectFactory() {
+			protected Object create() {
+				synchronized(CrossThreadPooling.this) {
+					_created++;
+				}
+				return new Pooled();
+			}
+		};
+		int _created, _allocated; // Guarded by this.
+		boolean _sharedInstance;
+		public CrossThreadPooling(int threads) {
+			_threads = threads;
+		}
+		public String getName() {
+			return "PoolContext, objects allocated and recycled by " + _threads + " threads";
+		}
+		public void setUp() {
+			_created = 0;
+			_allocated = 0;
+			_sharedInstance = false;
+		}
+		public void execute() throws Exception {
+			final Thread[] threads = new Thread[_threads];
+			for(int t = 0; t < _threads; t++) {
+				final Random random = new Random(t);
+				threads[t] = new Thread() {
+					public void run() {
+						PoolContext.enter();
+						try {
+							for(int i = 0; i < ROUNDS; i++) {
+								round(random);
+							}
+						}
+						finally {
+							PoolContext.exit();
+						}
+					}
+				};
+			}
+			for(int t = 0; t < _threads; t++) {
+				threads[t].start();
+			}
+			for(int t = 0; t < _threads; t++) {
+				threads[t].join();
+			}
+			PoolContext.enter(); // Recycles the objects left.
+			try {
+				while(!_exchange.isEmpty()) {
+					recycle((Pooled) _exchange.removeFirst());
+				}
+			}
+			finally {
+				PoolContext.exit();
+			}
+		}
+		// Allocates objects, passes some to the other threads and recycles the others
+		// and those allocated by the other threads.
+		void round(Random random) {
+			final ArrayList held = new ArrayList();
+			final int n = random.nextInt(32);
+			for(int i = 0; i < n; i++) {
+				final Pooled obj = (Pooled) _factory.object();
+				if(!obj.acquire()) {
+					_sharedInstance = true;
+				}
+				held.add(obj);
+			}
+			synchronized(this) {
+				_allocated += n;
+			}
+			for(int i = 0; i < held.size(); i++) {
+				final Pooled obj = (Pooled) held.get(i);
+				if(random.nextBoolean()) {
+					synchronized(_exchange) {
+						_exchange.addLast(obj);
+					}
+				}
+				else {
+					recycle(obj);
+				}
+			}
+			for(int i = random.nextInt(32); --i >= 0;) {
+				final Pooled obj;
+				synchronized(_exchange) {
+					if(_exchange.isEmpty())
+						break;
+					obj = (Pooled) _exchange.removeFirst();
+				}
+				recycle(obj);
+			}
+		}
+		void recycle(Pooled obj) {
+			obj.release();
+			_factory.recycle(obj);
+		}
+		public int count() {
+			return _allocated;
+		}
+		public void validate() {
+			TestContext.assertFalse(_sharedInstance, "Object allocated while in use");
+			TestContext.assertTrue(_created < _allocated / 2, "Objects not reused (" + _created + " created for "
+					+ _allocated + " allocations)");
+		}
+	}
+	class ArenaAllocation extends TestCase {
+		Header _first, _second, _inner, _afterInner, _reentered;
+		ByteBuffer _firstBuffer;
+		int _firstPosition, _secondPosition, _innerPosition, _afterInnerPosition, _reenteredPosition;
+		long _firstTime, _afterInnerTime, _reenteredTime;
+		public String getName() {
+			return "ArenaContext, bump allocation, zeroing and nested rewind";
+		}
+		public void execute() {
+			ArenaContext.enter();
+			try {
+				_first = (Header) Header.FACTORY.object();
+				_firstBuffer = _first.getByteBuffer();
+				_firstPosition = _first.getByteBufferPosition();
+				_first.time.set(-1);
+				_second = (Header) Header.FACTORY.object();
+				_secondPosition = _second.getByteBufferPosition();
+				_second.time.set(-1);
+				ArenaContext.enter();
+				try {
+					_inner = (Header) Header.FACTORY.object();
+					_innerPosition = _inner.getByteBufferPosition();
+					_inner.time.set(-1);
+				}
+				finally {
+					ArenaContext.exit(); // Rewinds to the second header end.
+				}
+				_afterInner = (Header) Header.FACTORY.object();
+				_afterInnerPosition = _afterInner.getByteBufferPosition();
+				_afterInnerTime = _afterInner.time.get(); // Memory of the inner header.
+				_firstTime = _first.time.get();
+			}
+			finally {
+				ArenaContext.exit();
+			}
+			ArenaContext.enter();
+			try {
+				_reentered = (Header) Header.FACTORY.object();
+				_reenteredPosition = _reentered.getByteBufferPosition();
+				_reenteredTime = _reentered.time.get(); // Memory of the first header.
+			}
+			finally {
+				ArenaContext.exit();
+			}
+		}
+		public void validate() {
+			final int size = _first.size();
+			TestContext.assertTrue(_firstBuffer.isDirect(), "Direct buffer");
+			TestContext.assertTrue(_second.getByteBuffer() == _firstBuffer, "Same arena chunk");
+			TestContext.assertEquals(0, _firstPosition % 8);
+			TestContext.assertEquals(0, _secondPosition % 8);
+			TestContext.assertTrue(_secondPosition >= _firstPosition + size, "Bump allocation");
+			TestContext.assertTrue(_innerPosition >= _secondPosition + size, "Bump allocation");
+			TestContext.assertEquals(_innerPosition, _afterInnerPosition); // Rewound.
+			TestContext.assertEquals(0L, _afterInnerTime); // Zeroed.
+			TestContext.assertEquals(-1L, _firstTime); // Outer memory kept.
+			TestContext.assertTrue(_reentered.getByteBuffer() == _firstBuffer, "Arena chunk reused");
+			TestContext.assertEquals(_firstPosition, _reenteredPosition);
+			TestContext.assertEquals(0L, _reenteredTime); // Zeroed.
+		}
+	}
+	class ArenaConcurrentAllocation extends TestCase {
+		Thread _owner, _executor;
+		ByteBuffer _arenaBuffer, _concurrentBuffer;
+		int _concurrentPosition, _concurrentSize;
+		public String getName() {
+			return "ArenaContext, concurrent allocation (" + ConcurrentContext.getConcurrency() + ")";
+		}
+		public void execute() {
+			_owner = Thread.currentThread();
+			ArenaContext.enter();
+			try {
+				_arenaBuffer = ((Header) Header.FACTORY.object()).getByteBuffer();
+				ConcurrentContext.enter();
+				try {
+					ConcurrentContext.execute(new Runnable() {
+						public void run() {
+							_executor = Thread.currentThread();
+							final Header header = (Header) Header.FACTORY.object();
+							_concurrentBuffer = header.getByteBuffer();
+							_concurrentPosition = header.getByteBufferPosition();
+							_concurrentSize = header.size();
+						}
+					});
+				}
+				finally {
+					ConcurrentContext.exit();
+				}
+			}
+			finally {
+				ArenaContext.exit();
+			}
+		}
+		public void validate() {
+			if(_executor == _owner) { // No concurrency, executed by the owner.
+				TestContext.assertTrue(_concurrentBuffer == _arenaBuffer, "Owner allocation not from the arena");
+			}
+			else { // Heap allocated (own buffer).
+				TestContext.assertTrue(_concurrentBuffer != _arenaBuffer, "Concurrent allocation from the arena");
+				TestContext.assertEquals(0, _concurrentPosition);
+				TestContext.assertEquals(_concurrentSize, _concurrentBuffer.capacity());
+			}
+		}
+	}
+	class AllocationStatisticsReport extends TestCase {
+		String _report;
+		public String getName() {
+			return "AllocationStatistics, PoolContext, StackContext and ArenaContext counters";
+		}
+		public void setUp() {
+			Configurable.configure(AllocationStatistics.ENABLED, Boolean.TRUE);
+			AllocationStatistics.reset();
+		}
+		public void execute() {
+			PoolContext.enter();
+			try {
+				final Object[] objs = new Object[10];
+				for(int i = 0; i < 10; i++) {
+					objs[i] = Counted.FACTORY.object(); // Created.
+				}
+				for(int i = 0; i < 10; i++) {
+					Counted.FACTORY.recycle(objs[i]);
+				}
+				for(int i = 0; i < 10; i++) {
+					objs[i] = Counted.FACTORY.object(); // Reused.
+				}
+				for(int i = 0; i < 4; i++) {
+					Counted.FACTORY.recycle(objs[i]);
+				}
+			}
+			finally {
+				PoolContext.exit(); // Six objects alive.
+			}
+			for(int n = 0; n < 2; n++) {
+				StackContext.enter();
+				try {
+					for(int i = 0; i < 5; i++) {
+						Counted.FACTORY.object();
+					}
+				}
+				finally {
+					StackContext.exit(); // Recycles all.
+				}
+			}
+			ArenaContext.enter();
+			try {
+				final Object obj = Counted.FACTORY.object();
+				Counted.FACTORY.object();
+				Counted.FACTORY.object();
+				Counted.FACTORY.recycle(obj);
+			}
+			finally {
+				ArenaContext.exit(); // Recycles the objects left.
+			}
+			_report = AllocationStatistics.report().toString();
+		}
+		public void tearDown() {
+			Configurable.configure(AllocationStatistics.ENABLED, Boolean.FALSE);
+		}
+		public void validate() {
+			assertLine("PoolContext", "objects 20, created 10 (hits 50.0%), recycled 14, alive 6 (max 10)");
+			assertLine("StackContext$Default", "objects 10, created 5 (hits 50.0%), recycled 10, alive 0 (max 5)");
+			assertLine("ArenaContext", "objects 3, created 3 (hits 0.0%), recycled 3, alive 0 (max 3)");
+		}
+		// Checks the report line of the Counted factory for the specified allocator context.
+		void assertLine(String contextName, String counters) {
+			final String line = Counted.class.getName() + " (" + contextName + "): " + counters;
+			TestContext.assertTrue(_report.indexOf(line + '\n') >= 0 || _report.endsWith(line), "Expected " + line
+					+ " in " + _report);
+		}
+	}
 	// Utility classes.
+	private static final class Header extends Struct {
+		static final ObjectFactory FACTORY = new ObjectFactory() {
+			protected Object create() {
+				return new Header();
+			}
+		};
+		final Signed32 id = new Signed32();
+		final Signed64 time = new Signed64();
+	}
+	private static final class Counted {
+		static final ObjectFactory FACTORY = new ObjectFactory() {
+			protected Object create() {
+				return new Counted();
+			}
+		};
+	}
+	static final class Thrower {
+		public Thrower() throws java.io.IOException {
+			throw new java.io.IOException("Task error");
+		}
+	}
+	private static final class Pooled {
+		private int _users; // Guarded by this.
+		synchronized boolean acquire() {
+			return _users++ == 0;
+		}
+		synchronized void release() {
+			_users--;
+		}
+	}
 	private static final class XYZ {
 		static ObjectFactory FACTORY = new ObjectFactory() {
 			protected Object create() {
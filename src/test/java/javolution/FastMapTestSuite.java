@@ -0,0 +1,350 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2007 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javolution.testing.TestCase;
+import javolution.testing.TestContext;
+import javolution.testing.TestSuite;
+import javolution.util.FastMap;
+import javolution.util.concurrent.ConcurrentHashMap;
+/**
+ * <p> This class holds the test cases for the {@link FastMap} class
+ *     (contention benchmarks against {@link ConcurrentHashMap} and
+ *     bounded cache mode against {@link LinkedHashMap}).</p>
+ *
+ * @since 5.7.5
+ */
+public final class FastMapTestSuite extends TestSuite {
+	// Holds the number of keys inserted by each thread.
+	static final int N = 10000;
+	// Holds the number of concurrent writers.
+	static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	public FastMapTestSuite() {
+		addTest(new ConcurrentPut(true));
+		addTest(new ConcurrentPut(false));
+		addTest(new ConcurrentPutRemove(true));
+		addTest(new ConcurrentPutRemove(false));
+		addTest(new BoundedSize());
+		addTest(new BoundedWeight());
+		addTest(new BoundedShared());
+		addTest(new BoundedReset());
+	}
+	public boolean isParallelizable() {
+		return false; // Contention benchmarks.
+	}
+	// Returns the map under test.
+	static Map newMap(boolean useFastMap) {
+		return useFastMap ? (Map) new FastMap().shared() : (Map) new ConcurrentHashMap();
+	}
+	// Distinct keys for each writer thread.
+	static Integer[][] newKeys() {
+		final Integer[][] keys = new Integer[THREADS][N];
+		for(int t = 0; t < THREADS; t++) {
+			for(int i = 0; i < N; i++) {
+				keys[t][i] = new Integer(t * N + i);
+			}
+		}
+		return keys;
+	}
+	// Runs the specified writers concurrently and waits for their completion.
+	static void runAll(Thread[] threads) throws InterruptedException {
+		for(int i = 0; i < threads.length; i++) {
+			threads[i].start();
+		}
+		for(int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+	}
+	class ConcurrentPut extends TestCase {
+		final boolean _useFastMap;
+		final Integer[][] _keys = newKeys();
+		Map _map;
+		public ConcurrentPut(boolean useFastMap) {
+			_useFastMap = useFastMap;
+		}
+		public String getName() {
+			return (_useFastMap ? "FastMap.shared()" : "ConcurrentHashMap") + ".put(distinct keys, " + THREADS
+					+ " threads)";
+		}
+		public void setUp() {
+			_map = newMap(_useFastMap);
+		}
+		public void execute() throws Exception {
+			final Thread[] threads = new Thread[THREADS];
+			for(int t = 0; t < THREADS; t++) {
+				final Integer[] keys = _keys[t];
+				threads[t] = new Thread() {
+					public void run() {
+						for(int i = 0; i < N; i++) {
+							_map.put(keys[i], keys[i]);
+						}
+					}
+				};
+			}
+			runAll(threads);
+		}
+		public int count() {
+			return THREADS * N;
+		}
+		public void validate() {
+			TestContext.assertEquals(THREADS * N, _map.size());
+			for(int t = 0; t < THREADS; t++) {
+				for(int i = 0; i < N; i++) {
+					if(!TestContext.assertEquals(_keys[t][i], _map.get(_keys[t][i])))
+						return;
+				}
+			}
+		}
+	}
+	class ConcurrentPutRemove extends TestCase {
+		final boolean _useFastMap;
+		final Integer[][] _keys = newKeys();
+		Map _map;
+		public ConcurrentPutRemove(boolean useFastMap) {
+			_useFastMap = useFastMap;
+		}
+		public String getName() {
+			return (_useFastMap ? "FastMap.shared()" : "ConcurrentHashMap") + ".put/remove(distinct keys, "
+					+ THREADS + " threads)";
+		}
+		public void setUp() {
+			_map = newMap(_useFastMap);
+		}
+		public void execute() throws Exception {
+			final Thread[] threads = new Thread[THREADS];
+			for(int t = 0; t < THREADS; t++) {
+				final Integer[] keys = _keys[t];
+				threads[t] = new Thread() {
+					public void run() {
+						for(int i = 0; i < N; i++) {
+							_map.put(keys[i], keys[i]);
+						}
+						for(int i = 0; i < N; i += 2) { // Removes even keys.
+							_map.remove(keys[i]);
+						}
+					}
+				};
+			}
+			runAll(threads);
+		}
+		public int count() {
+			return THREADS * N * 3 / 2;
+		}
+		public void validate() {
+			TestContext.assertEquals(THREADS * N / 2, _map.size());
+			for(int t = 0; t < THREADS; t++) {
+				for(int i = 0; i < N; i++) {
+					final Object expected = (i & 1) == 0 ? null : _keys[t][i];
+					if(!TestContext.assertEquals(expected, _map.get(_keys[t][i])))
+						return;
+				}
+			}
+		}
+	}
+	// Holds the maximum number of entries of the bounded maps.
+	static final int MAX = 64;
+	// Records the evicted keys.
+	static final class EvictionRecorder implements FastMap.EvictionListener {
+		final List _keys = new ArrayList();
+		public synchronized void evicted(Object key, Object value) {
+			_keys.add(key);
+		}
+		synchronized int size() {
+			return _keys.size();
+		}
+	}
+	// LRU reference, evicts the eldest entries while over the weight bound
+	// except for the most recently accessed one.
+	static final class LruReference extends LinkedHashMap {
+		final int _maximumSize;
+		final long _maximumWeight;
+		final List _evicted = new ArrayList();
+		LruReference(int maximumSize, long maximumWeight) {
+			super(16, 0.75f, true);
+			_maximumSize = maximumSize;
+			_maximumWeight = maximumWeight;
+		}
+		public Object put(Object key, Object value) {
+			final Object previous = super.put(key, value);
+			for(Iterator i = entrySet().iterator(); isOverLimit() && (size() > 1);) {
+				final Map.Entry eldest = (Map.Entry) i.next();
+				_evicted.add(eldest.getKey());
+				i.remove();
+			}
+			return previous;
+		}
+		private boolean isOverLimit() {
+			if(_maximumSize > 0)
+				return size() > _maximumSize;
+			long weight = 0;
+			for(Iterator i = values().iterator(); i.hasNext();) {
+				weight += ((String) i.next()).length();
+			}
+			return weight > _maximumWeight;
+		}
+	}
+	// Weighs the entries by the length of their (string) value.
+	static final FastMap.Weigher LENGTH = new FastMap.Weigher() {
+		public int weightOf(Object key, Object value) {
+			return ((String) value).length();
+		}
+	};
+	// Returns a value of the specified length.
+	static String newValue(int length) {
+		final StringBuffer sb = new StringBuffer(length);
+		for(int i = 0; i < length; i++) {
+			sb.append('x');
+		}
+		return sb.toString();
+	}
+	// Performs random put/get/remove on both maps, checks the eviction order.
+	abstract class Bounded extends TestCase {
+		static final int OPS = 100000;
+		final EvictionRecorder _recorder = new EvictionRecorder();
+		FastMap _map;
+		LruReference _reference;
+		public void execute() {
+			final Random random = new Random(7);
+			for(int i = 0; i < OPS; i++) {
+				final Integer key = new Integer(random.nextInt(MAX * 3));
+				final int op = random.nextInt(10);
+				if(op < 5) {
+					final String value = newValue(1 + random.nextInt(MAX / 2));
+					TestContext.assertEquals(_reference.put(key, value), _map.put(key, value));
+				}
+				else if(op < 9) {
+					TestContext.assertEquals(_reference.get(key), _map.get(key));
+				}
+				else {
+					TestContext.assertEquals(_reference.remove(key), _map.remove(key));
+				}
+				if((i & 0xFF) == 0 && !TestContext.assertEquals(new ArrayList(_reference.keySet()),
+						new ArrayList(_map.keySet()), "Access order after " + i + " operations"))
+					return;
+			}
+		}
+		public int count() {
+			return OPS;
+		}
+		public void validate() {
+			TestContext.assertTrue(_reference._evicted.size() > 0, "Entries evicted");
+			TestContext.assertEquals(_reference._evicted, _recorder._keys, "Eviction order");
+			TestContext.assertEquals(new ArrayList(_reference.keySet()), new ArrayList(_map.keySet()), "Access order");
+			TestContext.assertEquals(_reference, _map);
+		}
+	}
+	class BoundedSize extends Bounded {
+		public String getName() {
+			return "FastMap.setMaximumSize(" + MAX + ") LRU against LinkedHashMap(accessOrder)";
+		}
+		public void setUp() {
+			_map = new FastMap().setMaximumSize(MAX).setEvictionListener(_recorder);
+			_reference = new LruReference(MAX, 0);
+		}
+		public void validate() {
+			super.validate();
+			TestContext.assertTrue(_map.size() <= MAX, "Size " + _map.size() + " within bound");
+		}
+	}
+	class BoundedWeight extends Bounded {
+		public String getName() {
+			return "FastMap.setMaximumWeight(" + MAX * 4 + ", Weigher) LRU against LinkedHashMap(accessOrder)";
+		}
+		public void setUp() {
+			_map = new FastMap().setMaximumWeight(MAX * 4, LENGTH).setEvictionListener(_recorder);
+			_reference = new LruReference(0, MAX * 4);
+		}
+		public void validate() {
+			super.validate();
+			long weight = 0;
+			for(Iterator i = _map.values().iterator(); i.hasNext();) {
+				weight += ((String) i.next()).length();
+			}
+			TestContext.assertTrue(weight <= _map.getMaximumWeight(), "Weight " + weight + " within bound");
+		}
+	}
+	class BoundedShared extends TestCase {
+		final Integer[][] _keys = newKeys();
+		final EvictionRecorder _recorder = new EvictionRecorder();
+		final int[] _added = new int[THREADS];
+		FastMap _map;
+		public String getName() {
+			return "FastMap.shared().setMaximumSize(" + MAX + ").put/get(distinct keys, " + THREADS + " threads)";
+		}
+		public void setUp() {
+			_map = new FastMap().shared().setMaximumSize(MAX).setEvictionListener(_recorder);
+		}
+		public void execute() throws Exception {
+			final Thread[] threads = new Thread[THREADS];
+			for(int t = 0; t < THREADS; t++) {
+				final Integer[] keys = _keys[t];
+				final int index = t;
+				threads[t] = new Thread() {
+					public void run() {
+						for(int i = 0; i < N; i++) {
+							if(_map.put(keys[i], keys[i]) == null) {
+								_added[index]++;
+							}
+							_map.get(keys[i / 2]); // Sets reference bits.
+						}
+					}
+				};
+			}
+			runAll(threads);
+		}
+		public int count() {
+			return THREADS * N * 2;
+		}
+		public void validate() {
+			int added = 0;
+			for(int t = 0; t < THREADS; t++) {
+				added += _added[t];
+			}
+			TestContext.assertEquals(THREADS * N, added, "Entries added");
+			TestContext.assertTrue(_map.size() <= MAX, "Size " + _map.size() + " within bound");
+			TestContext.assertEquals(added - _recorder.size(), _map.size(), "Added - evicted");
+			TestContext.assertEquals(_map.size(), new ArrayList(_map.keySet()).size(), "Entries chain");
+		}
+	}
+	class BoundedReset extends TestCase {
+		final EvictionRecorder _recorder = new EvictionRecorder();
+		FastMap _map;
+		public String getName() {
+			return "FastMap.reset() clears the bounds";
+		}
+		public void setUp() {
+			_map = new FastMap().setMaximumSize(MAX).setMaximumWeight(MAX, LENGTH).setEvictionListener(_recorder);
+		}
+		public void execute() {
+			for(int i = 0; i < MAX * 2; i++) {
+				_map.put(new Integer(i), newValue(1));
+			}
+			TestContext.assertEquals(MAX, _recorder.size(), "Evicted before reset");
+			_map.reset();
+			for(int i = 0; i < N; i++) {
+				_map.put(new Integer(i), newValue(MAX));
+			}
+		}
+		public void validate() {
+			TestContext.assertEquals(0, _map.getMaximumSize());
+			TestContext.assertEquals(0L, _map.getMaximumWeight());
+			TestContext.assertEquals(MAX, _recorder.size(), "No eviction after reset");
+			TestContext.assertEquals(N, _map.size());
+			for(int i = 0; i < N; i++) {
+				_map.get(new Integer(i));
+			}
+			TestContext.assertEquals(new Integer(0), _map.keySet().iterator().next(), "Insertion order");
+		}
+	}
+}
@@ -27,6 +27,18 @@ public class JavolutionTest extends junit.framework.TestSuite {
 		for(final TestCase test : new StructTestSuite().tests()) {
 			suite.addTest(new JUnitTestCase(test));
 		}
+		for(final TestCase test : new FastMapTestSuite().tests()) {
+			suite.addTest(new JUnitTestCase(test));
+		}
+		for(final TestCase test : new ConcurrentTestSuite().tests()) {
+			suite.addTest(new JUnitTestCase(test));
+		}
+		for(final TestCase test : new CollectionTestSuite().tests()) {
+			suite.addTest(new JUnitTestCase(test));
+		}
+		for(final TestCase test : new XMLStreamTestSuite().tests()) {
+			suite.addTest(new JUnitTestCase(test));
+		}
 		// ...
 		return suite;
 	}
@@ -10,7 +10,10 @@ package javolution;
 import java.nio.ByteOrder;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Comparator;
+import javolution.context.ObjectFactory;
 import javolution.io.Struct;
+import javolution.io.StructArray;
 import javolution.testing.TestCase;
 import javolution.testing.TestContext;
 import javolution.testing.TestSuite;
@@ -51,6 +54,7 @@ public final class StructTestSuite extends TestSuite {
 		addTest(new StructUnsigned8Test(byteOrder));
 		addTest(new StructUnsigned16Test(byteOrder));
 		addTest(new StructUnsigned32Test(byteOrder));
+		addTest(new StructArraySortTest(byteOrder));
 	}
 	private static class StructBoolTest extends BaseStructTest {
 		private TestStruct struct;
@@ -340,6 +344,46 @@ public final class StructTestSuite extends TestSuite {
 			}
 		}
 	}
+	private static class StructArraySortTest extends BaseStructTest {
+		private static final int N = 10000;
+		private StructArray<TestStruct> array;
+		private StructArraySortTest(ByteOrder order) {
+			super("StructArray.sort", order);
+		}
+		public void execute() throws Exception {
+			array = new StructArray<TestStruct>(new ObjectFactory<TestStruct>() {
+				protected TestStruct create() {
+					return new TestStruct(order);
+				}
+			});
+			for(int i = 0; i < N; i++) {
+				final TestStruct record = array.add();
+				record.id.set(i);
+				record.price.set((i * 7919) % N); // Permutation of [0, N).
+			}
+			array.sort(new Comparator<TestStruct>() {
+				public int compare(TestStruct r1, TestStruct r2) {
+					return Double.compare(r1.price.get(), r2.price.get());
+				}
+			});
+		}
+		public void validate() throws Exception {
+			TestContext.assertEquals(N, array.size(), "StructArray size failed.");
+			for(int i = 0; i < N; i++) {
+				final TestStruct record = array.get(i);
+				if(!TestContext.assertEquals(i, (int) record.price.get(), "StructArray sort failed.")
+						|| !TestContext.assertEquals(i, (record.id.get() * 7919) % N, "StructArray copy failed."))
+					return;
+			}
+		}
+		private static class TestStruct extends BaseTestStruct {
+			final Signed32 id = new Signed32();
+			final Float64 price = new Float64();
+			private TestStruct(ByteOrder order) {
+				super(order);
+			}
+		}
+	}
 	private static abstract class BaseStructTest extends TestCase {
 		protected final ByteOrder order;
 		private final String type;
@@ -35,6 +35,8 @@ public final class TypeFormatTestSuite extends TestSuite {
 		addTest(new LongParseLongHexa());
 		addTest(new ParseDouble());
 		addTest(new DoubleParseDouble());
+		addTest(new ParseDoubleRounding());
+		addTest(new ParseDoubles());
 		// Formatting.
 		addTest(new FormatBoolean());
 		addTest(new StringBufferAppendBoolean());
@@ -45,6 +47,7 @@ public final class TypeFormatTestSuite extends TestSuite {
 		addTest(new FormatLongHexa());
 		addTest(new StringBufferAppendLongHexa());
 		addTest(new FormatDouble());
+		addTest(new FormatDoubleShortest());
 		addTest(new StringBufferAppendDouble());
 	}
 	class ParseBoolean extends TestCase {
@@ -398,6 +401,47 @@ public final class TypeFormatTestSuite extends TestSuite {
 	//
 	// FORMATTING
 	//
+	class ParseDoubleRounding extends TestCase {
+		// Long mantissas, halfway cases (ties to even), denormals and limits.
+		final String[] _texts = {"9007199254740993", "9007199254740995", "123456789012345678901234567890",
+				"1.00000000000000011102230246251565404236316680908203125",
+				"1.00000000000000011102230246251565404236316680908203126", "2.2250738585072011e-308",
+				"2.4703282292062327e-324", "2.4703282292062328e-324", "1.7976931348623158e308",
+				"1.7976931348623159e308", "7.3177701707893310e+15", "1e23", "1e-400"};
+		final double[] _actual = new double[_texts.length];
+		public String getName() {
+			return "TypeFormat.parseDouble(CharSequence) correct rounding";
+		}
+		public void execute() {
+			for(int i = 0; i < _texts.length; i++) {
+				_actual[i] = TypeFormat.parseDouble(_texts[i]);
+			}
+		}
+		public int count() {
+			return _texts.length;
+		}
+		public void validate() {
+			for(int i = 0; i < _texts.length; i++) {
+				TestContext.assertEquals(Double.valueOf(_texts[i]), new Double(_actual[i]), _texts[i]);
+			}
+		}
+	}
+	class ParseDoubles extends TestCase {
+		final char[] _chars = " 1.5, -2E3 0.25,\n7 ".toCharArray();
+		final double[] _values = new double[5];
+		int _count;
+		public String getName() {
+			return "TypeFormat.parseDoubles(char[], int, int, double[], int)";
+		}
+		public void execute() {
+			_count = TypeFormat.parseDoubles(_chars, 0, _chars.length, _values, 1);
+		}
+		public void validate() {
+			TestContext.assertEquals(4, _count);
+			TestContext.assertArrayEquals(new double[] {0, 1.5, -2000, 0.25, 7}, _values, 0);
+			TestContext.assertEquals(0.25, TypeFormat.parseDouble(_chars, 11, 4), 0);
+		}
+	}
 	class FormatBoolean extends TestCase {
 		boolean[] _expected = new boolean[N];
 		boolean[] _actual = new boolean[N];
@@ -658,6 +702,47 @@ public final class TypeFormatTestSuite extends TestSuite {
 			TestContext.assertEquals("NaN", TypeFormat.format(Double.NaN, TextBuilder.newInstance()).toString());
 		}
 	}
+	class FormatDoubleShortest extends TestCase {
+		final double[] _values = {0.1, 0.3, 100.0, 123.456, 9999999.0, 1.0E7, 0.001, 1.0E-4, 2.0 / 3,
+				5.0E-324, Double.MAX_VALUE, -1.5, 4.35, 6.93056E-4, 1.0E23, 2.224283707488532E-308, 0.671209};
+		final String[] _expected = {"0.1", "0.3", "100.0", "123.456", "9999999.0", "1.0E7", "0.001", "1.0E-4",
+				"0.6666666666666666", "5.0E-324", "1.7976931348623157E308", "-1.5", "4.35", "6.93056E-4", "1.0E23",
+				"2.224283707488532E-308", "0.671209"};
+		final double[] _random = new double[N];
+		final TextBuilder[] _appendables = new TextBuilder[_values.length + N];
+		public String getName() {
+			return "TextBuilder.append(double) shortest representation";
+		}
+		public void setUp() {
+			for(int i = 0; i < N; i++) {
+				_random[i] = Double.longBitsToDouble(MathLib.random(0L, 0x7FEFFFFFFFFFFFFFL));
+			}
+			for(int i = 0; i < _appendables.length; i++) {
+				_appendables[i] = TextBuilder.newInstance();
+			}
+		}
+		public void execute() {
+			for(int i = 0; i < _values.length; i++) {
+				_appendables[i].append(_values[i]);
+			}
+			for(int i = 0; i < N; i++) {
+				_appendables[_values.length + i].append(_random[i]);
+			}
+		}
+		public int count() {
+			return _appendables.length;
+		}
+		public void validate() {
+			for(int i = 0; i < _values.length; i++) {
+				TestContext.assertEquals(_expected[i], _appendables[i].toString());
+			}
+			for(int i = 0; i < N; i++) { // Round trip.
+				final String str = _appendables[_values.length + i].toString();
+				if(!TestContext.assertEquals(new Double(_random[i]), Double.valueOf(str), str))
+					break;
+			}
+		}
+	}
 	class StringBufferAppendDouble extends TestCase {
 		double[] _expected = new double[N];
 		double[] _actual = new double[N];
@@ -0,0 +1,188 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2007 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package javolution;
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import _templates.javolution.testing.TestCase;
+import _templates.javolution.testing.TestContext;
+import _templates.javolution.testing.TestSuite;
+import _templates.javolution.xml.stream.XMLStreamConstants;
+import _templates.javolution.xml.stream.XMLStreamException;
+import _templates.javolution.xml.stream.XMLStreamReaderImpl;
+/**
+ * <p> This class holds the test cases for the {@link XMLStreamReaderImpl}
+ *     inputs (input stream and heap or direct byte buffers).</p>
+ *
+ * @since 5.7.5
+ */
+public final class XMLStreamTestSuite extends TestSuite {
+	// Holds characters encoded on two, three and four bytes (surrogate pair).
+	static final String MULTI_BYTES = "\u00e9\u20ac\u4e2d\ud834\udd1e";
+	public XMLStreamTestSuite() {
+		addTest(new ByteBufferInput("UTF-8 prolog", utf8("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + document(true))));
+		addTest(new ByteBufferInput("UTF-8 byte order mark", bom(utf8(document(true)))));
+		addTest(new ByteBufferInput("US-ASCII prolog", utf8("<?xml version='1.0' encoding='US-ASCII'?>" + document(false))));
+		addTest(new ByteBufferInput("ascii prolog", utf8("<?xml version=\"1.0\" encoding=\"ascii\"?>" + document(false))));
+		addTest(new ByteBufferInput("no prolog", utf8(document(true))));
+		addTest(new ByteBufferRejection());
+	}
+	// Returns a document larger than the reader buffer (the multi-bytes
+	// characters are split at different offsets between reads).
+	static String document(boolean multiBytes) {
+		final String chars = multiBytes ? MULTI_BYTES : "abc";
+		final StringBuffer sb = new StringBuffer("<root xmlns:x=\"urn:x\">\n");
+		for(int i = 0; i < 500; i++) {
+			sb.append("<x:item id=\"").append(i).append("\" name=\"").append(chars).append(i).append("\">");
+			for(int j = i % 7; --j >= 0;) {
+				sb.append('a');
+			}
+			sb.append(chars).append(" &amp; ").append(i).append("</x:item>\n");
+		}
+		sb.append("<!-- ").append(chars).append(" -->");
+		sb.append("<?pi ").append(chars).append("?>");
+		sb.append("<![CDATA[<").append(chars).append(">]]>");
+		sb.append("<empty/></root>");
+		return sb.toString();
+	}
+	static byte[] utf8(String str) {
+		try {
+			return str.getBytes("UTF-8");
+		}
+		catch(final UnsupportedEncodingException e) {
+			throw new Error(e.toString());
+		}
+	}
+	// Prefixes the specified bytes with the UTF-8 byte order mark.
+	static byte[] bom(byte[] bytes) {
+		final byte[] tmp = new byte[bytes.length + 3];
+		tmp[0] = (byte) 0xEF;
+		tmp[1] = (byte) 0xBB;
+		tmp[2] = (byte) 0xBF;
+		System.arraycopy(bytes, 0, tmp, 3, bytes.length);
+		return tmp;
+	}
+	// Returns the textual representation of all the events of the specified
+	// reader (consecutive characters events are merged).
+	static String events(XMLStreamReaderImpl reader) throws XMLStreamException {
+		final StringBuffer sb = new StringBuffer();
+		boolean characters = false;
+		while(reader.hasNext()) {
+			final int event = reader.next();
+			if(event == XMLStreamConstants.CHARACTERS) {
+				if(!characters) {
+					sb.append("\n[CHARACTERS]");
+				}
+				sb.append(reader.getText());
+				characters = true;
+				continue;
+			}
+			characters = false;
+			sb.append("\n[").append(event).append(']');
+			if(event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+				sb.append('{').append(reader.getNamespaceURI()).append('}').append(reader.getLocalName());
+			}
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				for(int i = 0; i < reader.getAttributeCount(); i++) {
+					sb.append(' ').append(reader.getAttributeLocalName(i)).append('=');
+					sb.append(reader.getAttributeValue(i));
+				}
+			}
+			else if(event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+				sb.append(reader.getPITarget()).append(' ').append(reader.getPIData());
+			}
+			else if(event == XMLStreamConstants.COMMENT) {
+				sb.append(reader.getText());
+			}
+		}
+		return sb.toString();
+	}
+	class ByteBufferInput extends TestCase {
+		final String _name;
+		final byte[] _bytes;
+		final XMLStreamReaderImpl _reader = new XMLStreamReaderImpl();
+		String _expected, _heap, _slice, _direct;
+		public ByteBufferInput(String name, byte[] bytes) {
+			_name = name;
+			_bytes = bytes;
+		}
+		public String getName() {
+			return "XMLStreamReaderImpl, InputStream against heap, sliced and direct ByteBuffer (" + _name + ")";
+		}
+		public void execute() throws Exception {
+			_reader.reset();
+			_reader.setInput(new ByteArrayInputStream(_bytes));
+			_expected = events(_reader);
+			_reader.reset();
+			_reader.setInput(ByteBuffer.wrap(_bytes));
+			_heap = events(_reader);
+			_reader.reset();
+			final byte[] padded = new byte[_bytes.length + 10];
+			System.arraycopy(_bytes, 0, padded, 5, _bytes.length);
+			final ByteBuffer slice = ByteBuffer.wrap(padded, 5, _bytes.length).slice(); // Array offset 5.
+			_reader.setInput(slice);
+			_slice = events(_reader);
+			_reader.reset();
+			final ByteBuffer direct = ByteBuffer.allocateDirect(_bytes.length);
+			direct.put(_bytes).flip();
+			_reader.setInput(direct);
+			_direct = events(_reader);
+			_reader.reset();
+		}
+		public void validate() {
+			TestContext.assertTrue(_expected.indexOf("[CHARACTERS]<" + MULTI_BYTES + ">") >= 0
+					|| _expected.indexOf("[CHARACTERS]<abc>") >= 0, "CDATA section");
+			TestContext.assertTrue(_expected.indexOf("]pi " + MULTI_BYTES) >= 0 || _expected.indexOf("]pi abc") >= 0,
+					"Processing instruction");
+			TestContext.assertTrue(_expected.indexOf("id=499 name=") >= 0, "Last element");
+			TestContext.assertEquals(_expected, _heap, "Heap byte buffer");
+			TestContext.assertEquals(_expected, _slice, "Sliced heap byte buffer");
+			TestContext.assertEquals(_expected, _direct, "Direct byte buffer");
+		}
+	}
+	class ByteBufferRejection extends TestCase {
+		final XMLStreamReaderImpl _reader = new XMLStreamReaderImpl();
+		final byte[] _latin1;
+		boolean _latin1Rejected, _utf16Rejected;
+		public ByteBufferRejection() {
+			try {
+				_latin1 = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><root>\u00e9</root>".getBytes("ISO-8859-1");
+			}
+			catch(final UnsupportedEncodingException e) {
+				throw new Error(e.toString());
+			}
+		}
+		public String getName() {
+			return "XMLStreamReaderImpl, non UTF-8 ByteBuffer rejected (ISO-8859-1 prolog, UTF-16 byte order mark)";
+		}
+		public void execute() throws Exception {
+			_reader.reset();
+			_latin1Rejected = false;
+			try {
+				_reader.setInput(ByteBuffer.wrap(_latin1));
+			}
+			catch(final XMLStreamException e) {
+				_latin1Rejected = true;
+			}
+			_reader.reset();
+			_utf16Rejected = false;
+			try {
+				_reader.setInput(ByteBuffer.wrap(new byte[] { (byte) 0xFF, (byte) 0xFE, '<', 0, 'a', 0, '/', 0, '>', 0 }));
+			}
+			catch(final XMLStreamException e) {
+				_utf16Rejected = true;
+			}
+			_reader.reset();
+		}
+		public void validate() {
+			TestContext.assertTrue(_latin1Rejected, "ISO-8859-1 byte buffer rejected");
+			TestContext.assertTrue(_utf16Rejected, "UTF-16 byte buffer rejected");
+		}
+	}
+}